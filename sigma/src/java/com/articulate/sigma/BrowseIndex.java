@@ -0,0 +1,148 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  Supports the term browser by keeping, for each KB, the sorted
+ *  formulas for each (kind, argument, term) index key that has been
+ *  browsed, so that a page of a section is a slice of an array rather
+ *  than a fresh ask, filter and sort.  Rendered HTML rows are kept in
+ *  a least recently used cache.  Both are discarded when the KB's
+ *  version changes.
+ */
+public class BrowseIndex {
+
+    /** the number of rendered rows kept per KB if the
+     * "browseRowCacheSize" preference isn't set */
+    public static final int DEFAULT_MAX_ROWS = 5000;
+
+    private static HashMap<String,BrowseIndex> indexes = new HashMap<String,BrowseIndex>();
+
+    private KB kb = null;
+    private int version = 0;
+
+    /** the maximum number of rendered rows kept */
+    private final int maxRows;
+
+    /** sorted formula strings, keyed by index key and whether cached
+     * formulas are included */
+    private HashMap<String,String[]> sections = new HashMap<String,String[]>();
+
+    private LinkedHashMap<String,String> rows = new LinkedHashMap<String,String>(16,0.75f,true) {
+        protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+            return size() > maxRows;
+        }
+    };
+
+    /** ***************************************************************
+     */
+    private BrowseIndex(KB kb) {
+
+        this.kb = kb;
+        this.version = kb.getVersion();
+        this.maxRows = KBmanager.getMgr().getIntPref("browseRowCacheSize",DEFAULT_MAX_ROWS);
+    }
+
+    /** ***************************************************************
+     * @return the index for the current contents of the given KB
+     */
+    public static synchronized BrowseIndex getIndex(KB kb) {
+
+        BrowseIndex result = indexes.get(kb.name);
+        if (result == null || result.kb != kb || result.version != kb.getVersion()) {
+            result = new BrowseIndex(kb);
+            indexes.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the sorted formula strings for an index key, as in
+     * KB.ask(), leaving out formulas from the cache file unless
+     * showCached is true.
+     */
+    private synchronized String[] section(String kind, int argnum, String term, boolean showCached) {
+
+        String key = null;
+        if (kind.equals("arg"))
+            key = kind + "-" + argnum + "-" + term;
+        else
+            key = kind + "-" + term;
+        String sectionKey = key + (showCached ? "+" : "-");
+        String[] result = sections.get(sectionKey);
+        if (result != null)
+            return result;
+        ArrayList<String> strings = kb.formulas.get(key);
+        ArrayList<String> al = new ArrayList<String>();
+        if (strings != null) {
+            for (int i = 0; i < strings.size(); i++) {
+                String s = strings.get(i);
+                Formula f = kb.formulaMap.get(s);
+                if (f == null)
+                    continue;
+                if (showCached || f.sourceFile == null || !f.sourceFile.endsWith(KB._cacheFileSuffix))
+                    al.add(f.theFormula);
+            }
+        }
+        result = al.toArray(new String[al.size()]);
+        Arrays.sort(result);
+        sections.put(sectionKey,result);
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the number of formulas in a browser section
+     */
+    public int size(String kind, int argnum, String term, boolean showCached) {
+
+        return section(kind,argnum,term,showCached).length;
+    }
+
+    /** ***************************************************************
+     * @return the formulas of a browser section, in sorted order,
+     * from start up to but not including end
+     */
+    public ArrayList<Formula> page(String kind, int argnum, String term, boolean showCached,
+                                   int start, int end) {
+
+        String[] all = section(kind,argnum,term,showCached);
+        if (end > all.length)
+            end = all.length;
+        ArrayList<Formula> result = new ArrayList<Formula>();
+        for (int i = start; i < end; i++) {
+            Formula f = kb.formulaMap.get(all[i]);
+            if (f != null)
+                result.add(f);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the cached HTML row for a formula rendered with the given
+     * link prefix, natural language and formal language, or null
+     */
+    public synchronized String getRow(String formula, String kbHref, String language, String flang) {
+
+        return rows.get(formula + "\t" + kbHref + "\t" + language + "\t" + flang);
+    }
+
+    /** ***************************************************************
+     */
+    public synchronized void putRow(String formula, String kbHref, String language, String flang, String row) {
+
+        rows.put(formula + "\t" + kbHref + "\t" + language + "\t" + flang,row);
+    }
+}
@@ -833,7 +833,7 @@ public class Clausifier  {
      * 
      * @return An int value between 0 and Integer.MAX_VALUE inclusive.
      */
-    private static int incVarIndex() {
+    private static synchronized int incVarIndex() {
 
         int oldVal = VAR_INDEX;
         if (oldVal == Integer.MAX_VALUE) 
@@ -850,7 +850,7 @@ public class Clausifier  {
      * 
      * @return An int value between 0 and Integer.MAX_VALUE inclusive.
      */
-    private static int incSkolemIndex() {
+    private static synchronized int incSkolemIndex() {
 
         int oldVal = SKOLEM_INDEX;
         if (oldVal == Integer.MAX_VALUE)
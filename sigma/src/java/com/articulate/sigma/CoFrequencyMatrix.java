@@ -0,0 +1,181 @@
+/** This code is copyright Articulate Software (c) 2003-2007.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  A sparse matrix of how often each word co-occurs with each WordNet
+ *  word sense, as read by WordNet.readWordCoFrequencies().  Rows are
+ *  word senses of the form word_POS_num and columns are words, which
+ *  are matched against the lower case form of the words of a
+ *  sentence.  Each row is held in compressed sparse row form, as sorted
+ *  column IDs and their counts in primitive arrays, so that scoring a
+ *  sense against a sentence is a single merge of two sorted arrays.
+ */
+public class CoFrequencyMatrix {
+
+    private HashMap<String,Integer> senseRows = new HashMap<String,Integer>();
+    private HashMap<String,Integer> wordColumns = new HashMap<String,Integer>();
+
+    private int[] rowPtr = new int[] { 0 };
+    private int[] columns = new int[0];
+    private int[] counts = new int[0];
+
+    /** ***************************************************************
+     * The words of a sentence as a sparse vector of word IDs and the
+     * number of times each occurs.  Words that appear in no row of the
+     * matrix are dropped, since they can't contribute to a score.
+     */
+    public static class Context {
+
+        int[] columns;
+        int[] counts;
+
+        /** ***************************************************************
+         * @return the number of distinct known words in the context
+         */
+        public int size() {
+
+            return columns.length;
+        }
+    }
+
+    /** ***************************************************************
+     * Accumulates rows before they are packed into arrays.
+     */
+    public static class Builder {
+
+        private CoFrequencyMatrix m = new CoFrequencyMatrix();
+        private WordNetStore.IntList rowPtr = new WordNetStore.IntList();
+        private WordNetStore.IntList columns = new WordNetStore.IntList();
+        private WordNetStore.IntList counts = new WordNetStore.IntList();
+
+        public Builder() {
+
+            rowPtr.add(0);
+        }
+
+        /** ***************************************************************
+         * Add the row for a word sense.  A sense that is added twice
+         * keeps its last row, as a HashMap.put() would.
+         */
+        public void addRow(String sense, Map<String,Integer> frequencies) {
+
+            int n = frequencies.size();
+            long[] packed = new long[n];  // column in the high word, count in the low word
+            int i = 0;
+            for (Map.Entry<String,Integer> e : frequencies.entrySet()) {
+                String word = e.getKey();
+                Integer col = m.wordColumns.get(word);
+                if (col == null) {
+                    col = Integer.valueOf(m.wordColumns.size());
+                    m.wordColumns.put(word.intern(),col);
+                }
+                packed[i++] = ((long) col.intValue() << 32) | (e.getValue().intValue() & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed);
+            for (i = 0; i < n; i++) {
+                columns.add((int) (packed[i] >>> 32));
+                counts.add((int) packed[i]);
+            }
+            m.senseRows.put(sense.intern(),Integer.valueOf(rowPtr.size - 1));
+            rowPtr.add(columns.size);
+        }
+
+        /** ***************************************************************
+         */
+        public CoFrequencyMatrix build() {
+
+            m.rowPtr = Arrays.copyOf(rowPtr.data,rowPtr.size);
+            m.columns = Arrays.copyOf(columns.data,columns.size);
+            m.counts = Arrays.copyOf(counts.data,counts.size);
+            return m;
+        }
+    }
+
+    /** ***************************************************************
+     * @return the number of word senses with co-occurrence data
+     */
+    public int size() {
+
+        return senseRows.size();
+    }
+
+    /** ***************************************************************
+     * @return true if there is a row for the given word sense
+     */
+    public boolean containsSense(String sense) {
+
+        return senseRows.containsKey(sense);
+    }
+
+    /** ***************************************************************
+     * Convert the words of a sentence to a sparse vector, once, so that
+     * it can be scored against any number of senses.
+     */
+    public Context context(List<String> words) {
+
+        HashMap<Integer,Integer> tally = new HashMap<Integer,Integer>();
+        for (String w : words) {
+            if (w == null)
+                continue;
+            Integer col = wordColumns.get(w.toLowerCase());
+            if (col == null)
+                continue;
+            Integer c = tally.get(col);
+            tally.put(col,Integer.valueOf(c == null ? 1 : c.intValue() + 1));
+        }
+        Context result = new Context();
+        result.columns = new int[tally.size()];
+        int i = 0;
+        for (Integer col : tally.keySet())
+            result.columns[i++] = col.intValue();
+        Arrays.sort(result.columns);
+        result.counts = new int[result.columns.length];
+        for (i = 0; i < result.columns.length; i++)
+            result.counts[i] = tally.get(Integer.valueOf(result.columns[i])).intValue();
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the sum, over the words of the context, of the number of
+     * times each co-occurs with the sense, counting repeated words each
+     * time they occur, or -1 if there is no data for the sense at all
+     */
+    public int score(String sense, Context ctx) {
+
+        Integer row = senseRows.get(sense);
+        if (row == null)
+            return -1;
+        int i = rowPtr[row.intValue()];
+        int end = rowPtr[row.intValue() + 1];
+        int j = 0;
+        int total = 0;
+        while (i < end && j < ctx.columns.length) {
+            int c = columns[i];
+            int d = ctx.columns[j];
+            if (c < d)
+                i++;
+            else if (c > d)
+                j++;
+            else {
+                total = total + counts[i] * ctx.counts[j];
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+}
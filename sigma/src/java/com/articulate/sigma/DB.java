@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,12 +52,17 @@ import com.articulate.sigma.KB;
 such as spreadsheets. */
 public class DB {
 
-      // a map of word keys, broken down by POS, listing whether it's a positive or negative word
-      // keys are pre-defined as type, POS, stemmed, polarity
-    public static HashMap<String,HashMap<String,String>> sentiment = new HashMap<String,HashMap<String,String>>();
+      // the lexicon whose sentiment.csv entries are used to score words,
+      // or null if none has been read
+    private static volatile Lexicon sentiment = null;
     public static HashSet<String> amenityTerms = new HashSet<String>();
     public static HashSet<String> stopConcepts = new HashSet<String>();
 
+      // sentiment value of each word looked up so far, after finding its
+      // root form, shared by all threads scoring reviews and cleared
+      // when the sentiment lexicon is read again
+    private static ConcurrentHashMap<String,Integer> wordSentiment = new ConcurrentHashMap<String,Integer>();
+
     /** ***************************************************************
      *  Print statistics in a summary form for TPTP test run
      *  data
@@ -1217,8 +1223,9 @@ public class DB {
 
         //System.out.println("INFO in DB.getWordSenses()");
         ArrayList<String> result = new ArrayList<String>();
+        ArrayList<String> senses = WSD.findWordSensesInContext(al);
         for (int i = 0; i < al.size(); i++) {
-            String term = WordNet.wn.getSUMOMapping(WSD.findWordSenseInContext(al.get(i),al));
+            String term = WordNet.wn.getSUMOMapping(senses.get(i));
             if (!DB.emptyString(term))
                 result.add(term);
             else {
@@ -1240,6 +1247,9 @@ public class DB {
         KB kb = KBmanager.getMgr().getKB("SUMO");
         String foodSynset1 = "107555863"; // food, solid_food
         String foodSynset2 = "100004475"; // being, organism
+        ArrayList<String> foodSynsets = new ArrayList<String>();
+        foodSynsets.add(foodSynset1);
+        foodSynsets.add(foodSynset2);
         //System.out.println("INFO in DB.getFoodWordSenses()");
         ArrayList<String> result = new ArrayList<String>();
         for (int i = 0; i < al.size(); i++) {
@@ -1252,6 +1262,7 @@ public class DB {
             while (it.hasNext()) {
                 String word = (String) it.next();
                 ArrayList<String> al3 = al2.get(word);
+                boolean[] isFood = WordNet.wn.getHypernymIndex().isHyponymOfAny(al3,foodSynsets);
                 for (int j = 0; j < al3.size(); j++) {
                     String term = WordNet.wn.getSUMOMapping(al3.get(j));
                     if (!DB.emptyString(term)) {
@@ -1260,8 +1271,7 @@ public class DB {
                             if (term.charAt(term.length() - 1) == '=')
                                 equivalence = true;
                             String aterm = WordNetUtilities.getBareSUMOTerm(terms[k]);
-                            if (WordNet.wn.isHyponym(al3.get(j),foodSynset1) ||
-                                    WordNet.wn.isHyponym(al3.get(j),foodSynset2))
+                            if (isFood[j])
                                 if (!kb.isChildOf(aterm,"Human") && !kb.isChildOf(aterm,"GroupOfPeople") &&
                                         !kb.isChildOf(aterm,"Food") && !kb.isChildOf(aterm,"Attribute"))
                                     result.add(aterm);
@@ -1527,77 +1537,129 @@ public class DB {
     }
 
     /** *************************************************************
-     *  Fill out from a CSV file a map of word keys, and values broken down by POS,
-        listing whether it's a positive or negative word interior hash map keys are
-        type, POS, stemmed, polarity
-        @return void side effect on static variable "sentiment"
+     *  Read the sentiment entries of sentiment.csv, through Lexicon, if
+     *  they have not been read, or read them again if the file has changed.
      */
     public static void readSentimentArray() {
 
-        if (sentiment.size() > 0) {
-            System.out.println("Error in DB.readSentimentArray(): file previously read.");
-            return;
-        }
-        ArrayList<ArrayList<String>> f = DB.readSpreadsheet(KBmanager.getMgr().getPref("kbDir") + 
-        		File.separator + "WordNetMappings" + File.separator + "sentiment.csv",null,false);
-        for (int i = 0; i < f.size(); i++) {
-            ArrayList<String> al = f.get(i);
-            HashMap<String,String> entry = new HashMap<String,String>();
-            entry.put("type",al.get(0));   // weak, strong
-            entry.put("POS",al.get(2));    // noun,verb,adj,adverb,anypos
-            entry.put("stemmed",al.get(3));   // y,n
-            entry.put("polarity",al.get(4));  // positive, negative
-            sentiment.put(al.get(1),entry);
+        if (sentiment == null)
+            setSentiment(Lexicon.get());
+        else
+            currentSentiment();
+    }
+
+    /** *************************************************************
+     *  Use the sentiment entries of the sentiment.csv file in dir.
+     */
+    public static void readSentimentArray(String dir) {
+
+        setSentiment(Lexicon.get(dir));
+    }
+
+    /** *************************************************************
+     *  @return true if sentiment entries have been read
+     */
+    public static boolean sentimentLoaded() {
+
+        return sentiment != null;
+    }
+
+    /** *************************************************************
+     *  @return the sentiment value cached for a word by
+     *  computeSentimentForWord(), or null if it has not been computed
+     */
+    public static Integer getCachedSentiment(String word) {
+
+        return wordSentiment.get(word);
+    }
+
+    /** *************************************************************
+     */
+    private static synchronized void setSentiment(Lexicon lexicon) {
+
+        if (lexicon != sentiment) {
+            sentiment = lexicon;
+            wordSentiment.clear();
         }
     }
 
+    /** *************************************************************
+     * @return the sentiment lexicon, replaced by the one Lexicon has
+     * read again if its files have changed, or null if none has been read
+     */
+    private static Lexicon currentSentiment() {
+
+        Lexicon lexicon = sentiment;
+        if (lexicon == null)
+            return null;
+        Lexicon now = Lexicon.get(lexicon.getDirectory());
+        if (now != lexicon)
+            setSentiment(now);
+        return now;
+    }
+
     /** *************************************************************
      * Calculate an integer sentiment value for a string of words.
      */
     public static int computeSentiment(String input) {
 
+        Lexicon lexicon = currentSentiment();
         String description = WordNet.wn.removeStopWords(input.trim());
         description = StringUtil.removePunctuation(description);
         String[] words = description.split(" ");
         int total = 0;
         for (int i = 0; i < words.length; i++)
-            total = total + computeSentimentForWord(words[i]);
+            total = total + computeSentimentForWord(lexicon,words[i]);
         return total;
     }
 
     /** *************************************************************
      * Find the sentiment value for a given word, after finding the root
-     * form of the word.
+     * form of the word.  Values are cached in wordSentiment, so the
+     * root forms of each distinct word are only looked up once.
      */
     public static int computeSentimentForWord(String word) {
 
+        return computeSentimentForWord(currentSentiment(),word);
+    }
+
+    /** *************************************************************
+     */
+    private static int computeSentimentForWord(Lexicon lexicon, String word) {
+
         //System.out.println("INFO in DB.computeSentimentForWord() word: " + word);
-        if (sentiment.keySet().size() < 1) {
+        if (lexicon == null || lexicon.getSentimentMap().size() < 1) {
             System.out.println("Error in DB.computeSentimentForWord() sentiment list not loaded.");
             return 0;
         }
-        String nounroot = WordNet.wn.nounRootForm(word,word.toLowerCase());
-        String verbroot = WordNet.wn.verbRootForm(word,word.toLowerCase());
-        HashMap<String,String> hm = null;
-        if (sentiment.keySet().contains(word))
-            hm = sentiment.get(word);
-        else if (!word.equals(verbroot) && sentiment.keySet().contains(verbroot))
-            hm = sentiment.get(verbroot);
-        else if (!word.equals(nounroot) && sentiment.keySet().contains(nounroot))
-            hm = sentiment.get(nounroot);
-        if (hm != null) {
-            int multiplier = 0;
-            if (hm.get("type").equals("weak"))
-                multiplier = 1;
-            if (hm.get("type").equals("strong"))
-                multiplier = 5;
-            if (hm.get("polarity").equals("neutral"))
-                multiplier = 0;
-            if (hm.get("polarity").equals("positive"))
-                return multiplier;
-            else
-                return - multiplier;
+        Integer cached = wordSentiment.get(word);
+        if (cached != null)
+            return cached.intValue();
+        int result = lookupSentimentForWord(lexicon,word);
+        if (lexicon == sentiment)
+            wordSentiment.put(word,Integer.valueOf(result));
+        return result;
+    }
+
+    /** *************************************************************
+     * Find the sentiment value for a given word in the sentiment list,
+     * trying the word itself, then its verb and noun root forms.
+     */
+    private static int lookupSentimentForWord(Lexicon lexicon, String word) {
+
+        Lexicon.Sentiment s = lexicon.getSentiment(word);
+        if (s == null) {
+            String verbroot = WordNet.wn.verbRootForm(word,word.toLowerCase());
+            if (verbroot != null && !word.equals(verbroot))
+                s = lexicon.getSentiment(verbroot);
+        }
+        if (s == null) {
+            String nounroot = WordNet.wn.nounRootForm(word,word.toLowerCase());
+            if (nounroot != null && !word.equals(nounroot))
+                s = lexicon.getSentiment(nounroot);
         }
+        if (s != null)
+            return s.score();
         return 0;
     }
 
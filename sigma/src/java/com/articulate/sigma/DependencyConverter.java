@@ -21,11 +21,26 @@ public class DependencyConverter {
             "February","March","April","May","June","July","August",
             "September","October","November","December");
 
-    public static KB kb;
-    public static StringBuffer output = new StringBuffer();
-    public static HashSet<String> maleNames = new HashSet<String>();
-    public static HashSet<String> femaleNames = new HashSet<String>();
-    
+    // the output and the KB belong to one conversion, so that
+    // converters on different threads don't share them
+    public KB kb;
+    public StringBuffer output = new StringBuffer();
+    public static Set<String> maleNames = Collections.emptySet();
+    public static Set<String> femaleNames = Collections.emptySet();
+
+    /** *************************************************************
+     */
+    public DependencyConverter() {
+
+    }
+
+    /** *************************************************************
+     */
+    public DependencyConverter(KB kb) {
+
+        this.kb = kb;
+    }
+
     /** *************************************************************
      */
     public static boolean isModal(String arg) {
@@ -171,60 +186,15 @@ public class DependencyConverter {
     }
 
     /** ***************************************************************
-     * Read the FirstNames.cvs file into maleName and femaleNames
+     * Set maleNames and femaleNames from FirstNames.csv, which Lexicon
+     * reads once and again only when it changes.  The sets are
+     * immutable, so they can be read by any number of converters.
      */
     public static void readFirstNames() {
 
-        System.out.println("INFO in DependencyConverter.readFirstNames(): Reading first names");
-        LineNumberReader lr = null;
-        File swFile = null;
-        String canonicalPath = "";
-        try {
-            String baseDir = KBmanager.getMgr().getPref("kbDir");
-            swFile = new File(baseDir + File.separator + "WordNetMappings" + File.separator + "FirstNames.csv");
-            if (swFile == null) {
-                System.out.println("Error in DependencyConverter.readFirstNames(): " + 
-                                    "The first names file does not exist in " + baseDir);
-                return;
-            }
-            canonicalPath = swFile.getCanonicalPath();
-            long t1 = System.currentTimeMillis();
-            FileReader r = new FileReader(swFile);
-            lr = new LineNumberReader(r);
-            String line;
-            lr.readLine(); // throw away the header
-            while ((line = lr.readLine()) != null) {
-                int comma = line.indexOf(',');
-                if (comma < 0)
-                    throw new Exception("missing comma in '" + line + '"');
-                String name = StringUtil.removeEnclosingChars(line.substring(0,comma).trim(),Integer.MAX_VALUE,'"');
-                String gender = StringUtil.removeEnclosingChars(line.substring(comma+1,line.length()).trim(),Integer.MAX_VALUE,'"');
-                //System.out.println("INFO in DependencyConverter.readFirstNames(): gender: " + gender);
-                if (gender.equals("M"))
-                    maleNames.add(name);   
-                else if (gender.equals("F"))
-                    femaleNames.add(name); 
-                else 
-                    throw new Exception("bad gender tag in '" + line + "'");
-            }
-            System.out.println("  " + ((System.currentTimeMillis() - t1) / 1000.0)
-                    + " seconds to process " + canonicalPath );
-        }
-        catch (Exception i) {
-            System.out.println("Error in DependencyConverter.readFirstNames() reading file "
-                    + canonicalPath + ": " + i.getMessage());
-            i.printStackTrace();
-        }
-        finally {
-            try {
-                if (lr != null) {
-                    lr.close();
-                }
-            }
-            catch (Exception ex) {
-            }
-        }
-        return;
+        Lexicon lexicon = Lexicon.get();
+        maleNames = lexicon.getMaleNames();
+        femaleNames = lexicon.getFemaleNames();
     }
 
     /** *************************************************************
@@ -234,7 +204,7 @@ public class DependencyConverter {
      * the context of the individual relation.  Generate and return
      * a new context to be inherited by child nodes.
      */
-    public static HashMap<String,String> processDependency(Node n) {
+    public HashMap<String,String> processDependency(Node n) {
         
         HashMap<String,String> context = new HashMap<String,String>();
         String process = "";
@@ -664,7 +634,7 @@ public class DependencyConverter {
         else {
             try {
                 KBmanager.getMgr().initializeOnce();
-                kb = KBmanager.getMgr().getKB("SUMO");
+                KB kb = KBmanager.getMgr().getKB("SUMO");
                 WordNet.wn.initOnce();
                 //System.out.println("Africa: " + WSD.getBestDefaultSUMOsense("Africa",1));
                 //System.out.println("Africa: " + WordNetUtilities.getBareSUMOTerm(WSD.getBestDefaultSUMOsense("Africa",1)));
@@ -673,7 +643,7 @@ public class DependencyConverter {
                 //System.out.println("Info in DependencyConverter.main(): is there a substitution: " + WordNetUtilities.substTest("rolls","s$","",WordNet.wn.verbSynsetHash)); 
                 //System.out.println("Info in DependencyConverter.main(): synsets for roll: " + WordNet.wn.verbSynsetHash.get("roll")); 
                 //System.out.println("Info in DependencyConverter.main(): root form: " + WordNet.wn.verbRootForm("rolls","rolls")); 
-                DependencyConverter dc = new DependencyConverter();
+                DependencyConverter dc = new DependencyConverter(kb);
                 // ArrayList<String> results = getDependencies("After an unsuccessful Baltimore theatrical debut in 1856, John played minor roles in Philadelphia until 1859, when he joined a Shakespearean stock company in Richmond, Va.");
                 ArrayList<String> results = getDependencies("The bank hired John.");
                 //ArrayList<String> results = getDependencies("John rolls the ball through Africa.");/
@@ -682,8 +652,8 @@ public class DependencyConverter {
                 
                 Node n = dc.createGraph(results);
                 dc.traverseNodes(n);
-                output.append(")");
-                System.out.println(Formula.textFormat(output.toString()));
+                dc.output.append(")");
+                System.out.println(Formula.textFormat(dc.output.toString()));
                 //System.out.println("Info in DependencyConverter.main(): " + WordNetUtilities.getBareSUMOTerm(WSD.getBestDefaultSUMOsense("pin",1)));
                 //System.out.println(kb.isChildOf("Africa","Region"));
             }
@@ -21,6 +21,7 @@ MA  02111-1307 USA
 package com.articulate.sigma;
 
 import com.articulate.sigma.nlp.CorefSubstitutor;
+import com.articulate.sigma.nlp.pipeline.Pipeline;
 import com.google.common.collect.Lists;
 import edu.stanford.nlp.util.StringUtils;
 
@@ -39,10 +40,33 @@ public class Document {
      */
     public List<String> addUtterance(String utterance) {
 
-        List<String> toCoreference = Lists.newArrayList(documentContent);
+        return addUtterance(utterance, null, 0);
+    }
+
+    /** *************************************************************
+     * Inserts a new utterance, resolving coreference against only the
+     * most recent prior sentences.  Prior sentences are already
+     * substituted, so they act as context and are not re-emitted.
+     * @param pipeline an existing pipeline to annotate with, or null to
+     *                 create one for this call
+     * @param window the number of prior sentences to use as context, or
+     *               0 for the whole document
+     * @return returns a coreference replaced version of the utterances
+     */
+    public List<String> addUtterance(String utterance, Pipeline pipeline, int window) {
+
+        int start = 0;
+        if (window > 0 && documentContent.size() > window)
+            start = documentContent.size() - window;
+        List<String> toCoreference = Lists.newArrayList(documentContent.subList(start, documentContent.size()));
+        int contextSize = toCoreference.size();
         toCoreference.add(utterance);
-        List<String> substitutedInputs = CorefSubstitutor.substitute(toCoreference);
-        List<String> newSentences = substitutedInputs.subList(documentContent.size(), substitutedInputs.size());
+        List<String> substitutedInputs;
+        if (pipeline == null)
+            substitutedInputs = CorefSubstitutor.substitute(toCoreference);
+        else
+            substitutedInputs = CorefSubstitutor.substitute(toCoreference, pipeline);
+        List<String> newSentences = Lists.newArrayList(substitutedInputs.subList(contextSize, substitutedInputs.size()));
         documentContent.addAll(newSentences);
         return newSentences;
     }
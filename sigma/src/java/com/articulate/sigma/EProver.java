@@ -14,9 +14,12 @@ August 9, Acapulco, Mexico.  See also sigmakee.sourceforge.net
 import java.io.*;
 import java.text.ParseException;
 import java.util.*;
+import java.util.logging.Logger;
 
 public class EProver {
 
+    private static final Logger logger = SigmaLog.getLogger(EProver.class);
+
     private ProcessBuilder _builder;
     private Process _eprover;
     private BufferedReader _reader; 
@@ -195,7 +198,7 @@ public class EProver {
                 line = _reader.readLine();
                 if (line.indexOf("Error:") != -1)
                     throw new IOException(line);
-                System.out.println("INFO EProver(): Response: " + line);
+                logger.fine("response: " + line);
                 result += line + "\n";
                 if (line.indexOf("# Processing finished") != -1)
                     break;
@@ -253,7 +256,7 @@ public class EProver {
                             pw.print("fof(kb_" + kb.name + "_UserAssertion" + "_" + axiomIndex++);
                             pw.println(",axiom,(" + theTPTPFormula + ")).");
                             String tptpstring = "fof(kb_" + kb.name + "_UserAssertion" + "_" + axiomIndex + ",axiom,(" + theTPTPFormula + ")).";
-                            System.out.println("INFO in EProver.assertFormula: TPTP for user assertion = " + tptpstring);
+                            logger.fine("TPTP for user assertion = " + tptpstring);
                         }
                         pw.flush();
                     }
@@ -315,9 +318,12 @@ public class EProver {
         String result = "";
 
         try {
+            long t = Metrics.start();
             String query = SUMOformulaToTPTPformula.tptpParseSUOKIFString(formula,true);
+            Metrics.time("query.tptp", t);
             String conjecture = "fof(conj1,conjecture, " + query + ").";
-            System.out.println("\nINFO in EProver.submitQuery() conjecture: " + conjecture + "\n");
+            logger.fine("conjecture: " + conjecture);
+            t = Metrics.start();
             _writer.write(conjecture + "\n");
             _writer.write("go.\n");
             _writer.flush();
@@ -334,6 +340,7 @@ public class EProver {
                 }
                 line = _reader.readLine();
             }
+            Metrics.time("query.prover", t);
         }
         catch (Exception ex) {
             System.out.println("Error in EProver.submitQuery(): " + ex.getMessage());
@@ -212,6 +212,7 @@ public class Formula implements Comparable {
 		this.startLine = f.startLine;
 		this.sourceFile = f.sourceFile.intern();
 		this.theFormula = f.theFormula.intern();
+		this.canonical = f.canonical;
 	}
 	
     /** *****************************************************************
@@ -314,6 +315,7 @@ public class Formula implements Comparable {
      */
     public void read(String s) {
         theFormula = s;
+        canonical = null;
     }
 
     /** ***************************************************************
@@ -357,6 +359,7 @@ public class Formula implements Comparable {
         result.endLine = endLine;
         if (theFormula != null)
             result.theFormula = theFormula.intern();
+        result.canonical = canonical;
         return result;
     }
 
@@ -1025,14 +1028,96 @@ public class Formula implements Comparable {
         }
     }
 
+    /** ***************************************************************
+     * The variable-normalized form of a formula String and a 64-bit
+     * fingerprint of it, kept with the String they were computed from.
+     * Instances are never changed, so one can be shared between
+     * threads and between copies of a Formula.
+     */
+    private static class CanonicalForm {
+
+        final String source;
+        final String form;
+        final long fingerprint;
+
+        CanonicalForm(String source) {
+            this.source = source;
+            this.form = Clausifier.normalizeVariables(source).trim();
+            this.fingerprint = fingerprint(form);
+        }
+    }
+
+    /** the canonical form of theFormula, or null if not yet computed */
+    private CanonicalForm canonical = null;
+
+    /** ***************************************************************
+     * @return a 64-bit FNV-1a hash of the characters of s
+     */
+    public static long fingerprint(String s) {
+
+        long result = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            result ^= s.charAt(i);
+            result *= 0x100000001b3L;
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the canonical form of theFormula, computed the first time
+     * it is needed and again only when theFormula changes.  Since
+     * theFormula is public and is assigned directly in many places,
+     * the cached form is checked against the current String rather
+     * than relying on read() alone to discard it.
+     */
+    private CanonicalForm getCanonical() {
+
+        String text = theFormula;
+        if (text == null)
+            return null;
+        CanonicalForm result = canonical;
+        if (result == null || (result.source != text && !result.source.equals(text))) {
+            result = new CanonicalForm(text);
+            canonical = result;
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return theFormula with its variables renamed in order of
+     * occurrence, as compared by equals(), or null if there is no
+     * formula
+     */
+    public String getCanonicalForm() {
+
+        CanonicalForm cf = getCanonical();
+        if (cf == null)
+            return null;
+        return cf.form;
+    }
+
+    /** ***************************************************************
+     * @return a 64-bit hash of getCanonicalForm(), so that formulas
+     * that are equal() have the same fingerprint
+     */
+    public long getFingerprint() {
+
+        CanonicalForm cf = getCanonical();
+        if (cf == null)
+            return 0L;
+        return cf.fingerprint;
+    }
+
     /** ***************************************************************
      * If equals is overridedden, hashCode must use the same
      * "significant" fields.
      */
     public int hashCode() {
 
-        String thisString = Clausifier.normalizeVariables(this.theFormula).trim();
-        return (thisString.hashCode());
+        CanonicalForm cf = getCanonical();
+        if (cf == null)
+            return 0;
+        return cf.form.hashCode();
     }
 
     /** ***************************************************************
@@ -1051,9 +1136,13 @@ public class Formula implements Comparable {
         if(f.theFormula == null) {
             return (this.theFormula == null);
         }
-        String thisString = Clausifier.normalizeVariables(this.theFormula).trim();
-        String argString = Clausifier.normalizeVariables(f.theFormula).trim();
-        return (thisString.equals(argString));
+        if (this.theFormula == null)
+            return false;
+        CanonicalForm thisForm = getCanonical();
+        CanonicalForm argForm = f.getCanonical();
+        if (thisForm.fingerprint != argForm.fingerprint)
+            return false;
+        return (thisForm.form.equals(argForm.form));
     }
 
     /** ***************************************************************
@@ -1074,7 +1163,7 @@ public class Formula implements Comparable {
         sform.read(s);
         s = sform.toString().trim().intern();
 
-        form.theFormula = Clausifier.normalizeVariables(theFormula);
+        form.theFormula = getCanonicalForm();
         f = form.toString().trim().intern();
         return (f.equals(s));
     }
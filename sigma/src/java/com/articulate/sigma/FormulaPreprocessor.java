@@ -66,27 +66,27 @@ public class FormulaPreprocessor {
      */
     public void winnowTypeList(HashSet<String> types, KB kb) {
 
-        long t1 = 0L;
         if (types.size() > 1) {
+            VariableTypeCache cache = VariableTypeCache.getCache(kb);
             Object[] valArr = types.toArray();
-            String clX = null;
-            String clY = null;
             for (int i = 0; i < valArr.length; i++) {
-                boolean stop = false;
-                for (int j = 0; j < valArr.length; j++) {
-                    if (i != j) {
-                        clX = (String) valArr[i];
-                        clY = (String) valArr[j];
-                        if (clX.equals(clY) || kb.isSubclass(clX, clY)) {
-                            types.remove(clY);
-                            if (types.size() < 2) {
-                                stop = true;
-                                break;
-                            }
+                HashSet<String> supers = cache.getSuperclasses((String) valArr[i]);
+                if (supers.size() < types.size()) {
+                    for (String sup : supers) {
+                        if (types.remove(sup) && types.size() < 2)
+                            return;
+                    }
+                }
+                else {
+                    Iterator<String> it = types.iterator();
+                    while (it.hasNext()) {
+                        if (supers.contains(it.next())) {
+                            it.remove();
+                            if (types.size() < 2)
+                                return;
                         }
                     }
                 }
-                if (stop) break;
             }
         }
         return;
@@ -542,15 +542,19 @@ public class FormulaPreprocessor {
      *         restrictions are marked with a '+', meaning that a
      *         domainSubclass is defined for this argument in one of
      *         the loaded .kif files. Instance restrictions have no
-     *         special mark.
+     *         special mark.  Results are remembered for each formula
+     *         in the KB's VariableTypeCache.
      */
     public HashMap<String,HashSet<String>> computeVariableTypes(Formula form, KB kb) {
 
         if (debug) System.out.println("INFO in FormulaPreprocessor.computeVariableTypes(): \n" + form);
-        Formula f = new Formula();
-        f.read(form.theFormula);
-        HashMap<String,HashSet<String>> result = new HashMap<String,HashSet<String>>();
-        return computeVariableTypesRecurse(kb,form,result);
+        VariableTypeCache cache = VariableTypeCache.getCache(kb);
+        HashMap<String,HashSet<String>> result = cache.get(form.theFormula);
+        if (result != null)
+            return result;
+        result = computeVariableTypesRecurse(kb,form,new HashMap<String,HashSet<String>>());
+        cache.put(form.theFormula,result);
+        return result;
     }
 
     /** ***************************************************************
@@ -20,6 +20,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -39,6 +40,14 @@ public class Graph {
       // A map of the fields to display in the graph in addition to the 
       // indented term name with option names as keys and "yes", "no" as values.
     public TreeMap<String,String> columnList = new TreeMap<String,String>();
+
+      // the terms directly above and below each term already visited, keyed by
+      // relation and term, so that each term is only looked up once per Graph
+    private HashMap<String,ArrayList<String>> termsAbove = new HashMap<String,ArrayList<String>>();
+    private HashMap<String,ArrayList<String>> termsBelow = new HashMap<String,ArrayList<String>>();
+
+      // the HTML columns after the term name, for each term already displayed
+    private HashMap<String,String> entryColumns = new HashMap<String,String>();
     
     /** *************************************************************
      */
@@ -94,7 +103,7 @@ public class Graph {
         String docString = "";
         ArrayList<Formula> docStmts = kb.askWithRestriction(0,"documentation",1,term);
         if (docStmts.size() > 0) {
-            Formula doc = (Formula) docStmts.get(0);
+            Formula doc = docStmts.get(0);
             docString = doc.getArgument(3);
             if (!DB.emptyString(docString)) {
                 if (docString.length() > 100) 
@@ -153,48 +162,131 @@ public class Graph {
         result.append("<tr>");
         String formattedTerm = "<a href=\"" + kbHref + "&term=" + term + "\">" + term + "</a>";
         result.append("<td>" + prefix + formattedTerm + "</td>");
-        Iterator<String> it = columnList.keySet().iterator();
-        while (it.hasNext()) {
-            String col = it.next();
-            String val = columnList.get(col);
-            if (val.equals("yes")) {
-                if (col.equals("documentation")) 
-                    result.append("<td><small>" + generateDocumentationColumn(kb,term,kbHref,language) + "</small></td>");
-                if (col.equals("direct-children")) 
-                    result.append("<td>" + generateChildrenColumn(kb,term) + "</td>");
-                if (col.equals("graph")) 
-                    result.append("<td>" + generateGraphLink(kb,term,kbHref) + "</td>");
+        String columns = entryColumns.get(term);
+        if (columns == null) {
+            StringBuffer sb = new StringBuffer();
+            Iterator<String> it = columnList.keySet().iterator();
+            while (it.hasNext()) {
+                String col = it.next();
+                String val = columnList.get(col);
+                if (val.equals("yes")) {
+                    if (col.equals("documentation")) 
+                        sb.append("<td><small>" + generateDocumentationColumn(kb,term,kbHref,language) + "</small></td>");
+                    if (col.equals("direct-children")) 
+                        sb.append("<td>" + generateChildrenColumn(kb,term) + "</td>");
+                    if (col.equals("graph")) 
+                        sb.append("<td>" + generateGraphLink(kb,term,kbHref) + "</td>");
+                }
             }
+            columns = sb.toString();
+            entryColumns.put(term,columns);
         }
+        result.append(columns);
         result.append("</tr>");
         return result.toString();
     }
 
     /** *************************************************************
-     * Create a graph of a bounded size by incrementing the number of
-     * levels above and below until the limit is reached or there are
-     * no more levels in the knowledge base from the given term and 
-     * relation. creatGraphBody() does most of the work.
+     * @return the terms directly above (if up is true) or below the
+     * given term through the given relation, or through any relation
+     * in the case of "all" above a term.  Statements from the cache
+     * file are ignored, since they hold the transitive closure rather
+     * than direct links.  Each term is only looked up once.
      */
-    public ArrayList<String> createBoundedSizeGraph(KB kb, String term, String relation, 
-                                        int size, String indentChars, String language) {
+    private ArrayList<String> relatedTerms(KB kb, String term, String relation, boolean up) {
+
+        HashMap<String,ArrayList<String>> cache = up ? termsAbove : termsBelow;
+        String key = relation + " " + term;
+        ArrayList<String> result = cache.get(key);
+        if (result != null)
+            return result;
+        result = new ArrayList<String>();
+        ArrayList<Formula> stmts = null;
+        if (up && !DB.emptyString(relation) && relation.equals("all"))
+            stmts = kb.ask("arg",1,term);
+        else 
+            stmts = kb.askWithRestriction(0,relation,up ? 1 : 2,term);
+        if (stmts != null) {
+            for (int i = 0; i < stmts.size(); i++) {
+                Formula f = stmts.get(i);
+                String newTerm = f.getArgument(up ? 2 : 1);
+                if (!newTerm.equals(term) && !f.isCached() && !result.contains(newTerm))
+                    result.add(newTerm);
+            }
+        }
+        cache.put(key,result);
+        return result;
+    }
+
+    /** *************************************************************
+     * Find how many levels above and below a term can be shown
+     * without exceeding a given number of terms, by a breadth first
+     * search that adds one level in each direction at a time and only
+     * expands the terms that are new at that level.
+     * @return the number of levels, which is at least one
+     */
+    private int boundedLevels(KB kb, String term, String relation, int size) {
+
+        HashSet<String> seenAbove = new HashSet<String>();
+        HashSet<String> seenBelow = new HashSet<String>();
+        ArrayList<String> frontierAbove = new ArrayList<String>();
+        ArrayList<String> frontierBelow = new ArrayList<String>();
+        seenAbove.add(term);
+        seenBelow.add(term);
+        frontierAbove.add(term);
+        frontierBelow.add(term);
+        int count = 1;
+        int levels = 0;
+        while (true) {
+            frontierAbove = expandFrontier(kb,frontierAbove,seenAbove,relation,true);
+            frontierBelow = expandFrontier(kb,frontierBelow,seenBelow,relation,false);
+            int newCount = count + frontierAbove.size() + frontierBelow.size();
+            if (newCount == count || newCount >= size)
+                break;
+            count = newCount;
+            levels++;
+        }
+        if (levels < 1)
+            return 1;
+        return levels;
+    }
+
+    /** *************************************************************
+     * @return the terms one level beyond the frontier that haven't been
+     * seen, which are also added to seen
+     */
+    private ArrayList<String> expandFrontier(KB kb, ArrayList<String> frontier, HashSet<String> seen, 
+                                             String relation, boolean up) {
 
         ArrayList<String> result = new ArrayList<String>();
-        ArrayList<String> oldresult = new ArrayList<String>();
-        int above = 1;
-        int below = 1;
-        int oldlimit = -1;
-        while ((result.size() < size) && (result.size() != oldlimit)) {
-            oldlimit = result.size();
-            oldresult = result;
-            HashSet<String> checkAbove = new HashSet<String>();
-            HashSet<String> checkBelow = new HashSet<String>();
-            result = createGraphBody(kb,checkAbove,term,relation,above,0,indentChars,above,true,language);
-            result.addAll(createGraphBody(kb,checkBelow,term,relation,0,below,indentChars,above,false,language));
-            above++;
-            below++;
+        for (int i = 0; i < frontier.size(); i++) {
+            ArrayList<String> related = relatedTerms(kb,frontier.get(i),relation,up);
+            for (int j = 0; j < related.size(); j++) {
+                String newTerm = related.get(j);
+                if (seen.add(newTerm))
+                    result.add(newTerm);
+            }
         }
-        return oldresult;
+        return result;
+    }
+
+    /** *************************************************************
+     * Create a graph of a bounded size by finding the greatest number
+     * of levels above and below the given term that stays within the
+     * limit, or all the levels in the knowledge base from the given
+     * term and relation, and then creating the graph once at that
+     * depth. creatGraphBody() does most of the work.
+     */
+    public ArrayList<String> createBoundedSizeGraph(KB kb, String term, String relation, 
+                                        int size, String indentChars, String language) {
+
+        graphsize = 0;
+        int levels = boundedLevels(kb,term,relation,size);
+        HashSet<String> checkAbove = new HashSet<String>();
+        HashSet<String> checkBelow = new HashSet<String>();
+        ArrayList<String> result = createGraphBody(kb,checkAbove,term,relation,levels,0,indentChars,levels,true,language);
+        result.addAll(createGraphBody(kb,checkBelow,term,relation,0,levels,indentChars,levels,false,language));
+        return result;
     }
 
     /** *************************************************************
@@ -239,18 +331,10 @@ public class Graph {
         int graphMax = Integer.valueOf(KBmanager.getMgr().getPref("adminBrowserLimit")).intValue();
         if (!check.contains(term) && graphsize < graphMax) {
             if (above > 0) {
-                ArrayList<Formula> stmtAbove = new ArrayList<Formula>();
-                if (!DB.emptyString(relation) && relation.equals("all"))
-                    stmtAbove = kb.ask("arg",1,term);
-                else 
-                    stmtAbove = kb.askWithRestriction(0,relation,1,term);
-                for (int i = 0; i < stmtAbove.size(); i++) {
-                    Formula f = stmtAbove.get(i);
-                    String newTerm = f.getArgument(2);
-                    if (!newTerm.equals(term) && !f.sourceFile.endsWith("_Cache.kif"))
-                        result.addAll(createGraphBody(kb,check,newTerm,relation,above-1,0,indentChars,level-1,true,language));		    
-                    check.add(term);
-                }
+                ArrayList<String> parents = relatedTerms(kb,term,relation,true);
+                for (int i = 0; i < parents.size(); i++) 
+                    result.addAll(createGraphBody(kb,check,parents.get(i),relation,above-1,0,indentChars,level-1,true,language));
+                check.add(term);
             }
 
             StringBuffer prefix = new StringBuffer();
@@ -272,14 +356,10 @@ public class Graph {
                     return result;
             }
             if (below > 0) {
-                ArrayList<Formula> stmtBelow = kb.askWithRestriction(0,relation,2,term);
-                for (int i = 0; i < stmtBelow.size(); i++) {
-                    Formula f = stmtBelow.get(i);
-                    String newTerm = f.getArgument(1);
-                    if (!newTerm.equals(term) && !f.sourceFile.endsWith("_Cache.kif"))
-                        result.addAll(createGraphBody(kb,check,newTerm,relation,0,below-1,indentChars,level+1,true,language));            
-                    check.add(term);
-                }
+                ArrayList<String> children = relatedTerms(kb,term,relation,false);
+                for (int i = 0; i < children.size(); i++) 
+                    result.addAll(createGraphBody(kb,check,children.get(i),relation,0,below-1,indentChars,level+1,true,language));
+                check.add(term);
             }
         }
         return result;
@@ -306,13 +386,12 @@ public class Graph {
         try {
             fw = new FileWriter(filename + ".dot");
             pw = new PrintWriter(fw);
-            HashSet<String> result = new HashSet<String>();
+            graphsize = 0;
             HashSet<String> start = new HashSet<String>();
-            HashSet<String> checked = new HashSet<String>();
             start.add(term);
-            result = createDotGraphBody(kb,start,checked,relation,above,below,true);
+            HashSet<String> result = createDotGraphBody(kb,start,new HashSet<String>(),relation,above,below,true);
             start.add(term);
-            result.addAll(createDotGraphBody(kb,start,checked,relation,above,below,false));
+            result.addAll(createDotGraphBody(kb,start,new HashSet<String>(),relation,above,below,false));
             pw.println("digraph G {");
             pw.println("  rankdir=LR");
             Iterator<String> it = result.iterator();
@@ -342,57 +421,39 @@ public class Graph {
     }
 
     /** *************************************************************
-     * The main body for createDotGraph().
+     * The main body for createDotGraph().  A breadth first search from
+     * the terms in startSet, which is emptied, going up to "above"
+     * levels up or "below" levels down.
+     * @param checkedSet collects the terms whose links have been added
      */
     private HashSet<String> createDotGraphBody(KB kb, HashSet<String> startSet, HashSet<String> checkedSet, 
                                    String relation, int above, int below, boolean upSearch) {
 
         HashSet<String> result = new HashSet<String>();
-        HashSet<String> newStartSet = new HashSet<String>();
-        newStartSet.addAll(startSet);
-        
-        if (upSearch) {
-            above--;
-            if (above < 0) return result;
-        }
-        else {
-            below--;
-            if (below < 0) return result;
-        }
-        while (startSet.size() > 0) {
-            Iterator<String> it = startSet.iterator();
-            String term = (String) it.next();
-                        
-            boolean removed = startSet.remove(term);
-            if (!removed) 
-                System.out.println("Error in Graph.createDotGraphBody(): " + term + " not removed");
-            ArrayList<Formula> stmts;
-            if (upSearch) 
-                stmts = kb.askWithRestriction(0,relation,1,term);
-            else 
-                stmts = kb.askWithRestriction(0,relation,2,term);
-            
-            for (int i = 0; i < stmts.size(); i++) {
-                Formula f = stmts.get(i);
-                if (f.isCached())
+        int levels = upSearch ? above : below;
+        ArrayList<String> frontier = new ArrayList<String>(startSet);
+        startSet.clear();
+        for (int level = 0; level < levels && frontier.size() > 0; level++) {
+            ArrayList<String> newFrontier = new ArrayList<String>();
+            for (int i = 0; i < frontier.size(); i++) {
+                String term = frontier.get(i);
+                if (!checkedSet.add(term))
                     continue;
-                String parent = f.getArgument(2); 
-                String child = f.getArgument(1);                      
-                String s = "  \"" + parent + "\" -> \"" + child + "\";";
-                graphsize++;
-                if (graphsize < 100) 
-                    result.add(s);
-                else
-                    return result;
-                checkedSet.add(term);
-                if (upSearch) {
-                    newStartSet.add(parent);
+                ArrayList<String> related = relatedTerms(kb,term,relation,upSearch);
+                for (int j = 0; j < related.size(); j++) {
+                    String newTerm = related.get(j);
+                    String parent = upSearch ? newTerm : term;
+                    String child = upSearch ? term : newTerm;
+                    String s = "  \"" + parent + "\" -> \"" + child + "\";";
+                    graphsize++;
+                    if (graphsize < 100) 
+                        result.add(s);
+                    else
+                        return result;
+                    newFrontier.add(newTerm);
                 }
-                else {
-                    newStartSet.add(child);
-                }                
-                result.addAll(createDotGraphBody(kb,newStartSet,checkedSet,relation,above,below,upSearch));
-            } 
+            }
+            frontier = newFrontier;
         }
         return result;
     }
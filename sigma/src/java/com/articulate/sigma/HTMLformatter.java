@@ -14,6 +14,7 @@ August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
  */
 
 import com.articulate.sigma.nlg.NLGUtils;
+import com.articulate.sigma.nlg.ParaphraseService;
 
 import java.io.File;
 import java.util.*;
@@ -487,78 +488,102 @@ public class HTMLformatter {
     public static String formatFormulaList(ArrayList<Formula> forms, String header, KB kb,
             String language, String flang, int start, int localLimit, String limitString) {
     	
-        boolean traditionalLogic = false;
-        if (flang.equals("traditionalLogic"))
-            traditionalLogic = true;        
         StringBuilder show = new StringBuilder();
-        boolean isArabic = (language.matches(".*(?i)arabic.*") || language.equalsIgnoreCase("ar"));
         if (forms.size() < localLimit || localLimit == 0)
             localLimit = forms.size();
+        boolean showCached = KBmanager.getMgr().getPref("showcached").equalsIgnoreCase("yes");
+        BrowseIndex index = BrowseIndex.getIndex(kb);
+        ArrayList<String> toParaphrase = new ArrayList<String>();
+        for (int i = start; i < localLimit; i++) {
+            Formula f = kb.formulaMap.get(forms.get(i).theFormula);
+            if (f != null && index.getRow(f.theFormula,kbHref,language,flang) == null &&
+                    !Formula.DOC_PREDICATES.contains(f.getArgument(0)))
+                toParaphrase.add(f.theFormula);
+        }
+        if (toParaphrase.size() > 1)
+            ParaphraseService.getService(kb).htmlParaphrase(kbHref,toParaphrase,language);
         for (int i = start; i < localLimit; i++) {
-        	System.out.println(forms.get(i).getClass().getName());
         	String strForm = forms.get(i).theFormula;
-        	//System.out.println("INFO in HTMLformatter.formatFormulaList(): formula: " + strForm);
             Formula f = (Formula) kb.formulaMap.get(strForm);
-        	//System.out.println("INFO in HTMLformatter.formatFormulaList(): structured formula: " + f);
-            if (KBmanager.getMgr().getPref("showcached").equalsIgnoreCase("yes") ||
-                    !f.sourceFile.endsWith(KB._cacheFileSuffix) ) {
-                String arg0 = f.getArgument(0);
-                show.append("<tr><td width=\"50%\" valign=\"top\">");
-                String formattedFormula = null;
-                if (flang.equals("TPTP") || flang.equals("traditionalLogic"))
-                    formattedFormula = TPTPutil.htmlTPTPFormat(f,kbHref,traditionalLogic) + "</td>\n<td width=\"10%\" valign=\"top\" bgcolor=\"#B8CADF\">";
-                else
-                    formattedFormula = f.htmlFormat(kbHref) + "</td>\n<td width=\"10%\" valign=\"top\" bgcolor=\"#B8CADF\">";
-                if (Formula.DOC_PREDICATES.contains(arg0))
-                    show.append(kb.formatDocumentation(kbHref,formattedFormula,language));
-                else
-                    show.append(formattedFormula);
-                File srcfile = new File(f.sourceFile);
-                String sourceFilename = srcfile.getName();
-                if (StringUtil.isNonEmptyString(sourceFilename)) {
-                    show.append(sourceFilename);
-                    show.append(" " + f.startLine + "-" + f.endLine);
+            if (showCached || !f.sourceFile.endsWith(KB._cacheFileSuffix)) {
+                String row = index.getRow(strForm,kbHref,language,flang);
+                if (row == null) {
+                    row = formatFormulaRow(f,kb,language,flang);
+                    index.putRow(strForm,kbHref,language,flang,row);
                 }
-                show.append("</a>");
-                show.append("</td>\n<td width=\"40%\" valign=\"top\">");
-                String pph = null;
-                if (!Formula.DOC_PREDICATES.contains(arg0))
-                    pph = NLGUtils.htmlParaphrase(kbHref, f.theFormula,
-                            kb.getFormatMap(language),
-                            kb.getTermFormatMap(language),
-                            kb, language);
-                if (StringUtil.emptyString(pph))
-                    pph = "";
-                else if (isArabic)
-                    pph = ("<span dir=\"rtl\">" + pph + "</span>");
-                else
-                    pph = NLGUtils.upcaseFirstVisibleChar(pph, true, language);
-                show.append(pph + "</td></tr>\n");
+                show.append(row);
             }
         }
         show.append(limitString);
         return show.toString();
     }
+
+    /** *************************************************************
+     *  Create the HTML table row for one formula in the Sigma term
+     *  browser page, showing the formula, its source file and its
+     *  paraphrase.
+     */
+    private static String formatFormulaRow(Formula f, KB kb, String language, String flang) {
+
+        boolean traditionalLogic = false;
+        if (flang.equals("traditionalLogic"))
+            traditionalLogic = true;        
+        boolean isArabic = (language.matches(".*(?i)arabic.*") || language.equalsIgnoreCase("ar"));
+        StringBuilder show = new StringBuilder();
+        String arg0 = f.getArgument(0);
+        show.append("<tr><td width=\"50%\" valign=\"top\">");
+        String formattedFormula = null;
+        if (flang.equals("TPTP") || flang.equals("traditionalLogic"))
+            formattedFormula = TPTPutil.htmlTPTPFormat(f,kbHref,traditionalLogic) + "</td>\n<td width=\"10%\" valign=\"top\" bgcolor=\"#B8CADF\">";
+        else
+            formattedFormula = f.htmlFormat(kbHref) + "</td>\n<td width=\"10%\" valign=\"top\" bgcolor=\"#B8CADF\">";
+        if (Formula.DOC_PREDICATES.contains(arg0))
+            show.append(kb.formatDocumentation(kbHref,formattedFormula,language));
+        else
+            show.append(formattedFormula);
+        File srcfile = new File(f.sourceFile);
+        String sourceFilename = srcfile.getName();
+        if (StringUtil.isNonEmptyString(sourceFilename)) {
+            show.append(sourceFilename);
+            show.append(" " + f.startLine + "-" + f.endLine);
+        }
+        show.append("</a>");
+        show.append("</td>\n<td width=\"40%\" valign=\"top\">");
+        String pph = null;
+        if (!Formula.DOC_PREDICATES.contains(arg0))
+            pph = ParaphraseService.getService(kb).htmlParaphrase(kbHref,f.theFormula,language);
+        if (StringUtil.emptyString(pph))
+            pph = "";
+        else if (isArabic)
+            pph = ("<span dir=\"rtl\">" + pph + "</span>");
+        else
+            pph = NLGUtils.upcaseFirstVisibleChar(pph, true, language);
+        show.append(pph + "</td></tr>\n");
+        return show.toString();
+    }
     
     /** *************************************************************
      *  Create the HTML for a section of the Sigma term browser page.
+     *  Only the formulas on the requested page are retrieved, from the
+     *  KB's BrowseIndex.
      */
     public static String browserSectionFormatLimit(String term, String header, KB kb,
             String language, String flang, int start, int limit,
             int arg, String type) {
 
-        ArrayList<Formula> forms = kb.ask(type,arg,term);
         StringBuilder show = new StringBuilder();
+        if (StringUtil.emptyString(term))
+            return show.toString();
+        boolean showCached = KBmanager.getMgr().getPref("showcached").equalsIgnoreCase("yes");
+        BrowseIndex index = BrowseIndex.getIndex(kb);
+        int size = index.size(type,arg,term,showCached);
         String limitString = "";
         int localLimit = start + limit;
-        if (forms != null && !KBmanager.getMgr().getPref("showcached").equalsIgnoreCase("yes"))
-            forms = TaxoModel.removeCached(forms);
-        if (forms != null && !forms.isEmpty()) {
-            Collections.sort(forms);
+        if (size > 0) {
             show.append(htmlDivider(header));
             show.append("<table width=\"95%\">");
-            if (forms.size() < localLimit || localLimit == 0)
-                localLimit = forms.size();
+            if (size < localLimit || localLimit == 0)
+                localLimit = size;
             else
                 limitString = ("<tr><td><br></td></tr><tr><td>Display limited to "
                         + limit + " items. "
@@ -567,7 +592,8 @@ public class HTMLformatter {
                         + "&arg=" + arg + "&type=" + type + "\">Show next "
                         + limit + "</a></td></tr>\n");
 
-            show.append(formatFormulaList(forms,header,kb,language,flang,start,localLimit,limitString));
+            ArrayList<Formula> forms = index.page(type,arg,term,showCached,start,localLimit);
+            show.append(formatFormulaList(forms,header,kb,language,flang,0,0,limitString));
             show.append(limitString);
             show.append("</table>\n");
         }
@@ -0,0 +1,348 @@
+/** This code is copyright Articulate Software (c) 2003.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+*/
+package com.articulate.sigma;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** ***************************************************************
+ * Reads hotel review files and scores them in one pass, using all
+ * cores.  Review files are parsed by a pool of reader threads, the
+ * sentiment of each hotel's reviews and of the concepts in them is
+ * computed by a pool of scoring threads, and the calling thread
+ * writes one CSV line per hotel, in the order the files were given.
+ * The stages are joined by bounded queues, so a slow stage holds back
+ * the ones before it rather than letting hotels pile up in memory.
+ * Word sentiment values are cached by DB.computeSentimentForWord(), so
+ * WordNet root forms are looked up once per distinct word.
+ */
+public class HotelReviewPipeline {
+
+    /** the number of hotels that may wait between two stages */
+    public static int queueSize = 64;
+
+    /** ***************************************************************
+     * Reads one review file into a Hotel.
+     */
+    public interface Parser {
+        /** @return the hotel, or null if the file could not be read */
+        public Hotel parse(String filename);
+    }
+
+    /** files listed by parseAllHotelReviewFiles() */
+    public static final Parser REVIEW = new Parser() {
+        public Hotel parse(String filename) {
+            return Hotel.parseOneHotelReviewFile(filename);
+        }
+    };
+
+    /** files read by parseAllTHotelReviewFiles() */
+    public static final Parser THOTEL = new Parser() {
+        public Hotel parse(String filename) {
+            return Hotel.parseOneTHotelReviewFile(filename);
+        }
+    };
+
+    /** files read by readJSONHotels() */
+    public static final Parser JSON = new Parser() {
+        public Hotel parse(String filename) {
+            return Hotel.parseOneJSONReviewFile(filename);
+        }
+    };
+
+    /** ***************************************************************
+     * A file and, once read, its hotel, with the position of the file
+     * in the input so that the output keeps the input order.
+     */
+    private static class Item {
+        int index;
+        String filename;
+        Hotel hotel = null;
+
+        Item(int index, String filename) {
+            this.index = index;
+            this.filename = filename;
+        }
+    }
+
+    /** marks the end of the input on a queue */
+    private static final Item END = new Item(-1,null);
+
+    /** ***************************************************************
+     * Compute the overall sentiment and the concept sentiment of a
+     * hotel's reviews, as hotelSentiment() and oneHotelAmenitySentiment()
+     * do.  Note the side effect on the hotel.
+     */
+    public static void scoreHotel(Hotel h) {
+
+        int total = 0;
+        for (int j = 0; j < h.reviews.size(); j++) {
+            String review = h.reviews.get(j);
+            total = total + DB.computeSentiment(review);
+            h.addConceptSentiment(DB.computeConceptSentiment(review));
+        }
+        h.sentiment = total;
+    }
+
+    /** ***************************************************************
+     */
+    public static String asCSVHeader() {
+
+        return "name,address,city,state/prov,country,sentiment,concept sentiment";
+    }
+
+    /** ***************************************************************
+     * @return the hotel's address, its overall sentiment and then a
+     * column of concept=score for each concept in its reviews, in
+     * alphabetical order, as a CSV line
+     */
+    public static String asCSV(Hotel h) {
+
+        ArrayList<String> al = new ArrayList<String>();
+        al.add(h.name);
+        al.add(h.address);
+        al.add(h.city);
+        al.add(h.stateProv);
+        al.add(h.country);
+        al.add(Integer.toString(h.sentiment));
+        TreeMap<String,Integer> concepts = new TreeMap<String,Integer>(h.conceptSentiment);
+        for (String term : concepts.keySet())
+            al.add(term + "=" + concepts.get(term));
+        return DB.writeSpreadsheetLine(al,true);
+    }
+
+    /** ***************************************************************
+     * Take items from one queue until it ends, apply a stage to each and
+     * pass it on.  The last worker of a stage to finish ends the next
+     * queue once for each of the next stage's workers.
+     */
+    private static Callable<Integer> worker(final String stage, final BlockingQueue<Item> in,
+                                            final BlockingQueue<Item> out,
+                                            final AtomicInteger running, final int nextWorkers,
+                                            final Parser parser) {
+
+        return new Callable<Integer>() {
+            public Integer call() throws InterruptedException {
+                int count = 0;
+                try {
+                    Item item = null;
+                    while ((item = in.take()) != END) {
+                        try {
+                            if (parser != null)
+                                item.hotel = parser.parse(item.filename);
+                            else if (item.hotel != null)
+                                scoreHotel(item.hotel);
+                        }
+                        catch (Exception e) {
+                            System.out.println("Error in HotelReviewPipeline." + stage + "(): " +
+                                    e.getMessage() + " for " + item.filename);
+                            item.hotel = null;
+                        }
+                        out.put(item);
+                        count++;
+                    }
+                }
+                finally {
+                    if (running.decrementAndGet() == 0) {
+                        for (int i = 0; i < nextWorkers; i++)
+                            out.put(END);
+                    }
+                }
+                return Integer.valueOf(count);
+            }
+        };
+    }
+
+    /** ***************************************************************
+     * Read, score and write out a set of hotel review files.
+     * @param files the review files
+     * @param parser reads one file, such as REVIEW, THOTEL or JSON
+     * @param threads the number of scoring threads.  Half as many
+     *                threads read files.
+     * @param out receives a header and then one CSV line for each
+     *            hotel that could be read, in the order of files
+     * @return the number of hotels written
+     */
+    public static int run(final List<String> files, Parser parser, int threads, Writer out)
+        throws IOException {
+
+        System.out.println("INFO in HotelReviewPipeline.run(): " + files.size() + " files");
+        long t1 = System.currentTimeMillis();
+        if (!DB.sentimentLoaded())
+            DB.readSentimentArray();
+        if (threads < 1)
+            threads = 1;
+        final int readers = Math.max(1,threads / 2);
+        final BlockingQueue<Item> fileQueue = new ArrayBlockingQueue<Item>(queueSize);
+        final BlockingQueue<Item> hotelQueue = new ArrayBlockingQueue<Item>(queueSize);
+        final BlockingQueue<Item> scoredQueue = new ArrayBlockingQueue<Item>(queueSize);
+        ExecutorService pool = Executors.newFixedThreadPool(1 + readers + threads);
+        ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        futures.add(pool.submit(new Callable<Integer>() {
+            public Integer call() throws InterruptedException {
+                try {
+                    for (int i = 0; i < files.size(); i++)
+                        fileQueue.put(new Item(i,files.get(i)));
+                }
+                finally {
+                    for (int i = 0; i < readers; i++)
+                        fileQueue.put(END);
+                }
+                return Integer.valueOf(files.size());
+            }
+        }));
+        AtomicInteger reading = new AtomicInteger(readers);
+        for (int i = 0; i < readers; i++)
+            futures.add(pool.submit(worker("read",fileQueue,hotelQueue,reading,threads,parser)));
+        AtomicInteger scoring = new AtomicInteger(threads);
+        for (int i = 0; i < threads; i++)
+            futures.add(pool.submit(worker("score",hotelQueue,scoredQueue,scoring,1,null)));
+        pool.shutdown();
+
+        int count = 0;
+        try {
+            out.write(asCSVHeader() + "\n");
+            TreeMap<Integer,Item> pending = new TreeMap<Integer,Item>();
+            int next = 0;
+            Item item = null;
+            while ((item = scoredQueue.take()) != END) {
+                pending.put(Integer.valueOf(item.index),item);
+                while (!pending.isEmpty() && pending.firstKey().intValue() == next) {
+                    Item done = pending.remove(pending.firstKey());
+                    if (done.hotel != null) {
+                        out.write(asCSV(done.hotel));
+                        count++;
+                    }
+                    next++;
+                    if (next % 100 == 0)
+                        System.out.print('.');
+                }
+            }
+            for (Future<Integer> f : futures)
+                f.get();
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Error in HotelReviewPipeline.run(): interrupted");
+        }
+        catch (ExecutionException e) {
+            pool.shutdownNow();
+            System.out.println("Error in HotelReviewPipeline.run(): " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        }
+        catch (IOException e) {
+            pool.shutdownNow();
+            throw e;
+        }
+        out.flush();
+        System.out.println();
+        System.out.println("INFO in HotelReviewPipeline.run(): wrote " + count + " hotels in " +
+                ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        return count;
+    }
+
+    /** ***************************************************************
+     * @param fname a file listing one review file per line, as read by
+     *              Hotel.parseAllHotelReviewFiles()
+     * @return the review files
+     */
+    public static ArrayList<String> listedFiles(String fname) throws IOException {
+
+        ArrayList<String> result = new ArrayList<String>();
+        LineNumberReader lnr = new LineNumberReader(new FileReader(fname));
+        try {
+            String line = null;
+            while ((line = lnr.readLine()) != null) {
+                if (!StringUtil.emptyString(line))
+                    result.add(line);
+            }
+        }
+        finally {
+            lnr.close();
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the files in a directory whose names start with prefix
+     * and end with suffix, in name order
+     */
+    public static ArrayList<String> directoryFiles(String dir, String prefix, String suffix) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        String[] children = new File(dir).list();
+        if (children == null || children.length == 0) {
+            System.out.println("Error in HotelReviewPipeline.directoryFiles(): dir: " + dir +
+                    " does not exist or is empty.");
+            return result;
+        }
+        Arrays.sort(children);
+        for (String filename : children) {
+            if (filename.startsWith(prefix) && filename.endsWith(suffix))
+                result.add(dir + File.separator + filename);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 3 || args[0].equals("-help")) {
+            System.out.println("usage:");
+            System.out.println(">java -classpath . com.articulate.sigma.HotelReviewPipeline -r listfile out.csv [threads]");
+            System.out.println(">java -classpath . com.articulate.sigma.HotelReviewPipeline -t dir out.csv [threads]");
+            System.out.println(">java -classpath . com.articulate.sigma.HotelReviewPipeline -js dir out.csv [threads]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3)
+            threads = Integer.parseInt(args[3]);
+        List<String> files = null;
+        Parser parser = null;
+        if (args[0].equals("-r")) {
+            files = listedFiles(args[1]);
+            parser = REVIEW;
+        }
+        else if (args[0].equals("-t")) {
+            files = directoryFiles(args[1],"tvly","");
+            parser = THOTEL;
+        }
+        else if (args[0].equals("-js")) {
+            files = directoryFiles(args[1],"","json");
+            parser = JSON;
+        }
+        else {
+            System.out.println("Error in HotelReviewPipeline.main(): unknown option " + args[0]);
+            return;
+        }
+        KBmanager.getMgr().initializeOnce();
+        WordNet.initOnce();
+        Writer out = new BufferedWriter(new FileWriter(args[2]));
+        try {
+            run(files,parser,threads,out);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
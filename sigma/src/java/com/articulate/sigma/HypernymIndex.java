@@ -0,0 +1,240 @@
+/** This code is copyright Articulate Software (c) 2003-2007.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  The precomputed transitive closure of WordNet "hypernym" pointers.
+ *  Each synset is given a dense int ID and a sorted int array of the
+ *  IDs of all its ancestors, so hyponym tests are a binary search over
+ *  a handful of ints rather than a recursive walk of
+ *  WordNet.relations.  The hypernym graph is a DAG apart from a few
+ *  data errors, so the number of ancestors is a usable measure of
+ *  depth, and the lowest common hypernym of two synsets is the shared
+ *  ancestor with the most ancestors of its own.
+ */
+public class HypernymIndex {
+
+    /** POS-prefixed synsets, by ID */
+    private String[] synsets = null;
+
+    private HashMap<String,Integer> ids = new HashMap<String,Integer>();
+
+    /** sorted ancestor IDs, by ID, not including the synset itself
+     * unless it is on a cycle */
+    private int[][] ancestors = null;
+
+    private static final int[] NONE = new int[0];
+
+    /** ***************************************************************
+     * Build the index from all the synsets with pointers in the given
+     * WordNet.
+     */
+    public static HypernymIndex build(WordNet wn) {
+
+        long t1 = System.currentTimeMillis();
+        HypernymIndex result = new HypernymIndex();
+        TreeSet<String> all = new TreeSet<String>(wn.relations.keySet());
+        for (ArrayList<AVPair> rels : wn.relations.values())
+            for (AVPair avp : rels)
+                all.add(avp.value);
+        WordNetStore store = wn.getStore();
+        if (store != null) {
+            for (int i = 0; i < store.synsetCount(); i++)
+                all.add(store.synsetKey(i));
+        }
+        result.synsets = all.toArray(new String[all.size()]);
+        for (int i = 0; i < result.synsets.length; i++)
+            result.ids.put(result.synsets[i],Integer.valueOf(i));
+
+        // direct hypernyms first, as int arrays
+        int n = result.synsets.length;
+        int[][] parents = new int[n][];
+        for (int i = 0; i < n; i++) {
+            ArrayList<AVPair> rels = wn.getRelations(result.synsets[i]);
+            if (rels == null) {
+                parents[i] = NONE;
+                continue;
+            }
+            WordNetStore.IntList al = new WordNetStore.IntList();
+            for (AVPair avp : rels) {
+                if (avp.attribute.equals("hypernym")) {
+                    Integer id = result.ids.get(avp.value);
+                    if (id != null)
+                        al.add(id.intValue());
+                }
+            }
+            parents[i] = Arrays.copyOf(al.data,al.size);
+        }
+        result.ancestors = new int[n][];
+        BitSet seen = new BitSet(n);
+        WordNetStore.IntList queue = new WordNetStore.IntList();
+        for (int i = 0; i < n; i++)
+            result.ancestors[i] = closure(i,parents,seen,queue);
+        System.out.println("INFO in HypernymIndex.build(): indexed " + n + " synsets in " +
+                ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        return result;
+    }
+
+    /** ***************************************************************
+     * Breadth first search of the hypernyms of synset ID id.  Searching
+     * from every synset rather than merging the parents' results keeps
+     * the answer exact even when the data contains a cycle.
+     */
+    private static int[] closure(int id, int[][] parents, BitSet seen, WordNetStore.IntList queue) {
+
+        if (parents[id].length == 0)
+            return NONE;
+        queue.clear();
+        for (int p : parents[id]) {
+            if (!seen.get(p)) {
+                seen.set(p);
+                queue.add(p);
+            }
+        }
+        for (int head = 0; head < queue.size; head++) {
+            for (int p : parents[queue.get(head)]) {
+                if (!seen.get(p)) {
+                    seen.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(queue.data,queue.size);
+        for (int i = 0; i < result.length; i++)
+            seen.clear(result[i]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the ID of a POS-prefixed synset or -1
+     */
+    private int id(String synset) {
+
+        if (synset == null)
+            return -1;
+        Integer id = ids.get(synset);
+        if (id == null)
+            return -1;
+        return id.intValue();
+    }
+
+    /** ***************************************************************
+     */
+    private boolean hasAncestor(int id, int ancestor) {
+
+        return Arrays.binarySearch(ancestors[id],ancestor) >= 0;
+    }
+
+    /** ***************************************************************
+     * @return true if the first POS-prefixed synset is a hyponym of the
+     * second POS-prefixed synset, with the same meaning as
+     * WordNet.isHyponymRecurse()
+     */
+    public boolean isHyponym(String synset, String hypo) {
+
+        int from = id(synset);
+        int to = id(hypo);
+        if (from < 0 || to < 0)
+            return false;
+        return hasAncestor(from,to);
+    }
+
+    /** ***************************************************************
+     * @return the number of hypernyms above a synset, which is used
+     * as its depth, or -1 if it is unknown
+     */
+    public int depth(String synset) {
+
+        int id = id(synset);
+        if (id < 0)
+            return -1;
+        return ancestors[id].length;
+    }
+
+    /** ***************************************************************
+     * @return the ID of the lowest common hypernym of two synset IDs,
+     * counting a synset as a hypernym of itself, or -1 if there is none
+     */
+    private int lowestCommon(int a, int b) {
+
+        if (a == b)
+            return a;
+        if (hasAncestor(a,b))
+            return b;
+        if (hasAncestor(b,a))
+            return a;
+        int[] aa = ancestors[a];
+        int[] ab = ancestors[b];
+        int best = -1;
+        int i = 0;
+        int j = 0;
+        while (i < aa.length && j < ab.length) {
+            if (aa[i] < ab[j])
+                i++;
+            else if (aa[i] > ab[j])
+                j++;
+            else {
+                if (best < 0 || ancestors[aa[i]].length > ancestors[best].length)
+                    best = aa[i];
+                i++;
+                j++;
+            }
+        }
+        return best;
+    }
+
+    /** ***************************************************************
+     * @return the POS-prefixed synset that is the lowest common
+     * hypernym of the two POS-prefixed synsets, counting a synset as a
+     * hypernym of itself, or null if they share no hypernym
+     */
+    public String lowestCommonHypernym(String synset1, String synset2) {
+
+        int a = id(synset1);
+        int b = id(synset2);
+        if (a < 0 || b < 0)
+            return null;
+        int result = lowestCommon(a,b);
+        if (result < 0)
+            return null;
+        return synsets[result];
+    }
+
+    /** ***************************************************************
+     * @return for each POS-prefixed candidate synset, whether it is a
+     * hyponym of any of the given POS-prefixed synsets
+     */
+    public boolean[] isHyponymOfAny(List<String> candidates, Collection<String> hypernyms) {
+
+        int[] targets = new int[hypernyms.size()];
+        int n = 0;
+        for (String s : hypernyms) {
+            int id = id(s);
+            if (id >= 0)
+                targets[n++] = id;
+        }
+        boolean[] result = new boolean[candidates.size()];
+        for (int i = 0; i < result.length; i++) {
+            int id = id(candidates.get(i));
+            if (id < 0)
+                continue;
+            for (int j = 0; j < n && !result[i]; j++)
+                result[i] = hasAncestor(id,targets[j]);
+        }
+        return result;
+    }
+}
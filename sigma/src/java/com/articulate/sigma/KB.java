@@ -66,6 +66,7 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.logging.Logger;
 
 /** *****************************************************************
  *  Contains methods for reading, writing knowledge bases and their
@@ -74,6 +75,8 @@ import java.util.regex.PatternSyntaxException;
  */
 public class KB {
 
+    private static final Logger logger = SigmaLog.getLogger(KB.class);
+
     private boolean isVisible = true;
     
     /** The inference engine process for this KB. */
@@ -131,6 +134,10 @@ public class KB {
     /** Future: If true, the contents of the KB have been modified without updating the caches */
     public boolean modifiedContents = false;
 
+    /** Incremented each time formulas are added, renamed or reloaded, so that
+     *  views derived from the contents of the KB can tell when they are stale. */
+    private volatile int version = 0;
+
     /** If true, assertions of the form (predicate x x) will be
      * included in the relation cache tables. */
     private boolean cacheReflexiveAssertions = false;
@@ -377,16 +384,9 @@ public class KB {
      */
     public Set<String> removeSuperClasses(Set<String> set) {
         Set<String> returnSet = Sets.newHashSet(set);
-        Set<String> removeSet = Sets.newHashSet();
 
-        // Compare every element to every other.
-        for(String first : returnSet)   {
-            for(String second : returnSet)  {
-                if(isSubclass(first, second))   {
-                    removeSet.add(second);
-                }
-            }
-        }
+        // Look up the superclasses of each element once.
+        Set<String> removeSet = VariableTypeCache.getCache(this).findSuperclasses(returnSet);
 
         returnSet.removeAll(removeSet);
         return returnSet;
@@ -1046,37 +1046,34 @@ public class KB {
      *                  each ground Formula to be retrieved     
      * @param idxTerm A constant that occupied idxArgnum position in
      *                each ground Formula to be retrieved     
-     * @return an ArrayList of Formulas that satisfy the query, or an
-     *         empty ArrayList if no Formulae are retrieved.
+     * @return an ArrayList of Formulas that satisfy the query, in
+     *         sorted order, or an empty ArrayList if no Formulae are
+     *         retrieved.
      */
     public ArrayList<Formula> askWithPredicateSubsumption(String relation, int idxArgnum, String idxTerm) {
 
         ArrayList<Formula> ans = new ArrayList<Formula>();
-        HashSet<Formula> accumulator = new HashSet<Formula>();
-        if (StringUtil.isNonEmptyString(relation) && StringUtil.isNonEmptyString(idxTerm)
-            && (idxArgnum >= 0) ) {   // && (idxArgnum < 7)
-
-            HashSet<String> relns = new HashSet<String>();  // relation and subrelations
-            relns.add(relation);
-            ArrayList<Formula> subrelForms = askWithRestriction(0, "subrelation", 2, relation);
-            for (int i = 0; i < subrelForms.size(); i++) {
-                Formula f = subrelForms.get(i);
-                String arg = f.getArgument(1);
-                relns.add(arg);
-            }
-            ArrayList<Formula> forms = ask("arg",idxArgnum,idxTerm);            
-            for (int i = 0; i < forms.size(); i++) {
-                Formula f = forms.get(i);
-                if (!accumulator.contains(f)) {
-                    String arg = f.getArgument(0);
-                    if (relns.contains(arg)) 
-                        accumulator.add(f);                           
-                }
-            }
-            ans.addAll(accumulator);
-        }
+        Iterator<Formula> it = iterateWithPredicateSubsumption(relation,idxArgnum,idxTerm);
+        while (it.hasNext())
+            ans.add(it.next());
         return ans;
     }
+
+    /** *************************************************************
+     * The same Formulas as askWithPredicateSubsumption(), in sorted
+     * order, found one at a time by merging the index entries for
+     * idxTerm of relation and each of its subrelations.
+     *
+     * @return an Iterator over the Formulas that satisfy the query,
+     *         which is empty if no Formulae are retrieved.
+     */
+    public Iterator<Formula> iterateWithPredicateSubsumption(String relation, int idxArgnum, String idxTerm) {
+
+        if (StringUtil.isNonEmptyString(relation) && StringUtil.isNonEmptyString(idxTerm)
+            && (idxArgnum >= 0) )    // && (idxArgnum < 7)
+            return PredicateSubsumptionIndex.getIndex(this).iterator(relation,idxArgnum,idxTerm);
+        return new ArrayList<Formula>().iterator();
+    }
     
     /** *************************************************************
      * Returns an ArrayList containing SUO-KIF constants, possibly
@@ -1115,7 +1112,7 @@ public class KB {
                                                              String idxTerm,
                                                              int targetArgnum,
                                                              boolean useInverses,
-                                                             Set predicatesUsed) {
+                                                             Set<String> predicatesUsed) {
 
         ArrayList<String> ans = new ArrayList<String>();
         if (StringUtil.isNonEmptyString(relation)
@@ -1137,33 +1134,25 @@ public class KB {
                 SetUtil.removeDuplicates(inverseSyns);
                 inverses = new ArrayList<String>();
             }
-            List<String> accumulator = new ArrayList<String>();
-            List<String> predicates = new ArrayList<String>();
-            predicates.add(relation);
-            while (!predicates.isEmpty()) {
-                for (String pred : predicates) {
-                    reduced.addAll(getTermsViaAskWithRestriction(0,pred,idxArgnum,
-                                                                 idxTerm,targetArgnum,predicatesUsed));
-                    accumulator.addAll(getTermsViaAskWithRestriction(0,"subrelation",2,
-                                                                     pred,1));
-                    accumulator.addAll(getTermsViaAskWithRestriction(0,"equal",2,
-                                                                     "subrelation",1));
-                    accumulator.addAll(getTermsViaAskWithRestriction(0,"equal",1,
-                                                                     "subrelation",2));
-                    accumulator.remove(pred);
-                    if (useInverses) {
-                        for (String syn : inverseSyns) {
-                            inverses.addAll(getTermsViaAskWithRestriction(0,syn,1,pred,2));
-                            inverses.addAll(getTermsViaAskWithRestriction(0,syn,2,pred,1));
-                        }
-                    }
+            if (!StringUtil.isQuotedString(idxTerm)) {
+                Iterator<Formula> it = iterateWithPredicateSubsumption(relation,idxArgnum,idxTerm);
+                while (it.hasNext()) {
+                    Formula f = it.next();
+                    String term = f.getArgument(targetArgnum);
+                    if (term != null)
+                        reduced.add(term);
+                    if (predicatesUsed != null)
+                        predicatesUsed.add(f.car());
                 }
-                SetUtil.removeDuplicates(accumulator);
-                predicates.clear();
-                predicates.addAll(accumulator);
-                accumulator.clear();
             }
             if (useInverses) {
+                String[] predicates = PredicateSubsumptionIndex.getIndex(this).subrelations(relation);
+                for (String pred : predicates) {
+                    for (String syn : inverseSyns) {
+                        inverses.addAll(getTermsViaAskWithRestriction(0,syn,1,pred,2));
+                        inverses.addAll(getTermsViaAskWithRestriction(0,syn,2,pred,1));
+                    }
+                }
                 SetUtil.removeDuplicates(inverses);
                 for (String inv : inverses) 
                     reduced.addAll(getTermsViaPredicateSubsumption(inv,targetArgnum,idxTerm,
@@ -1370,6 +1359,7 @@ public class KB {
                 }
             }
         }       
+        version++;
         return formulasPresent;
     }
 
@@ -1391,6 +1381,7 @@ public class KB {
             Formula f = it.next();
             f.theFormula = f.rename(term2,term1).theFormula;
         }
+        version++;
     }
 
     /** *************************************************************
@@ -1570,10 +1561,13 @@ public class KB {
                 + "  <summary proofs=\"0\"/>" + System.getProperty("line.separator")
                 + "</queryResponse>" + System.getProperty("line.separator"));
         if (StringUtil.isNonEmptyString(suoKifFormula)) {
+            Metrics.count("query.asked");
             Formula query = new Formula();
             query.read(suoKifFormula);
             FormulaPreprocessor fp = new FormulaPreprocessor();
+            long t = Metrics.start();
             ArrayList<Formula> processedStmts = fp.preProcess(query,true, this);
+            Metrics.time("query.preprocess", t);
 
             if (!processedStmts.isEmpty() && this.eprover != null) {
                 String strQuery = processedStmts.get(0).theFormula;
@@ -1583,7 +1577,9 @@ public class KB {
                 else
                     System.out.println("Get response from EProver, start for parsing ...");
                 //System.out.println("Results returned from E = \n" + EResult);
+                t = Metrics.start();
                 ArrayList<String> answers = TPTP3ProofProcessor.parseAnswerTuples(result, this, fp);
+                Metrics.time("query.answers", t);
                 return answers;
             }
         }
@@ -1604,10 +1600,13 @@ public class KB {
 
         ArrayList<String> answers = new ArrayList<String>();
         if (StringUtil.isNonEmptyString(suoKifFormula)) {
+            Metrics.count("query.asked");
             Formula query = new Formula();
             query.read(suoKifFormula);
             FormulaPreprocessor fp = new FormulaPreprocessor();
+            long t = Metrics.start();
             ArrayList<Formula> processedStmts = fp.preProcess(query,true, this);
+            Metrics.time("query.preprocess", t);
 
             if (!processedStmts.isEmpty() && this.eprover != null) {
                 String strQuery = processedStmts.get(0).theFormula;
@@ -1617,7 +1616,9 @@ public class KB {
                 else
                     System.out.println("Get response from EProver, start for parsing ...");
                 //System.out.println("Results returned from E = \n" + EResult);
+                t = Metrics.start();
                 answers = TPTP3ProofProcessor.parseAnswerTuples(EResult, this, fp);
+                Metrics.time("query.answers", t);
                 return answers;
             }
         }
@@ -1649,14 +1650,19 @@ public class KB {
         // Start by assuming that the ask is futile.
         result = "<queryResponse>\n<answer result=\"no\" number=\"0\">\n</answer>\n<summary proofs=\"0\"/>\n</queryResponse>\n";
         if (!StringUtil.emptyString(suoKifFormula)) {
+            Metrics.count("query.asked");
             Formula query = new Formula();
             query.read(suoKifFormula);
             FormulaPreprocessor fp = new FormulaPreprocessor();
+            long t = Metrics.start();
             ArrayList<Formula> processedStmts = fp.preProcess(query,true, this);
+            Metrics.time("query.preprocess", t);
             try {
                 if (!processedStmts.isEmpty()) {
                     String strQuery = processedStmts.get(0).theFormula;                
+                    t = Metrics.start();
                     result = engine.submitQuery(strQuery,timeout,maxAnswers);
+                    Metrics.time("query.engine", t);
                 }
             }
             catch (IOException ioe) {
@@ -1793,7 +1799,8 @@ public class KB {
             }
             System.out.println(selFs.toString());
             THF thf = new THF();
-            LeoProblem = thf.KIF2THF(selectedFormulas,selectedQuery,this);
+            int threads = KBmanager.getMgr().getIntPref("thfThreads",1);
+            LeoProblem = thf.KIF2THF(selectedFormulas,selectedQuery,this,threads);
             LeoInputFileW.write(LeoProblem);
             LeoInputFileW.close();
 
@@ -2112,6 +2119,15 @@ public class KB {
         language = lang;
     }
 
+    /** ***************************************************************
+     * @return a number that changes whenever the formulas of the KB
+     * change
+     */
+    public int getVersion() {
+
+        return version;
+    }
+
     /** ***************************************************************
      * Clears all loaded format and termFormat maps, for all
      * languages.     
@@ -2247,7 +2263,9 @@ public class KB {
             canonicalPath = constituent.getCanonicalPath();
             if (constituents.contains(canonicalPath))
                 errors.add("Error. " + canonicalPath + " already loaded.");
+            long t = Metrics.start();
             file.readFile(canonicalPath);
+            Metrics.time("kb.load.parse", t);
             errors.addAll(file.warningSet);
         }
         catch (Exception ex1) {
@@ -2259,12 +2277,10 @@ public class KB {
             errors.add(error.toString());
         }
 
+        long t = Metrics.start();
         Iterator<String> it = file.formulas.keySet().iterator();
-        int count = 0;
         while (it.hasNext()) { // Iterate through keys.
             String key = it.next();                 
-            if ((count++ % 100) == 1)  
-                System.out.print("."); 
             ArrayList<String> newlist = file.formulas.get(key);
             
          // temporary debug test to find nulls
@@ -2287,13 +2303,10 @@ public class KB {
             formulas.put(key, newlist);            
         }
           
-        count = 0;
         Iterator<Formula> it2 = file.formulaMap.values().iterator();
         while (it2.hasNext()) { // Iterate through values
             Formula f = (Formula) it2.next();
             String internedFormula = f.theFormula.intern();
-            if ((count++ % 100) == 1)  
-                System.out.print(".");
             if (!formulaMap.containsKey(internedFormula))
                 formulaMap.put(internedFormula, f);
         }
@@ -2301,6 +2314,11 @@ public class KB {
         this.getTerms().addAll(file.terms);
         if (!constituents.contains(canonicalPath))
             constituents.add(canonicalPath);            
+        version++;
+        Metrics.time("kb.load.merge", t);
+        Metrics.count("kb.load.formulas", file.formulaMap.size());
+        final String loaded = canonicalPath;
+        logger.fine(() -> "added " + file.formulaMap.size() + " formulas from " + loaded);
         //clearFormatMaps(); // Clear formatMap and termFormatMap for this KB.
         //if (buildCachesP && !canonicalPath.endsWith(_cacheFileSuffix)) {
         //    kbCache = new KBcache(this);
@@ -2328,6 +2346,7 @@ public class KB {
             formulaMap.clear();
             terms.clear();
             clearFormatMaps();
+            version++;
             errors.clear();
             Iterator<String> nci = newConstituents.iterator();
             if (nci.hasNext()) System.out.println("INFO in KB.reload()");
@@ -407,6 +407,23 @@ public class KBcache {
             return null;
     }
 
+    /** ***************************************************************
+     * return all the subrelations of the given relation, from the
+     * transitive closure of subrelation expressions, or null if the
+     * closure has not been built.
+     */
+    public HashSet<String> getChildRelations(String rel) {
+        
+        HashMap<String,HashSet<String>> ps = children.get("subrelation");
+        if (ps == null)
+            return null;
+        HashSet<String> result = ps.get(rel);
+        if (result != null)
+            return result;
+        else
+            return new HashSet<String>();
+    }
+
     /** ***************************************************************
      * return classes for the given instance cl.
      *
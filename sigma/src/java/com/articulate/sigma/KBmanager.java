@@ -15,6 +15,7 @@ August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
 
 import com.articulate.sigma.CCheckManager.CCheckStatus;
 import com.articulate.sigma.nlg.NLGUtils;
+import com.articulate.sigma.nlg.ParaphraseService;
 
 import java.io.*;
 import java.util.*;
@@ -169,8 +170,37 @@ public class KBmanager {
             preferences.put("adminBrowserLimit","200");
             preferences.put("port","8080");            
             preferences.put("hostname","localhost");  
+
+            // If yes then map WordNet from a compiled store file rather than parsing it at every start
+            preferences.put("wordNetStore","no");
+
+            // If yes then paraphrase all the formulas of each KB in the background after loading
+            preferences.put("paraphrasePrecompute","no");
+
+            // The number of paraphrases cached for each KB; precomputing raises it to cover the whole KB
+            preferences.put("paraphraseCacheSize","20000");
+
+            // The number of rendered term browser rows cached for each KB
+            preferences.put("browseRowCacheSize","5000");
+
+            // The number of threads used to translate formulas to THF; 1 keeps the sequential translation
+            preferences.put("thfThreads","1");
+
+            // The number of threads used to instantiate predicate variables for the whole KB
+            // before translating it to TPTP; 1 instantiates each formula as it is translated
+            preferences.put("tptpThreads","1");
+
+            // Open Multilingual WordNet languages read at startup, as a comma-separated list of
+            // codes or "all"; others are read on first use and dropped, least recently used first,
+            // once they take more than omwMemoryMB
+            preferences.put("omwPreload","");
+            preferences.put("omwMemoryMB","256");
+
+            // If yes then time the stages of loading, inference and language understanding for Metrics.jsp
+            preferences.put("metrics","no");
             
-            // Default logging things
+            // Default logging things.  logLevel is the level of everything in com.articulate.sigma;
+            // logLevel.X, e.g. logLevel.semRewrite, sets the level of one class or package
             preferences.put("logDir", logDir.getCanonicalPath());
             preferences.put("logLevel", "warning");
             
@@ -285,14 +315,21 @@ public class KBmanager {
         	e.printStackTrace();
             return false;
         }
+        long t = Metrics.start();
         kb.kbCache = new KBcache(kb);
         kb.kbCache.buildCaches();
         if (useCacheFile) 
             kb.kbCache.writeCacheFile();                
+        Metrics.time("kb.load.caches", t);
+        t = Metrics.start();
         kb.checkArity();
+        Metrics.time("kb.load.arity", t);
         // load inference engine only when "TPTP" is turned on
-        if (KBmanager.getMgr().getPref("TPTP").equals("yes"))
+        if (KBmanager.getMgr().getPref("TPTP").equals("yes")) {
+            t = Metrics.start();
             kb.loadEProver();
+            Metrics.time("kb.load.prover", t);
+        }
         return true;
     }
     
@@ -490,6 +527,8 @@ public class KBmanager {
      */
     void setConfiguration(SimpleElement configuration) {
         preferencesFromXML(configuration);
+        SigmaLog.configure(preferences);
+        Metrics.setEnabled(getPref("metrics").equalsIgnoreCase("yes"));
         kbsFromXML(configuration);
         String kbDir = (String) preferences.get("kbDir");
         //System.out.println("Info in KBmanager.initializeOnce(): Using kbDir: " + kbDir);
@@ -502,6 +541,9 @@ public class KBmanager {
                 String kbName = it.next();
                 System.out.println("INFO in KBmanager.setConfiguration(): " + kbName);
                 WordNet.wn.termFormatsToSynsets(KBmanager.getMgr().getKB(kbName));
+                if ("yes".equalsIgnoreCase(getPref("paraphrasePrecompute")))
+                    ParaphraseService.getService(getKB(kbName)).precompute(
+                            ParaphraseService.defaultHref(kbName,"EnglishLanguage"),"EnglishLanguage");
             }
         }
         else
@@ -722,12 +764,34 @@ public class KBmanager {
         return ans;
     }
     
+    /** ***************************************************************
+     * Get the preference corresponding to the given key as an int.
+     * @return the value, or dflt if the preference is not set or is not
+     * an integer, in which case a warning is printed
+     */
+    public int getIntPref(String key, int dflt) {
+
+        String value = getPref(key).trim();
+        if (value.length() == 0)
+            return dflt;
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException ex) {
+            System.out.println("Error in KBmanager.getIntPref(): preference " + key + " is not an integer: " +
+                    value + ", using " + dflt);
+            return dflt;
+        }
+    }
+
     /** ***************************************************************
      * Set the preference to the given value.
      */
     public void setPref(String key, String value) {
         
         preferences.put(key,value);
+        if (key.startsWith(SigmaLog.LEVEL_PREF))
+            SigmaLog.configure(preferences);  // take effect without a restart
     }
 
     /** ***************************************************************
@@ -62,7 +62,6 @@ public class KIF {
 
     private String filename;
     private File file;
-    private int totalLinesForComments = 0;
 
     /** warnings generated during parsing */
     public TreeSet<String> warningSet = new TreeSet<String>();
@@ -161,121 +160,289 @@ public class KIF {
      *          but not fatal parse errors.
      */
     protected TreeSet<String> parse(Reader r) {
-    	
-        int mode = this.getParseMode();                       
-        StringBuilder expression = new StringBuilder();
-        int lastVal;
-        Formula f = new Formula();
-        String errStart = "Parsing error in " + filename;
-        String errStr = null;
-        int duplicateCount = 0;
-        
+
         if (r == null) {
-            errStr = "No Input Reader Specified";
+            String errStr = "No Input Reader Specified";
             warningSet.add(errStr);
             System.err.println("Error in KIF.parse(): " + errStr);
             return warningSet;
         }
         try {
-        	count++;
-        	StreamTokenizer_s st = new StreamTokenizer_s(r);
-            KIF.setupStreamTokenizer(st);
+            return parse(KIFLexer.read(r));
+        }
+        catch (IOException ex) {
+            warningSet.add("Error in KIF.parse() " + ex.getMessage().replaceAll(":","&58;"));
+            ex.printStackTrace();
+            return warningSet;
+        }
+    }
+
+    /** ***************************************************************
+     * The argument checks of Formula.validArgs(), kept for each list
+     * that is open while a statement is read, so that a statement does
+     * not have to be parsed again from its String to check it.
+     */
+    private static class ListCheck {
+
+        /** the kind of the first element of the list */
+        int pred = PRED_NONE;
+        /** the number of elements after the first */
+        int argCount = 0;
+        boolean firstArgIsList = false;
+        /** lists in the predicate position, and their sublists, are not
+         * checked by Formula.validArgs() */
+        boolean checked = true;
+        /** where the list starts in the statement being built */
+        int offset = 0;
+    }
+
+    private static final int PRED_NONE = 0;
+    private static final int PRED_OTHER = 1;
+    private static final int PRED_VARIABLE = 2;
+    private static final int PRED_AND_OR = 3;
+    private static final int PRED_QUANT = 4;
+    private static final int PRED_IF_IFF = 5;
+    private static final int PRED_EQUAL = 6;
+
+    /** ***************************************************************
+     * @return the kind of a word in the predicate position
+     */
+    private static int predKind(KIFLexer lex) {
+
+        char c = lex.buf[lex.start];
+        if (c == '?' || c == '@')
+            return PRED_VARIABLE;
+        if (lex.textEquals(Formula.AND) || lex.textEquals(Formula.OR))
+            return PRED_AND_OR;
+        if (lex.textEquals(Formula.UQUANT) || lex.textEquals(Formula.EQUANT))
+            return PRED_QUANT;
+        if (lex.textEquals(Formula.IF) || lex.textEquals(Formula.IFF))
+            return PRED_IF_IFF;
+        if (lex.textEquals(Formula.EQUAL))
+            return PRED_EQUAL;
+        return PRED_OTHER;
+    }
+
+    /** ***************************************************************
+     * Count a word, string or list as the next element of the
+     * innermost open list.
+     * @param kind the predicate kind the element has if it is first
+     */
+    private static void addElement(ArrayList<ListCheck> lists, int depth, int kind, boolean isList) {
+
+        if (depth == 0)
+            return;
+        ListCheck lc = lists.get(depth - 1);
+        if (lc.pred == PRED_NONE)
+            lc.pred = kind;
+        else {
+            lc.argCount++;
+            if (lc.argCount == 1)
+                lc.firstArgIsList = isList;
+        }
+    }
+
+    /** ***************************************************************
+     * The test of Formula.validArgs() for a list that has just been
+     * closed.
+     * @return an error message or null
+     */
+    private String checkList(ListCheck lc, StringBuilder expression, int startLine) {
+
+        if (!lc.checked || lc.pred == PRED_NONE)
+            return null;
+        String problem = null;
+        if (lc.pred == PRED_AND_OR && lc.argCount < 2)
+            problem = "Too few arguments for 'and' or 'or'";
+        else if (lc.pred == PRED_QUANT && lc.argCount != 2)
+            problem = "Wrong number of arguments for quantifer";
+        else if (lc.pred == PRED_QUANT && !lc.firstArgIsList)
+            problem = "No var list for quantifier";
+        else if (lc.pred == PRED_IF_IFF && lc.argCount != 2)
+            problem = "Wrong number of arguments for '<=>' or '=>'";
+        else if (lc.pred == PRED_EQUAL && lc.argCount != 2)
+            problem = "Wrong number of arguments for 'equals'";
+        else if ((lc.pred == PRED_OTHER) && (lc.argCount > (Formula.MAX_PREDICATE_ARITY + 1)))
+            problem = "Maybe too many arguments";
+        if (problem == null)
+            return null;
+        String location = "";
+        if (file != null)
+            location = "near line " + startLine + " in " + file.getName();
+        Formula f = new Formula();
+        f.read(expression.substring(lc.offset));
+        return problem + " at " + location + ": " + f.toString();
+    }
+
+    /** ***************************************************************
+     * Appends characters to a statement, collapsing each run of
+     * whitespace to one space and dropping whitespace after an open
+     * parenthesis, as StringUtil.normalizeSpaceChars() would.  A double
+     * quote that is not already escaped is escaped, as
+     * StringUtil.escapeQuoteChars() would, when quotes is true.
+     */
+    private static class StatementBuilder implements KIFLexer.CharSink {
+
+        StringBuilder sb = new StringBuilder();
+        boolean quotes = false;
+        char prev = 'x';
+
+        public void append(char c) {
+
+            if (c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r') {
+                int n = sb.length();
+                if (n > 0 && sb.charAt(n-1) != ' ' && sb.charAt(n-1) != '(')
+                    sb.append(' ');
+            }
+            else {
+                if (quotes && c == '"' && prev != '\\')
+                    sb.append('\\');
+                sb.append(c);
+            }
+            prev = c;
+        }
+
+        /** the space that separates a token other than a parenthesis
+         * from what comes before it, even at the start of a statement */
+        void separator() {
+
+            if (sb.length() == 0)
+                sb.append(' ');
+            else
+                append(' ');
+        }
+
+        void append(char[] buf, int start, int end) {
+
+            sb.append(buf,start,end - start);
+        }
+    }
+
+    /** ***************************************************************
+     *  The same as parse(Reader), over the tokens of a KIFLexer.  Each
+     *  statement is written once, already normalized, from the token
+     *  spans, and its arguments are checked as its lists are closed.
+     *  Line numbers are those of the text, including lines inside
+     *  strings.
+     *
+     *  @return a Set of warnings that may indicate syntax errors,
+     *          but not fatal parse errors.
+     */
+    protected TreeSet<String> parse(KIFLexer lex) {
+
+        int mode = this.getParseMode();
+        StatementBuilder expression = new StatementBuilder();
+        Formula f = new Formula();
+        String errStart = "Parsing error in " + filename;
+        String errStr = null;
+        int duplicateCount = 0;
+        ArrayList<ListCheck> lists = new ArrayList<ListCheck>();
+        String invalidArgs = null;
+
+        try {
+            count++;
             int parenLevel = 0;
             boolean inRule = false;
             int argumentNum = -1;
             boolean inAntecedent = false;
             boolean inConsequent = false;
             HashSet<String> keySet = new HashSet<String>();
-            //int lineStart = 0;
             boolean isEOL = false;
             do {
-                lastVal = st.ttype;
-                st.nextToken();
+                lex.next();
                 // check the situation when multiple KIF statements read as one
                 // This relies on extra blank line to separate KIF statements
-                if (st.ttype == StreamTokenizer.TT_EOL) {
-                    if (isEOL) { 
+                if (lex.ttype == KIFLexer.TT_EOL) {
+                    if (isEOL) {
                         // Two line separators in a row shows a new KIF
                         // statement is to start.  Check if a new statement
                         // has already been generated, otherwise report error
-                        if (!keySet.isEmpty() || (expression.length() > 0)) {
+                        if (!keySet.isEmpty() || (expression.sb.length() > 0)) {
                             errStr = (errStart + ": possible missed closing parenthesis near line " + f.startLine);
                             throw new ParseException(errStr, f.startLine);
                         }
                         continue;
                     }
-                    else {    // Found a first end of line character.                                                                
-                        isEOL = true;   // Turn on flag, to watch for a second consecutive one.                                                      
+                    else {    // Found a first end of line character.
+                        isEOL = true;   // Turn on flag, to watch for a second consecutive one.
                         continue;
                     }
                 }
-                else if (isEOL) 
-                    isEOL = false;   // Turn off isEOL if a non-space token encountered                                                                      
-                if (st.ttype==40) {  // Open paren                                                   
+                else if (isEOL)
+                    isEOL = false;   // Turn off isEOL if a non-space token encountered
+                if (lex.ttype == '(') {
                     if (parenLevel == 0) {
-                        //lineStart = st.lineno();
                         f = new Formula();
-                        f.startLine = st.lineno() + totalLinesForComments;
+                        f.startLine = lex.line;
                         f.sourceFile = filename;
+                        invalidArgs = null;
+                    }
+                    addElement(lists,parenLevel,PRED_OTHER,true);
+                    ListCheck lc = new ListCheck();
+                    if (parenLevel > 0) {
+                        ListCheck parent = lists.get(parenLevel - 1);
+                        lc.checked = parent.checked && parent.argCount > 0;
                     }
                     parenLevel++;
                     if (inRule && !inAntecedent && !inConsequent)
-                        inAntecedent = true;                    
+                        inAntecedent = true;
                     else {
                         if (inRule && inAntecedent && (parenLevel == 2)) {
                             inAntecedent = false;
                             inConsequent = true;
                         }
                     }
-                    if ((parenLevel != 0) && (lastVal != 40) && (expression.length() > 0))                          
-                        expression.append(" ");   // add back whitespace that ST removes                 
-                    expression.append("(");
+                    expression.append(' ');   // add back whitespace that the lexer removes
+                    lc.offset = expression.sb.length();
+                    if (lists.size() < parenLevel)
+                        lists.add(lc);
+                    else
+                        lists.set(parenLevel - 1,lc);
+                    expression.append('(');
                 }
-                else if (st.ttype==41) {    // )  - close paren                   
+                else if (lex.ttype == ')') {
                     parenLevel--;
-                    expression.append(")");
-                    if (parenLevel == 0) {      // The end of the statement...                                                      
-                        String fstr = StringUtil.normalizeSpaceChars(expression.toString());
-                        f.theFormula = fstr.intern();
-                        if (formulaMap.keySet().contains(f.theFormula)) {
-                            String warning = ("Duplicate axiom at line " + f.startLine + " of " + f.sourceFile + ": " + expression);
-							warningSet.add(warning);
-							System.out.println(warning);
+                    expression.append(')');
+                    if (parenLevel >= 0 && invalidArgs == null && mode == NORMAL_PARSE_MODE)
+                        invalidArgs = checkList(lists.get(parenLevel),expression.sb,f.startLine);
+                    if (parenLevel == 0) {      // The end of the statement...
+                        f.theFormula = expression.sb.toString().intern();
+                        if (formulaMap.containsKey(f.theFormula)) {
+                            String warning = ("Duplicate axiom at line " + f.startLine + " of " + f.sourceFile + ": " + f.theFormula);
+                            warningSet.add(warning);
+                            System.out.println(warning);
                             duplicateCount++;
-                        }                        
+                        }
                         if (mode == NORMAL_PARSE_MODE) { // Check arg validity ONLY in NORMAL_PARSE_MODE
-                            String validArgs = f.validArgs((file != null ? file.getName() : null), 
-                                                           (file != null 
-                                                            ? new Integer(f.startLine) 
-                                                            : null));
+                            String validArgs = invalidArgs;
                             if (StringUtil.emptyString(validArgs))
-                                validArgs = f.badQuantification();                      
+                                validArgs = f.badQuantification();
                             if (StringUtil.isNonEmptyString(validArgs)) {
                                 errStr = (errStart + ": Invalid number of arguments near line " + f.startLine + " : " + validArgs);
-                                throw new ParseException(errStr, f.startLine);  
+                                throw new ParseException(errStr, f.startLine);
                             }
                         }
                         keySet.add(f.theFormula);           // Make the formula itself a key
-                        keySet.add(f.createID());  
-                        f.endLine = st.lineno() + totalLinesForComments;
+                        keySet.add(f.createID());
+                        f.endLine = lex.line;
                         Iterator<String> it = keySet.iterator();
-                        while (it.hasNext()) {   // Add the expression but ...  
+                        while (it.hasNext()) {   // Add the expression but ...
                             String fkey = it.next();
                             if (formulas.containsKey(fkey)) {
-                                if (!formulaMap.keySet().contains(f.theFormula)) {  // don't add keys if formula is already present                                    
+                                if (!formulaMap.containsKey(f.theFormula)) {  // don't add keys if formula is already present
                                     ArrayList<String> list = formulas.get(fkey);
                                     if (StringUtil.emptyString(f.theFormula))
-                                    	System.out.println("Error in KIF.parse(): Storing empty formula from line: " + f.startLine); 
-                                    else if (!list.contains(f.theFormula)) 
+                                        System.out.println("Error in KIF.parse(): Storing empty formula from line: " + f.startLine);
+                                    else if (!list.contains(f.theFormula))
                                         list.add(f.theFormula);
                                 }
                             }
                             else {
                                 ArrayList<String> list = new ArrayList<String>();
                                 if (StringUtil.emptyString(f.theFormula))
-                                	System.out.println("Error in KIF.parse(): Storing empty formula from line: " + f.startLine); 
-                                else if (!list.contains(f.theFormula)) 
-                                    list.add(f.theFormula);                               		
+                                    System.out.println("Error in KIF.parse(): Storing empty formula from line: " + f.startLine);
+                                else if (!list.contains(f.theFormula))
+                                    list.add(f.theFormula);
                                 formulas.put(fkey,list);
                             }
                         }
@@ -283,82 +450,81 @@ public class KIF {
                         inConsequent = false;
                         inRule = false;
                         argumentNum = -1;
-                        //lineStart = (st.lineno() + 1);    // start next statement from next line                     
-                        expression = new StringBuilder();
+                        expression = new StatementBuilder();
                         keySet.clear();
                     }
                     else if (parenLevel < 0) {
-                        errStr = (errStart + ": Extra closing parenthesis found near line " + f.startLine);
-                        throw new ParseException(errStr, f.startLine);
+                        errStr = (errStart + ": Extra closing parenthesis found near line " + lex.line);
+                        throw new ParseException(errStr, lex.line);
                     }
                 }
-                else if (st.ttype==34) {   // " - it's a string                 
-                    st.sval = StringUtil.escapeQuoteChars(st.sval);
-                    if (lastVal != 40)           // add back whitespace that ST removes
-                        expression.append(" ");
-                    expression.append("\"");
-                    String com = st.sval;
-                    totalLinesForComments += countChar(com,(char)0X0A);
-                    expression.append(com);
-                    expression.append("\"");
+                else if (lex.ttype == KIFLexer.TT_STRING) {   // " - it's a string
+                    addElement(lists,parenLevel,PRED_OTHER,false);
+                    expression.separator();   // add back whitespace that the lexer removes
+                    expression.append('"');
+                    expression.quotes = true;
+                    expression.prev = 'x';
+                    lex.decodeString(expression);
+                    expression.quotes = false;
+                    expression.sb.append('"');
                     if (parenLevel < 2)   // Don't care if parenLevel > 1
                         argumentNum = argumentNum + 1;
                 }
-                else if ((st.ttype == StreamTokenizer.TT_NUMBER) ||           // number
-                         (st.sval != null && (Character.isDigit(st.sval.charAt(0))))) {              
-                    if (lastVal != 40)  // add back whitespace that ST removes
-                        expression.append(" ");
-                    if (st.nval == 0) 
-                        expression.append(st.sval);
-                    else
-                        expression.append(Double.toString(st.nval));
+                else if (lex.ttype == KIFLexer.TT_WORD && Character.isDigit(lex.buf[lex.start])) {   // number
+                    addElement(lists,parenLevel,PRED_OTHER,false);
+                    expression.separator();   // add back whitespace that the lexer removes
+                    expression.append(lex.buf,lex.start,lex.end);
                     if (parenLevel<2)                           // Don't care if parenLevel > 1
-                        argumentNum = argumentNum + 1; 
+                        argumentNum = argumentNum + 1;
                 }
-                else if (st.ttype == StreamTokenizer.TT_WORD) {                  // a token
-                    if ((st.sval.equals("=>") || st.sval.equals("<=>")) && parenLevel == 1)                           
-                        inRule = true;          // implications in statements aren't rules          
+                else if (lex.ttype == KIFLexer.TT_WORD) {                  // a token
+                    addElement(lists,parenLevel,predKind(lex),false);
+                    if ((lex.textEquals("=>") || lex.textEquals("<=>")) && parenLevel == 1)
+                        inRule = true;          // implications in statements aren't rules
                     if (parenLevel<2)                   // Don't care if parenLevel > 1
                         argumentNum = argumentNum + 1;
-                    if (lastVal != 40)                // add back whitespace that ST removes
-                        expression.append(" ");
-                    expression.append(String.valueOf(st.sval));
-                    if (expression.length() > 64000) {
+                    expression.separator();   // add back whitespace that the lexer removes
+                    expression.append(lex.buf,lex.start,lex.end);
+                    if (expression.sb.length() > 64000) {
                         errStr = (errStart + ": Sentence over 64000 characters new line " + f.startLine);
-                        throw new ParseException(errStr, f.startLine);                      
+                        throw new ParseException(errStr, f.startLine);
                     }
                     // Build the terms list and special keys ONLY if in NORMAL_PARSE_MODE
-                    if ((mode == NORMAL_PARSE_MODE) 
-                        && (st.sval.charAt(0) != '?') 
-                        && (st.sval.charAt(0) != '@')) {   // Variables are not terms
-                        terms.add(st.sval);                  // collect all terms
-                        String key = createKey(st.sval,inAntecedent,inConsequent,argumentNum,parenLevel);
+                    char first = lex.buf[lex.start];
+                    if ((mode == NORMAL_PARSE_MODE)
+                        && (first != '?')
+                        && (first != '@')) {   // Variables are not terms
+                        String sval = lex.text();
+                        terms.add(sval);                  // collect all terms
+                        String key = createKey(sval,inAntecedent,inConsequent,argumentNum,parenLevel);
                         keySet.add(key); // Collect all the keys until the end of the statement is reached.
-                    }                                        
-                } 
-                else if ((mode == RELAXED_PARSE_MODE) && (st.ttype == 96)) // allow '`' in relaxed parse mode                    
-                    expression.append(" `");                
-                else if (st.ttype != StreamTokenizer.TT_EOF) {
-                    errStr = (errStart + ": Illegal character near line " + f.startLine);
-                    throw new ParseException(errStr, f.startLine);                      
+                    }
+                }
+                else if ((mode == RELAXED_PARSE_MODE) && (lex.ttype == '`')) { // allow '`' in relaxed parse mode
+                    expression.separator();
+                    expression.append('`');
+                }
+                else if (lex.ttype != KIFLexer.TT_EOF) {
+                    errStr = (errStart + ": Illegal character near line " + lex.line);
+                    throw new ParseException(errStr, lex.line);
                 }
-            } while (st.ttype != StreamTokenizer.TT_EOF);
-            
-            if (!keySet.isEmpty() || expression.length() > 0) {
+            } while (lex.ttype != KIFLexer.TT_EOF);
+
+            if (!keySet.isEmpty() || expression.sb.length() > 0) {
                 errStr = (errStart + ": Missed closing parenthesis near line " + f.startLine);
-                throw new ParseException(errStr, f.startLine);            
+                throw new ParseException(errStr, f.startLine);
             }
         }
         catch (Exception ex) {
-        	String message = ex.getMessage().replaceAll(":","&58;"); // HTMLformatter.formatErrors depends on :
+            String message = ex.getMessage().replaceAll(":","&58;"); // HTMLformatter.formatErrors depends on :
             warningSet.add("Error in KIF.parse() " + message);
             ex.printStackTrace();
         }
         if (duplicateCount > 0) {
-        	String warning = "WARNING in KIF.parse(Reader), " + duplicateCount + " duplicate statement"
+            String warning = "WARNING in KIF.parse(Reader), " + duplicateCount + " duplicate statement"
             + ((duplicateCount > 1) ? "s " : " ") + "detected in " + (StringUtil.emptyString(filename)
                     ? " the input file" : filename);
-        	warningSet.add(warning);
+            warningSet.add(warning);
         }
         return warningSet;
     }
@@ -411,35 +577,17 @@ public class KIF {
         return (key);
     }
 
-    /** ***************************************************************
-     * Count the number of appearances of a certain character in a string.
-     * @param str - the string to be tested.
-     * @param c - the character to be counted.
-     */
-    private int countChar(String str, char c) {
-
-        int len = 0;
-        char[] cArray = str.toCharArray();
-        for (int i = 0; i < cArray.length; i++) {
-            if (cArray[i] == c)
-                len ++;      
-        }
-        return len;
-    }
-  
     /** ***************************************************************
      * Read a KIF file.
      * @param fname - the full pathname of the file.
      */
     public void readFile(String fname) throws Exception {
 
-        FileReader fr = null;
         Exception exThr = null;
         try {
             this.file = new File(fname);
             this.filename = file.getCanonicalPath();
-            fr = new FileReader(file);
-            parse(fr);
+            parse(KIFLexer.mapFile(file));
         }
         catch (Exception ex) {
             exThr = ex;
@@ -449,15 +597,6 @@ public class KIF {
             KBmanager.getMgr().setError(KBmanager.getMgr().getError() 
                                         + "\n<br/>" + er + " in file " + fname + "\n<br/>");
         }
-        finally {
-            if (fr != null) {
-                try {
-                    fr.close();
-                }
-                catch (Exception ex2) {
-                }
-            }
-        }
         if (exThr != null) 
             throw exThr;        
         return;
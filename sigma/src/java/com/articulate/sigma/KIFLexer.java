@@ -0,0 +1,282 @@
+/** This code is copyright Articulate Software (c) 2003.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+*/
+package com.articulate.sigma;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/** *****************************************************************
+ * A tokenizer for SUO-KIF that works over a whole file held in a
+ * char array.  Tokens are reported as spans of that array, with the
+ * line they start on, rather than as new Strings, so that KIF.parse()
+ * can copy each statement straight into its final form.  Characters
+ * are classified as KIF.setupStreamTokenizer() sets up
+ * StreamTokenizer_s: = &lt; &gt; ? @ : - . _ digits and letters are
+ * word characters, ; starts a line comment and " delimits a string.
+ */
+public class KIFLexer {
+
+    /** token types, the same values as StreamTokenizer uses */
+    public static final int TT_EOF = StreamTokenizer.TT_EOF;
+    public static final int TT_EOL = StreamTokenizer.TT_EOL;
+    public static final int TT_WORD = StreamTokenizer.TT_WORD;
+    public static final int TT_STRING = '"';
+
+    private static final byte CT_WHITESPACE = 1;
+    private static final byte CT_WORD = 2;
+    private static final byte CT_QUOTE = 4;
+    private static final byte CT_COMMENT = 8;
+
+    /** character classes for the characters below 256; characters
+     * from 256 up are word characters */
+    private static final byte[] ctype = new byte[256];
+    static {
+        for (int c = 0; c <= 32; c++)
+            ctype[c] = CT_WHITESPACE;
+        ctype['-'] = CT_WORD;
+        ctype['.'] = CT_WORD;
+        for (int c = '0'; c <= ':'; c++)
+            ctype[c] = CT_WORD;
+        for (int c = '<'; c <= 'Z'; c++)
+            ctype[c] = CT_WORD;
+        ctype['_'] = CT_WORD;
+        for (int c = 'a'; c <= 'z'; c++)
+            ctype[c] = CT_WORD;
+        ctype['"'] = CT_QUOTE;
+        ctype[';'] = CT_COMMENT;
+    }
+
+    /** the text being tokenized, up to len */
+    public final char[] buf;
+    public final int len;
+
+    /** the type of the current token: TT_EOF, TT_EOL, TT_WORD,
+     * TT_STRING or a character such as '(' */
+    public int ttype = TT_EOL;
+
+    /** the span of the current token in buf.  For a string the span
+     * is the text between the quotes, with escapes not yet decoded. */
+    public int start = 0;
+    public int end = 0;
+
+    /** the line on which the current token starts, counting from 1 */
+    public int line = 1;
+
+    private int pos = 0;
+    private int lineno = 1;
+
+    /** ***************************************************************
+     */
+    public KIFLexer(char[] buf, int len) {
+
+        this.buf = buf;
+        this.len = len;
+    }
+
+    /** ***************************************************************
+     */
+    public KIFLexer(String s) {
+
+        this(s.toCharArray(),s.length());
+    }
+
+    /** ***************************************************************
+     * Read all of a Reader into a lexer.
+     */
+    public static KIFLexer read(Reader r) throws IOException {
+
+        char[] chars = new char[65536];
+        int n = 0;
+        int count = 0;
+        while ((count = r.read(chars,n,chars.length - n)) >= 0) {
+            n = n + count;
+            if (n == chars.length) {
+                char[] bigger = new char[chars.length * 2];
+                System.arraycopy(chars,0,bigger,0,n);
+                chars = bigger;
+            }
+        }
+        return new KIFLexer(chars,n);
+    }
+
+    /** ***************************************************************
+     * Map a file into memory and decode it in a single pass with the
+     * platform's default character set, as a FileReader would.
+     */
+    public static KIFLexer mapFile(File file) throws IOException {
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+            CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = decoder.decode(bytes);
+            if (chars.hasArray())
+                return new KIFLexer(chars.array(),chars.arrayOffset() + chars.limit());
+            char[] copy = new char[chars.remaining()];
+            chars.get(copy);
+            return new KIFLexer(copy,copy.length);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /** ***************************************************************
+     * Skip a line terminator at pos, counting the line.
+     */
+    private void skipEOL() {
+
+        if (buf[pos] == '\r' && pos + 1 < len && buf[pos+1] == '\n')
+            pos++;
+        pos++;
+        lineno++;
+    }
+
+    /** ***************************************************************
+     * Advance to the next token.
+     * @return the type of the token, also left in ttype
+     */
+    public int next() {
+
+        while (pos < len) {
+            char c = buf[pos];
+            int ct = c < 256 ? ctype[c] : CT_WORD;
+            if (c == '\n' || c == '\r') {
+                start = pos;
+                line = lineno;
+                skipEOL();
+                end = pos;
+                return ttype = TT_EOL;
+            }
+            else if (ct == CT_WHITESPACE)
+                pos++;
+            else if (ct == CT_COMMENT) {
+                while (pos < len && buf[pos] != '\n' && buf[pos] != '\r')
+                    pos++;
+            }
+            else if (ct == CT_WORD) {
+                start = pos;
+                line = lineno;
+                while (pos < len && (buf[pos] >= 256 || ctype[buf[pos]] == CT_WORD))
+                    pos++;
+                end = pos;
+                return ttype = TT_WORD;
+            }
+            else if (ct == CT_QUOTE) {
+                line = lineno;
+                pos++;
+                start = pos;
+                while (pos < len && buf[pos] != '"') {
+                    if (buf[pos] == '\\' && pos + 1 < len)
+                        pos++;
+                    if (buf[pos] == '\n' || buf[pos] == '\r')
+                        skipEOL();
+                    else
+                        pos++;
+                }
+                end = pos;
+                if (pos < len)
+                    pos++;
+                return ttype = TT_STRING;
+            }
+            else {
+                start = pos;
+                line = lineno;
+                pos++;
+                end = pos;
+                return ttype = c;
+            }
+        }
+        start = end = pos;
+        line = lineno;
+        return ttype = TT_EOF;
+    }
+
+    /** ***************************************************************
+     * @return the text of the current token as a new String
+     */
+    public String text() {
+
+        return new String(buf,start,end - start);
+    }
+
+    /** ***************************************************************
+     * @return whether the current token's text is s, without making
+     * a String of it
+     */
+    public boolean textEquals(String s) {
+
+        if (s.length() != end - start)
+            return false;
+        for (int i = 0; i < s.length(); i++)
+            if (buf[start + i] != s.charAt(i))
+                return false;
+        return true;
+    }
+
+    /** ***************************************************************
+     * Decode the escapes of the current string token as
+     * StreamTokenizer_s does: \n, \t and the like become the control
+     * character, up to three octal digits become that character, and
+     * any other escaped character stands for itself.
+     * @param dest receives the decoded characters, one at a time
+     */
+    public void decodeString(CharSink dest) {
+
+        int i = start;
+        while (i < end) {
+            char c = buf[i++];
+            if (c == '\\' && i < end) {
+                c = buf[i++];
+                if (c >= '0' && c <= '7') {
+                    int first = c;
+                    int v = c - '0';
+                    if (i < end && buf[i] >= '0' && buf[i] <= '7') {
+                        v = (v << 3) + (buf[i++] - '0');
+                        if (i < end && buf[i] >= '0' && buf[i] <= '7' && first <= '3')
+                            v = (v << 3) + (buf[i++] - '0');
+                    }
+                    c = (char) v;
+                }
+                else {
+                    switch (c) {
+                    case 'a': c = 0x7; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = 0xC; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'v': c = 0xB; break;
+                    }
+                }
+            }
+            dest.append(c);
+        }
+    }
+
+    /** ***************************************************************
+     * Receives the characters of a decoded string token.
+     */
+    public interface CharSink {
+        public void append(char c);
+    }
+}
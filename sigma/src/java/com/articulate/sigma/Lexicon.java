@@ -0,0 +1,510 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.LineNumberReader;
+import java.util.*;
+
+/** ***************************************************************
+ *  The word lists used in language understanding - first names,
+ *  stopwords, sentiment and multi-word expressions - read once from the WordNetMappings directory and kept
+ *  in immutable sets and maps that any number of threads can share.
+ *  get() returns the current lexicon, and replaces it with a freshly
+ *  read one when one of its files has changed since it was read, so
+ *  callers that hold on to a Lexicon for the length of a request see
+ *  consistent contents.
+ */
+public class Lexicon {
+
+    /** how often, in milliseconds, get() looks for changed files */
+    public static long checkInterval = 10000;
+
+    private static volatile Lexicon current = null;
+
+    /** the key in stamps for the multi-words read by WordNet */
+    private static final String WORDNET = "WordNet.multiWord";
+
+    /** ***************************************************************
+     * An entry of sentiment.csv.
+     */
+    public static class Sentiment {
+
+        public final String type;       // weak, strong
+        public final String POS;        // noun, verb, adj, adverb, anypos
+        public final String stemmed;    // y, n
+        public final String polarity;   // positive, negative, neutral
+
+        Sentiment(String type, String POS, String stemmed, String polarity) {
+            this.type = type;
+            this.POS = POS;
+            this.stemmed = stemmed;
+            this.polarity = polarity;
+        }
+
+        /** @return the score used by DB.computeSentimentForWord() */
+        public int score() {
+
+            int multiplier = 0;
+            if (type.equals("weak"))
+                multiplier = 1;
+            if (type.equals("strong"))
+                multiplier = 5;
+            if (polarity.equals("neutral"))
+                multiplier = 0;
+            if (polarity.equals("positive"))
+                return multiplier;
+            else
+                return - multiplier;
+        }
+    }
+
+    private final String dir;
+    private ImmutableSet<String> maleNames;
+    private ImmutableSet<String> femaleNames;
+    private ImmutableSet<String> stopwords;
+    private ImmutableMap<String,Sentiment> sentiment;
+    /** multi-word expressions keyed by their first word, sorted */
+    private ImmutableMap<String,String[]> multiWords;
+
+    /** the time in milliseconds taken to read each resource */
+    private final LinkedHashMap<String,Long> loadTimes = new LinkedHashMap<String,Long>();
+    /** the modification time and length of each file when it was read */
+    private final HashMap<String,String> stamps = new HashMap<String,String>();
+    private volatile long checked = 0;
+
+    /** ***************************************************************
+     */
+    private Lexicon(String dir) {
+
+        this.dir = dir;
+        long t1 = System.currentTimeMillis();
+        readFirstNames();
+        readStopwords();
+        readSentiment();
+        readMWE();
+        loadTimes.put("total",Long.valueOf(System.currentTimeMillis() - t1));
+        checked = System.currentTimeMillis();
+        System.out.println("INFO in Lexicon(): read " + dir + " " + loadTimes);
+    }
+
+    /** ***************************************************************
+     * @return the lexicon for the WordNetMappings directory of kbDir
+     */
+    public static Lexicon get() {
+
+        return get(KBmanager.getMgr().getPref("kbDir") + File.separator + "WordNetMappings");
+    }
+
+    /** ***************************************************************
+     * @return the lexicon read from dir, reading it again if no lexicon
+     * has been read from dir or if its files have changed
+     */
+    public static Lexicon get(String dir) {
+
+        Lexicon result = current;
+        if (result != null && result.dir.equals(dir) &&
+                System.currentTimeMillis() - result.checked < checkInterval)
+            return result;
+        synchronized (Lexicon.class) {
+            result = current;
+            if (result == null || !result.dir.equals(dir) || result.changed()) {
+                result = new Lexicon(dir);
+                current = result;
+            }
+            else
+                result.checked = System.currentTimeMillis();
+            return result;
+        }
+    }
+
+    /** ***************************************************************
+     * @return the modification time and length of a file, which
+     * change when it is rewritten
+     */
+    private static String stamp(File f) {
+
+        return f.lastModified() + ":" + f.length();
+    }
+
+    /** ***************************************************************
+     * @return true if any file has changed since it was read, or if
+     * WordNet has read more multi-words
+     */
+    private boolean changed() {
+
+        for (String fname : stamps.keySet()) {
+            String now = fname.equals(WORDNET) ? wordNetStamp() : stamp(new File(fname));
+            if (!stamps.get(fname).equals(now))
+                return true;
+        }
+        return false;
+    }
+
+    /** ***************************************************************
+     * @return the file, with its stamp recorded
+     */
+    private File file(String name) {
+
+        File f = new File(dir + File.separator + name);
+        stamps.put(f.getPath(),stamp(f));
+        return f;
+    }
+
+    /** ***************************************************************
+     * Read FirstNames.csv
+     */
+    private void readFirstNames() {
+
+        long t1 = System.currentTimeMillis();
+        ImmutableSet.Builder<String> male = ImmutableSet.builder();
+        ImmutableSet.Builder<String> female = ImmutableSet.builder();
+        File f = file("FirstNames.csv");
+        LineNumberReader lr = null;
+        try {
+            if (f.exists()) {
+                lr = new LineNumberReader(new FileReader(f));
+                String line;
+                lr.readLine(); // throw away the header
+                while ((line = lr.readLine()) != null) {
+                    int comma = line.indexOf(',');
+                    if (comma < 0) {
+                        System.out.println("Error in Lexicon.readFirstNames(): missing comma in '" + line + "'");
+                        continue;
+                    }
+                    String name = StringUtil.removeEnclosingChars(line.substring(0,comma).trim(),Integer.MAX_VALUE,'"');
+                    String gender = StringUtil.removeEnclosingChars(line.substring(comma+1,line.length()).trim(),Integer.MAX_VALUE,'"');
+                    if (gender.equals("M"))
+                        male.add(name.intern());
+                    else if (gender.equals("F"))
+                        female.add(name.intern());
+                    else
+                        System.out.println("Error in Lexicon.readFirstNames(): bad gender tag in '" + line + "'");
+                }
+            }
+            else
+                System.out.println("Error in Lexicon.readFirstNames(): no file " + f.getPath());
+        }
+        catch (Exception e) {
+            System.out.println("Error in Lexicon.readFirstNames() reading file " + f.getPath() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        finally {
+            try {
+                if (lr != null)
+                    lr.close();
+            }
+            catch (Exception ex) {
+            }
+        }
+        maleNames = male.build();
+        femaleNames = female.build();
+        loadTimes.put("firstNames",Long.valueOf(System.currentTimeMillis() - t1));
+    }
+
+    /** ***************************************************************
+     * Read stopwords.txt
+     */
+    private void readStopwords() {
+
+        long t1 = System.currentTimeMillis();
+        ImmutableSet.Builder<String> words = ImmutableSet.builder();
+        File f = file("stopwords.txt");
+        LineNumberReader lr = null;
+        try {
+            if (f.exists()) {
+                lr = new LineNumberReader(new FileReader(f));
+                String line;
+                while ((line = lr.readLine()) != null)
+                    words.add(line.intern());
+            }
+            else
+                System.out.println("Error in Lexicon.readStopwords(): no file " + f.getPath());
+        }
+        catch (Exception e) {
+            System.out.println("Error in Lexicon.readStopwords() reading file " + f.getPath() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        finally {
+            try {
+                if (lr != null)
+                    lr.close();
+            }
+            catch (Exception ex) {
+            }
+        }
+        stopwords = words.build();
+        loadTimes.put("stopwords",Long.valueOf(System.currentTimeMillis() - t1));
+    }
+
+    /** ***************************************************************
+     * Read sentiment.csv
+     */
+    private void readSentiment() {
+
+        long t1 = System.currentTimeMillis();
+        HashMap<String,Sentiment> entries = new HashMap<String,Sentiment>();
+        File f = file("sentiment.csv");
+        if (f.exists()) {
+            ArrayList<ArrayList<String>> rows = DB.readSpreadsheet(f.getPath(),null,false);
+            for (int i = 0; i < rows.size(); i++) {
+                ArrayList<String> al = rows.get(i);
+                if (al.size() < 5 || al.get(0).equals("type"))
+                    continue;
+                entries.put(al.get(1).intern(),new Sentiment(al.get(0).intern(),al.get(2).intern(),
+                        al.get(3).intern(),al.get(4).intern()));
+            }
+        }
+        else
+            System.out.println("Error in Lexicon.readSentiment(): no file " + f.getPath());
+        sentiment = ImmutableMap.copyOf(entries);
+        loadTimes.put("sentiment",Long.valueOf(System.currentTimeMillis() - t1));
+    }
+
+    /** ***************************************************************
+     * Read MWEmapping-noun.txt, which is in the format of the
+     * WordNet to SUMO mapping files, and index its multi-word
+     * expressions, with those WordNet has read, by their first word.
+     */
+    private void readMWE() {
+
+        long t1 = System.currentTimeMillis();
+        HashMap<String,TreeSet<String>> byFirst = new HashMap<String,TreeSet<String>>();
+        File f = file("MWEmapping-noun.txt");
+        LineNumberReader lr = null;
+        try {
+            if (f.exists()) {
+                lr = new LineNumberReader(new FileReader(f));
+                String line;
+                while ((line = lr.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith(";"))
+                        continue;
+                    int bar = line.indexOf('|');
+                    if (bar < 0) {
+                        System.out.println("Error in Lexicon.readMWE(): bad line " + lr.getLineNumber() + ": " + line);
+                        continue;
+                    }
+                    String[] fields = line.substring(0,bar).trim().split("\\s+");
+                    if (fields.length < 4)
+                        continue;
+                    int count = Integer.parseInt(fields[3],16);
+                    for (int i = 0; i < count && 4 + 2 * i < fields.length; i++)
+                        addMultiWord(byFirst,fields[4 + 2 * i].toLowerCase());
+                }
+            }
+            else
+                System.out.println("Error in Lexicon.readMWE(): no file " + f.getPath());
+        }
+        catch (Exception e) {
+            System.out.println("Error in Lexicon.readMWE() reading file " + f.getPath() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        finally {
+            try {
+                if (lr != null)
+                    lr.close();
+            }
+            catch (Exception ex) {
+            }
+        }
+        // WordNet's own multi-words, if it has been loaded.  Their
+        // number is recorded so that the lexicon is read again once
+        // WordNet has been loaded.
+        if (WordNet.wn != null && WordNet.wn.multiWord != null) {
+            for (ArrayList<String> words : WordNet.wn.multiWord.values()) {
+                for (String word : words)
+                    addMultiWord(byFirst,word);
+            }
+        }
+        stamps.put(WORDNET,wordNetStamp());
+        HashMap<String,String[]> index = new HashMap<String,String[]>();
+        for (String first : byFirst.keySet()) {
+            TreeSet<String> words = byFirst.get(first);
+            index.put(first.intern(),words.toArray(new String[words.size()]));
+        }
+        multiWords = ImmutableMap.copyOf(index);
+        loadTimes.put("multiWords",Long.valueOf(System.currentTimeMillis() - t1));
+    }
+
+    /** ***************************************************************
+     */
+    private static void addMultiWord(HashMap<String,TreeSet<String>> byFirst, String word) {
+
+        int under = word.indexOf('_');
+        if (under < 1)
+            return;
+        String first = word.substring(0,under);
+        TreeSet<String> words = byFirst.get(first);
+        if (words == null) {
+            words = new TreeSet<String>();
+            byFirst.put(first,words);
+        }
+        words.add(word);
+    }
+
+    /** ***************************************************************
+     * @return the number of multi-words WordNet has read, as a String
+     */
+    private static String wordNetStamp() {
+
+        HashMap<String,ArrayList<String>> wnMulti = (WordNet.wn != null) ? WordNet.wn.multiWord : null;
+        int count = 0;
+        if (wnMulti != null) {
+            for (ArrayList<String> words : wnMulti.values())
+                count = count + words.size();
+        }
+        return Integer.toString(count);
+    }
+
+    /** ***************************************************************
+     */
+    public String getDirectory() {
+
+        return dir;
+    }
+
+    /** ***************************************************************
+     * @return "Male", "Female" or "" for a first name
+     */
+    public String getSexAttribute(String name) {
+
+        if (maleNames.contains(name))
+            return "Male";
+        else if (femaleNames.contains(name))
+            return "Female";
+        else
+            return "";
+    }
+
+    /** ***************************************************************
+     */
+    public Set<String> getMaleNames() {
+
+        return maleNames;
+    }
+
+    /** ***************************************************************
+     */
+    public Set<String> getFemaleNames() {
+
+        return femaleNames;
+    }
+
+    /** ***************************************************************
+     * @return true if word is exactly a line of stopwords.txt
+     */
+    public boolean isStopword(String word) {
+
+        return stopwords.contains(word);
+    }
+
+    /** ***************************************************************
+     */
+    public Set<String> getStopwords() {
+
+        return stopwords;
+    }
+
+    /** ***************************************************************
+     * @return the sentiment.csv entry for a word, or null
+     */
+    public Sentiment getSentiment(String word) {
+
+        return sentiment.get(word);
+    }
+
+    /** ***************************************************************
+     */
+    public Map<String,Sentiment> getSentimentMap() {
+
+        return sentiment;
+    }
+
+    /** ***************************************************************
+     * @return the multi-word expressions starting with the given word,
+     * in sorted order, or an empty array.  The array is shared and
+     * must not be changed.
+     */
+    public String[] getMultiWords(String firstWord) {
+
+        String[] result = multiWords.get(firstWord);
+        if (result == null)
+            return new String[0];
+        return result;
+    }
+
+    /** ***************************************************************
+     * Find the multi-word expression that starts at a word of a
+     * sentence.  The first word is replaced by its noun or verb root
+     * form, as in WordNet.collectMultiWord(), and the shortest
+     * expression that matches the following words is taken.
+     *
+     * @param text the words of a sentence
+     * @param startIndex the first word to look at
+     * @return the index of the word after the expression, or startIndex
+     * if no expression starts there
+     */
+    public int collectMultiWord(List<String> text, int startIndex) {
+
+        if (startIndex >= text.size() - 1)
+            return startIndex;
+        String word = text.get(startIndex);
+        if (WordNet.wn != null) {
+            String nounroot = WordNet.wn.nounRootForm(word,word.toLowerCase());
+            String verbroot = WordNet.wn.verbRootForm(word,word.toLowerCase());
+            if (!StringUtil.emptyString(nounroot) && !nounroot.equals(word))
+                word = nounroot;
+            else if (!StringUtil.emptyString(verbroot) && !verbroot.equals(word))
+                word = verbroot;
+        }
+        String[] candidates = multiWords.get(word);
+        if (candidates == null)
+            return startIndex;
+        StringBuilder sb = new StringBuilder(word);
+        for (int i = startIndex + 1; i < text.size(); i++) {
+            sb.append('_').append(text.get(i));
+            String prefix = sb.toString();
+            int pos = Arrays.binarySearch(candidates,prefix);
+            if (pos >= 0)
+                return i + 1;
+            pos = -pos - 1;   // the first candidate that sorts after prefix
+            if (pos >= candidates.length || !candidates[pos].startsWith(prefix))
+                return startIndex;
+        }
+        return startIndex;
+    }
+
+    /** ***************************************************************
+     * @return the milliseconds taken to read each resource and in total
+     */
+    public Map<String,Long> getLoadTimes() {
+
+        return Collections.unmodifiableMap(loadTimes);
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        return "Lexicon from " + dir + ": " + maleNames.size() + " male and " + femaleNames.size() +
+                " female names, " + stopwords.size() + " stopwords, " + sentiment.size() +
+                " sentiment words, " + multiWords.size() +
+                " multi-word first words, read in " + loadTimes + " ms";
+    }
+}
@@ -231,20 +231,8 @@ public class Mapping {
     }
 
     /** *************************************************************
-    *   @return the minimum of two ints
      */
-    private static int min(int n1, int n2) {
-
-        if (n1<n2) 
-            return n1;
-        else
-            return n2;
-    }
-
-
-    /** *************************************************************
-     */
-    private static int stringMatch(String t1, String t2, String matchMethod) {
+    static int stringMatch(String t1, String t2, String matchMethod) {
 
         if (matchMethod.equals("JaroWinkler")) 
             return getJaroWinklerDistance(t1, t2);
@@ -265,75 +253,46 @@ public class Mapping {
      *         ontology and the value is another TreeMap.  The
      *         internal TreeMap has keys that are an integer mapping
      *         score and the values are terms from the second
-     *         ontology.
+     *         ontology.  The result is left in the mappings field.
+     * @return null, or an error message for the user if the mapping
+     *         failed, in which case mappings is empty
      */
-    public static void mapOntologies(String kbName1, String kbName2, int threshold, String matchMethod) {
+    public static String mapOntologies(String kbName1, String kbName2, int threshold, String matchMethod) {
 
         System.out.println("INFO in Mapping.mapOntologies()");
 
         long t1 = System.currentTimeMillis();
-        int mapCount = 0;
         if (!matchMethod.equals("JaroWinkler") && 
                 !matchMethod.equals("Levenshtein") &&
                 !matchMethod.equals("Substring")) {
-            matchMethod = "Substring";
             System.out.println("Error in Mapping.mapOntologies(): Invalid match method " + 
                     matchMethod + ". Defaulting to substring match.");
+            matchMethod = "Substring";
         }
 
-        TreeMap result = new TreeMap();
-        int counter = 0;
+        final TreeMap<String,TreeMap<Integer,String>> result = new TreeMap<String,TreeMap<Integer,String>>();
         KB kb1,kb2;
         kb1 = KBmanager.getMgr().getKB(kbName1);
         kb2 = KBmanager.getMgr().getKB(kbName2);
-        int totalCandidates = kb1.getTerms().size() * kb2.getTerms().size();
-        System.out.println("Time estimate to map: " + totalCandidates / 100 + " seconds.");
         if (kb1 != null && kb2 != null) {
-            synchronized (kb1.getTerms()) {
-                synchronized (kb2.getTerms()) {
-                    Iterator it1 = kb1.getTerms().iterator();
-                    while (it1.hasNext()) {
-                        counter++;
-                        if (counter > 100) {
-                            System.out.print(".");
-                            counter = 0;
-                        }
-                        String term1 = (String) it1.next();
-                        if (isValidTerm(term1)) {
-                            String normTerm1 = normalize(term1);
-                            String normLabel1 = normalize(getTermFormat(kb1,term1));
-                            TreeMap tm = (TreeMap) result.get(term1);
-                            if (tm == null) 
-                                tm = new TreeMap();
-                            Iterator it2 = kb2.getTerms().iterator();
-                            while (it2.hasNext()) {
-                                String term2 = (String) it2.next();
-                                if (isValidTerm(term2)) {
-                                    String normTerm2 = normalize(term2);
-                                    String normLabel2 = normalize(getTermFormat(kb2,term2));
-                                    int score = Integer.MAX_VALUE; 
-                                    score = min(score,stringMatch(normTerm1, normTerm2,matchMethod));
-                                    //System.out.println(normTerm1 + " " + normTerm2);
-                                    if (normLabel1 != null && isValidTerm(normLabel1))
-                                        score = min(score,stringMatch(normLabel1,normTerm2,matchMethod));                            
-                                    if (normLabel2 != null && isValidTerm(normLabel2)) 
-                                        score = min(score,stringMatch(normTerm1, normLabel2,matchMethod));                            
-                                    if (normLabel1 != null && normLabel2 != null && 
-                                            isValidTerm(normLabel1) && isValidTerm(normLabel2)) 
-                                        score = min(score,stringMatch(normLabel1, normLabel2,matchMethod));                            
-                                    if (score > 0 && score < Integer.MAX_VALUE) {
-                                        if (score < threshold) {                                
-                                            tm.put(new Integer(score), term2);
-                                            mapCount++;
-                                        }
-                                    }
-                                }
-                            }
-                            if (tm.keySet().size() > 0)
-                                result.put(term1,tm);
+            MappingEngine engine = MappingEngine.create(kb1,kb2,threshold,matchMethod);
+            System.out.println("INFO in Mapping.mapOntologies(): indexed terms in " +
+                    ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+            try {
+                int mapCount = engine.run(new MappingEngine.Listener() {
+                        public void mapped(String term1, TreeMap<Integer,String> matches) {
+                            result.put(term1,matches);
                         }
-                    }
-                }
+                    },Runtime.getRuntime().availableProcessors());
+                System.out.println(mapCount + " mappings found in "
+                        + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+            }
+            catch (IllegalStateException e) {
+                System.out.println(e.getMessage());
+                if (e.getCause() != null)
+                    e.getCause().printStackTrace();
+                mappings = new TreeMap<String,TreeMap<Integer,String>>();
+                return "Error: mapping " + kbName1 + " to " + kbName2 + " failed: " + e.getMessage();
             }
         }
         else {
@@ -342,11 +301,8 @@ public class Mapping {
             if (kb2 == null)
                 System.out.println(kbName2 + " not found<P>\n");            
         }
-        System.out.println();
-        System.out.println(totalCandidates + " " + " possible mappings checked with " +
-                mapCount + " mappings found in "
-                + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
         mappings = result;
+        return null;
     }
 
     /** *************************************************************
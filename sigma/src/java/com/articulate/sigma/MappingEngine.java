@@ -0,0 +1,351 @@
+/** This code is copyright Articulate Software (c) 2003-2007.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/** ***************************************************************
+ *  Finds candidate term mappings between two ontologies without
+ *  comparing every pair of terms.  Each side is normalized once, and
+ *  the normalized names and termFormat labels of the second side are
+ *  indexed by their character trigrams.  Only pairs that share a
+ *  trigram are scored, using the same match methods and scoring as
+ *  Mapping.mapOntologies(), and the terms of the first side are scored
+ *  in parallel.  For the Substring method a pair must share every
+ *  trigram of the shorter string, so blocking loses no matches.  For
+ *  the distance methods, pairs with no trigram in common are assumed
+ *  to be too far apart to be worth scoring.
+ */
+public class MappingEngine {
+
+    /** the length of the character n-grams used for blocking */
+    public static final int GRAM = 3;
+
+    /** ***************************************************************
+     * Receives the matches for each term of the first ontology as soon
+     * as they are found.  Calls are serialized by the engine but come
+     * in no particular order.
+     */
+    public interface Listener {
+
+        /** @param matches map of score to term of the second ontology */
+        public void mapped(String term1, TreeMap<Integer,String> matches);
+    }
+
+    /** ***************************************************************
+     * The terms of one ontology, with their normalized names and
+     * labels.  A label is null if the term has no valid termFormat.
+     */
+    static class Side {
+
+        String[] terms = null;
+        String[] names = null;
+        String[] labels = null;
+
+        /** ***************************************************************
+         */
+        Side(List<String> terms, List<String> labels) {
+
+            int n = terms.size();
+            this.terms = terms.toArray(new String[n]);
+            this.names = new String[n];
+            this.labels = new String[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = Mapping.normalize(this.terms[i]);
+                String label = Mapping.normalize(labels.get(i));
+                if (label != null && Mapping.isValidTerm(label))
+                    this.labels[i] = label;
+            }
+        }
+    }
+
+    private Side side1 = null;
+    private Side side2 = null;
+    private String matchMethod = "Substring";
+    private int threshold = 10;
+
+    /** key IDs are 2*termID for a name and 2*termID+1 for a label */
+    private HashMap<String,int[]> grams = new HashMap<String,int[]>();
+
+    /** number of distinct trigrams of each key */
+    private int[] gramCounts = null;
+
+    /** keys too short to have a trigram, which are scored against everything */
+    private int[] shortKeys = null;
+
+    /** ***************************************************************
+     * @param terms1 the terms of the first ontology
+     * @param labels1 the termFormat of each term in terms1, or null
+     * @param terms2 the terms of the second ontology
+     * @param labels2 the termFormat of each term in terms2, or null
+     */
+    public MappingEngine(List<String> terms1, List<String> labels1,
+                         List<String> terms2, List<String> labels2,
+                         int threshold, String matchMethod) {
+
+        this.threshold = threshold;
+        this.matchMethod = matchMethod;
+        side1 = new Side(terms1,labels1);
+        side2 = new Side(terms2,labels2);
+        index();
+    }
+
+    /** ***************************************************************
+     * Build a MappingEngine for the valid terms of two knowledge bases.
+     */
+    public static MappingEngine create(KB kb1, KB kb2, int threshold, String matchMethod) {
+
+        ArrayList<String> terms1 = new ArrayList<String>();
+        ArrayList<String> terms2 = new ArrayList<String>();
+        synchronized (kb1.getTerms()) {
+            for (Object o : kb1.getTerms()) {
+                if (Mapping.isValidTerm((String) o))
+                    terms1.add((String) o);
+            }
+        }
+        synchronized (kb2.getTerms()) {
+            for (Object o : kb2.getTerms()) {
+                if (Mapping.isValidTerm((String) o))
+                    terms2.add((String) o);
+            }
+        }
+        return new MappingEngine(terms1,termFormats(kb1,terms1),terms2,termFormats(kb2,terms2),
+                                 threshold,matchMethod);
+    }
+
+    /** ***************************************************************
+     */
+    private static ArrayList<String> termFormats(KB kb, List<String> terms) {
+
+        ArrayList<String> result = new ArrayList<String>(terms.size());
+        for (String term : terms)
+            result.add(Mapping.getTermFormat(kb,term));
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the distinct trigrams of a string, or an empty set if it
+     * is shorter than a trigram
+     */
+    static HashSet<String> grams(String s) {
+
+        HashSet<String> result = new HashSet<String>();
+        if (s == null)
+            return result;
+        for (int i = 0; i + GRAM <= s.length(); i++)
+            result.add(s.substring(i,i + GRAM));
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the normalized string of a key of the second side
+     */
+    private String key2(int key) {
+
+        if ((key & 1) == 0)
+            return side2.names[key >> 1];
+        return side2.labels[key >> 1];
+    }
+
+    /** ***************************************************************
+     * Index the names and labels of the second side by trigram.
+     */
+    private void index() {
+
+        HashMap<String,WordNetStore.IntList> postings = new HashMap<String,WordNetStore.IntList>();
+        WordNetStore.IntList shorts = new WordNetStore.IntList();
+        int nKeys = side2.terms.length * 2;
+        gramCounts = new int[nKeys];
+        for (int key = 0; key < nKeys; key++) {
+            String s = key2(key);
+            if (s == null)
+                continue;
+            HashSet<String> gs = grams(s);
+            gramCounts[key] = gs.size();
+            if (gs.size() == 0)
+                shorts.add(key);
+            for (String g : gs) {
+                WordNetStore.IntList al = postings.get(g);
+                if (al == null) {
+                    al = new WordNetStore.IntList();
+                    postings.put(g,al);
+                }
+                al.add(key);
+            }
+        }
+        for (String g : postings.keySet()) {
+            WordNetStore.IntList al = postings.get(g);
+            grams.put(g,Arrays.copyOf(al.data,al.size));
+        }
+        shortKeys = Arrays.copyOf(shorts.data,shorts.size);
+    }
+
+    /** ***************************************************************
+     * Scratch space for one worker thread.
+     */
+    private class Worker {
+
+        int[] shared = new int[gramCounts.length];
+        WordNetStore.IntList touched = new WordNetStore.IntList();
+        boolean[] candidate = new boolean[side2.terms.length];
+        WordNetStore.IntList candidates = new WordNetStore.IntList();
+
+        /** ***************************************************************
+         * Add the owners of all the keys of the second side that might
+         * match the given string to the candidates.
+         */
+        void block(String s) {
+
+            if (s == null)
+                return;
+            HashSet<String> gs = grams(s);
+            if (gs.size() == 0) {
+                for (int key = 0; key < gramCounts.length; key++) {
+                    if (key2(key) != null)
+                        addCandidate(key >> 1);
+                }
+                return;
+            }
+            for (String g : gs) {
+                int[] keys = grams.get(g);
+                if (keys == null)
+                    continue;
+                for (int key : keys) {
+                    if (shared[key] == 0)
+                        touched.add(key);
+                    shared[key]++;
+                }
+            }
+            boolean substring = matchMethod.equals("Substring");
+            for (int i = 0; i < touched.size; i++) {
+                int key = touched.get(i);
+                if (!substring || shared[key] >= Math.min(gs.size(),gramCounts[key]))
+                    addCandidate(key >> 1);
+                shared[key] = 0;
+            }
+            touched.clear();
+            for (int key : shortKeys)
+                addCandidate(key >> 1);
+        }
+
+        /** ***************************************************************
+         */
+        void addCandidate(int term2) {
+
+            if (!candidate[term2]) {
+                candidate[term2] = true;
+                candidates.add(term2);
+            }
+        }
+
+        /** ***************************************************************
+         * @return the matches for term i of the first side, which may be
+         * empty
+         */
+        TreeMap<Integer,String> map(int i) {
+
+            String name1 = side1.names[i];
+            String label1 = side1.labels[i];
+            block(name1);
+            block(label1);
+            int[] ids = Arrays.copyOf(candidates.data,candidates.size);
+            for (int id : ids)
+                candidate[id] = false;
+            candidates.clear();
+            // ascending order, so that when two terms get the same score the
+            // later one is kept, as in Mapping.mapOntologies()
+            Arrays.sort(ids);
+            TreeMap<Integer,String> result = new TreeMap<Integer,String>();
+            for (int j : ids) {
+                String name2 = side2.names[j];
+                String label2 = side2.labels[j];
+                int score = Integer.MAX_VALUE;
+                if (name1 != null && name2 != null)
+                    score = Math.min(score,Mapping.stringMatch(name1,name2,matchMethod));
+                if (label1 != null && name2 != null)
+                    score = Math.min(score,Mapping.stringMatch(label1,name2,matchMethod));
+                if (name1 != null && label2 != null)
+                    score = Math.min(score,Mapping.stringMatch(name1,label2,matchMethod));
+                if (label1 != null && label2 != null)
+                    score = Math.min(score,Mapping.stringMatch(label1,label2,matchMethod));
+                if (score > 0 && score < threshold)
+                    result.put(Integer.valueOf(score),side2.terms[j]);
+            }
+            return result;
+        }
+    }
+
+    /** ***************************************************************
+     * Score every term of the first side against its candidates from
+     * the second, on the given number of threads, passing each
+     * non-empty set of matches to the listener as it is found.
+     * @return the number of mappings found
+     * @throws IllegalStateException if a worker fails or the run is
+     * interrupted, in which case the listener has only been given
+     * some of the mappings
+     */
+    public int run(final Listener listener, int threads) {
+
+        final int n = side1.terms.length;
+        if (threads < 1)
+            threads = 1;
+        final int chunk = Math.max(1,Math.min(256,n / (threads * 8) + 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int start = 0; start < n; start = start + chunk) {
+            final int from = start;
+            final int to = Math.min(n,start + chunk);
+            futures.add(pool.submit(new Callable<Integer>() {
+                public Integer call() {
+                    Worker w = workers.get();
+                    int count = 0;
+                    for (int i = from; i < to; i++) {
+                        TreeMap<Integer,String> tm = w.map(i);
+                        if (tm.size() > 0) {
+                            count = count + tm.size();
+                            synchronized (listener) {
+                                listener.mapped(side1.terms[i],tm);
+                            }
+                        }
+                    }
+                    return Integer.valueOf(count);
+                }
+            }));
+        }
+        pool.shutdown();
+        int total = 0;
+        try {
+            for (Future<Integer> f : futures)
+                total = total + f.get().intValue();
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error in MappingEngine.run(): interrupted", e);
+        }
+        catch (ExecutionException e) {
+            pool.shutdownNow();
+            throw new IllegalStateException("Error in MappingEngine.run(): " + e.getCause(), e.getCause());
+        }
+        return total;
+    }
+
+    /** one Worker per pool thread */
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+}
@@ -0,0 +1,248 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import org.json.simple.JSONValue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** ***************************************************************
+ *  Timings and counts of the stages of loading a KB, answering a
+ *  query and interpreting a sentence, shown on Metrics.jsp and
+ *  available as JSON.  Recording is turned on with the "metrics"
+ *  preference.  A stage is timed with
+ *
+ *      long t = Metrics.start();
+ *      ...
+ *      Metrics.time("query.prover", t);
+ *
+ *  start() returns 0 when metrics are off, in which case time() does
+ *  nothing, so the cost of a disabled timer is one read of a volatile
+ *  field.
+ */
+public class Metrics {
+
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentHashMap<String,Histogram> histograms =
+            new ConcurrentHashMap<String,Histogram>();
+
+    private static final ConcurrentHashMap<String,AtomicLong> counters =
+            new ConcurrentHashMap<String,AtomicLong>();
+
+    /** ***************************************************************
+     * The distribution of the durations of a stage, with a bucket for
+     * each power of two microseconds, so that percentiles are reported
+     * to within a factor of two.
+     */
+    public static class Histogram {
+
+        static final int BUCKETS = 40;
+
+        private long count = 0;
+        private long total = 0;  // nanoseconds
+        private long min = Long.MAX_VALUE;
+        private long max = 0;
+        private final long[] buckets = new long[BUCKETS];
+
+        /** ***************************************************************
+         */
+        public synchronized void record(long nanos) {
+
+            count++;
+            total += nanos;
+            if (nanos < min)
+                min = nanos;
+            if (nanos > max)
+                max = nanos;
+            long micros = nanos / 1000;
+            int b = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            buckets[Math.min(b, BUCKETS - 1)]++;
+        }
+
+        /** ***************************************************************
+         * @return the upper bound in microseconds of the bucket that
+         * holds the given fraction of the durations
+         */
+        synchronized long percentile(double p) {
+
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets[b];
+                if (seen >= rank && seen > 0)
+                    return b == 0 ? 1 : 1L << b;
+            }
+            return max / 1000;
+        }
+
+        /** ***************************************************************
+         * @return count, total, mean, min, max, p50, p90 and p99, with
+         * the times in milliseconds
+         */
+        public synchronized Map<String,Object> summary() {
+
+            LinkedHashMap<String,Object> result = new LinkedHashMap<String,Object>();
+            result.put("count", count);
+            result.put("totalMs", total / 1000000.0);
+            result.put("meanMs", count == 0 ? 0.0 : total / 1000000.0 / count);
+            result.put("minMs", count == 0 ? 0.0 : min / 1000000.0);
+            result.put("maxMs", max / 1000000.0);
+            result.put("p50Ms", percentile(0.5) / 1000.0);
+            result.put("p90Ms", percentile(0.9) / 1000.0);
+            result.put("p99Ms", percentile(0.99) / 1000.0);
+            return result;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public static boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /** ***************************************************************
+     */
+    public static void setEnabled(boolean on) {
+
+        enabled = on;
+    }
+
+    /** ***************************************************************
+     * @return the time to pass to time(), or 0 if metrics are off
+     */
+    public static long start() {
+
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** ***************************************************************
+     * Record the time since start, from start(), for a stage.
+     */
+    public static void time(String name, long start) {
+
+        if (start == 0 || !enabled)
+            return;
+        record(name, System.nanoTime() - start);
+    }
+
+    /** ***************************************************************
+     * Record a duration in nanoseconds for a stage.
+     */
+    public static void record(String name, long nanos) {
+
+        if (!enabled)
+            return;
+        Histogram h = histograms.get(name);
+        if (h == null) {
+            histograms.putIfAbsent(name, new Histogram());
+            h = histograms.get(name);
+        }
+        h.record(nanos);
+    }
+
+    /** ***************************************************************
+     * Add n to a counter.
+     */
+    public static void count(String name, long n) {
+
+        if (!enabled)
+            return;
+        AtomicLong c = counters.get(name);
+        if (c == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            c = counters.get(name);
+        }
+        c.addAndGet(n);
+    }
+
+    /** ***************************************************************
+     */
+    public static void count(String name) {
+
+        count(name, 1);
+    }
+
+    /** ***************************************************************
+     * Forget everything recorded so far.
+     */
+    public static void reset() {
+
+        histograms.clear();
+        counters.clear();
+    }
+
+    /** ***************************************************************
+     * @return the summary of each histogram, sorted by name
+     */
+    public static SortedMap<String,Map<String,Object>> getTimers() {
+
+        TreeMap<String,Map<String,Object>> result = new TreeMap<String,Map<String,Object>>();
+        for (Map.Entry<String,Histogram> e : histograms.entrySet())
+            result.put(e.getKey(), e.getValue().summary());
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the value of each counter, sorted by name
+     */
+    public static SortedMap<String,Long> getCounters() {
+
+        TreeMap<String,Long> result = new TreeMap<String,Long>();
+        for (Map.Entry<String,AtomicLong> e : counters.entrySet())
+            result.put(e.getKey(), e.getValue().get());
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return all timers and counters as a JSON object
+     */
+    public static String toJSON() {
+
+        LinkedHashMap<String,Object> result = new LinkedHashMap<String,Object>();
+        result.put("enabled", enabled);
+        result.put("timers", getTimers());
+        result.put("counters", getCounters());
+        return JSONValue.toJSONString(result);
+    }
+
+    /** ***************************************************************
+     * Write toJSON() to a file.
+     */
+    public static void writeJSON(String fname) {
+
+        FileWriter fw = null;
+        try {
+            fw = new FileWriter(fname);
+            fw.write(toJSON());
+            fw.write("\n");
+        }
+        catch (IOException ex) {
+            System.out.println("Error in Metrics.writeJSON(): " + ex.getMessage() + " for " + fname);
+        }
+        finally {
+            try {
+                if (fw != null)
+                    fw.close();
+            }
+            catch (IOException ex) {
+            }
+        }
+    }
+}
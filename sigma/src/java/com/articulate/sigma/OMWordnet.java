@@ -8,8 +8,13 @@ import java.io.LineNumberReader;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.articulate.sigma.KB;
 
@@ -27,16 +32,78 @@ Pease, A., (2003). The Sigma Ontology Development Environment,
 in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
 August 9, Acapulco, Mexico.
  */
-    // String key of language name
-    // Interior key of a 9-digit WordNet synset and value of and ArrayList of 
-    // non-English synset Strings
-    public static HashMap<String,HashMap<String,ArrayList<String>>> wordnets = 
-            new HashMap<String,HashMap<String,ArrayList<String>>>();
-    public static HashMap<String,HashMap<String,ArrayList<String>>> glosses = 
-            new HashMap<String,HashMap<String,ArrayList<String>>>();
-    public static HashMap<String,HashMap<String,ArrayList<String>>> examples = 
-            new HashMap<String,HashMap<String,ArrayList<String>>>();
-    
+    /** the kinds of entry read for each synset */
+    private static final int WORDS = 0;
+    private static final int GLOSSES = 1;
+    private static final int EXAMPLES = 2;
+
+    /** *************************************************************
+     * The lemmas, glosses and examples of one language, keyed by OMW
+     * synset.  Synsets are kept in a sorted array, and every entry
+     * is a slice of a single String, so a language costs a few arrays
+     * rather than a map entry and list per synset.
+     */
+    private static class Language {
+
+        String code;
+        /** sorted OMW synsets */
+        String[] synsets = new String[0];
+        /** all entries, one after another */
+        String pool = "";
+        /** where entry i starts in pool; entry i ends where i+1 starts */
+        int[] entryStart = new int[] { 0 };
+        /** for each kind, the entries of synset s are those from
+         * offsets[kind][s] up to offsets[kind][s+1] */
+        int[][] offsets = new int[][] { { 0 }, { 0 }, { 0 } };
+
+        /** @return the entries of a kind for a synset, or null */
+        ArrayList<String> get(int kind, String synset) {
+
+            int s = Arrays.binarySearch(synsets,synset);
+            if (s < 0)
+                return null;
+            int from = offsets[kind][s];
+            int to = offsets[kind][s + 1];
+            if (from == to)
+                return null;
+            ArrayList<String> result = new ArrayList<String>(to - from);
+            for (int i = from; i < to; i++)
+                result.add(pool.substring(entryStart[i],entryStart[i + 1]));
+            return result;
+        }
+
+        /** @return the number of synsets with lemmas */
+        int size() {
+
+            int result = 0;
+            for (int s = 0; s < synsets.length; s++) {
+                if (offsets[WORDS][s + 1] > offsets[WORDS][s])
+                    result++;
+            }
+            return result;
+        }
+
+        /** @return roughly how many bytes the language takes */
+        long bytes() {
+
+            long result = 2L * pool.length() + 4L * entryStart.length + 12L * (synsets.length + 1);
+            for (int s = 0; s < synsets.length; s++)
+                result = result + 40 + 2L * synsets[s].length();
+            return result;
+        }
+    }
+
+    /** languages that have been read, least recently used first */
+    private static LinkedHashMap<String,Language> languages =
+            new LinkedHashMap<String,Language>(16,0.75f,true);
+
+    /** languages that are read at startup and never evicted */
+    private static HashSet<String> preloaded = new HashSet<String>();
+
+    /** the memory, in bytes, that languages other than the preloaded
+     * ones may take before the least recently used are dropped */
+    public static long memoryBudget = 256L * 1024 * 1024;
+
     /** *************************************************************
      */
     private static char getOMWMappingSuffix(String SUMOmapping) {
@@ -61,34 +128,38 @@ August 9, Acapulco, Mexico.
             FileWriter r = new FileWriter(f); 
             PrintWriter pw = new PrintWriter(r);
             pw.println("# SUMO http://www.ontologyportal.org");
-            Iterator<String> it = WordNet.wn.nounSUMOHash.keySet().iterator();
+            Map<String,String> mappings = WordNet.wn.getSUMOMappings('1');
+            Iterator<String> it = mappings.keySet().iterator();
             while (it.hasNext()) {
                 String key = it.next();
-                String SUMOterm = WordNet.wn.nounSUMOHash.get(key);
+                String SUMOterm = mappings.get(key);
                 String mappingSuffix = Character.toString(getOMWMappingSuffix(SUMOterm));
                 if (SUMOterm.indexOf(" ") < 0)
                     pw.println(key + "-n\tsumo:xref\t" + WordNetUtilities.getBareSUMOTerm(SUMOterm) + "\t" + mappingSuffix);
             }
-            it = WordNet.wn.verbSUMOHash.keySet().iterator();
+            mappings = WordNet.wn.getSUMOMappings('2');
+            it = mappings.keySet().iterator();
             while (it.hasNext()) {
                 String key = it.next();
-                String SUMOterm = WordNet.wn.verbSUMOHash.get(key);
+                String SUMOterm = mappings.get(key);
                 String mappingSuffix = Character.toString(getOMWMappingSuffix(SUMOterm));
                 if (SUMOterm.indexOf(" ") < 0)
                     pw.println(key + "-n\tsumo:xref\t" + WordNetUtilities.getBareSUMOTerm(SUMOterm) + "\t" + mappingSuffix);
             }
-            it = WordNet.wn.adjectiveSUMOHash.keySet().iterator();
+            mappings = WordNet.wn.getSUMOMappings('3');
+            it = mappings.keySet().iterator();
             while (it.hasNext()) {
                 String key = it.next();
-                String SUMOterm = WordNet.wn.adjectiveSUMOHash.get(key);
+                String SUMOterm = mappings.get(key);
                 String mappingSuffix = Character.toString(getOMWMappingSuffix(SUMOterm));
                 if (SUMOterm.indexOf(" ") < 0)
                     pw.println(key + "-n\tsumo:xref\t" + WordNetUtilities.getBareSUMOTerm(SUMOterm) + "\t" + mappingSuffix);
             }
-            it = WordNet.wn.adverbSUMOHash.keySet().iterator();
+            mappings = WordNet.wn.getSUMOMappings('4');
+            it = mappings.keySet().iterator();
             while (it.hasNext()) {
                 String key = it.next();
-                String SUMOterm = WordNet.wn.adverbSUMOHash.get(key);
+                String SUMOterm = mappings.get(key);
                 String mappingSuffix = Character.toString(getOMWMappingSuffix(SUMOterm));
                 if (SUMOterm.indexOf(" ") < 0)
                     pw.println(key + "-n\tsumo:xref\t" + WordNetUtilities.getBareSUMOTerm(SUMOterm) + "\t" + mappingSuffix);
@@ -101,23 +172,25 @@ August 9, Acapulco, Mexico.
     }
 
     /** *************************************************************
+     * Read a wn-data-*.tab file into the compact form of a Language.
+     * A missing file gives an empty language, so that it isn't looked
+     * for again.
      */
-    private static void readOMWformat(String inputFileWithPath, String langName) {
+    private static Language readOMWformat(String inputFileWithPath, String langName) {
         
         //System.out.println("INFO in WordNetUtilities.readOMWformat(): creating table entry for " + langName);
-        HashMap<String,ArrayList<String>> wordnet = new HashMap<String,ArrayList<String>>();
-        wordnets.put(langName,wordnet);
-        HashMap<String,ArrayList<String>> gloss = new HashMap<String,ArrayList<String>>();
-        glosses.put(langName,gloss);
-        HashMap<String,ArrayList<String>> example = new HashMap<String,ArrayList<String>>();
-        examples.put(langName,example);
+        Language result = new Language();
+        result.code = langName;
         File inputf = new File(inputFileWithPath);
-        if (!inputf.exists()) return;
+        if (!inputf.exists()) return result;
+        // the words, glosses and examples of each synset, by kind
+        TreeMap<String,ArrayList<ArrayList<String>>> entries = new TreeMap<String,ArrayList<ArrayList<String>>>();
         String line = "";
         //System.out.println("INFO in WordNetUtilities.readOMWformat(): read file " + inputFileWithPath);
+        LineNumberReader lr = null;
         try {
             FileReader fr = new FileReader(inputf);
-            LineNumberReader lr = new LineNumberReader(fr);
+            lr = new LineNumberReader(fr);
             while ((line = lr.readLine()) != null) {
                 if (line.startsWith("#")) continue;
                 //System.out.println(line);
@@ -128,33 +201,23 @@ August 9, Acapulco, Mexico.
                     if (tab2index > -1) { 
                         //System.out.println(tabIndex + " " + tab2index);
                         String type = line.substring(tabIndex+1,tab2index);  
-                        if (type.endsWith("lemma")) {
-                            int end = line.length();
-                            String value = line.substring(tab2index+1,end);  
-                            ArrayList<String> val = wordnet.get(id);
-                            if (val == null)
-                                val = new ArrayList<String>();
-                            val.add(value);
-                            wordnet.put(id,val);
-                        }
-                        if (type.contains(":def ")) {
-                            int end = line.length();
-                            String value = line.substring(tab2index+1,end);  
-                            ArrayList<String> val = gloss.get(id);
-                            if (val == null)
-                                val = new ArrayList<String>();
-                            val.add(value);
-                            gloss.put(id,val);
-                        }
-                        if (type.contains(":exe ")) {
-                            int end = line.length();
-                            String value = line.substring(tab2index+1,end);  
-                            ArrayList<String> val = example.get(id);
-                            if (val == null)
-                                val = new ArrayList<String>();
-                            val.add(value);
-                            example.put(id,val);
+                        int kind = -1;
+                        if (type.endsWith("lemma"))
+                            kind = WORDS;
+                        else if (type.contains(":def "))
+                            kind = GLOSSES;
+                        else if (type.contains(":exe "))
+                            kind = EXAMPLES;
+                        if (kind < 0)
+                            continue;
+                        ArrayList<ArrayList<String>> val = entries.get(id);
+                        if (val == null) {
+                            val = new ArrayList<ArrayList<String>>(Collections.<ArrayList<String>>nCopies(3,null));
+                            entries.put(id,val);
                         }
+                        if (val.get(kind) == null)
+                            val.set(kind,new ArrayList<String>(2));
+                        val.get(kind).add(line.substring(tab2index+1,line.length()));
                     }
                 }            
             }
@@ -163,6 +226,148 @@ August 9, Acapulco, Mexico.
             System.out.println(ioe.getMessage());
             ioe.printStackTrace();
         }
+        finally {
+            try {
+                if (lr != null)
+                    lr.close();
+            }
+            catch (IOException e) {
+            }
+        }
+        int count = 0;
+        for (ArrayList<ArrayList<String>> val : entries.values()) {
+            for (int kind = WORDS; kind <= EXAMPLES; kind++)
+                count = count + (val.get(kind) == null ? 0 : val.get(kind).size());
+        }
+        result.synsets = entries.keySet().toArray(new String[entries.size()]);
+        result.entryStart = new int[count + 1];
+        result.offsets = new int[3][result.synsets.length + 1];
+        StringBuilder pool = new StringBuilder();
+        int entry = 0;
+        for (int kind = WORDS; kind <= EXAMPLES; kind++) {
+            int s = 0;
+            for (ArrayList<ArrayList<String>> val : entries.values()) {
+                result.offsets[kind][s++] = entry;
+                if (val.get(kind) == null)
+                    continue;
+                for (String value : val.get(kind)) {
+                    result.entryStart[entry++] = pool.length();
+                    pool.append(value);
+                }
+            }
+            result.offsets[kind][s] = entry;
+        }
+        result.entryStart[entry] = pool.length();
+        result.pool = pool.toString();
+        return result;
+    }
+
+    /** *************************************************************
+     * @return the file of a language's OMW data
+     */
+    private static String dataFile(String code) {
+
+        String kbDir = KBmanager.getMgr().getPref("kbDir");
+        return kbDir + File.separator + "OMW" + File.separator + code +
+                File.separator + "wn-data-" + code + ".tab";
+    }
+
+    /** *************************************************************
+     * @return the data of a language, reading it on first use.  Once
+     * the languages read take more than memoryBudget, the least
+     * recently used ones are dropped, never dropping the preloaded
+     * languages or the one just asked for.
+     */
+    private static synchronized Language getLanguage(String code) {
+
+        Language result = languages.get(code);
+        if (result != null)
+            return result;
+        if (!lcodes.contains(code))
+            return null;
+        long t1 = System.currentTimeMillis();
+        result = readOMWformat(dataFile(code),code);
+        languages.put(code,result);
+        System.out.println("INFO in OMWordnet.getLanguage(): read " + result.size() + " synsets for " +
+                code + " in " + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        // entries are read through entrySet(), since get() would
+        // reorder the map while it is being iterated
+        long total = 0;
+        for (Map.Entry<String,Language> e : languages.entrySet()) {
+            if (!preloaded.contains(e.getKey()))
+                total = total + e.getValue().bytes();
+        }
+        Iterator<Map.Entry<String,Language>> it = languages.entrySet().iterator();
+        while (total > memoryBudget && it.hasNext()) {
+            Map.Entry<String,Language> e = it.next();
+            if (e.getKey().equals(code) || preloaded.contains(e.getKey()))
+                continue;
+            total = total - e.getValue().bytes();
+            it.remove();
+            System.out.println("INFO in OMWordnet.getLanguage(): dropped " + e.getKey());
+        }
+        return result;
+    }
+
+    /** *************************************************************
+     * @return the data of a language if it is in memory, without
+     * reading it, or null
+     */
+    private static synchronized Language getLoadedLanguage(String code) {
+
+        return languages.get(code);
+    }
+
+    /** *************************************************************
+     * @return the lemmas of an OMW synset in a language, by language
+     * code, or null
+     */
+    public static ArrayList<String> getWords(String code, String synset) {
+
+        Language lang = getLanguage(code);
+        if (lang == null)
+            return null;
+        return lang.get(WORDS,synset);
+    }
+
+    /** *************************************************************
+     * @return the glosses of an OMW synset in a language, or null
+     */
+    public static ArrayList<String> getGlosses(String code, String synset) {
+
+        Language lang = getLanguage(code);
+        if (lang == null)
+            return null;
+        return lang.get(GLOSSES,synset);
+    }
+
+    /** *************************************************************
+     * @return the examples of an OMW synset in a language, or null
+     */
+    public static ArrayList<String> getExamples(String code, String synset) {
+
+        Language lang = getLanguage(code);
+        if (lang == null)
+            return null;
+        return lang.get(EXAMPLES,synset);
+    }
+
+    /** *************************************************************
+     * Drop every language read, so that each is read again from its
+     * file when next asked for.
+     */
+    public static synchronized void clear() {
+
+        languages.clear();
+        preloaded.clear();
+    }
+
+    /** *************************************************************
+     * @return the codes of the languages currently in memory
+     */
+    public static synchronized ArrayList<String> loadedLanguages() {
+
+        return new ArrayList<String>(languages.keySet());
     }
 
     /** *************************************************************
@@ -226,20 +431,41 @@ August 9, Acapulco, Mexico.
     }    
     
     /** *************************************************************
-     * Assumes a fixed set of files in the KBs directory.
+     * Read the languages named in the "omwPreload" preference, a
+     * comma-separated list of language codes, or all languages if it
+     * is "all".  Other languages are read when first asked for.  The
+     * "omwMemoryMB" preference sets memoryBudget.  Assumes a fixed set
+     * of files in the KBs directory.
      */
     public static void readOMWfiles() {
         
-        String kbDir = KBmanager.getMgr().getPref("kbDir");  
-        System.out.println("INFO in OMWordnet.readOMWfiles(): reading files: ");
-        for (int i = 0; i < lcodes.size(); i++) {
-            String filename = kbDir + File.separator + "OMW" + 
-                    File.separator + lcodes.get(i)  + File.separator + 
-                    "wn-data-" + lcodes.get(i) + ".tab";
-            System.out.print(" " + filename.substring(filename.length()-15));
-            readOMWformat(filename,lcodes.get(i));            
+        String budget = KBmanager.getMgr().getPref("omwMemoryMB");
+        if (!StringUtil.emptyString(budget)) {
+            try {
+                memoryBudget = Long.parseLong(budget.trim()) * 1024 * 1024;
+            }
+            catch (NumberFormatException e) {
+                System.out.println("Error in OMWordnet.readOMWfiles(): bad omwMemoryMB: " + budget);
+            }
+        }
+        String preload = KBmanager.getMgr().getPref("omwPreload");
+        ArrayList<String> codes = new ArrayList<String>();
+        if ("all".equalsIgnoreCase(preload))
+            codes.addAll(lcodes);
+        else if (!StringUtil.emptyString(preload)) {
+            for (String code : preload.split(",")) {
+                if (lcodes.contains(code.trim()))
+                    codes.add(code.trim());
+                else if (!StringUtil.emptyString(code))
+                    System.out.println("Error in OMWordnet.readOMWfiles(): unknown language " + code);
+            }
         }
-        System.out.println();
+        System.out.println("INFO in OMWordnet.readOMWfiles(): reading files: " + codes);
+        synchronized (OMWordnet.class) {
+            preloaded.addAll(codes);
+        }
+        for (String code : codes)
+            getLanguage(code);
     }
     
     /** *************************************************************
@@ -278,18 +504,20 @@ August 9, Acapulco, Mexico.
     public static String formatWords(String term, String kbName, String lang, String href) {
 
         //System.out.println("INFO in OMWordnet.formatWords(): " + term + " " + lang);
-        HashMap<String,ArrayList<String>> wordnet = wordnets.get(languageToCode(lang));
-        if (wordnet == null || wordnet.size() == 0)
+        Language wordnet = getLanguage(languageToCode(lang));
+        if (wordnet == null || wordnet.synsets.length == 0)
             return "";
         StringBuffer result = new StringBuffer();
-        ArrayList<String> synsets = WordNet.wn.SUMOHash.get(term);
+        ArrayList<String> synsets = WordNet.wn.getSynsetsFromTerm(term);
+        if (synsets == null)
+            return "";
         int limit = synsets.size();
         if (limit > 50)
             limit = 50;
         for (int i = 0; i < limit; i++) {
             String synset = synsets.get(i);
             String OMWsynset = toOMWsynset(synset);
-            ArrayList<String> words = wordnet.get(OMWsynset);
+            ArrayList<String> words = wordnet.get(WORDS,OMWsynset);
             if (words != null) {
                 for (int j = 0; j < words.size(); j++) {
                     result.append("<a href=\"" + href + "OMW.jsp?kb=" + kbName + "&synset=" + OMWsynset + "\">");
@@ -321,8 +549,22 @@ August 9, Acapulco, Mexico.
     }
     
     /** *************************************************************
+     * HTML format the words, glosses and examples of an OMW synset in
+     * the languages that are in memory, which are the preloaded ones
+     * and those used recently.  No language is read from its file.
      */
     public static String displaySynset(String kbName, String synset, String params) {
+
+        return displaySynset(kbName,synset,params,new ArrayList<String>());
+    }
+
+    /** *************************************************************
+     * HTML format the words, glosses and examples of an OMW synset in
+     * the languages that are in memory and in the languages of codes,
+     * which are read if they are not in memory.
+     */
+    public static String displaySynset(String kbName, String synset, String params,
+                                       Collection<String> codes) {
         
         StringBuffer sb = new StringBuffer();        
         sb.append("<table>"); 
@@ -334,9 +576,12 @@ August 9, Acapulco, Mexico.
         for (int i = 0; i < lnames.size(); i++) {
             name = lnames.get(i);
             id = lcodes.get(i);
-            words = wordnets.get(id).get(synset);
-            exams = examples.get(id).get(synset);
-            defs = glosses.get(id).get(synset);
+            Language lang = codes.contains(id) ? getLanguage(id) : getLoadedLanguage(id);
+            if (lang == null)
+                continue;
+            words = lang.get(WORDS,synset);
+            exams = lang.get(EXAMPLES,synset);
+            defs = lang.get(GLOSSES,synset);
             if (words != null || exams != null || defs != null) {
                 sb.append("<tr><td><strong>" + name.substring(0,name.length()-8) + "</strong></td>\n");
                 sb.append("<td>");
@@ -1,9 +1,13 @@
 package com.articulate.sigma;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.LineNumberReader;
 import java.io.PrintWriter;
 import java.util.ArrayList;
@@ -15,6 +19,11 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import com.articulate.sigma.KB;
 
 /** This code is copyright Articulate Software (c) 2010.
@@ -458,22 +467,95 @@ public class OWLtranslator {
         //System.out.println("INFO in OWLtranslator().decode(): exiting decode with level: " + _debugLevelCounter);
     }
 
+    /** ***************************************************************
+     * @return the name of an element or attribute with its namespace
+     * prefix, as written in the file, such as "owl:Class"
+     */
+    private static String prefixedName(String prefix, String localName) {
+
+        if (StringUtil.emptyString(prefix))
+            return localName;
+        return prefix + ":" + localName;
+    }
+
+    /** ***************************************************************
+     * Read the element at the current START_ELEMENT event, with its
+     * attributes, text and child elements, leaving the reader on the
+     * matching END_ELEMENT.
+     */
+    private static SimpleElement readElement(XMLStreamReader xr) throws XMLStreamException {
+
+        SimpleElement se = new SimpleElement(prefixedName(xr.getPrefix(),xr.getLocalName()));
+        for (int i = 0; i < xr.getAttributeCount(); i++)
+            se.setAttribute(prefixedName(xr.getAttributePrefix(i),xr.getAttributeLocalName(i)),
+                            xr.getAttributeValue(i));
+        StringBuilder text = new StringBuilder();
+        while (xr.hasNext()) {
+            int event = xr.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                se.addChildElement(readElement(xr));
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                text.append(xr.getText());
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                break;
+        }
+        se.setText(text.toString());
+        return se;
+    }
+
+    /** ***************************************************************
+     * Read OWL format from a stream and write out KIF.  Only one
+     * resource description, a child of the rdf:RDF element, is held
+     * in memory at a time, and its statements are written as soon as
+     * it has been read.
+     * @return the number of resource descriptions read
+     */
+    public static int read(InputStream in, PrintWriter pw) throws XMLStreamException {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,Boolean.FALSE);
+        XMLStreamReader xr = factory.createXMLStreamReader(in);
+        int count = 0;
+        try {
+            String rootTag = null;
+            while (xr.hasNext()) {
+                int event = xr.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (rootTag == null)
+                        rootTag = prefixedName(xr.getPrefix(),xr.getLocalName());
+                    else {
+                        decode(pw,readElement(xr),"",rootTag,"");
+                        count++;
+                    }
+                }
+            }
+        }
+        finally {
+            xr.close();
+        }
+        return count;
+    }
+
     /** ***************************************************************
      * Read OWL format.
      */
     public static void read(String filename) throws IOException {
 
-        FileWriter fw = null;
+        InputStream in = null;
         PrintWriter pw = null;
 
         _debugLevelCounter = 0;
         try {
-            SimpleElement se = SimpleDOMParser.readFile(filename);
-            System.out.println("INFO in WLtranslator.read(): input filename: " + filename);
-            fw = new FileWriter(filename + ".kif");
-            pw = new PrintWriter(fw);
-            System.out.println("INFO in WLtranslator.read(): output filename: " + filename + ".kif");
-            decode(pw,se,"","","");
+            System.out.println("INFO in OWLtranslator.read(): input filename: " + filename);
+            in = new BufferedInputStream(new FileInputStream(filename));
+            pw = new PrintWriter(new BufferedWriter(new FileWriter(filename + ".kif")));
+            System.out.println("INFO in OWLtranslator.read(): output filename: " + filename + ".kif");
+            int count = read(in,pw);
+            System.out.println("INFO in OWLtranslator.read(): " + count + " resources read");
+        }
+        catch (XMLStreamException e) {
+            throw new IOException("Error reading file " + filename + "\n" + e.getMessage());
         }
         catch (java.io.IOException e) {
             throw new IOException("Error writing file " + filename + "\n" + e.getMessage());
@@ -482,8 +564,8 @@ public class OWLtranslator {
             if (pw != null) {
                 pw.close();
             }
-            if (fw != null) {
-                fw.close();
+            if (in != null) {
+                in.close();
             }
         }
     }
@@ -568,18 +650,12 @@ public class OWLtranslator {
 
         WordNet.wn.initOnce();
           // get list of synsets with part of speech prepended to the synset number.
-        ArrayList al = (ArrayList) WordNet.wn.SUMOHash.get(term);  
+        ArrayList<String> al = WordNet.wn.getSynsetsFromTerm(term);
         if (al != null) {
             for (int i = 0; i < al.size(); i++) {
-                String synset = (String) al.get(i);
-                String termMapping = null;
+                String synset = al.get(i);
                   // GetSUMO terms with the &% prefix and =, +, @ or [ suffix.   
-                switch (synset.charAt(0)) {
-                  case '1': termMapping = (String) WordNet.wn.nounSUMOHash.get(synset.substring(1)); break;
-                  case '2': termMapping = (String) WordNet.wn.verbSUMOHash.get(synset.substring(1)); break;
-                  case '3': termMapping = (String) WordNet.wn.adjectiveSUMOHash.get(synset.substring(1)); break;
-                  case '4': termMapping = (String) WordNet.wn.adverbSUMOHash.get(synset.substring(1)); break;
-                }
+                String termMapping = WordNet.wn.getSUMOMapping(synset);
                 String rel = null;
                 if (termMapping != null) {
                     switch (termMapping.charAt(termMapping.length()-1)) {
@@ -997,27 +1073,32 @@ public class OWLtranslator {
     }
 
     /** ***************************************************************
-     * Write OWL format.
+     * Write OWL format.  The terms are copied out of the KB first, so
+     * that the KB is not locked while they are written.
      */
      public void writeKB(String path) throws IOException {
 
          System.out.println("INFO in OWLtranslator.write(): writing " + path);
          readYAGOSUMOMappings();
-         FileWriter fw = new FileWriter(path);
-         PrintWriter pw = new PrintWriter(fw);
-         writeKBHeader(pw);
-
+         ArrayList<String> termList = null;
          Set<String> kbterms = kb.getTerms();
          synchronized (kbterms) {
-             for (String term : kbterms) { 
+             termList = new ArrayList<String>(kbterms);
+         }
+         PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(path),65536));
+         try {
+             writeKBHeader(pw);
+             for (String term : termList)
                  writeSUMOTerm(pw,term);
-             	 pw.flush();
-             }
+             defineFunctionalTerms(pw);
+             writeAxioms(pw);
+             pw.println("</rdf:RDF>");
+         }
+         finally {
+             pw.close();
          }
-         defineFunctionalTerms(pw);
-         writeAxioms(pw);
-         pw.println("</rdf:RDF>");
-         pw.close();
+         if (pw.checkError())
+             throw new IOException("Error writing file " + path);
     }
 
     /** ***************************************************************
@@ -1195,7 +1276,7 @@ public class OWLtranslator {
     	System.out.println("INFO in OWLtranslator.writeWordNetSynset(): " + synset);
         if (synset.startsWith("WN30-")) 
             synset = synset.substring(5);
-        ArrayList al = (ArrayList) WordNet.wn.synsetsToWords.get(synset);
+        ArrayList<String> al = WordNet.wn.getWordsFromSynset(synset);
         if (al != null) {
             pw.println("<owl:Thing rdf:about=\"#WN30-" + synset + "\">");
             String parent = "Noun";
@@ -1207,25 +1288,19 @@ public class OWLtranslator {
             }
             pw.println("  <rdf:type rdf:resource=\"" + (parent.equals("Entity") ? "&owl;Thing" : "&wnd;" + parent) + "\"/>");
             if (al.size() > 0) 
-                pw.println("  <rdfs:label>" + ((String) al.get(0)) + "</rdfs:label>");
+                pw.println("  <rdfs:label>" + al.get(0) + "</rdfs:label>");
             for (int i = 0; i < al.size(); i++) {
-                String word = (String) al.get(i);
+                String word = al.get(i);
                 String wordAsID = StringUtil.StringToKIFid(word);
                 pw.println("  <wnd:word rdf:resource=\"#WN30Word-" + wordAsID + "\"/>");
             }
-            String doc = null;
-            switch (synset.charAt(0)) {
-              case '1': doc = (String) WordNet.wn.nounDocumentationHash.get(synset.substring(1)); break;
-              case '2': doc = (String) WordNet.wn.verbDocumentationHash.get(synset.substring(1)); break;
-              case '3': doc = (String) WordNet.wn.adjectiveDocumentationHash.get(synset.substring(1)); break;
-              case '4': doc = (String) WordNet.wn.adverbDocumentationHash.get(synset.substring(1)); break;
-            }
+            String doc = WordNet.wn.getDocumentation(synset);
             doc = processStringForXMLOutput(doc);
             pw.println("  <rdfs:comment xml:lang=\"en\">" + doc + "</rdfs:comment>");
-            al = (ArrayList) WordNet.wn.relations.get(synset);
-            if (al != null) {
-                for (int i = 0; i < al.size(); i++) {
-                    AVPair avp = (AVPair) al.get(i);
+            ArrayList<AVPair> rels = WordNet.wn.getRelations(synset);
+            if (rels != null) {
+                for (int i = 0; i < rels.size(); i++) {
+                    AVPair avp = rels.get(i);
                     String rel = StringUtil.StringToKIFid(avp.attribute);
                     pw.println("  <wnd:" + rel + " rdf:resource=\"#WN30-" + avp.value + "\"/>");
                 }
@@ -1372,11 +1447,8 @@ public class OWLtranslator {
         writeWordNetRelationDefinitions(pw);
         writeWordNetClassDefinitions(pw);
           // Get POS-prefixed synsets.
-        Iterator it = WordNet.wn.synsetsToWords.keySet().iterator();
-        while (it.hasNext()) {
-            String synset = (String) it.next();
+        for (String synset : WordNet.wn.getSynsets())
             writeWordNetSynset(pw,synset);
-        }
         writeWordNetExceptions(pw);
         writeVerbFrames(pw);
         writeWordsToSenses(pw);
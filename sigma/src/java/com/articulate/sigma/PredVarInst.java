@@ -1,15 +1,123 @@
 package com.articulate.sigma;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class PredVarInst {
     
-    // The implied arity of a predicate variable from its use in a Formula
-    private static HashMap<String,Integer> predVarArity = new HashMap<String,Integer>();
-    
-    // All predicates that meet that class membership and arity constraints for the given variable
-    private static HashMap<String,HashSet<String>> candidatePredicates = new HashMap<String,HashSet<String>>();
-    
+    /** ***************************************************************
+     * The relations of a KB grouped by arity and by the classes they
+     * are instances of, so that the candidate relations for a predicate
+     * variable are an intersection of sets rather than a test of every
+     * relation.  Built once for each version of the KB.
+     */
+    private static class RelationIndex {
+
+        KB kb = null;
+        KBcache kbCache = null;
+        int version = 0;
+
+        // relations keyed by their valence
+        HashMap<Integer,HashSet<String>> byArity = new HashMap<Integer,HashSet<String>>();
+
+        // relations keyed by each class they are an instance of, from the instance closure
+        HashMap<String,HashSet<String>> byType = new HashMap<String,HashSet<String>>();
+
+        // candidate relations keyed by arity and the sorted set of required types
+        HashMap<String,TreeSet<String>> candidates = new HashMap<String,TreeSet<String>>();
+
+        // instantiations made ahead of time by instantiateAll(), keyed by formula
+        ConcurrentHashMap<String,String[]> instantiations = new ConcurrentHashMap<String,String[]>();
+
+        RelationIndex(KB kb) {
+
+            this.kb = kb;
+            this.kbCache = kb.kbCache;
+            this.version = kb.getVersion();
+            for (String rel : kbCache.relations) {
+                Integer arity = kbCache.valences.get(rel);
+                if (arity == null)
+                    continue;
+                HashSet<String> rels = byArity.get(arity);
+                if (rels == null) {
+                    rels = new HashSet<String>();
+                    byArity.put(arity,rels);
+                }
+                rels.add(rel);
+                HashSet<String> types = kbCache.instances.get(rel);
+                if (types == null)
+                    continue;
+                for (String type : types) {
+                    rels = byType.get(type);
+                    if (rels == null) {
+                        rels = new HashSet<String>();
+                        byType.put(type,rels);
+                    }
+                    rels.add(rel);
+                }
+            }
+        }
+
+        /** the relations of the given arity that are instances of
+         * every one of types, in sorted order */
+        synchronized TreeSet<String> candidates(Integer arity, Set<String> types) {
+
+            TreeSet<String> sortedTypes = new TreeSet<String>(types);
+            String key = arity + " " + sortedTypes;
+            TreeSet<String> result = candidates.get(key);
+            if (result != null)
+                return result;
+            result = new TreeSet<String>();
+            HashSet<String> rels = byArity.get(arity);
+            if (rels != null) {
+                result.addAll(rels);
+                for (String type : sortedTypes) {
+                    HashSet<String> ofType = byType.get(type);
+                    if (ofType == null) {
+                        result.clear();
+                        break;
+                    }
+                    result.retainAll(ofType);
+                }
+            }
+            candidates.put(key,result);
+            return result;
+        }
+    }
+
+    private static HashMap<String,RelationIndex> indexes = new HashMap<String,RelationIndex>();
+
+    /** marks a formula with predicate variables that have no instantiations */
+    private static final String[] NO_INSTANTIATIONS = new String[0];
+
+    /** ***************************************************************
+     * @return the relation index for the current contents of the KB
+     */
+    private static synchronized RelationIndex getIndex(KB kb) {
+
+        RelationIndex result = indexes.get(kb.name);
+        if (result == null || result.kb != kb || result.kbCache != kb.kbCache ||
+                result.version != kb.getVersion()) {
+            result = new RelationIndex(kb);
+            indexes.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the relations that could replace a predicate variable of
+     * the given arity whose types are given, in sorted order
+     */
+    public static Set<String> candidateRelations(KB kb, int arity, Set<String> types) {
+
+        return Collections.unmodifiableSet(getIndex(kb).candidates(Integer.valueOf(arity),types));
+    }
+
     /** ***************************************************************
      * There are two type conditions:
      * one type condition is extracted from domain expression;
@@ -39,20 +147,57 @@ public class PredVarInst {
         }
         return result;
     }
-    
+
     /** ***************************************************************
-     * @param input formula
-     * @param kb knowledge base
-     * @return A list of formulas where predicate variables are instantiated;
-     *         There are three possible returns:
-     *         return null if input contains predicate variables but cannot be instantiated;
-     *         return empty if input contains no predicate variables;
-     *         return a list of instantiated formulas if the predicate variables are instantiated;
+     * Split a formula, as written out by Formula.replaceVar(), at each
+     * occurrence of the variable outside of strings, so that the
+     * variable can be replaced by joining the pieces.
      */
-    public static Set<Formula> instantiatePredVars(Formula input, KB kb) {
-        
-        Set<Formula> result = new HashSet<Formula>();
-        HashSet<String> predVars = gatherPredVars(input);
+    private static ArrayList<String> splitAtVar(String formula, String var) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        int last = 0;
+        int i = 0;
+        int len = formula.length();
+        while (i < len) {
+            char c = formula.charAt(i);
+            if (c == '"') {
+                i++;
+                while (i < len && formula.charAt(i) != '"') {
+                    if (formula.charAt(i) == '\\')
+                        i++;
+                    i++;
+                }
+                i++;
+            }
+            else if (formula.startsWith(var,i) && (i == 0 || formula.charAt(i-1) == '(' ||
+                    Character.isWhitespace(formula.charAt(i-1)))) {
+                int end = i + var.length();
+                if (end == len || formula.charAt(end) == ')' || Character.isWhitespace(formula.charAt(end))) {
+                    result.add(formula.substring(last,i));
+                    last = end;
+                }
+                i = end;
+            }
+            else
+                i++;
+        }
+        result.add(formula.substring(last));
+        return result;
+    }
+
+    /** ***************************************************************
+     * Find the instantiations of the predicate variables of a formula.
+     *
+     * @return null if the formula has predicate variables that cannot
+     * be instantiated, otherwise the instantiated formulas, which are
+     * none if the formula has no predicate variables
+     */
+    private static ArrayList<String> instantiate(Formula input, KB kb) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        HashMap<String,Integer> arities = new HashMap<String,Integer>();
+        HashSet<String> predVars = gatherPredVars(input,arities);
         if (predVars == null )
             return null;
         if (predVars.size() == 0)   // Return empty if input does not have predicate variables
@@ -61,43 +206,135 @@ public class PredVarInst {
         HashMap<String,HashSet<String>> varTypes = findPredVarTypes(input,kb);
         // 2. add explicitly defined types for predicate variables
         varTypes = addExplicitTypes(input,varTypes);
+        RelationIndex index = getIndex(kb);
         Iterator<String> it = varTypes.keySet().iterator();
         while (it.hasNext()) {
             String var = it.next();
-            Iterator<String> it2 = kb.kbCache.relations.iterator();
-            // 3.1 check: predVarArity should match arity of substituted relation
-            while (it2.hasNext()) {
-                String rel = it2.next();
-                if (kb.kbCache.valences.get(rel).equals(predVarArity.get(var))) {
-                    boolean ok = true;
-                    Iterator<String> it3 = varTypes.get(var).iterator();
-                    while (it3.hasNext()) {
-                        String varType = it3.next();
-                        // 3.2 check: candidate relation should be the instance of predicate variables' types
-                        if (!kb.isInstanceOf(rel, varType)) {
-                            ok = false;
-                            break;
-                        }
-                    }
-                    // 4. If ok, instantiate the predicate variable using the candidate relation
-                    if (ok == true) {
-                        Formula f = input.deepCopy();
-                        f = f.replaceVar(var, rel);
-                        Formula f2 = input.deepCopy();
-                        f2.theFormula = f.theFormula;
-                        result.add(f);
-                    }
-                }
+            // 3. candidate relations have the arity of the predicate variable and are
+            // instances of all of its types
+            Integer arity = arities.get(var);
+            if (arity == null)
+                continue;
+            TreeSet<String> rels = index.candidates(arity,varTypes.get(var));
+            if (rels.isEmpty())
+                continue;
+            // 4. instantiate the predicate variable with each candidate relation
+            ArrayList<String> pieces = splitAtVar(input.replaceVar(var,var).theFormula,var);
+            for (String rel : rels) {
+                StringBuilder sb = new StringBuilder(pieces.get(0));
+                for (int i = 1; i < pieces.size(); i++)
+                    sb.append(rel).append(pieces.get(i));
+                result.add(sb.toString());
             }
         }
-        if (result.size() == 0) {   // Return null if input contains predicate variables but cannot be initialized
+        if (result.size() == 0)    // null if input contains predicate variables but cannot be initialized
+            return null;
+        return result;
+    }
+
+    /** ***************************************************************
+     * @param input formula
+     * @param kb knowledge base
+     * @return A list of formulas where predicate variables are instantiated;
+     *         There are three possible returns:
+     *         return null if input contains predicate variables but cannot be instantiated;
+     *         return empty if input contains no predicate variables;
+     *         return a list of instantiated formulas if the predicate variables are instantiated;
+     */
+    public static Set<Formula> instantiatePredVars(Formula input, KB kb) {
+        
+        Set<Formula> result = new HashSet<Formula>();
+        String[] made = getIndex(kb).instantiations.get(input.theFormula);
+        List<String> forms = null;
+        if (made == null)
+            forms = instantiate(input,kb);
+        else if (made != NO_INSTANTIATIONS)
+            forms = Arrays.asList(made);
+        if (forms == null) {   // Return null if input contains predicate variables but cannot be initialized
             String errStr = "No predicate instantiations for ";
             errStr += input.theFormula;
             input.errors.add(errStr);
             return null;
         }
+        for (String s : forms) {
+            Formula f = new Formula();
+            f.read(s);
+            result.add(f);
+        }
         return result;
     }
+
+    /** ***************************************************************
+     * Instantiate the predicate variables of every formula given, with
+     * a pool of threads, and keep the results until the KB changes or
+     * clearInstantiations() is called, so that instantiatePredVars()
+     * need only look them up.  Used when translating a whole KB.
+     *
+     * @return the number of formulas with predicate variables
+     */
+    public static int instantiateAll(final KB kb, Collection<Formula> forms, int threads) {
+
+        long t1 = System.currentTimeMillis();
+        final RelationIndex index = getIndex(kb);
+        if (threads < 1)
+            threads = 1;
+        final ArrayList<String> todo = new ArrayList<String>();
+        for (Formula f : forms) {
+            if (f.theFormula.indexOf('?') > -1)
+                todo.add(f.theFormula);
+        }
+        final int chunk = Math.max(1,Math.min(256,todo.size() / (threads * 8) + 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int start = 0; start < todo.size(); start = start + chunk) {
+            final int from = start;
+            final int to = Math.min(todo.size(),start + chunk);
+            futures.add(pool.submit(new Callable<Integer>() {
+                public Integer call() {
+                    int count = 0;
+                    for (int i = from; i < to; i++) {
+                        Formula f = new Formula();
+                        f.read(todo.get(i));
+                        ArrayList<String> made = instantiate(f,kb);
+                        if (made == null)
+                            index.instantiations.put(f.theFormula,NO_INSTANTIATIONS);
+                        else if (!made.isEmpty()) {
+                            index.instantiations.put(f.theFormula,made.toArray(new String[made.size()]));
+                            count++;
+                        }
+                    }
+                    return Integer.valueOf(count);
+                }
+            }));
+        }
+        pool.shutdown();
+        int total = 0;
+        try {
+            for (Future<Integer> f : futures)
+                total = total + f.get().intValue();
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Error in PredVarInst.instantiateAll(): interrupted");
+        }
+        catch (ExecutionException e) {
+            pool.shutdownNow();
+            System.out.println("Error in PredVarInst.instantiateAll(): " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        }
+        System.out.println("INFO in PredVarInst.instantiateAll(): " + total + " formulas instantiated in " +
+                ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        return total;
+    }
+
+    /** ***************************************************************
+     * Forget the instantiations made by instantiateAll().
+     */
+    public static void clearInstantiations(KB kb) {
+
+        getIndex(kb).instantiations.clear();
+    }
      
     /** ***************************************************************
      *
@@ -340,7 +577,7 @@ public class PredVarInst {
      /** ***************************************************************
      * Get a set of all the predicate variables in the formula
      */
-    private static HashSet<String> gatherPredVarRecurse(Formula f) {
+    private static HashSet<String> gatherPredVarRecurse(Formula f, HashMap<String,Integer> arities) {
         
         HashSet<String> ans = new HashSet<String>();
         //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): " + f);
@@ -355,7 +592,7 @@ public class PredVarInst {
                     //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): adding: " + arg0 +
                     //        " with arglist: " + arglist);
                     ans.add(arg0);
-                    predVarArity.put(arg0,new Integer(arglist.size()));
+                    arities.put(arg0,new Integer(arglist.size()));
                 }
                 else {
                     //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): not a predicate var: " + arg0);
@@ -365,12 +602,12 @@ public class PredVarInst {
         else if (Formula.isQuantifier(f.car())) {
             //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): found quantifier: " + f);
             Formula f2 = f.cddrAsFormula();
-            ans.addAll(gatherPredVarRecurse(f2));
+            ans.addAll(gatherPredVarRecurse(f2,arities));
         }
         else {
             //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): not simple or quant: " + f);
-            ans.addAll(gatherPredVarRecurse(f.carAsFormula()));
-            ans.addAll(gatherPredVarRecurse(f.cdrAsFormula()));
+            ans.addAll(gatherPredVarRecurse(f.carAsFormula(),arities));
+            ans.addAll(gatherPredVarRecurse(f.cdrAsFormula(),arities));
         }
         //System.out.println("INFO in PredVarInst.gatherPredVarRecurse(): returning: " + ans);
         return ans;
@@ -420,10 +657,18 @@ public class PredVarInst {
      */
     protected static HashSet<String> gatherPredVars(Formula f) {
         
+        return gatherPredVars(f,new HashMap<String,Integer>());
+    }
+
+    /** ***************************************************************
+     * Collect and return all predicate variables for the given formula,
+     * recording the arity implied by the use of each in arities
+     */
+    private static HashSet<String> gatherPredVars(Formula f, HashMap<String,Integer> arities) {
+        
         HashSet<String> varlist = null;
-        HashMap<String,HashSet<String>> ans = new HashMap<String,HashSet<String>>();
         if (!StringUtil.emptyString(f.theFormula)) {
-            varlist = gatherPredVarRecurse(f);
+            varlist = gatherPredVarRecurse(f,arities);
         }
         return varlist;
     }
@@ -0,0 +1,218 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  Answers KB.askWithPredicateSubsumption() without an ask per
+ *  subrelation.  For each (argument, term) index key that has been
+ *  queried, the formulas of the key are split once by predicate into
+ *  sorted posting lists.  A query takes the relation and its
+ *  subrelations from the transitive closure in KBcache and merges
+ *  their posting lists, returning formulas one at a time in sorted
+ *  order.  Everything is discarded when the KB's version changes.
+ */
+public class PredicateSubsumptionIndex {
+
+    private static HashMap<String,PredicateSubsumptionIndex> indexes =
+            new HashMap<String,PredicateSubsumptionIndex>();
+
+    private KB kb = null;
+    private int version = 0;
+
+    /** for each argument and term, sorted formula strings keyed by
+     * predicate */
+    private HashMap<String,HashMap<String,String[]>> postings =
+            new HashMap<String,HashMap<String,String[]>>();
+
+    /** each relation queried, with all its subrelations, sorted */
+    private HashMap<String,String[]> closures = new HashMap<String,String[]>();
+
+    /** ***************************************************************
+     */
+    private PredicateSubsumptionIndex(KB kb) {
+
+        this.kb = kb;
+        this.version = kb.getVersion();
+    }
+
+    /** ***************************************************************
+     * @return the index for the current contents of the given KB
+     */
+    public static synchronized PredicateSubsumptionIndex getIndex(KB kb) {
+
+        PredicateSubsumptionIndex result = indexes.get(kb.name);
+        if (result == null || result.kb != kb || result.version != kb.getVersion()) {
+            result = new PredicateSubsumptionIndex(kb);
+            indexes.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the relation and all of its subrelations, in sorted
+     * order.  The closure cached by KBcache is used when it has been
+     * built, otherwise subrelation statements are followed with asks.
+     */
+    public synchronized String[] subrelations(String relation) {
+
+        String[] result = closures.get(relation);
+        if (result != null)
+            return result;
+        TreeSet<String> relns = new TreeSet<String>();
+        relns.add(relation);
+        HashSet<String> cached = (kb.kbCache != null) ? kb.kbCache.getChildRelations(relation) : null;
+        if (cached != null)
+            relns.addAll(cached);
+        else {
+            ArrayList<String> agenda = new ArrayList<String>();
+            agenda.add(relation);
+            while (!agenda.isEmpty()) {
+                String rel = agenda.remove(agenda.size() - 1);
+                ArrayList<Formula> forms = kb.askWithRestriction(0,"subrelation",2,rel);
+                for (int i = 0; i < forms.size(); i++) {
+                    String sub = forms.get(i).getArgument(1);
+                    if (sub != null && relns.add(sub))
+                        agenda.add(sub);
+                }
+            }
+        }
+        result = relns.toArray(new String[relns.size()]);
+        closures.put(relation,result);
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the sorted formula strings with term in argument argnum,
+     * grouped by predicate, made with a single scan of the KB's index
+     * for the term
+     */
+    private synchronized HashMap<String,String[]> postings(int argnum, String term) {
+
+        String key = "arg-" + argnum + "-" + term;
+        HashMap<String,String[]> result = postings.get(key);
+        if (result != null)
+            return result;
+        HashMap<String,ArrayList<String>> byPred = new HashMap<String,ArrayList<String>>();
+        ArrayList<String> strings = kb.formulas.get(key);
+        if (strings != null) {
+            for (int i = 0; i < strings.size(); i++) {
+                Formula f = kb.formulaMap.get(strings.get(i));
+                if (f == null)
+                    continue;
+                String pred = f.getArgument(0);
+                if (pred == null)
+                    continue;
+                ArrayList<String> al = byPred.get(pred);
+                if (al == null) {
+                    al = new ArrayList<String>();
+                    byPred.put(pred,al);
+                }
+                al.add(f.theFormula);
+            }
+        }
+        result = new HashMap<String,String[]>();
+        for (String pred : byPred.keySet()) {
+            ArrayList<String> al = byPred.get(pred);
+            String[] sorted = al.toArray(new String[al.size()]);
+            Arrays.sort(sorted);
+            result.put(pred,sorted);
+        }
+        postings.put(key,result);
+        return result;
+    }
+
+    /** ***************************************************************
+     * A position in one posting list.
+     */
+    private static class Cursor {
+        String[] list;
+        int pos = 0;
+
+        Cursor(String[] list) {
+            this.list = list;
+        }
+    }
+
+    /** ***************************************************************
+     * @return the formulas with relation or one of its subrelations as
+     * predicate and idxTerm in argument idxArgnum, in sorted order.
+     * Each formula is looked up only when the iterator reaches it.
+     */
+    public Iterator<Formula> iterator(String relation, int idxArgnum, String idxTerm) {
+
+        String[] relns = subrelations(relation);
+        HashMap<String,String[]> byPred = postings(idxArgnum,idxTerm);
+        final PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(1,relns.length),
+                new Comparator<Cursor>() {
+                    public int compare(Cursor c1, Cursor c2) {
+                        return c1.list[c1.pos].compareTo(c2.list[c2.pos]);
+                    }
+                });
+        for (int i = 0; i < relns.length; i++) {
+            String[] list = byPred.get(relns[i]);
+            if (list != null && list.length > 0)
+                queue.add(new Cursor(list));
+        }
+        return new Iterator<Formula>() {
+            Formula next = advance();
+
+            private Formula advance() {
+                while (!queue.isEmpty()) {
+                    Cursor c = queue.poll();
+                    String s = c.list[c.pos++];
+                    if (c.pos < c.list.length)
+                        queue.add(c);
+                    Formula f = kb.formulaMap.get(s);
+                    if (f != null)
+                        return f;
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Formula next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Formula result = next;
+                next = advance();
+                return result;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /** ***************************************************************
+     * @return the number of formulas that iterator() would return
+     */
+    public int size(String relation, int idxArgnum, String idxTerm) {
+
+        String[] relns = subrelations(relation);
+        HashMap<String,String[]> byPred = postings(idxArgnum,idxTerm);
+        int result = 0;
+        for (int i = 0; i < relns.length; i++) {
+            String[] list = byPred.get(relns[i]);
+            if (list != null)
+                result = result + list.length;
+        }
+        return result;
+    }
+}
@@ -110,7 +110,7 @@ public class Prolog {
 
         try {
             file = new File(fname);
-            if ((WordNet.wn != null) && WordNet.wn.wordCoFrequencies.isEmpty())
+            if ((WordNet.wn != null) && WordNet.wn.wordCoFrequencies.size() == 0)
                 WordNet.wn.readWordCoFrequencies();
             pw = new PrintWriter(new FileWriter(file));
             pw.println("% Copyright (c) 2006-2009 Articulate Software Incorporated");
@@ -0,0 +1,607 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** ***************************************************************
+ *  Finds axioms of a KB that say nothing another axiom doesn't
+ *  already say: axioms that are the same as another once variables
+ *  and Skolem terms are renamed, and axioms whose every clause is
+ *  subsumed by a clause of another axiom.  Each axiom is converted
+ *  once to canonical clausal form with Clausifier.  Clauses are then
+ *  indexed by their predicates, and each clause carries a 64-bit
+ *  fingerprint of its signed predicates and constants, so that a
+ *  clause is only tried against the few clauses whose symbols it
+ *  could possibly contain, rather than against every other axiom.
+ *
+ *  Only axioms with variables or logical operators are examined,
+ *  since duplicate ground facts are already reported by KIF.parse().
+ *  Axioms with row variables are skipped.  Skolem terms are treated
+ *  as constants when testing subsumption, so an axiom with an
+ *  existential is only ever found to be a duplicate.
+ */
+public class RedundantAxiomFinder {
+
+    /** groups of two or more axioms that are the same up to renaming */
+    public ArrayList<ArrayList<Formula>> duplicates = new ArrayList<ArrayList<Formula>>();
+
+    /** pairs of a more general axiom and an axiom it subsumes */
+    public ArrayList<Formula[]> subsumed = new ArrayList<Formula[]>();
+
+    /** the number of axioms examined */
+    public int axiomCount = 0;
+
+    /** the results of forKB(), by KB name, and the KB and version
+     * each was found for */
+    private static final HashMap<String,RedundantAxiomFinder> cache = new HashMap<String,RedundantAxiomFinder>();
+    private KB kb = null;
+    private int kbVersion = 0;
+
+    /** ***************************************************************
+     * A literal of a clause, with its atom parsed into nested arrays
+     * of Strings.
+     */
+    private static class Literal {
+        boolean positive;
+        Object atom;
+
+        Literal(boolean positive, Object atom) {
+            this.positive = positive;
+            this.atom = atom;
+        }
+    }
+
+    /** ***************************************************************
+     * A clause of an axiom.
+     */
+    private static class Clause {
+        int axiom;
+        Literal[] literals;
+        /** signed predicates, with "?" for a variable predicate */
+        TreeSet<String> predicates = new TreeSet<String>();
+        /** a bit for each signed predicate and constant in the clause,
+         * which must all be in any clause that this one subsumes */
+        long fingerprint = 0L;
+    }
+
+    /** ***************************************************************
+     * An axiom in canonical clausal form.
+     */
+    private static class Axiom {
+        Formula formula;
+        String key;
+        Clause[] clauses;
+    }
+
+    /** ***************************************************************
+     * @return the next term of s, starting at pos[0], as a String or
+     * an array of terms, advancing pos[0] past it
+     */
+    private static Object parse(String s, int[] pos) {
+
+        while (pos[0] < s.length() && Character.isWhitespace(s.charAt(pos[0])))
+            pos[0]++;
+        if (pos[0] >= s.length())
+            return null;
+        char c = s.charAt(pos[0]);
+        if (c == '(') {
+            pos[0]++;
+            ArrayList<Object> result = new ArrayList<Object>();
+            while (true) {
+                while (pos[0] < s.length() && Character.isWhitespace(s.charAt(pos[0])))
+                    pos[0]++;
+                if (pos[0] >= s.length())
+                    break;
+                if (s.charAt(pos[0]) == ')') {
+                    pos[0]++;
+                    break;
+                }
+                result.add(parse(s,pos));
+            }
+            return result.toArray();
+        }
+        int start = pos[0];
+        if (c == '"') {
+            pos[0]++;
+            while (pos[0] < s.length() && s.charAt(pos[0]) != '"') {
+                if (s.charAt(pos[0]) == '\\')
+                    pos[0]++;
+                pos[0]++;
+            }
+            pos[0]++;
+            return s.substring(start,Math.min(pos[0],s.length()));
+        }
+        while (pos[0] < s.length() && !Character.isWhitespace(s.charAt(pos[0])) &&
+                s.charAt(pos[0]) != '(' && s.charAt(pos[0]) != ')')
+            pos[0]++;
+        return s.substring(start,pos[0]);
+    }
+
+    /** ***************************************************************
+     * Append term to sb as KIF, with variables and Skolem terms renamed
+     * in order of appearance when names is given, or replaced with a
+     * placeholder when it is null.
+     */
+    private static void render(Object term, StringBuilder sb, HashMap<String,String> names) {
+
+        if (term instanceof String) {
+            String atom = (String) term;
+            boolean var = Formula.isVariable(atom);
+            boolean skolem = !var && Formula.isSkolemTerm(atom);
+            if (var || skolem) {
+                if (names == null)
+                    sb.append(var ? "?" : Formula.SK_PREF);
+                else {
+                    String name = names.get(atom);
+                    if (name == null) {
+                        name = (var ? "?V" : Formula.SK_PREF) + (names.size() + 1);
+                        names.put(atom,name);
+                    }
+                    sb.append(name);
+                }
+            }
+            else
+                sb.append(atom);
+            return;
+        }
+        Object[] list = (Object[]) term;
+        sb.append(Formula.LP);
+        for (int i = 0; i < list.length; i++) {
+            if (i > 0)
+                sb.append(Formula.SPACE);
+            render(list[i],sb,names);
+        }
+        sb.append(Formula.RP);
+    }
+
+    /** ***************************************************************
+     * @return a literal as KIF
+     */
+    private static String render(Literal lit, HashMap<String,String> names) {
+
+        StringBuilder sb = new StringBuilder();
+        if (!lit.positive)
+            sb.append("(not ");
+        render(lit.atom,sb,names);
+        if (!lit.positive)
+            sb.append(Formula.RP);
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     * Add the bits for every constant in term to the clause's
+     * fingerprint.
+     */
+    private static void addConstants(Object term, Clause clause) {
+
+        if (term instanceof String) {
+            if (!Formula.isVariable((String) term))
+                clause.fingerprint |= bit("c" + term);
+            return;
+        }
+        for (Object arg : (Object[]) term)
+            addConstants(arg,clause);
+    }
+
+    /** ***************************************************************
+     */
+    private static long bit(String feature) {
+
+        return 1L << (feature.hashCode() & 63);
+    }
+
+    /** ***************************************************************
+     * @return the clause made from the disjunction or literal given
+     */
+    private static Clause makeClause(Object term, int axiom) {
+
+        Object[] lits = new Object[] { term };
+        if (term instanceof Object[] && ((Object[]) term).length > 0 &&
+                Formula.OR.equals(((Object[]) term)[0]))
+            lits = Arrays.copyOfRange((Object[]) term,1,((Object[]) term).length);
+        Clause result = new Clause();
+        result.axiom = axiom;
+        result.literals = new Literal[lits.length];
+        for (int i = 0; i < lits.length; i++) {
+            Object lit = lits[i];
+            boolean positive = true;
+            if (lit instanceof Object[] && ((Object[]) lit).length == 2 &&
+                    Formula.NOT.equals(((Object[]) lit)[0])) {
+                positive = false;
+                lit = ((Object[]) lit)[1];
+            }
+            result.literals[i] = new Literal(positive,lit);
+            String pred = "?";
+            if (lit instanceof String)
+                pred = (String) lit;
+            else if (((Object[]) lit).length > 0 && ((Object[]) lit)[0] instanceof String)
+                pred = (String) ((Object[]) lit)[0];
+            if (Formula.isVariable(pred))
+                pred = "?";
+            String feature = (positive ? "+" : "-") + pred;
+            result.predicates.add(feature);
+            if (!pred.equals("?"))
+                result.fingerprint |= bit(feature);
+            if (lit instanceof Object[]) {
+                Object[] args = (Object[]) lit;
+                for (int j = 1; j < args.length; j++)
+                    addConstants(args[j],result);
+            }
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the axiom in canonical clausal form, or null if it could
+     * not be clausified
+     */
+    private static Axiom makeAxiom(Formula f, int index) {
+
+        Formula cnf = Clausifier.toCanonicalClausalForm(f);
+        if (cnf == null || StringUtil.emptyString(cnf.theFormula))
+            return null;
+        Object term = parse(cnf.theFormula,new int[] { 0 });
+        if (term == null)
+            return null;
+        Object[] conjuncts = new Object[] { term };
+        if (term instanceof Object[] && ((Object[]) term).length > 0 &&
+                Formula.AND.equals(((Object[]) term)[0]))
+            conjuncts = Arrays.copyOfRange((Object[]) term,1,((Object[]) term).length);
+        Axiom result = new Axiom();
+        result.formula = f;
+        result.clauses = new Clause[conjuncts.length];
+        for (int i = 0; i < conjuncts.length; i++)
+            result.clauses[i] = makeClause(conjuncts[i],index);
+
+        // Order literals and clauses by their text with variables and
+        // Skolem terms blanked out, then number the variables and
+        // Skolem terms in that order, so that the key does not depend
+        // on the names that the axiom or the clausifier chose.
+        final HashMap<Object,String> shapes = new HashMap<Object,String>();
+        for (Clause c : result.clauses) {
+            for (Literal lit : c.literals)
+                shapes.put(lit,render(lit,null));
+            Arrays.sort(c.literals,new Comparator<Literal>() {
+                public int compare(Literal l1, Literal l2) {
+                    return shapes.get(l1).compareTo(shapes.get(l2));
+                }
+            });
+            StringBuilder sb = new StringBuilder();
+            for (Literal lit : c.literals)
+                sb.append(shapes.get(lit)).append(Formula.SPACE);
+            shapes.put(c,sb.toString());
+        }
+        Clause[] ordered = result.clauses.clone();
+        Arrays.sort(ordered,new Comparator<Clause>() {
+            public int compare(Clause c1, Clause c2) {
+                return shapes.get(c1).compareTo(shapes.get(c2));
+            }
+        });
+        HashMap<String,String> names = new HashMap<String,String>();
+        StringBuilder sb = new StringBuilder();
+        for (Clause c : ordered) {
+            sb.append(Formula.LP);
+            for (Literal lit : c.literals)
+                sb.append(render(lit,names)).append(Formula.SPACE);
+            sb.append(Formula.RP);
+        }
+        result.key = sb.toString();
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return true if pattern matches term once the variables of
+     * pattern are bound as recorded in bindings.  New bindings are
+     * added to bindings and their variables to trail.
+     */
+    private static boolean match(Object pattern, Object term, HashMap<String,Object> bindings,
+                                 ArrayList<String> trail) {
+
+        if (pattern instanceof String) {
+            String p = (String) pattern;
+            if (Formula.isVariable(p)) {
+                Object bound = bindings.get(p);
+                if (bound == null) {
+                    bindings.put(p,term);
+                    trail.add(p);
+                    return true;
+                }
+                if (bound instanceof String)
+                    return bound.equals(term);
+                return term instanceof Object[] && Arrays.deepEquals((Object[]) bound,(Object[]) term);
+            }
+            return p.equals(term);
+        }
+        if (!(term instanceof Object[]))
+            return false;
+        Object[] p = (Object[]) pattern;
+        Object[] t = (Object[]) term;
+        if (p.length != t.length)
+            return false;
+        for (int i = 0; i < p.length; i++) {
+            if (!match(p[i],t[i],bindings,trail))
+                return false;
+        }
+        return true;
+    }
+
+    /** ***************************************************************
+     * @return true if some substitution for the variables of c from
+     * literal i onward makes each of its literals a literal of d
+     */
+    private static boolean subsumes(Clause c, int i, Clause d, HashMap<String,Object> bindings) {
+
+        if (i == c.literals.length)
+            return true;
+        Literal lit = c.literals[i];
+        ArrayList<String> trail = new ArrayList<String>();
+        for (Literal other : d.literals) {
+            if (other.positive != lit.positive)
+                continue;
+            if (match(lit.atom,other.atom,bindings,trail) && subsumes(c,i + 1,d,bindings))
+                return true;
+            for (String var : trail)
+                bindings.remove(var);
+            trail.clear();
+        }
+        return false;
+    }
+
+    /** ***************************************************************
+     * @return true if clause c subsumes clause d
+     */
+    private static boolean subsumes(Clause c, Clause d) {
+
+        if ((c.fingerprint & ~d.fingerprint) != 0)
+            return false;
+        return subsumes(c,0,d,new HashMap<String,Object>());
+    }
+
+    /** ***************************************************************
+     * @return true if an axiom is worth examining
+     */
+    private static boolean candidate(Formula f) {
+
+        if (f == null || StringUtil.emptyString(f.theFormula))
+            return false;
+        if (f.theFormula.indexOf(Formula.R_PREF) > -1)
+            return false;
+        if (f.theFormula.indexOf(Formula.V_PREF) > -1)
+            return true;
+        return Formula.isLogicalOperator(f.car());
+    }
+
+    /** ***************************************************************
+     * Run task on each chunk of the numbers from 0 to size with a pool
+     * of threads.
+     */
+    private static void runChunks(int size, int threads, final ChunkTask task, String caller) {
+
+        final int chunk = Math.max(1,Math.min(256,size / (threads * 8) + 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int start = 0; start < size; start = start + chunk) {
+            final int from = start;
+            final int to = Math.min(size,start + chunk);
+            futures.add(pool.submit(new Callable<Object>() {
+                public Object call() {
+                    for (int i = from; i < to; i++)
+                        task.run(i);
+                    return null;
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<Object> f : futures)
+                f.get();
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Error in RedundantAxiomFinder." + caller + "(): interrupted");
+        }
+        catch (ExecutionException e) {
+            pool.shutdownNow();
+            System.out.println("Error in RedundantAxiomFinder." + caller + "(): " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private interface ChunkTask {
+        void run(int i);
+    }
+
+    /** ***************************************************************
+     * The duplicate and subsumed axioms of a KB, found on all
+     * processors the first time they are asked for and then kept until
+     * the formulas of the KB change.
+     */
+    public static synchronized RedundantAxiomFinder forKB(KB kb) {
+
+        RedundantAxiomFinder result = cache.get(kb.name);
+        if (result == null || result.kb != kb || result.kbVersion != kb.getVersion()) {
+            int version = kb.getVersion();
+            result = find(kb,Runtime.getRuntime().availableProcessors());
+            result.kb = kb;
+            result.kbVersion = version;
+            cache.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * Find the duplicate and subsumed axioms among those of a KB.
+     */
+    public static RedundantAxiomFinder find(KB kb, int threads) {
+
+        return find(kb.formulaMap.values(),threads);
+    }
+
+    /** ***************************************************************
+     * Find the duplicate and subsumed axioms in a collection of
+     * formulas, using the given number of threads.
+     */
+    public static RedundantAxiomFinder find(Collection<Formula> forms, int threads) {
+
+        long t1 = System.currentTimeMillis();
+        if (threads < 1)
+            threads = 1;
+        RedundantAxiomFinder result = new RedundantAxiomFinder();
+        final ArrayList<Formula> todo = new ArrayList<Formula>();
+        for (Formula f : forms) {
+            if (candidate(f))
+                todo.add(f);
+        }
+        result.axiomCount = todo.size();
+        KB.getMatches("?X1","var_with_digit_suffix"); // compile the clausifier's patterns before sharing them
+
+        // 1. Put each axiom into canonical clausal form.
+        final Axiom[] axioms = new Axiom[todo.size()];
+        runChunks(todo.size(),threads,new ChunkTask() {
+            public void run(int i) {
+                try {
+                    axioms[i] = makeAxiom(todo.get(i),i);
+                }
+                catch (Exception e) {
+                    System.out.println("Error in RedundantAxiomFinder.find(): can't clausify " +
+                            todo.get(i).theFormula + ": " + e.getMessage());
+                }
+            }
+        },"find");
+
+        // 2. Group axioms with the same key, and index clauses under
+        // their least common signed predicate.
+        final HashMap<String,Integer> group = new HashMap<String,Integer>();
+        TreeMap<String,ArrayList<Formula>> byKey = new TreeMap<String,ArrayList<Formula>>();
+        HashMap<String,Integer> counts = new HashMap<String,Integer>();
+        for (int i = 0; i < axioms.length; i++) {
+            if (axioms[i] == null)
+                continue;
+            ArrayList<Formula> same = byKey.get(axioms[i].key);
+            if (same == null) {
+                same = new ArrayList<Formula>();
+                byKey.put(axioms[i].key,same);
+                group.put(axioms[i].key,Integer.valueOf(i));
+            }
+            same.add(axioms[i].formula);
+            for (Clause c : axioms[i].clauses) {
+                for (String pred : c.predicates) {
+                    Integer count = counts.get(pred);
+                    counts.put(pred,Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+                }
+            }
+        }
+        for (ArrayList<Formula> same : byKey.values()) {
+            if (same.size() > 1)
+                result.duplicates.add(same);
+        }
+        final HashMap<String,ArrayList<Clause>> index = new HashMap<String,ArrayList<Clause>>();
+        for (int i = 0; i < axioms.length; i++) {
+            if (axioms[i] == null || group.get(axioms[i].key).intValue() != i)
+                continue;
+            for (Clause c : axioms[i].clauses) {
+                String best = null;
+                for (String pred : c.predicates) {
+                    if (best == null || (best.endsWith("?") && !pred.endsWith("?")) ||
+                            (!pred.endsWith("?") && counts.get(pred).intValue() < counts.get(best).intValue()))
+                        best = pred;
+                }
+                ArrayList<Clause> bucket = index.get(best);
+                if (bucket == null) {
+                    bucket = new ArrayList<Clause>();
+                    index.put(best,bucket);
+                }
+                bucket.add(c);
+            }
+        }
+
+        // 3. For each axiom, find the axioms that subsume all of its
+        // clauses.  Only one axiom of each group of duplicates is
+        // indexed or tested.
+        final ArrayList<ArrayList<Formula[]>> found =
+                new ArrayList<ArrayList<Formula[]>>(Collections.<ArrayList<Formula[]>>nCopies(axioms.length,null));
+        runChunks(axioms.length,threads,new ChunkTask() {
+            public void run(int i) {
+                Axiom axiom = axioms[i];
+                if (axiom == null || group.get(axiom.key).intValue() != i)
+                    return;
+                TreeSet<Integer> subsumers = null;
+                for (Clause d : axiom.clauses) {
+                    TreeSet<String> keys = new TreeSet<String>(d.predicates);
+                    for (Literal lit : d.literals)
+                        keys.add(lit.positive ? "+?" : "-?");
+                    TreeSet<Integer> axiomsFound = new TreeSet<Integer>();
+                    for (String key : keys) {
+                        ArrayList<Clause> bucket = index.get(key);
+                        if (bucket == null)
+                            continue;
+                        for (Clause c : bucket) {
+                            if (c.axiom == i || axiomsFound.contains(Integer.valueOf(c.axiom)))
+                                continue;
+                            if (subsumers != null && !subsumers.contains(Integer.valueOf(c.axiom)))
+                                continue;
+                            if (subsumes(c,d))
+                                axiomsFound.add(Integer.valueOf(c.axiom));
+                        }
+                    }
+                    subsumers = axiomsFound;
+                    if (subsumers.isEmpty())
+                        return;
+                }
+                if (subsumers == null)
+                    return;
+                ArrayList<Formula[]> pairs = new ArrayList<Formula[]>();
+                for (Integer general : subsumers)
+                    pairs.add(new Formula[] { axioms[general.intValue()].formula, axiom.formula });
+                found.set(i,pairs);  // each task sets only its own elements
+            }
+        },"find");
+        for (ArrayList<Formula[]> pairs : found) {
+            if (pairs != null)
+                result.subsumed.addAll(pairs);
+        }
+        System.out.println("INFO in RedundantAxiomFinder.find(): " + result.axiomCount + " axioms, " +
+                result.duplicates.size() + " groups of duplicates, " + result.subsumed.size() +
+                " subsumed axioms in " + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    public static void main(String[] args) {
+
+        KBmanager.getMgr().initializeOnce();
+        KB kb = KBmanager.getMgr().getKB("SUMO");
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args != null && args.length > 0)
+            threads = Integer.parseInt(args[0]);
+        RedundantAxiomFinder finder = find(kb,threads);
+        for (ArrayList<Formula> same : finder.duplicates) {
+            System.out.println("Duplicates:");
+            for (Formula f : same)
+                System.out.println("  " + f.theFormula + " (" + f.sourceFile + ":" + f.startLine + ")");
+        }
+        for (Formula[] pair : finder.subsumed)
+            System.out.println(pair[0].theFormula + "\n  subsumes " + pair[1].theFormula);
+    }
+}
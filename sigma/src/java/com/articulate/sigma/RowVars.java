@@ -7,227 +7,165 @@ public class RowVars {
     public static boolean DEBUG = false;
     
     /** ***************************************************************
-     * @return a HashSet, possibly empty, containing row variable
-     * names, each of which will start with the row variable
-     * designator '@'.
+     * A parsed SUO-KIF term.  Lists keep the text they were parsed
+     * from, which is reused unchanged in every expansion of a term
+     * that contains no row variable.
      */
-    private static HashSet<String> findRowVars(Formula f) {
+    private static class Term {
 
-        //System.out.println("Info in RowVars.findRowVars(): F: " + f);
-        HashSet<String> result = new HashSet<String>();
-        if (!StringUtil.emptyString(f.theFormula)
-            && f.theFormula.contains(Formula.R_PREF)) {
-            Formula fnew = new Formula();
-            fnew.read(f.theFormula);
-            while (fnew.listP() && !fnew.empty()) {
-                String arg = fnew.getArgument(0);
-                if (arg.startsWith(Formula.R_PREF))
-                    result.add(arg);
-                else {
-                    Formula argF = new Formula();
-                    argF.read(arg);
-                    if (argF.listP())
-                        result.addAll(findRowVars(argF));
-                }
-                fnew.read(fnew.cdr());
-            }
-        }
-        return result;
+        String text = null;
+        ArrayList<Term> args = null;    // null for an atom
+        boolean hasRowVar = false;
     }
 
     /** ***************************************************************
-     * given in @param ar which is a list for each variable of all the
-     * predicates in which it appears as an argument, find the minimum
-     * arity allowed by predicate arities, as given by 
-     * @seeAlso kb.kbCache.valences
+     * Parse the term that starts at pos[0], leaving pos[0] just after
+     * it.
      */
-    private static HashMap<String,Integer> getRowVarMaxArities(HashMap<String,HashSet<String>> ar, KB kb) {
-        
-        HashMap<String,Integer> arities = new HashMap<String,Integer>();
-        Iterator<String> it = ar.keySet().iterator();
-        while (it.hasNext()) {
-            String rowvar = it.next();
-            HashSet<String> preds = ar.get(rowvar);
-            Iterator<String> it2 = preds.iterator();
-            while (it2.hasNext()) {
-                String pred = it2.next();
-                //System.out.println("INFO in RowVars.getRowVarMaxArities(): " + kb.kbCache.valences);
-                //System.out.println("INFO in RowVars.getRowVarMaxArities(): pred: " + pred);
-                if (kb.kbCache.valences.get(pred) != null) {
-                    int arity = kb.kbCache.valences.get(pred).intValue();
-                    if (arities.containsKey(pred)) {
-                        if (arity < arities.get(rowvar).intValue())
-                            arities.put(rowvar, new Integer(arity));
-                    }
-                    else
-                        arities.put(rowvar, new Integer(arity));
+    private static Term parse(String s, int[] pos) {
+
+        int len = s.length();
+        while (pos[0] < len && Character.isWhitespace(s.charAt(pos[0])))
+            pos[0]++;
+        Term t = new Term();
+        int start = pos[0];
+        if (start >= len)
+            return null;
+        char c = s.charAt(start);
+        if (c == '(') {
+            t.args = new ArrayList<Term>();
+            pos[0]++;
+            while (true) {
+                while (pos[0] < len && Character.isWhitespace(s.charAt(pos[0])))
+                    pos[0]++;
+                if (pos[0] >= len)
+                    break;
+                if (s.charAt(pos[0]) == ')') {
+                    pos[0]++;
+                    break;
                 }
+                Term arg = parse(s,pos);
+                if (arg == null)
+                    break;
+                t.args.add(arg);
+                t.hasRowVar = t.hasRowVar || arg.hasRowVar;
             }
         }
-        return arities;
-    }
-
-    /** ***************************************************************
-     * given in @param ar which is a list for each variable of all the
-     * predicates in which it appears as an argument, find the maximum
-     * arity allowed by predicate arities, as given by
-     * @seeAlso kb.kbCache.valences
-     *
-     * TODO: currently we only find the maximum arity allowed by predicate arities;
-     *       we also need to find the minimum predicate arities;
-     */
-    public static HashMap<String,Integer> getRowVarMaxAritiesWithOtherArgs(HashMap<String,HashSet<String>> ar, KB kb, Formula f) {
-
-        HashMap<String,Integer> arities = new HashMap<String,Integer>();
-        Iterator<String> it = ar.keySet().iterator();
-        while (it.hasNext()) {
-            String rowvar = it.next();
-            HashSet<String> preds = ar.get(rowvar);
-            Iterator<String> it2 = preds.iterator();
-            while (it2.hasNext()) {
-                String pred = it2.next();
-
-                // If row variables in an argument list with other arguments,
-                // then #arguments which can be expanded = #arguments in pred - nonRowVar
-                int nonRowVar = 0;
-                int start = f.theFormula.indexOf("("+pred);
-                int end = f.theFormula.indexOf(")", start);
-                String simpleFS = f.theFormula.substring(start, end+1);
-                Formula simpleF = new Formula();
-                simpleF.read(simpleFS);
-                for (int i = 0; i < simpleF.listLength(); i++) {
-                    if(simpleF.getArgument(i).startsWith(Formula.V_PREF))
-                        nonRowVar++;
-                }
-
-                if (kb.kbCache.valences.get(pred) != null) {
-                    int arity = kb.kbCache.valences.get(pred).intValue();
-                    if (arities.containsKey(pred)) {
-                        if (arity < arities.get(rowvar).intValue())
-                            arities.put(rowvar, new Integer(arity)-nonRowVar);
-                    }
-                    else if (arity > 0)
-                        arities.put(rowvar, new Integer(arity)-nonRowVar);
-                }
+        else if (c == '"') {
+            pos[0]++;
+            while (pos[0] < len && s.charAt(pos[0]) != '"') {
+                if (s.charAt(pos[0]) == '\\')
+                    pos[0]++;
+                pos[0]++;
             }
+            pos[0]++;
         }
-        return arities;
+        else {
+            while (pos[0] < len && !Character.isWhitespace(s.charAt(pos[0])) &&
+                   s.charAt(pos[0]) != '(' && s.charAt(pos[0]) != ')')
+                pos[0]++;
+            t.hasRowVar = c == '@';
+        }
+        t.text = s.substring(start,Math.min(pos[0],len));
+        return t;
     }
 
     /** ***************************************************************
-     * Merge the key,value pairs for a multiple value ArrayList
+     * Collect the row variables of a term in order of first
+     * appearance, and the greatest arity each may expand to without
+     * giving a relation with a fixed valence too many arguments.
      */
-    private static HashMap<String,HashSet<String>> 
-        mergeValueSets(HashMap<String,HashSet<String>> ar1, HashMap<String,HashSet<String>> ar2) {
-        
-        HashMap<String,HashSet<String>> result = new HashMap<String,HashSet<String>>();
-        result.putAll(ar1);
-        Iterator<String> it = ar2.keySet().iterator();
-        while (it.hasNext()) {
-            String key = it.next();
-            HashSet<String> values = ar2.get(key);
-            HashSet<String> arg1values = ar1.get(key);
-            if (arg1values == null)
-                result.put(key, values);
-            else {
-                arg1values.addAll(values);
+    private static void collectRowVars(Term t, LinkedHashMap<String,Integer> maxArities, 
+                                       HashMap<String,Integer> valences, 
+                                       ArrayList<Term> constrained) {
+
+        if (!t.hasRowVar)
+            return;
+        if (t.args == null) {
+            if (!maxArities.containsKey(t.text))
+                maxArities.put(t.text,Integer.valueOf(7));
+            return;
+        }
+        for (Term arg : t.args)
+            collectRowVars(arg,maxArities,valences,constrained);
+        if (valences == null || t.args.size() == 0 || t.args.get(0).args != null)
+            return;
+        Integer valence = valences.get(t.args.get(0).text);
+        if (valence == null || valence.intValue() < 1)
+            return;
+        HashMap<String,Integer> occurrences = new HashMap<String,Integer>();
+        int others = 0;
+        for (int i = 1; i < t.args.size(); i++) {
+            Term arg = t.args.get(i);
+            if (arg.args == null && arg.hasRowVar) {
+                Integer n = occurrences.get(arg.text);
+                occurrences.put(arg.text,Integer.valueOf(n == null ? 1 : n.intValue() + 1));
             }
+            else
+                others++;
         }
-        return result;
-    }
-    
-    /** ***************************************************************
-     * Add a key,value pair for a multiple value ArrayList
-     */
-    private static HashMap<String,HashSet<String>> 
-        addToValueSet(HashMap<String,HashSet<String>> ar, String key, String value) {
-        
-        HashSet<String> val = ar.get(key);
-        if (val == null) 
-            val = new HashSet<String>();
-        val.add(value);
-        ar.put(key, val);
-        return ar;
+        for (String var : occurrences.keySet()) {
+            // every other row variable in the list stands for at least one argument
+            int fixed = others + occurrences.size() - 1;
+            int bound = (valence.intValue() - fixed) / occurrences.get(var).intValue();
+            if (bound < maxArities.get(var).intValue())
+                maxArities.put(var,Integer.valueOf(bound));
+        }
+        if (occurrences.size() > 1)
+            constrained.add(t);
     }
-    
+
     /** ***************************************************************
+     * @return false if the arities give any of the given relation
+     * lists, which have more than one row variable, more arguments
+     * than the valence of the relation
      */
-    private static HashMap<String,HashSet<String>> getRowVarRelLogOps(Formula f, String pred) {
-    
-        //System.out.println("Info in RowVars.getRowVarRelLogOps(): pred: " + pred + " F: " + f);
-        HashMap<String,HashSet<String>> result = new HashMap<String,HashSet<String>>();
-        if (Formula.isQuantifier(pred)) {
-            Formula arg2 = new Formula(f.getArgument(2));
-            if (arg2 != null)
-                return getRowVarRelations(arg2);
-        }
-        else if (pred.equals(Formula.NOT)) {
-            Formula arg1 = new Formula(f.getArgument(1));
-            if (arg1 != null)
-                return getRowVarRelations(arg1);
-            else
-                return result;
-        }
-        else if (pred.equals(Formula.EQUAL) || pred.equals(Formula.IFF)  || pred.equals(Formula.IF)) {
-            Formula arg1 = new Formula(f.getArgument(1));
-            Formula arg2 = new Formula(f.getArgument(2));
-            if (arg1 != null && arg2 != null)
-                return mergeValueSets(getRowVarRelations(arg1),getRowVarRelations(arg2));
-            else
-                return result;
-        }
-        else {  // AND or OR
-            ArrayList<String> args = f.complexArgumentsToArrayList(1);
-            for (int i = 1; i < args.size(); i++) {
-                Formula f2 = new Formula(args.get(i));
-                result = mergeValueSets(result,getRowVarRelations(f2));
+    private static boolean withinValences(HashMap<String,Integer> arities, ArrayList<Term> constrained,
+                                          HashMap<String,Integer> valences) {
+
+        for (Term t : constrained) {
+            int count = 0;
+            for (int i = 1; i < t.args.size(); i++) {
+                Term arg = t.args.get(i);
+                if (arg.args == null && arg.hasRowVar)
+                    count = count + arities.get(arg.text).intValue();
+                else
+                    count++;
             }
-            return result;
+            if (count > valences.get(t.args.get(0).text).intValue())
+                return false;
         }
-        return result;
+        return true;
     }
-    
+
     /** ***************************************************************
-     * Recurse through the formula looking for row variables.  If found,
-     * add it to a map that has row variables as keys and a set of 
-     * predicate names as values. 
+     * Write a term with each row variable replaced by as many regular
+     * variables as its arity.
      */
-    private static HashMap<String,HashSet<String>> getRowVarRelations(Formula f) {
-        
-        //System.out.println("Info in RowVars.getRowVarRelations(): f: " + f);
-        HashMap<String,HashSet<String>> result = new HashMap<String,HashSet<String>>();
-        if (!f.theFormula.contains("@") || f.empty() || f.atom())
-            return result;
-        String pred = f.getArgument(0);
-        if (!f.theFormula.substring(1).contains("(")) {  // no higher order or functions
-            //System.out.println("Info in RowVars.getRowVarRelations(): simple clause f: " + f);
-            HashSet<String> rowvars = findRowVars(f);
-            Iterator<String> it = rowvars.iterator();
-            while (it.hasNext()) {
-                String var = it.next();
-                //System.out.println("Info in RowVars.getRowVarRelations(): adding var,pred: " + var + ", " + pred);
-                addToValueSet(result,var,pred);
+    private static void render(Term t, HashMap<String,Integer> arities, StringBuilder sb) {
+
+        if (!t.hasRowVar)
+            sb.append(t.text);
+        else if (t.args == null) {
+            String replaceVar = t.text.replace('@','?');
+            int arity = arities.get(t.text).intValue();
+            for (int j = 0; j < arity; j++) {
+                if (j > 0)
+                    sb.append(" ");
+                sb.append(replaceVar + Integer.toString(j+1));
             }
-            return result;
-        }
-        if (Formula.isLogicalOperator(pred)) {
-            return getRowVarRelLogOps(f,pred);
         }
-        else {  // regular predicate
-            ArrayList<String> args = f.complexArgumentsToArrayList(1);
-            for (int i = 0; i < args.size(); i++) {
-                Formula f2 = new Formula(args.get(i));
-                if (f2.theFormula.startsWith("@")) {
-                    //System.out.println("Info in RowVars.getRowVarRelations(): adding var,pred: " + f2.theFormula + ", " + pred);
-                    addToValueSet(result,f2.theFormula,pred);
-                }
-                else if (f2.theFormula.contains("@"))
-                    result = mergeValueSets(result,getRowVarRelations(f2));
+        else {
+            sb.append("(");
+            for (int i = 0; i < t.args.size(); i++) {
+                if (i > 0)
+                    sb.append(" ");
+                render(t.args.get(i),arities,sb);
             }
+            sb.append(")");
         }
-        return result;
     }
-    
+
     /** ***************************************************************
      * Expand row variables, keeping the information about the original
      * source formula.  Each variable is treated like a macro that
@@ -254,18 +192,18 @@ public class RowVars {
      *    (?REL2 ?ARG1 ?ARG2))
      * etc.
      *
-     * TODO: Note that this method does not handle the case of row 
-     * variables in an argument list with other arguments.  It will
-     * just blindly generate all 7 variable expansions even if this
-     * means that a predicate will wind up with more than 7 arguments
-     * due to the existence of a non-row-variable in the argument
-     * list.
+     * The formula is parsed once and each expansion is written out
+     * from the parse, so subterms without row variables are copied
+     * rather than rewritten.  Where a row variable is an argument of a
+     * relation with a fixed valence in kb.kbCache.valences, it is only
+     * expanded up to the number of arguments the relation has left
+     * after its other arguments, and expansions that would give it too
+     * many arguments in total are left out.
      * 
      * @return an ArrayList of Formulas, or an empty ArrayList.
      */
     public static ArrayList<Formula> expandRowVars(KB kb, Formula f) {
         
-        ArrayList<String> result = new ArrayList<String>();
         ArrayList<Formula> formresult = new ArrayList<Formula>();
         if (!f.theFormula.contains("@")) {
             // If there are no row variables, return the original formula
@@ -274,41 +212,41 @@ public class RowVars {
         }
         if (DEBUG)
             System.out.println("Info in RowVars.expandRowVars(): f: " +f);
-        HashMap<String,HashSet<String>> rels = getRowVarRelations(f);   
-        HashMap<String,Integer> rowVarMaxArities = getRowVarMaxAritiesWithOtherArgs(rels, kb, f);
-        result.add(f.theFormula);
-        HashSet<String> rowvars = findRowVars(f);
-        Iterator<String> it = rowvars.iterator();
-        while (it.hasNext()) {
-            String var = it.next();
-            if (DEBUG)
-                System.out.println("Info in RowVars.expandRowVars(): var: " + var);
-            String replaceVar = var.replace('@', '?');
-            ArrayList<String> newresult = new ArrayList<String>();
-            StringBuffer replaceString = new StringBuffer();
-            int maxArity = 7;  
-            if (rowVarMaxArities.containsKey(var) && maxArity > rowVarMaxArities.get(var).intValue())
-                maxArity = rowVarMaxArities.get(var).intValue();
-            for (int j = 0; j < maxArity; j++) {
-                if (j > 0)
-                    replaceString.append(" ");
-                replaceString.append(replaceVar + Integer.toString(j+1));
-                if (DEBUG)
-                    System.out.println("Info in RowVars.expandRowVars(): replace: " + replaceString);
-                for (int i = 0; i < result.size(); i++) {
-                    String form = result.get(i);
-                    form = form.replaceAll("\\"+var, replaceString.toString());
-                    if (DEBUG)
-                        System.out.println("Info in RowVars.expandRowVars(): form: " + form);
-                    newresult.add(form);
+        Term t = parse(f.theFormula,new int[] { 0 });
+        if (t == null || !t.hasRowVar) {
+            formresult.add(f);
+            return formresult;
+        }
+        HashMap<String,Integer> valences = null;
+        if (kb != null && kb.kbCache != null)
+            valences = kb.kbCache.valences;
+        LinkedHashMap<String,Integer> maxArities = new LinkedHashMap<String,Integer>();
+        ArrayList<Term> constrained = new ArrayList<Term>();
+        collectRowVars(t,maxArities,valences,constrained);
+        if (DEBUG)
+            System.out.println("Info in RowVars.expandRowVars(): arities: " + maxArities);
+
+        // every combination of arities, varying the first variable fastest
+        ArrayList<HashMap<String,Integer>> assignments = new ArrayList<HashMap<String,Integer>>();
+        assignments.add(new HashMap<String,Integer>());
+        for (String var : maxArities.keySet()) {
+            ArrayList<HashMap<String,Integer>> newAssignments = new ArrayList<HashMap<String,Integer>>();
+            int maxArity = maxArities.get(var).intValue();
+            for (int j = 1; j <= maxArity; j++) {
+                for (HashMap<String,Integer> a : assignments) {
+                    HashMap<String,Integer> newA = new HashMap<String,Integer>(a);
+                    newA.put(var,Integer.valueOf(j));
+                    newAssignments.add(newA);
                 }
             }
-            result = newresult;
+            assignments = newAssignments;
         }
-        
-        for (int i = 0; i < result.size(); i++) {
-            Formula newf = new Formula(result.get(i));
-            formresult.add(newf);
+        for (HashMap<String,Integer> a : assignments) {
+            if (!withinValences(a,constrained,valences))
+                continue;
+            StringBuilder sb = new StringBuilder();
+            render(t,a,sb);
+            formresult.add(new Formula(sb.toString()));
         }
         if (DEBUG)
             System.out.println("Info in RowVars.expandRowVars(): exiting with: " + formresult);
@@ -322,11 +260,10 @@ public class RowVars {
         //String fstring = "(=> (and (subrelation ?REL1 ?REL2) (?REL1 @ROW)) (?REL2 @ROW))";
         String fstring = "(=> (and (contraryAttribute @ROW1) (identicalListItems (ListFn @ROW1) (ListFn @ROW2))) (contraryAttribute @ROW2))"; 
         Formula f = new Formula(fstring);
-        System.out.println("Info in RowVars.main(): " + findRowVars(f));
         KBmanager.getMgr().initializeOnce();
         System.out.println("Info in RowVars.main(): finished initialization");
         KB kb = KBmanager.getMgr().getKB("SUMO");
         RowVars.DEBUG = true;
-        System.out.println("Info in RowVars.main(): " + getRowVarRelations(f));
+        System.out.println("Info in RowVars.main(): " + expandRowVars(kb,f));
     }
 }
@@ -29,6 +29,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +39,8 @@ import java.util.regex.Pattern;
  */
 public class SInE extends InferenceEngine {
 
+    private static final Logger logger = SigmaLog.getLogger(SInE.class);
+
     /** *************************************************************
      */
     public static SInE getNewInstance(String kbFileName) {
@@ -321,20 +325,22 @@ public class SInE extends InferenceEngine {
                     throws IOException {
         
         long t1 = System.currentTimeMillis();
+        long t = Metrics.start();
         Set<String> selectedFormulas = performSelection(formula);        
+        Metrics.time("query.sine", t);
+        Metrics.count("query.sine.selected", selectedFormulas.size());
         long t_elapsed = (System.currentTimeMillis() - t1);
 
-        System.out.println("INFO in SInE.submitQuery(): "
-                           + (t_elapsed / 1000.0)
-                           + " seconds to perform axiom selection");
-        System.out.println("INFO in SInE.submitQuery(): "
-                + selectedFormulas.size() + " formula(s) selected out of " + formulas.size()); 
+        logger.info((t_elapsed / 1000.0) + " seconds to perform axiom selection");
+        logger.info(selectedFormulas.size() + " formula(s) selected out of " + formulas.size());
 
-        // print all selected formulas for debugging
-        Iterator it = selectedFormulas.iterator();
-        while (it.hasNext()) {
-            String f = (String) it.next();
-            System.out.println(f);
+        // list all selected formulas for debugging
+        if (logger.isLoggable(Level.FINE)) {
+            Iterator it = selectedFormulas.iterator();
+            while (it.hasNext()) {
+                String f = (String) it.next();
+                logger.fine(f);
+            }
         }
 
         InferenceEngine eng = underlyingEngineFactory.createWithFormulas(selectedFormulas);           
@@ -261,6 +261,9 @@ public class SUMOKBtoTPTPKB {
             OrderedFormulae orderedFormulae = new OrderedFormulae();
             orderedFormulae.addAll(kb.formulaMap.values());
             if (debug) System.out.println("INFO in SUMOKBtoTPTPKB.writeTPTPFile(): added formulas: " + orderedFormulae.size());
+            int threads = KBmanager.getMgr().getIntPref("tptpThreads",1);
+            if (threads > 1)
+                PredVarInst.instantiateAll(kb,orderedFormulae,threads);
             List<String> tptpFormulas = null;
             String oldSourceFile = "";
             String sourceFile = "";
@@ -385,6 +388,7 @@ public class SUMOKBtoTPTPKB {
         finally {
             try {
                 //kb.kbCache.clearSortalTypeCache();
+                PredVarInst.clearInstantiations(kb);
                 if (pr != null) pr.close();
             }
             catch (Exception ioe) {
@@ -0,0 +1,259 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/** ***************************************************************
+ *  Logging for the com.articulate.sigma packages, built on
+ *  java.util.logging.  Each class gets a logger named after it with
+ *  getLogger(), and logs debugging output at FINE or below, passing a
+ *  lambda when the message is costly to build:
+ *
+ *      logger.fine(() -> "KB: " + printKB(inputs));
+ *
+ *  so that a disabled message costs only a level check.  Levels are
+ *  set from the configuration: "logLevel" is the level of everything
+ *  under com.articulate.sigma, and "logLevel.X" is the level of the
+ *  class or package com.articulate.sigma.X, for example
+ *
+ *      <preference name="logLevel" value="warning" />
+ *      <preference name="logLevel.semRewrite" value="fine" />
+ *      <preference name="logLevel.KB" value="info" />
+ *
+ *  Records that pass the level are put on a queue and written to
+ *  stdout by a background thread, so the thread that logs never waits
+ *  for the console.  If the queue is full, records are dropped and
+ *  counted rather than blocking the caller.
+ */
+public class SigmaLog {
+
+    public static final String ROOT = "com.articulate.sigma";
+
+    /** the preference for the root level, and the prefix of the
+     * preferences for the levels of classes and packages */
+    public static final String LEVEL_PREF = "logLevel";
+
+    private static AsyncHandler handler = null;
+
+    // loggers whose level has been set, kept so that they aren't
+    // garbage collected and lose their level
+    private static final HashMap<String,Logger> configured = new HashMap<String,Logger>();
+
+    /** ***************************************************************
+     *  A handler that formats records and queues them for a daemon
+     *  thread to print.
+     */
+    public static class AsyncHandler extends Handler {
+
+        private final BlockingQueue<String> queue;
+        private final PrintStream out;
+        private final AtomicLong dropped = new AtomicLong();
+        private final Thread writer;
+
+        /** ***************************************************************
+         */
+        public AsyncHandler(int capacity, PrintStream out) {
+
+            this.queue = new ArrayBlockingQueue<String>(capacity);
+            this.out = out;
+            setFormatter(new LineFormatter());
+            writer = new Thread("SigmaLog") {
+                public void run() {
+                    try {
+                        while (true)
+                            write(queue.take());
+                    }
+                    catch (InterruptedException e) {
+                        // stop
+                    }
+                }
+            };
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        /** ***************************************************************
+         */
+        private void write(String line) {
+
+            out.print(line);
+            long n = dropped.getAndSet(0);
+            if (n > 0)
+                out.println("WARNING " + ROOT + ".SigmaLog: " + n + " log records dropped");
+        }
+
+        /** ***************************************************************
+         */
+        @Override
+        public void publish(LogRecord record) {
+
+            if (!isLoggable(record))
+                return;
+            if (!queue.offer(getFormatter().format(record)))
+                dropped.incrementAndGet();
+        }
+
+        /** ***************************************************************
+         * Write out everything queued so far on the calling thread.
+         */
+        @Override
+        public void flush() {
+
+            ArrayList<String> lines = new ArrayList<String>();
+            queue.drainTo(lines);
+            for (String line : lines)
+                write(line);
+            out.flush();
+        }
+
+        /** ***************************************************************
+         * Stop the writer thread, letting it finish the record it is
+         * writing, and write out whatever is left on the queue.
+         */
+        @Override
+        public void close() {
+
+            writer.interrupt();
+            try {
+                writer.join(1000);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+
+        /** ***************************************************************
+         * @return the number of records waiting to be written
+         */
+        public int pending() {
+
+            return queue.size();
+        }
+    }
+
+    /** ***************************************************************
+     *  Formats a record as one line: time, level, logger name and
+     *  message, followed by the stack trace of any exception.
+     */
+    public static class LineFormatter extends Formatter {
+
+        private final SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS");
+
+        /** ***************************************************************
+         */
+        @Override
+        public synchronized String format(LogRecord record) {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(time.format(new Date(record.getMillis())));
+            sb.append(" ").append(record.getLevel().getName());
+            sb.append(" ").append(record.getLoggerName());
+            sb.append(": ").append(formatMessage(record));
+            sb.append(System.getProperty("line.separator"));
+            if (record.getThrown() != null) {
+                StringWriter sw = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(sw));
+                sb.append(sw.toString());
+            }
+            return sb.toString();
+        }
+    }
+
+    /** ***************************************************************
+     * @return the logger for a class
+     */
+    public static Logger getLogger(Class<?> c) {
+
+        return Logger.getLogger(c.getName());
+    }
+
+    /** ***************************************************************
+     * Parse a level name such as "warning" or "FINE".
+     * @return the level, or null if the name isn't a level
+     */
+    public static Level parseLevel(String name) {
+
+        if (StringUtil.emptyString(name))
+            return null;
+        try {
+            return Level.parse(name.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+            System.out.println("Error in SigmaLog.parseLevel(): no such level " + name);
+            return null;
+        }
+    }
+
+    /** ***************************************************************
+     * Set the levels of the sigma loggers from the logLevel preferences
+     * and send their records to the asynchronous handler.
+     */
+    public static synchronized void configure(Map<String,String> prefs) {
+
+        Logger root = Logger.getLogger(ROOT);
+        configured.put(ROOT, root);
+        if (handler == null) {
+            handler = new AsyncHandler(10000, System.out);
+            root.addHandler(handler);
+            root.setUseParentHandlers(false);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    handler.flush();
+                }
+            });
+        }
+        for (Logger logger : configured.values())
+            if (logger != root)
+                logger.setLevel(null);  // inherit, unless set again below
+        Level level = parseLevel(prefs.get(LEVEL_PREF));
+        root.setLevel(level == null ? Level.WARNING : level);
+        handler.setLevel(Level.ALL);
+        for (Map.Entry<String,String> e : prefs.entrySet()) {
+            if (!e.getKey().startsWith(LEVEL_PREF + "."))
+                continue;
+            String name = ROOT + "." + e.getKey().substring(LEVEL_PREF.length() + 1);
+            Level l = parseLevel(e.getValue());
+            if (l == null)
+                continue;
+            Logger logger = Logger.getLogger(name);
+            logger.setLevel(l);
+            configured.put(name, logger);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the handler installed by configure(), or null
+     */
+    public static AsyncHandler getHandler() {
+
+        return handler;
+    }
+}
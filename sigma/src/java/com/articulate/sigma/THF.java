@@ -15,9 +15,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -118,7 +125,7 @@ public class THF {
      * KIF2THF transformation
      */
     private HashMap localsig = new HashMap();
-    private HashMap overallsig = new HashMap();
+    private HashMap<String,String> overallsig = new HashMap<String,String>();
 
 
     /** ***************************************************************
@@ -127,6 +134,26 @@ public class THF {
      */
     private HashMap terms = new HashMap();
 
+    /** ***************************************************************
+     * The translation of the formula given to translate() when this
+     * instance is a worker of translateParallel()
+     */
+    private String translation = null;
+
+    /** ***************************************************************
+     * Tags to distinguish axioms from conjectures
+     */
+    private static final String axTag = "ax";
+    private static final String conTag = "con";
+
+    /** ***************************************************************
+     * The argument types of relations in the KB last translated, filled
+     * in as relations are met and discarded when the KB changes
+     */
+    private static ConcurrentHashMap<String,ArrayList<String>> relationTypeTable = null;
+    private static KB relationTypesKB = null;
+    private static int relationTypesVersion = 0;
+
     /** ***************************************************************
      * A variable that defines the THF type delimiter (cf. $i > $o)
      */
@@ -373,6 +400,19 @@ public class THF {
     public String KIF2THF(Collection<Formula> axiomsC,
             Collection<Formula> conjecturesC, KB kb) {
 
+        return KIF2THF(axiomsC,conjecturesC,kb,1);
+    }
+
+    /** ***************************************************************
+     * The same as KIF2THF(axioms,conjectures,kb), but with the formulas
+     * translated on the given number of threads.  With more than one
+     * thread each formula is translated independently of the others,
+     * starting from an empty signature, and the signatures are merged
+     * in the same order as the sequential translation would add them.
+     */
+    public String KIF2THF(Collection<Formula> axiomsC,
+            Collection<Formula> conjecturesC, KB kb, int threads) {
+
         LinkedHashSet<Formula> axioms = new LinkedHashSet<Formula>();
         LinkedHashSet<Formula> conjectures = new LinkedHashSet<Formula>();
         Iterator<Formula> iter = axiomsC.iterator();
@@ -393,7 +433,7 @@ public class THF {
         // Collection conjectures = conjecturesC;
 
         // initialize the global signature
-        overallsig = new HashMap();
+        overallsig = new HashMap<String,String>();
 
         // string builders for the essential results of the translation:
         // signature, axioms, and conjectures
@@ -405,9 +445,7 @@ public class THF {
         conjecturesResult.append("\n\n%%% The translated conjectures %%%");
 
         // tags and a map to distinguish axioms from conjectures
-        String axTag = "ax";
-        String conTag = "con";
-        HashMap taggedFormulas = new HashMap();
+        final HashMap<Formula,String> taggedFormulas = new HashMap<Formula,String>();
         Iterator<Formula> iter3 = axioms.iterator();
         while (iter3.hasNext()) {
             Formula ax = iter3.next();
@@ -418,101 +456,35 @@ public class THF {
             Formula con = iter4.next();
             taggedFormulas.put(con, conTag);
         }
-        // the main loop; we proceed formula by formula and work with side effects
-        // to variables introduced above (I know that this is terrible programming style!)
+        ArrayList<Formula> forms = new ArrayList<Formula>();
+        for (Object o : sortFormulas2(taggedFormulas.keySet()))
+            forms.add((Formula) o);
+        ArrayList<String> results = null;
+        if (threads > 1 && forms.size() > 1)
+            results = translateParallel(forms,taggedFormulas,kb,threads);
+        else {
+            // the main loop; we proceed formula by formula and work with side effects
+            // to variables introduced above (I know that this is terrible programming style!)
+            results = new ArrayList<String>();
+            for (Formula form : forms) {
+                results.add(translate(form,taggedFormulas.get(form).equals(conTag),kb));
+                for (Object k : localsig.keySet())
+                    overallsig.put((String) k,(String) localsig.get(k));
+                localsig = new HashMap<String,String>();
+            }
+        }
+
+        // now we can add the computed THF translation for
+        // each formula to the appropriate result string builder
         int axcounter = 1;
         int concounter = 1;
-        Iterator<Formula> iter5 = sortFormulas2(taggedFormulas.keySet()).iterator();
-        while (iter5.hasNext()) {
-            Formula form = iter5.next();
-            // formula f contains the explicitly quantified formula under
-            // consideration, the quantifier (universal/existential) is
-            // determined correctly for axioms and conjectures
-            Formula f = new Formula();
-            if (taggedFormulas.get(form).equals(axTag))
-                f.read(form.makeQuantifiersExplicit(false));
-            else if (taggedFormulas.get(form).equals(conTag))
-                f.read(form.makeQuantifiersExplicit(true));
-
-            System.out.println("\nKIF2THF -- translating KIF formula: " + f.theFormula.trim());
-            // we request some semantic type-relevant information on the
-            // function and
-            // relation symbols involved; this information is used with priority
-            // below
-            HashMap relTypeInfo = f.gatherRelationsWithArgTypes(kb);
-
-            // we initialize the terms-to-types mapping and start the actual
-            // translation
-            terms = (HashMap) overallsig.clone();
-            String res = toTHF1(f, boolTp, relTypeInfo);
-
-            // toTHF1 may return a THF translation that still contains many occurences
-            // of the (kind of) polymorphic 'unkownTp' and in this case we apply further
-            // translation attempts employing the incrementially refined term-to-type
-            // information. This is done via repetitive calls to toTHF2. This loop
-            // terminates when the signature localsig, which is storing the
-            // latest constant-to-symbols mapping, is free of occurences of the 'unknownTp'.
-            // toTHF2 always starts a fresh translation attempt for the KIF formula stored in
-            // variable kifFormula, which may itself be modified by renamings of symbols.
-            // It is thus important in the code to maintain a correspondence between the symbols in
-            // this kifFormula, the terms-to-type mappings, and the incrementially refined THF
-            // translation; the handling of e.g. the different upper and lower case conventions
-            // between KIF and TPTP THF further complicates matters. This issue makes the code
-            // particularly fragile, also since it exploits string processing way to much.
-            HashMap oldsig = new HashMap();
-            // localsig = new HashMap();
-
-            kifFormula = new StringBuilder();
-            while (containsUnknownTp(localsig)) {
-                if (!oldsig.equals(localsig)) {
-                    THFdebugOut("\n Debug: Enter new regular topmost call to THF2");
-                    oldsig = (HashMap) localsig.clone();
-                    res = toTHF2(f);
-                    f = new Formula();
-                    f.read(kifFormula.toString());
-                    kifFormula = new StringBuilder();
-                    localsig = clearMapFor(localsig, f.theFormula.trim());
-                    subst = clearMapFor(subst, f.theFormula.trim());
-                } else {
-                    THFdebugOut("\n Debug: Enter new topmost call to THF2 with constant symbol substitution");
-                    oldsig = (HashMap) localsig.clone();
-                    Set keyset = subst.keySet();
-                    THFdebugOut("   Debug: f before is " + f.toString());
-                    THFdebugOut("   Debug: subst is " + subst.toString());
-                    String fsubst = f.toString();
-                    for (Iterator<String> it = keyset.iterator(); it.hasNext();) {
-                        String key = (String) it.next();
-                        String keysubst = (String) subst.get(key);
-                        THFdebugOut("\n    Debug: fsubst before is " + fsubst);
-                        THFdebugOut("    Debug: key is " + key
-                                + " and keysubst is " + keysubst);
-                        fsubst = applySubstTo(key, keysubst, fsubst);
-                        THFdebugOut("    Debug: fsubst after is " + fsubst);
-                    }
-                    f = new Formula();
-                    f.read(fsubst);
-                    THFdebugOut("\n   Debug: f after is " + f.toString());
-                    res = toTHF2(f);
-                    f = new Formula();
-                    f.read(kifFormula.toString());
-                    kifFormula = new StringBuilder();
-                    localsig = clearMapFor(localsig, f.theFormula.trim());
-                    subst = clearMapFor(subst, f.theFormula.trim());
-                }
+        for (int i = 0; i < forms.size(); i++) {
+            Formula form = forms.get(i);
+            String res = results.get(i);
+            if (res == null) {
+                axiomsResult.append("\n something went wrong for " + form);
             }
-
-            // this final one-more call to toTHF2 seems not needed anymore
-            // but is was in earlier versions.
-            // if (res.contains(unknownTp)) {
-            // THFdebugOut("\n Debug: Enter one more topmost call to THF2");
-            res = toTHF2(f);
-            localsig = clearMapSpecial(localsig, f.theFormula.trim());
-
-            // }
-
-            // now we can add the computed THF translation for
-            // formula f to the appropriate result string builder
-            if (taggedFormulas.get(form).equals(axTag)) {
+            else if (taggedFormulas.get(form).equals(axTag)) {
                 String resAx = "";
                 if (res.startsWith(notTranslatedStr)) {
                     resAx = "\n\n" + res;
@@ -525,7 +497,7 @@ public class THF {
                 }
                 System.out.println("KIF2THF -- result: " + resAx);
                 axiomsResult.append(resAx);
-            } else if (taggedFormulas.get(form).equals(conTag)) {
+            } else {
                 String resCon = "";
                 if (res.startsWith(notTranslatedStr)) {
                     resCon = "\n\n" + res;
@@ -538,24 +510,18 @@ public class THF {
                 }
                 System.out.println("KIF2THF -- result: " + resCon);
                 conjecturesResult.append(resCon);
-            } else {
-                axiomsResult.append("\n something went wrong for " + form
-                        + "   " + res);
             }
-            overallsig.putAll(localsig);
-            localsig = new HashMap();
         }
 
         // After the translation processed has terminated for all formulas f, we
         // read off
         // the THF signature from the map 'overallsig'
         signatureResult.append("\n thf(numbers,type,(" + numTp + ": $tType)).");
-        Set constants = overallsig.keySet();
-        List constantsL = new ArrayList(constants);
+        ArrayList<String> constantsL = new ArrayList<String>(overallsig.keySet());
         Collections.sort(constantsL);
         for (Iterator<String> it = constantsL.iterator(); it.hasNext();) {
-            String con = (String) it.next();
-            String ty = (String) overallsig.get(con);
+            String con = it.next();
+            String ty = overallsig.get(con);
             signatureResult.append("\n thf(" + con + ",type,(" + con + ": "
                     + ty + ")).");
         }
@@ -564,6 +530,209 @@ public class THF {
         return result.toString();
     }
 
+    /** ***************************************************************
+     * Translate a single formula.  The translation starts from the
+     * signature in overallsig and leaves the constants it has typed in
+     * localsig.
+     *
+     * @param form is the KIF formula
+     *
+     * @param conjecture is true if form is a conjecture rather than an axiom
+     *
+     * @return the THF translation, which may contain notTranslatedStr
+     */
+    private String translate(Formula form, boolean conjecture, KB kb) {
+
+        // formula f contains the explicitly quantified formula under
+        // consideration, the quantifier (universal/existential) is
+        // determined correctly for axioms and conjectures
+        Formula f = new Formula();
+        f.read(form.makeQuantifiersExplicit(conjecture));
+
+        System.out.println("\nKIF2THF -- translating KIF formula: " + f.theFormula.trim());
+        // we request some semantic type-relevant information on the
+        // function and
+        // relation symbols involved; this information is used with priority
+        // below
+        HashMap<String,ArrayList<String>> relTypeInfo = relationTypes(f,kb);
+
+        // we initialize the terms-to-types mapping and start the actual
+        // translation
+        terms = (HashMap) overallsig.clone();
+        String res = toTHF1(f, boolTp, relTypeInfo);
+
+        // toTHF1 may return a THF translation that still contains many occurences
+        // of the (kind of) polymorphic 'unkownTp' and in this case we apply further
+        // translation attempts employing the incrementially refined term-to-type
+        // information. This is done via repetitive calls to toTHF2. This loop
+        // terminates when the signature localsig, which is storing the
+        // latest constant-to-symbols mapping, is free of occurences of the 'unknownTp'.
+        // toTHF2 always starts a fresh translation attempt for the KIF formula stored in
+        // variable kifFormula, which may itself be modified by renamings of symbols.
+        // It is thus important in the code to maintain a correspondence between the symbols in
+        // this kifFormula, the terms-to-type mappings, and the incrementially refined THF
+        // translation; the handling of e.g. the different upper and lower case conventions
+        // between KIF and TPTP THF further complicates matters. This issue makes the code
+        // particularly fragile, also since it exploits string processing way to much.
+        HashMap<?,?> oldsig = new HashMap<Object,Object>();
+        // localsig = new HashMap();
+
+        kifFormula = new StringBuilder();
+        while (containsUnknownTp(localsig)) {
+            if (!oldsig.equals(localsig)) {
+                THFdebugOut("\n Debug: Enter new regular topmost call to THF2");
+                oldsig = (HashMap<?,?>) localsig.clone();
+                res = toTHF2(f);
+                f = new Formula();
+                f.read(kifFormula.toString());
+                kifFormula = new StringBuilder();
+                localsig = clearMapFor(localsig, f.theFormula.trim());
+                subst = clearMapFor(subst, f.theFormula.trim());
+            } else {
+                THFdebugOut("\n Debug: Enter new topmost call to THF2 with constant symbol substitution");
+                oldsig = (HashMap<?,?>) localsig.clone();
+                THFdebugOut("   Debug: f before is " + f.toString());
+                THFdebugOut("   Debug: subst is " + subst.toString());
+                String fsubst = f.toString();
+                for (Object k : subst.keySet()) {
+                    String key = (String) k;
+                    String keysubst = (String) subst.get(key);
+                    THFdebugOut("\n    Debug: fsubst before is " + fsubst);
+                    THFdebugOut("    Debug: key is " + key
+                            + " and keysubst is " + keysubst);
+                    fsubst = applySubstTo(key, keysubst, fsubst);
+                    THFdebugOut("    Debug: fsubst after is " + fsubst);
+                }
+                f = new Formula();
+                f.read(fsubst);
+                THFdebugOut("\n   Debug: f after is " + f.toString());
+                res = toTHF2(f);
+                f = new Formula();
+                f.read(kifFormula.toString());
+                kifFormula = new StringBuilder();
+                localsig = clearMapFor(localsig, f.theFormula.trim());
+                subst = clearMapFor(subst, f.theFormula.trim());
+            }
+        }
+
+        // this final one-more call to toTHF2 seems not needed anymore
+        // but is was in earlier versions.
+        // if (res.contains(unknownTp)) {
+        // THFdebugOut("\n Debug: Enter one more topmost call to THF2");
+        res = toTHF2(f);
+        localsig = clearMapSpecial(localsig, f.theFormula.trim());
+
+        // }
+        return res;
+    }
+
+    /** ***************************************************************
+     * Translate each formula with its own THF instance on a pool of
+     * threads, then merge the signatures into overallsig in the order
+     * of the formulas, so that the result does not depend on which
+     * thread finishes first.
+     *
+     * @return the translations in the same order as forms, with null
+     * for a formula whose translation failed
+     */
+    private ArrayList<String> translateParallel(ArrayList<Formula> forms,
+            final HashMap<Formula,String> taggedFormulas, final KB kb, int threads) {
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<THF>> futures = new ArrayList<Future<THF>>();
+        for (final Formula form : forms) {
+            futures.add(pool.submit(new Callable<THF>() {
+                public THF call() {
+                    THF worker = new THF();
+                    worker.translation = worker.translate(form,taggedFormulas.get(form).equals(conTag),kb);
+                    return worker;
+                }
+            }));
+        }
+        pool.shutdown();
+        ArrayList<String> results = new ArrayList<String>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    THF worker = futures.get(i).get();
+                    results.add(worker.translation);
+                    mergeSignature(worker.localsig,forms.get(i));
+                }
+                catch (ExecutionException e) {
+                    System.out.println("Error in THF.translateParallel(): " + e.getCause().getMessage() +
+                            " for " + forms.get(i));
+                    results.add(null);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Error in THF.translateParallel(): interrupted");
+            while (results.size() < forms.size())
+                results.add(null);
+        }
+        return results;
+    }
+
+    /** ***************************************************************
+     * Add the constants typed in the translation of one formula to
+     * overallsig.  A constant that an earlier formula has already given
+     * a different type keeps that earlier type, as it would have in a
+     * sequential translation, where the later formula starts from it,
+     * and the conflict is reported.
+     */
+    private void mergeSignature(Map<?,?> sig, Formula form) {
+
+        for (Object k : sig.keySet()) {
+            String con = (String) k;
+            String ty = (String) sig.get(con);
+            String old = overallsig.get(con);
+            if (old == null)
+                overallsig.put(con,ty);
+            else if (!old.equals(ty))
+                System.out.println("Error in THF.mergeSignature(): conflicting types for " + con +
+                        ": kept " + old + ", ignored " + ty + " from " + form);
+        }
+    }
+
+    /** ***************************************************************
+     * Argument types of the relations of a formula, as returned by
+     * Formula.gatherRelationsWithArgTypes(), but looked up in a table
+     * for the whole KB so that each relation's types are only computed
+     * once.
+     */
+    private static HashMap<String,ArrayList<String>> relationTypes(Formula f, KB kb) {
+
+        ConcurrentHashMap<String,ArrayList<String>> table = relationTypeTable(kb);
+        HashMap<String,ArrayList<String>> result = new HashMap<String,ArrayList<String>>();
+        for (String r : f.gatherRelationConstants()) {
+            ArrayList<String> argtypes = table.get(r);
+            if (argtypes == null) {
+                argtypes = new ArrayList<String>();
+                for (int i = 0; i < Formula.MAX_PREDICATE_ARITY + 1; i++)
+                    argtypes.add(kb.getArgType(r, i));
+                table.put(r,argtypes);
+            }
+            result.put(r,argtypes);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the relation type table for the current contents of the
+     * given KB
+     */
+    private static synchronized ConcurrentHashMap<String,ArrayList<String>> relationTypeTable(KB kb) {
+
+        if (relationTypesKB != kb || relationTypesVersion != kb.getVersion()) {
+            relationTypesKB = kb;
+            relationTypesVersion = kb.getVersion();
+            relationTypeTable = new ConcurrentHashMap<String,ArrayList<String>>();
+        }
+        return relationTypeTable;
+    }
+
     /** ***************************************************************
      * A function that clears a given term-to-type mapping for a given
      * formula string. The returned term-to-type only contains the entries
@@ -1401,7 +1570,8 @@ public class THF {
 
         //boolean THFdebugOld = THFdebug;
         //THFdebug = true;
-        THFdebugOut("\n Enter toTHF1\n    f=" + f.theFormula + ",\n    type=" + type + ",\n    relTpInfo" + relTpInfo.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString());
+        if (THFdebug)
+            THFdebugOut("\n Enter toTHF1\n    f=" + f.theFormula + ",\n    type=" + type + ",\n    relTpInfo" + relTpInfo.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString());
         //THFdebug = THFdebugOld;
 
         if (!f.listP()) {
@@ -1666,7 +1836,8 @@ public class THF {
                 result.append(resTerm.toString());
             }
         }
-        THFdebugOut("\n Exit toTHF1\n    result=" + result.toString() + ",\n    relTpInfo" + relTpInfo.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString());
+        if (THFdebug)
+            THFdebugOut("\n Exit toTHF1\n    result=" + result.toString() + ",\n    relTpInfo" + relTpInfo.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString());
         return result.toString();
     }
 
@@ -1785,7 +1956,8 @@ public class THF {
     private String toTHF2(Formula f) {
 
         StringBuilder result = new StringBuilder();
-        THFdebugOut("\n Enter toTHF2\n    f=" + f.theFormula + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString() + "\n    kifFormula=" + kifFormula.toString());
+        if (THFdebug)
+            THFdebugOut("\n Enter toTHF2\n    f=" + f.theFormula + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString() + "\n    kifFormula=" + kifFormula.toString());
 
         if (!f.listP()) {
             String sym = f.theFormula;
@@ -2027,7 +2199,8 @@ public class THF {
                 result.append(resTerm.toString());
             }
         }
-        THFdebugOut("\n Exit toTHF2\n    result=" + result.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString() +  "\n    kifFormula=" + kifFormula.toString());
+        if (THFdebug)
+            THFdebugOut("\n Exit toTHF2\n    result=" + result.toString() + "\n    terms=" + terms.toString() + "\n    localsig=" + localsig.toString() +  "\n    overallsig=" + overallsig.toString() +  "\n    kifFormula=" + kifFormula.toString());
         return result.toString();
     }
 
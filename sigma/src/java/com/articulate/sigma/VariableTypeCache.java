@@ -0,0 +1,196 @@
+/** This code is copyright Articulate Software (c) 2003-2011.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  Remembers, for each KB, the variable types that
+ *  FormulaPreprocessor.computeVariableTypes() found for each formula,
+ *  since the same axioms are typed again for every TPTP export, query
+ *  and paraphrase.  It also keeps the superclasses of each class, read
+ *  off the subclass closure in KBcache, so that the superclasses in a
+ *  set of types can be found by looking up each type once rather than
+ *  by testing every pair.  Everything is discarded when the KB's
+ *  version or its KBcache changes.
+ */
+public class VariableTypeCache {
+
+    /** the maximum number of formulas whose types are kept per KB */
+    public static int maxEntries = 50000;
+
+    private static HashMap<String,VariableTypeCache> caches = new HashMap<String,VariableTypeCache>();
+
+    private KB kb = null;
+    private KBcache kbCache = null;
+    private int version = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /** variable types keyed by formula */
+    private LinkedHashMap<String,HashMap<String,HashSet<String>>> types =
+            new LinkedHashMap<String,HashMap<String,HashSet<String>>>(16,0.75f,true) {
+        protected boolean removeEldestEntry(Map.Entry<String,HashMap<String,HashSet<String>>> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /** the superclasses of each class, the inverse of the subclass
+     * closure that KB.isSubclass() consults */
+    private HashMap<String,HashSet<String>> superclasses = null;
+
+    /** ***************************************************************
+     */
+    private VariableTypeCache(KB kb) {
+
+        this.kb = kb;
+        this.kbCache = kb.kbCache;
+        this.version = kb.getVersion();
+    }
+
+    /** ***************************************************************
+     * @return the cache for the current contents of the given KB
+     */
+    public static synchronized VariableTypeCache getCache(KB kb) {
+
+        VariableTypeCache result = caches.get(kb.name);
+        if (result == null || result.kb != kb || result.kbCache != kb.kbCache ||
+                result.version != kb.getVersion()) {
+            result = new VariableTypeCache(kb);
+            caches.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return a copy of a map of variables to types, so that callers
+     * may change what they are given
+     */
+    private static HashMap<String,HashSet<String>> copy(HashMap<String,HashSet<String>> map) {
+
+        HashMap<String,HashSet<String>> result = new HashMap<String,HashSet<String>>();
+        for (String var : map.keySet())
+            result.put(var,new HashSet<String>(map.get(var)));
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the variable types recorded for a formula, or null
+     */
+    public synchronized HashMap<String,HashSet<String>> get(String formula) {
+
+        HashMap<String,HashSet<String>> result = types.get(formula);
+        if (result == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(result);
+    }
+
+    /** ***************************************************************
+     * Record the variable types of a formula.
+     */
+    public synchronized void put(String formula, HashMap<String,HashSet<String>> varTypes) {
+
+        types.put(formula,copy(varTypes));
+    }
+
+    /** ***************************************************************
+     */
+    public synchronized long getHits() {
+
+        return hits;
+    }
+
+    /** ***************************************************************
+     */
+    public synchronized long getMisses() {
+
+        return misses;
+    }
+
+    /** ***************************************************************
+     * @return the fraction of lookups answered from the cache
+     */
+    public synchronized double getHitRate() {
+
+        if (hits + misses == 0)
+            return 0.0;
+        return (double) hits / (hits + misses);
+    }
+
+    /** ***************************************************************
+     */
+    public synchronized String toString() {
+
+        return "VariableTypeCache for " + kb.name + ": " + types.size() + " formulas, " +
+                hits + " hits, " + misses + " misses, hit rate " + getHitRate();
+    }
+
+    /** ***************************************************************
+     * @return the superclasses of a class, never including the class
+     * itself, or an empty set.  The set is shared and must not be
+     * changed.
+     */
+    public synchronized HashSet<String> getSuperclasses(String cl) {
+
+        if (superclasses == null) {
+            superclasses = new HashMap<String,HashSet<String>>();
+            HashMap<String,HashSet<String>> children = (kbCache != null) ? kbCache.children.get("subclass") : null;
+            if (children != null) {
+                for (String parent : children.keySet()) {
+                    for (String child : children.get(parent)) {
+                        if (child.equals(parent))
+                            continue;
+                        HashSet<String> supers = superclasses.get(child);
+                        if (supers == null) {
+                            supers = new HashSet<String>();
+                            superclasses.put(child,supers);
+                        }
+                        supers.add(parent);
+                    }
+                }
+            }
+        }
+        HashSet<String> result = superclasses.get(cl);
+        if (result == null)
+            return new HashSet<String>();
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return those members of types that are a superclass of another
+     * member, the same as testing KB.isSubclass() on every pair
+     */
+    public Set<String> findSuperclasses(Set<String> types) {
+
+        HashSet<String> result = new HashSet<String>();
+        for (String cl : types) {
+            HashSet<String> supers = getSuperclasses(cl);
+            if (supers.size() < types.size()) {
+                for (String sup : supers)
+                    if (types.contains(sup))
+                        result.add(sup);
+            }
+            else {
+                for (String sup : types)
+                    if (supers.contains(sup))
+                        result.add(sup);
+            }
+        }
+        return result;
+    }
+}
@@ -15,6 +15,7 @@ August 9, Acapulco, Mexico.
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.TreeMap;
 
 import com.articulate.sigma.KB;
 
@@ -31,29 +32,11 @@ public class WNdiagnostics {
     public static ArrayList<String> synsetsWithoutTerms() {
 
         ArrayList<String> result = new ArrayList<String>();
-        Iterator<String> it = WordNet.wn.synsetsToWords.keySet().iterator();
+        Iterator<String> it = WordNet.wn.getSynsets().iterator();
         while (it.hasNext()) {
-            String synset = (String) it.next();
-            String POS = synset.substring(0,1);
-            synset = synset.substring(1);
-            switch (POS.charAt(0)) {
-            case '1': 
-                if (WordNet.wn.nounSUMOHash.get(synset) == null) 
-                    result.add(POS+synset);                
-                break;
-            case '2': 
-                if (WordNet.wn.verbSUMOHash.get(synset) == null) 
-                    result.add(POS+synset);                
-                break;
-            case '3': 
-                if (WordNet.wn.adjectiveSUMOHash.get(synset) == null) 
-                    result.add(POS+synset);                
-                break;
-            case '4': 
-                if (WordNet.wn.adverbSUMOHash.get(synset) == null) 
-                    result.add(POS+synset);                
-                break;
-            }
+            String synset = it.next();
+            if ("1234".indexOf(synset.charAt(0)) > -1 && WordNet.wn.getSUMOMapping(synset) == null)
+                result.add(synset);
             if (result.size() > 50) {
                 result.add("limited to 50 results.");
                 return result;
@@ -73,7 +56,7 @@ public class WNdiagnostics {
         Iterator<String> it = kb.terms.iterator();
         while (it.hasNext()) {
             String term = (String) it.next();
-            if (!WordNet.wn.SUMOHash.containsKey(term) & !Formula.isFunction(term) && 
+            if (WordNet.wn.getSynsetsFromTerm(term) == null & !Formula.isFunction(term) && 
                 Character.isUpperCase(term.charAt(0)))
                 result.add(term);            
         }
@@ -88,26 +71,14 @@ public class WNdiagnostics {
     public static ArrayList<String> synsetsWithoutFoundTerms(KB kb) {
 
         ArrayList<String> result = new ArrayList<String>();
-        Iterator<String> it = WordNet.wn.synsetsToWords.keySet().iterator();
+        Iterator<String> it = WordNet.wn.getSynsets().iterator();
         while (it.hasNext()) {
             String synset = it.next();
             String POS = synset.substring(0,1);
-            String term = "";
+            String term = null;
+            if ("1234".indexOf(POS.charAt(0)) > -1)
+                term = WordNet.wn.getSUMOMapping(synset);
             synset = synset.substring(1);
-            switch (POS.charAt(0)) {
-            case '1': 
-                term = (String) WordNet.wn.nounSUMOHash.get(synset);
-                break;
-            case '2': 
-                term = (String) WordNet.wn.verbSUMOHash.get(synset);
-                break;
-            case '3': 
-                term = (String) WordNet.wn.adjectiveSUMOHash.get(synset);
-                break;
-            case '4': 
-                term = (String) WordNet.wn.adverbSUMOHash.get(synset);
-                break;
-            }
             if (term != null) {
                 synchronized (kb.getTerms()) {
                     ArrayList<String> termList = WordNetUtilities.convertTermList(term);
@@ -140,27 +111,28 @@ public class WNdiagnostics {
         String synsetHTML = "<a href=\"WordNet.jsp?";
         String termHTML = "<a href=\"Browse.jsp?kb=" + kbName + "&lang=" + language + "&";
         ArrayList<String> result = new ArrayList<String>();
-        Iterator<String> it = WordNet.wn.nounSUMOHash.keySet().iterator();
+        TreeMap<String,String> nounMappings = WordNet.wn.getSUMOMappings('1');
+        Iterator<String> it = nounMappings.keySet().iterator();
         while (it.hasNext()) {
             //System.out.println();
             String synset = it.next();                         // not a prefixed synset
-            if (WordNet.wn.nounSUMOHash.get(synset) != null) {
-                ArrayList<String> words = WordNet.wn.synsetsToWords.get("1"+synset);
-                String sumoTerm = (String) WordNet.wn.nounSUMOHash.get(synset);
+            if (nounMappings.get(synset) != null) {
+                ArrayList<String> words = WordNet.wn.getWordsFromSynset("1"+synset);
+                String sumoTerm = nounMappings.get(synset);
                 String word = (String) words.get(0);
                 //System.out.println("Source word: " + word);
-                ArrayList<AVPair> rels = WordNet.wn.relations.get("1"+synset);   // relations requires prefixes
+                ArrayList<AVPair> rels = WordNet.wn.getRelations("1"+synset);   // relations requires prefixes
                 if (rels != null) {
                     Iterator<AVPair> it2 = rels.iterator();
                     while (it2.hasNext()) {
                         AVPair avp = (AVPair) it2.next();
                         if (avp.attribute.equals("hypernym") || avp.attribute.equals("hyponym")) {
                             String targetSynset = avp.value; 
-                            ArrayList<String> targetWords = WordNet.wn.synsetsToWords.get(targetSynset);
+                            ArrayList<String> targetWords = WordNet.wn.getWordsFromSynset(targetSynset);
                             String targetWord = (String) targetWords.get(0);
                             //System.out.println("Target word: " + targetWord);                            
                             String targetBareSynset = avp.value.substring(1);               
-                            String targetSUMO = (String) WordNet.wn.nounSUMOHash.get(targetBareSynset);
+                            String targetSUMO = nounMappings.get(targetBareSynset);
                             //System.out.println("SUMO source: " + sumoTerm);
                             //System.out.println("SUMO target: " + targetSUMO);
                             String bareSUMOterm = WordNetUtilities.getBareSUMOTerm(sumoTerm);
@@ -210,61 +182,21 @@ public class WNdiagnostics {
         int leftbr = 0;
         int rightbr = 0;
         int colon = 0;
-        Iterator<String> it = WordNet.wn.nounSUMOHash.keySet().iterator(); // Keys are synset Strings, values are SUMO 
-                                                      // terms with the &% prefix and =, +, @ or [ suffix. 
-        while (it.hasNext()) {
-            String key = (String) it.next();
-            String mapping = (String) WordNet.wn.nounSUMOHash.get(key);
-            switch (mapping.charAt(mapping.length()-1)) {
-              case '=': equals++; break;
-              case '+': plus++; break;
-              case '@': ampersand++; break;
-              case '[': leftbr++; break;
-              case ']': rightbr++; break;
-              case ':': colon++; break;
-            }
-        }
-        it = WordNet.wn.verbSUMOHash.keySet().iterator(); // Keys are synset Strings, values are SUMO 
-                                                      // terms with the &% prefix and =, +, @ or [ suffix. 
-        while (it.hasNext()) {
-            String key = (String) it.next();
-            String mapping = (String) WordNet.wn.verbSUMOHash.get(key);
-
-            switch (mapping.charAt(mapping.length()-1)) {
-              case '=': equals++; break;
-              case '+': plus++; break;
-              case '@': ampersand++; break;
-              case '[': leftbr++; break;
-              case ']': rightbr++; break;
-              case ':': colon++; break;
-            }
-        }
-        it = WordNet.wn.adjectiveSUMOHash.keySet().iterator(); // Keys are synset Strings, values are SUMO 
-                                                      // terms with the &% prefix and =, +, @ or [ suffix. 
-        while (it.hasNext()) {
-            String key = (String) it.next();
-            String mapping = (String) WordNet.wn.adjectiveSUMOHash.get(key);
-            switch (mapping.charAt(mapping.length()-1)) {
-              case '=': equals++; break;
-              case '+': plus++; break;
-              case '@': ampersand++; break;
-              case '[': leftbr++; break;
-              case ']': rightbr++; break;
-              case ':': colon++; break;
-            }
-        }
-        it = WordNet.wn.adverbSUMOHash.keySet().iterator(); // Keys are synset Strings, values are SUMO 
-                                                      // terms with the &% prefix and =, +, @ or [ suffix. 
-        while (it.hasNext()) {
-            String key = (String) it.next();
-            String mapping = (String) WordNet.wn.adverbSUMOHash.get(key);
-            switch (mapping.charAt(mapping.length()-1)) {
-              case '=': equals++; break;
-              case '+': plus++; break;
-              case '@': ampersand++; break;
-              case '[': leftbr++; break;
-              case ']': rightbr++; break;
-              case ':': colon++; break;
+        int[] counts = new int[4];
+        for (int pos = 0; pos < 4; pos++) {
+            // Keys are synset Strings, values are SUMO terms with the
+            // &% prefix and =, +, @ or [ suffix.
+            TreeMap<String,String> mappings = WordNet.wn.getSUMOMappings((char) ('1' + pos));
+            counts[pos] = mappings.size();
+            for (String mapping : mappings.values()) {
+                switch (mapping.charAt(mapping.length()-1)) {
+                  case '=': equals++; break;
+                  case '+': plus++; break;
+                  case '@': ampersand++; break;
+                  case '[': leftbr++; break;
+                  case ']': rightbr++; break;
+                  case ':': colon++; break;
+                }
             }
         }
         String result = "<table><tr bgcolor=#DDDDDD><td>equivalent</td><td>subsuming</td><td>instance</td>" +
@@ -273,10 +205,10 @@ public class WNdiagnostics {
                         "<td>" + leftbr + "</td><td>" + rightbr + "</td><td>" + colon + "</td></tr></table>\n" +
                         "<table><tr bgcolor=#DDDDDD><td>nouns</td><td>verbs</td>" + 
                         "<td>adjectives</td><td>adverbs</td></tr>\n" + 
-                        "<tr><td>" + WordNet.wn.nounSUMOHash.keySet().size() + 
-                        "</td><td>" + WordNet.wn.verbSUMOHash.keySet().size() + 
-                        "</td><td>" + WordNet.wn.adjectiveSUMOHash.keySet().size() + 
-                        "</td><td>" + WordNet.wn.adverbSUMOHash.keySet().size() + 
+                        "<tr><td>" + counts[0] + 
+                        "</td><td>" + counts[1] + 
+                        "</td><td>" + counts[2] + 
+                        "</td><td>" + counts[3] + 
                         "</td></tr></table>\n"; 
         return result;
     }       
@@ -43,7 +43,7 @@ public class WSD {
         ArrayList<String> result = new ArrayList<String>();
         String wordResult = "";
         ArrayList<String> al = WordNet.splitToArrayList(text);
-        ArrayList<String> alcon = WordNet.splitToArrayList(context);
+        CoFrequencyMatrix.Context alcon = context(WordNet.splitToArrayList(context));
         for (int i = 0; i < al.size(); i++) {
             String word = (String) al.get(i);
             ArrayList<String> multiWordResult = new ArrayList<String>();
@@ -80,6 +80,41 @@ public class WSD {
      */
     public static String findWordSenseInContext(String word, List<String> words) {
 
+        return findWordSenseInContext(word,context(words));
+    }
+
+    /** ***************************************************************
+     * Convert the words of a sentence to a co-occurrence vector once, so
+     * that many words of the sentence can be disambiguated against it.
+     */
+    public static CoFrequencyMatrix.Context context(List<String> words) {
+
+        return WordNet.wn.wordCoFrequencies.context(words);
+    }
+
+    /** ***************************************************************
+     * Disambiguate all the words of a sentence at once.
+     * @return a list the same length as words, of the 9-digit synset
+     * that is the best guess for each word in the context of the
+     * others, or the empty string where there isn't enough data
+     */
+    public static ArrayList<String> findWordSensesInContext(List<String> words) {
+
+        CoFrequencyMatrix.Context ctx = context(words);
+        ArrayList<String> result = new ArrayList<String>(words.size());
+        for (String word : words)
+            result.add(findWordSenseInContext(word,ctx));
+        return result;
+    }
+
+    /** ***************************************************************
+     * Return the best guess at the synset for the given word in the
+     * context of the sentence, given as a vector made by context().
+     * @return the 9-digit synset but only if there's a reasonable amount
+     * of data.
+     */
+    public static String findWordSenseInContext(String word, CoFrequencyMatrix.Context words) {
+
         //System.out.println("INFO in findWordSenseInContext(): word, words: " + 
         //        word + ", " + words);
         int bestScore = -1;
@@ -121,6 +156,15 @@ public class WSD {
      */
     public static String findWordSendInContextWithPos(String word, List<String> words, int pos) {
 
+        return findWordSendInContextWithPos(word,context(words),pos);
+    }
+
+    /** ***************************************************************
+     * As findWordSendInContextWithPos(String,List,int) with the context
+     * given as a vector made by context().
+     */
+    public static String findWordSendInContextWithPos(String word, CoFrequencyMatrix.Context words, int pos) {
+
         int bestScore = -1;
         String bestSynset = "";
         String newWord = "";
@@ -154,6 +198,16 @@ public class WSD {
      */
     public static List<String> findWordSensePOS(String word, List<String> words, int POS) {
 
+        return findWordSensePOS(word,context(words),POS);
+    }
+
+    /** ***************************************************************
+     * As findWordSensePOS(String,List,int) with the context given as a
+     * vector made by context(), so that each sense is scored with one
+     * sparse dot product.
+     */
+    public static List<String> findWordSensePOS(String word, CoFrequencyMatrix.Context words, int POS) {
+
         //System.out.println("INFO in WordNet.findWordSensePOS(): word, POS, text, " + 
         //        word + ", " + POS + ", " + words);
         ArrayList<String> senses = WordNet.wn.wordsToSenses.get(word);
@@ -170,14 +224,8 @@ public class WSD {
             if (WordNetUtilities.sensePOS(sense) == POS) {
                 if (firstSense == -1)
                     firstSense = i;
-                HashMap<String,Integer> senseAssoc = WordNet.wn.wordCoFrequencies.get(sense.intern());
-                if (senseAssoc != null) {
-                    int total = 0;
-                    for (int j = 0; j < words.size(); j++) {
-                        String lowercase = ((String) words.get(j)).toLowerCase().intern();
-                        if (senseAssoc.containsKey(lowercase)) 
-                            total = total + ((Integer) senseAssoc.get(lowercase)).intValue();                        
-                    }
+                int total = WordNet.wn.wordCoFrequencies.score(sense,words);
+                if (total >= 0) {
                     if (total > bestTotal) {
                         bestTotal = total;
                         bestSense = i;
@@ -222,18 +270,8 @@ public class WSD {
         String sense = getBestDefaultSense(newWord,pos);
         if (StringUtil.emptyString(sense))
             return "";
-        if (pos == 1) {
-            return WordNet.wn.nounSUMOHash.get(sense.substring(1));
-        }
-        else if (pos == 2) {
-            return WordNet.wn.verbSUMOHash.get(sense.substring(1));           
-        }
-        else if (pos == 3) {
-            return WordNet.wn.adjectiveSUMOHash.get(sense.substring(1));   
-        }
-        else if (pos == 4) {
-            return WordNet.wn.adverbSUMOHash.get(sense.substring(1));  
-        }
+        if (pos >= 1 && pos <= 4)
+            return WordNet.wn.getSUMOMapping(sense);
         return "";
     }
 
@@ -247,18 +285,8 @@ public class WSD {
         String sense = getBestDefaultSense(word);
         if (StringUtil.emptyString(sense))
             return "";
-        if (sense.charAt(0) == '1') {
-            return WordNet.wn.nounSUMOHash.get(sense.substring(1));
-        }
-        else if (sense.charAt(0) == '2') {
-            return WordNet.wn.verbSUMOHash.get(sense.substring(1));           
-        }
-        else if (sense.charAt(0) == '3') {
-            return WordNet.wn.adjectiveSUMOHash.get(sense.substring(1));   
-        }
-        else if (sense.charAt(0) == '4') {
-            return WordNet.wn.adverbSUMOHash.get(sense.substring(1));  
-        }
+        if (sense.charAt(0) >= '1' && sense.charAt(0) <= '4')
+            return WordNet.wn.getSUMOMapping(sense);
         return "";
     }
 
@@ -364,17 +392,7 @@ public class WSD {
         //System.out.println("WSD.getBestDefaultSense(): nouns: " + WordNet.wn.nounSynsetHash.get(newWord));
         if (al == null || al.size() == 0) {
             al = new ArrayList<String>();
-            String synsets = "";
-            switch (pos) {
-                case 1: synsets = WordNet.wn.nounSynsetHash.get(newWord);                        
-                        break;
-                case 2: synsets = WordNet.wn.verbSynsetHash.get(newWord);  
-                        break;
-                case 3: synsets = WordNet.wn.adjectiveSynsetHash.get(newWord); 
-                        break;
-                case 4: synsets = WordNet.wn.adverbSynsetHash.get(newWord); 
-                        break;
-            }
+            String synsets = WordNet.wn.getSynsetBlock(newWord,pos);
             if (!StringUtil.emptyString(synsets)) 
                 al.addAll(Arrays.asList(synsets.split(" "))); 
             //System.out.println("WSD.getBestDefaultSense(): al: " + al);
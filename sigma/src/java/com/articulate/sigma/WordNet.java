@@ -115,12 +115,12 @@ public class WordNet {
      * the value is a POS-prefixed synset  */
     public Hashtable<String,ArrayList<AVPair>> relations = new Hashtable<String,ArrayList<AVPair>>();
 
-    /** a HashMap of HashMaps where the key is a word sense of the
+    /** A sparse matrix where the rows are word senses of the
      * form word_POS_num signifying the word, part of speech and number
-     * of the sense in WordNet.  The value is a HashMap of words and the
+     * of the sense in WordNet.  The columns are words and the values the
      * number of times that word cooccurs in sentences with the word sense
-     * given in the key.  */
-    protected HashMap<String,HashMap<String,Integer>> wordCoFrequencies = new HashMap<String,HashMap<String,Integer>>();
+     * of the row.  */
+    protected CoFrequencyMatrix wordCoFrequencies = new CoFrequencyMatrix.Builder().build();
 
     /** a HashMap of HashMaps where the key is a word and the value is a 
      * HashMap of 9-digit POS-prefixed senses and the number of times that 
@@ -156,6 +156,30 @@ public class WordNet {
      * where words are separated by underscores.  The values are an ArrayList of Strings which
      * contain the whole multi-word. The same head word can appear in many multi-words.*/
     public HashMap<String,ArrayList<String>> multiWord = new HashMap<String,ArrayList<String>>();
+
+    /** The name of the compiled WordNet file in the WordNet directory. */
+    public static final String STORE_FILENAME = "WordNet.bin";
+
+    /** A compiled, memory-mapped image of the synset data, used when the
+     * "wordNetStore" preference is "yes".  When it is set, the synset,
+     * documentation, SUMO and relation Hashtables are not loaded and only
+     * hold entries added at run time (such as by termFormatsToSynsets()),
+     * which take precedence over the store.  Other code should use the
+     * accessors, such as getWordsFromSynset() and getSUMOMapping(), that
+     * look in both.  Code that iterates over those Hashtables, such as the
+     * Prolog and XML writers, and anything that needs verbFrames, which
+     * the store doesn't hold, needs a full load. */
+    private WordNetStore store = null;
+
+    /** Incremented each time a pointer is added to relations or the
+     * store is mapped, so that views derived from the pointers, such as
+     * the HypernymIndex, can tell when they are stale. */
+    private volatile int version = 0;
+
+    /** The transitive closure of hypernym links, built on first use by
+     * getHypernymIndex() and built again once version has changed. */
+    private HypernymIndex hypernymIndex = null;
+    private int hypernymIndexVersion = 0;
     
     //private Pattern p;
     private Matcher m;
@@ -324,6 +348,121 @@ public class WordNet {
         return theFile;
     }
 
+    /** ***************************************************************
+     * @return a value that changes whenever one of the source files
+     * of the compiled store changes.
+     */
+    private long sourceStamp() {
+
+        long stamp = 1;
+        String[] keys = { "noun_mappings", "verb_mappings", "adj_mappings", "adv_mappings",
+                          "noun_exceptions", "verb_exceptions" };
+        for (int i = 0; i < keys.length; i++) {
+            File f = getWnFile(keys[i]);
+            if (f != null)
+                stamp = stamp * 31 + f.lastModified() * 17 + f.length() + f.getName().hashCode();
+        }
+        return stamp;
+    }
+
+    /** ***************************************************************
+     * Map the compiled store, if it exists and is up to date, and load
+     * the small tables that are kept on heap.
+     * @return true if the store was loaded
+     */
+    private boolean loadStore() {
+
+        long t1 = System.currentTimeMillis();
+        File f = new File(baseDirFile,STORE_FILENAME);
+        WordNetStore ws = WordNetStore.open(f,sourceStamp());
+        if (ws == null)
+            return false;
+        store = ws;
+        version++;
+        List<Hashtable<String,String>> tables = exceptionTables();
+        for (int i = 0; i < tables.size(); i++)
+            store.fillExceptions(i,tables.get(i));
+        ArrayList<String> multi = new ArrayList<String>();
+        store.collectMultiWords(multi);
+        for (String w : multi)
+            addMultiWord(w);
+        System.out.println("INFO in WordNet.loadStore(): mapped " + store.synsetCount() + " synsets from " +
+                f.getPath() + " in " + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+        return true;
+    }
+
+    /** ***************************************************************
+     * Write the compiled store from the data just read from the
+     * WordNet files.
+     */
+    private void compileStore() {
+
+        try {
+            WordNetStore.compile(this,new File(baseDirFile,STORE_FILENAME),sourceStamp());
+        }
+        catch (IOException ex) {
+            System.out.println("Error in WordNet.compileStore(): " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    /** ***************************************************************
+     * @return the compiled store, or null if the data was read from the
+     * WordNet files
+     */
+    WordNetStore getStore() {
+
+        return store;
+    }
+
+    /** ***************************************************************
+     * @return a number that changes whenever the pointers between
+     * synsets change
+     */
+    public int getVersion() {
+
+        return version;
+    }
+
+    /** ***************************************************************
+     * @return the index of hypernym links, building it if there is none
+     * or if the pointers have changed since it was built.
+     */
+    public synchronized HypernymIndex getHypernymIndex() {
+
+        if (hypernymIndex == null || hypernymIndexVersion != version) {
+            int v = version;
+            hypernymIndex = HypernymIndex.build(this);
+            hypernymIndexVersion = v;
+        }
+        return hypernymIndex;
+    }
+
+    /** ***************************************************************
+     * Drop the index of hypernym links, so that the next call to
+     * getHypernymIndex() rebuilds it from the current relations.  This
+     * is needed only after changing relations directly rather than
+     * through addRelation().
+     */
+    public synchronized void clearHypernymIndex() {
+
+        hypernymIndex = null;
+    }
+
+    /** ***************************************************************
+     * @return the exception Hashtables, in the order of the
+     * WordNetStore.*_EXCEPTIONS constants
+     */
+    List<Hashtable<String,String>> exceptionTables() {
+
+        ArrayList<Hashtable<String,String>> result = new ArrayList<Hashtable<String,String>>();
+        result.add(exceptionNounHash);
+        result.add(exceptionNounPluralHash);
+        result.add(exceptionVerbHash);
+        result.add(exceptionVerbPastHash);
+        return result;
+    }
+
     /** ***************************************************************
      * Add a synset (with part of speech number prefix) and the SUMO
      * term that maps to it.
@@ -469,6 +608,21 @@ public class WordNet {
         }
     }
 
+    /** ***************************************************************
+     * Add a pointer from a POS-prefixed synset, as an AVPair of pointer
+     * name and POS-prefixed target synset, to relations.
+     */
+    public void addRelation(String synset, AVPair avp) {
+
+        ArrayList<AVPair> al = relations.get(synset);
+        if (al == null) {
+            al = new ArrayList<AVPair>();
+            relations.put(synset,al);
+        }
+        al.add(avp);
+        version++;
+    }
+
     /** ***************************************************************
      * Process some of the fields in a WordNet .DAT file as described at
      * http://wordnet.princeton.edu/man/wndb.5WN . synset must include
@@ -527,15 +681,9 @@ public class WordNet {
             AVPair avp = new AVPair();
             avp.attribute = ptr;
             avp.value = targetPOS + targetSynset;
-            ArrayList<AVPair> al = new ArrayList<AVPair>();
-            if (relations.keySet().contains(synset))
-                al = relations.get(synset);
-            else {
-                relations.put(synset,al);
-            }
             //System.out.println("INFO in WordNet.processPointers(): (" + avp.attribute +
             //                   " " + synset + " " + avp.value);
-            al.add(avp);
+            addRelation(synset,avp);
         }
         if ( (pointers != null)
                 && (pointers != "")
@@ -608,14 +756,60 @@ public class WordNet {
             System.out.println("Error in WordNet.getSUMOMapping: null synset ");
             return null;
         }
+        String result = null;
         switch (synset.charAt(0)) {
-        case '1': return (String) nounSUMOHash.get(synset.substring(1));
-        case '2': return (String) verbSUMOHash.get(synset.substring(1));
-        case '3': return (String) adjectiveSUMOHash.get(synset.substring(1));
-        case '4': return (String) adverbSUMOHash.get(synset.substring(1));
+        case '1': result = (String) nounSUMOHash.get(synset.substring(1));
+        break;
+        case '2': result = (String) verbSUMOHash.get(synset.substring(1));
+        break;
+        case '3': result = (String) adjectiveSUMOHash.get(synset.substring(1));
+        break;
+        case '4': result = (String) adverbSUMOHash.get(synset.substring(1));
+        break;
+        default:
+            System.out.println("Error in WordNet.getSUMOMapping: improper first character for synset: " + synset);
+            return null;
         }
-        System.out.println("Error in WordNet.getSUMOMapping: improper first character for synset: " + synset);
-        return null;
+        if (result == null && store != null)
+            result = store.getSUMOMapping(synset);
+        return result;
+    }
+
+    /** ***************************************************************
+     * Get all the SUMO mappings for a part of speech.
+     * @param pos is the POS prefix character, '1' through '4'
+     * @return a map from bare synsets to SUMO terms with their &% prefix
+     * and mapping suffix
+     */
+    public TreeMap<String,String> getSUMOMappings(char pos) {
+
+        TreeMap<String,String> result = new TreeMap<String,String>();
+        if (store != null) {
+            for (int id = 0; id < store.synsetCount(); id++) {
+                String synset = store.synsetKey(id);
+                if (synset.charAt(0) != pos)
+                    continue;
+                String SUMO = store.getSUMOMapping(synset);
+                if (!StringUtil.emptyString(SUMO))
+                    result.put(synset.substring(1),SUMO);
+            }
+        }
+        Hashtable<String,String> hash = null;
+        switch (pos) {
+        case '1': hash = nounSUMOHash;
+        break;
+        case '2': hash = verbSUMOHash;
+        break;
+        case '3': hash = adjectiveSUMOHash;
+        break;
+        case '4': hash = adverbSUMOHash;
+        break;
+        default:
+            System.out.println("Error in WordNet.getSUMOMappings: improper part of speech: " + pos);
+            return result;
+        }
+        result.putAll(hash);  // run-time additions take precedence over the store
+        return result;
     }
 
     /** ***************************************************************
@@ -966,11 +1160,11 @@ public class WordNet {
     }
 
     /** ***************************************************************
-     * Return a HashMap of HashMaps where the key is a word sense of the
+     * Fill wordCoFrequencies, where the rows are word senses of the
      * form word_POS_num signifying the word, part of speech and number
-     * of the sense in WordNet.  The value is a HashMap of words and the
+     * of the sense in WordNet.  The columns are words and the values the
      * number of times that word cooccurs in sentences with the word sense
-     * given in the key.
+     * of the row.
      */
     public void readWordCoFrequencies() {
 
@@ -989,6 +1183,7 @@ public class WordNet {
             long t1 = System.currentTimeMillis();
             FileReader r = new FileReader(wfFile);
             lr = new LineNumberReader(r);
+            CoFrequencyMatrix.Builder builder = new CoFrequencyMatrix.Builder();
             String line = null;
             while ((line = lr.readLine()) != null) {
                 line = line.trim();
@@ -1015,7 +1210,7 @@ public class WordNet {
                             }
                         }
                     }
-                    wordCoFrequencies.put(key.intern(),frequencies);
+                    builder.addRow(key,frequencies);
                     counter++;
                     if (counter == 1000) {
                         System.out.print(".");
@@ -1023,6 +1218,7 @@ public class WordNet {
                     }
                 }
             }
+            wordCoFrequencies = builder.build();
             System.out.println("x");
             System.out.println("  " + ((System.currentTimeMillis() - t1) / 1000.0)
                     + " seconds to process " + canonicalPath);
@@ -1291,35 +1487,17 @@ public class WordNet {
 
                 for (int j = 0; j < listLength; j++) {        
                     synset = synsetList.get(j);
-                    ArrayList<String> words = synsetsToWords.get(synset);
+                    ArrayList<String> words = getWordsFromSynset(synset);
                     if (words != null && words.size() > 0)
                         word = words.get(0);
                     else
                         word = "";
                     SUMOterm = SUMOtermList.get(j); 
-                    if (nounDocumentationHash.containsKey(synset.substring(1)) && synset.substring(0,1).equals("1")) {
-                        documentation = (String) nounDocumentationHash.get(synset.substring(1));
+                    documentation = getDocumentation(synset);
+                    if (documentation != null) {
                         result.append("<a href=\"WordNet.jsp?synset=" + synset + "&" + params + "\">" + synset + "</a> ");
-                        result.append(" " + "<a href=\"WordNet.jsp?simple=no" + "&" + params + "&word=" + word + "&POS=1" + 
-                                "\">" + word + "</a>" + "-  " + documentation + ".\n");
-                    }
-                    else if (verbDocumentationHash.containsKey(synset.substring(1)) && synset.substring(0,1).equals("2")) {
-                        documentation = (String) verbDocumentationHash.get(synset.substring(1));
-                        result.append("<a href=\"WordNet.jsp?synset=" + synset + "&" + params + "\">" + synset + "</a> ");
-                        result.append(" " + "<a href=\"WordNet.jsp?simple=no" + "&" + params + "&word=" + word + "&POS=2" + 
-                                "\">" + word + "</a>" + "-  " + documentation + ".\n");
-                    }
-                    else if (adjectiveDocumentationHash.containsKey(synset.substring(1)) && synset.substring(0,1).equals("3")) {
-                        documentation = (String) adjectiveDocumentationHash.get(synset.substring(1));
-                        result.append("<a href=\"WordNet.jsp?synset=" + synset + "&" + params + "\">" + synset + "</a> ");
-                        result.append(" " + "<a href=\"WordNet.jsp?simple=no" + "&" + params + "&word=" + word + "&POS=3" + 
-                                "\">" + word + "</a>" + "-  " + documentation + ".\n");
-                    }
-                    else if (adverbDocumentationHash.containsKey(synset.substring(1)) && synset.substring(0,1).equals("4")) {
-                        documentation = (String) adverbDocumentationHash.get(synset.substring(1));
-                        result.append("<a href=\"WordNet.jsp?synset=" + synset + "&" + params + "\">" + synset + "</a> ");
-                        result.append(" " + "<a href=\"WordNet.jsp?simple=no" + "&" + params + "&word=" + word + "&POS=4" + 
-                                "\">1" + word + "</a>" + "-  " + documentation + ".\n");
+                        result.append(" " + "<a href=\"WordNet.jsp?simple=no" + "&" + params + "&word=" + word + "&POS=" +
+                                synset.charAt(0) + "\">" + word + "</a>" + "-  " + documentation + ".\n");
                     }
                                 
                     if (SUMOterm == null) 
@@ -1451,7 +1629,7 @@ public class WordNet {
             return false;
         if (visited.contains(synset))  // catch cycles
             return false;
-        ArrayList<AVPair> links = relations.get(synset);
+        ArrayList<AVPair> links = getRelations(synset);
         if (links != null) {
             for (int i = 0; i < links.size(); i++) {
                 AVPair link = links.get(i);
@@ -1476,13 +1654,24 @@ public class WordNet {
 
     /** ***************************************************************
      * @return true if the first POS-prefixed synset is a hyponym of the
-     * second POS-prefixed synset.
-     * This is a recursive method.
+     * second POS-prefixed synset.  This uses the precomputed
+     * HypernymIndex, so it has the result of isHyponymRecurse() without
+     * the walk.
      */
     public boolean isHyponym(String synset, String hypo) {
 
-        ArrayList<String> visited = new ArrayList<String>();
-        return isHyponymRecurse(synset,hypo,visited);
+        if (StringUtil.emptyString(synset) || StringUtil.emptyString(hypo))
+            return false;
+        return getHypernymIndex().isHyponym(synset,hypo);
+    }
+
+    /** ***************************************************************
+     * @return the POS-prefixed synset that is the lowest common hypernym
+     * of two POS-prefixed synsets, or null if there is none.
+     */
+    public String lowestCommonHypernym(String synset1, String synset2) {
+
+        return getHypernymIndex().lowestCommonHypernym(synset1,synset2);
     }
 
  
@@ -1619,9 +1808,10 @@ public class WordNet {
         ArrayList<String> al = splitToArrayList(newSentence);
         if (al == null) 
             return result;
+        ArrayList<String> senses = WSD.findWordSensesInContext(al);
         for (int i = 0; i < al.size(); i++) {
             String word = al.get(i);
-            String synset = WSD.findWordSenseInContext(word,al);
+            String synset = senses.get(i);
             if (synset != null && synset != "") {
                 if (result.get(synset) == null)
                     result.put(synset,new Integer(1));
@@ -1656,12 +1846,19 @@ public class WordNet {
                 if ((WordNet.baseDir == "") || (WordNet.baseDir == null))
                     WordNet.baseDir = KBmanager.getMgr().getPref("kbDir") + File.separator + "WordNetMappings";
                 baseDirFile = new File(WordNet.baseDir);
+                if (wn != null)
+                    wn.clearHypernymIndex();
                 wn = new WordNet();
                 wn.compileRegexPatterns();
-                wn.readNouns();
-                wn.readVerbs();
-                wn.readAdjectives();
-                wn.readAdverbs();
+                boolean useStore = KBmanager.getMgr().getPref("wordNetStore").equalsIgnoreCase("yes");
+                if (!useStore || !wn.loadStore()) {
+                    wn.readNouns();
+                    wn.readVerbs();
+                    wn.readAdjectives();
+                    wn.readAdverbs();
+                    if (useStore)
+                        wn.compileStore();
+                }
                 wn.readWordCoFrequencies();
                 wn.readStopWords();
                 wn.readSenseIndex();
@@ -1719,31 +1916,31 @@ public class WordNet {
             if (synset.equals(synsetNum))
                 result.append("<b>");
             if (type.compareTo("noun") == 0) {
-                documentation = (String) nounDocumentationHash.get(synset);
+                documentation = getDocumentation("1" + synset);
                 result.append("<a href=\"WordNet.jsp?synset=1" + synset + kbString + "&" + params + "\">1" + synset + "</a> ");
                 result.append(" " + documentation + ".\n");
-                sumoEquivalent = (String) nounSUMOHash.get(synset);
+                sumoEquivalent = getSUMOMapping("1" + synset);
             }
             else {
                 if (type.compareTo("verb") == 0) {
-                    documentation = (String) verbDocumentationHash.get(synset);
+                    documentation = getDocumentation("2" + synset);
                     result.append("<a href=\"WordNet.jsp?synset=2" + synset + kbString + "&" + params + "\">2" + synset + "</a> ");
                     result.append(" " + documentation + ".\n");
-                    sumoEquivalent = (String) verbSUMOHash.get(synset);
+                    sumoEquivalent = getSUMOMapping("2" + synset);
                 }
                 else {
                     if (type.compareTo("adjective") == 0) {
-                        documentation = (String) adjectiveDocumentationHash.get(synset);
+                        documentation = getDocumentation("3" + synset);
                         result.append("<a href=\"WordNet.jsp?synset=3" + synset + kbString + "&" + params + "\">3" + synset + "</a> ");
                         result.append(" " + documentation + ".\n");
-                        sumoEquivalent = (String) adjectiveSUMOHash.get(synset);
+                        sumoEquivalent = getSUMOMapping("3" + synset);
                     }
                     else {
                         if (type.compareTo("adverb") == 0) {
-                            documentation = (String) adverbDocumentationHash.get(synset);
+                            documentation = getDocumentation("4" + synset);
                             result.append("<a href=\"WordNet.jsp?synset=4" + synset + kbString + "&" + params + "\">4" + synset + "</a> ");
                             result.append(" " + documentation + ".\n");
-                            sumoEquivalent = (String) adverbSUMOHash.get(synset);
+                            sumoEquivalent = getSUMOMapping("4" + synset);
                         }
                     }
                 }
@@ -1765,6 +1962,61 @@ public class WordNet {
         return result.toString();
     }
 
+    /** ***************************************************************
+     * @return the Hashtable of root form words to synset lists for the
+     * given part of speech number.
+     */
+    private Hashtable<String,String> synsetHash(int pos) {
+
+        switch (pos) {
+        case NOUN: return nounSynsetHash;
+        case VERB: return verbSynsetHash;
+        case ADJECTIVE: return adjectiveSynsetHash;
+        case ADVERB: return adverbSynsetHash;
+        }
+        return null;
+    }
+
+    /** ***************************************************************
+     * @return the space-separated 8 digit synsets for a root form
+     * word and part of speech number, or null if there are none.
+     */
+    public String getSynsetBlock(String word, int pos) {
+
+        Hashtable<String,String> hash = synsetHash(pos);
+        if (hash == null || word == null)
+            return null;
+        String result = hash.get(word);
+        if (result == null && store != null)
+            result = store.getSynsetBlock(word,pos);
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return true if word is a root form with the given part of speech
+     */
+    private boolean hasRootForm(String word, int pos) {
+
+        Hashtable<String,String> hash = synsetHash(pos);
+        if (hash.containsKey(word))
+            return true;
+        return store != null && store.containsWord(word,pos);
+    }
+
+    /** ***************************************************************
+     * Like WordNetUtilities.substTest() but checking the substituted
+     * word against the root forms of the given part of speech.
+     */
+    private boolean substTest(String input, String match, String subst, int pos) {
+
+        if (store == null)
+            return WordNetUtilities.substTest(input,match,subst,synsetHash(pos));
+        Matcher m = Pattern.compile(match).matcher(input);
+        if (m.find())
+            return hasRootForm(m.replaceFirst(subst),pos);
+        return false;
+    }
+
     /** ***************************************************************
      * Return the root form of the noun, or null if it's not in the lexicon.
      */
@@ -1782,28 +2034,28 @@ public class WordNet {
         }
         else {
             // Test all regular plural forms, and correct to singular.
-            if (WordNetUtilities.substTest(input,"s$","",nounSynsetHash))
+            if (substTest(input,"s$","",NOUN))
                 result = WordNetUtilities.subst(input,"s$","");
             else {
-                if (WordNetUtilities.substTest(input,"ses$","s", nounSynsetHash))
+                if (substTest(input,"ses$","s", NOUN))
                     result = WordNetUtilities.subst(input,"ses$","s");
                 else {
-                    if (WordNetUtilities.substTest(input,"xes$","x", nounSynsetHash))
+                    if (substTest(input,"xes$","x", NOUN))
                         result = WordNetUtilities.subst(input,"xes$","x");
                     else {
-                        if (WordNetUtilities.substTest(input,"zes$","z", nounSynsetHash))
+                        if (substTest(input,"zes$","z", NOUN))
                             result = WordNetUtilities.subst(input,"zes$","z");
                         else {
-                            if (WordNetUtilities.substTest(input,"ches$","ch", nounSynsetHash))
+                            if (substTest(input,"ches$","ch", NOUN))
                                 result = WordNetUtilities.subst(input,"ches$","ch");
                             else {
-                                if (WordNetUtilities.substTest(input,"shes$","sh", nounSynsetHash))
+                                if (substTest(input,"shes$","sh", NOUN))
                                     result = WordNetUtilities.subst(input,"shes$","sh");
                                 else {
-                                    if (nounSynsetHash.containsKey(mixedCase))
+                                    if (hasRootForm(mixedCase,NOUN))
                                         result = mixedCase;
                                     else {
-                                        if (nounSynsetHash.containsKey(input))
+                                        if (hasRootForm(input,NOUN))
                                             result = input;
                                     }
                                 }
@@ -1835,7 +2087,7 @@ public class WordNet {
         regular = nounRootForm(mixedCase,input);
         //System.out.println("Info in WordNet.processNoun(): root form: " + regular);
         if (regular != null) {
-            synsetBlock = nounSynsetHash.get(regular);
+            synsetBlock = getSynsetBlock(regular,NOUN);
             return sumoDisplay(synsetBlock,mixedCase,"noun",sumokbname,synset,params);
         }
         else
@@ -1861,29 +2113,29 @@ public class WordNet {
         else {
             //System.out.println("INFO in verbRootForm(): not an exception: " + mixedCase);
             // Test all regular forms and convert to present tense singular.
-            if (WordNetUtilities.substTest(input,"s$","",verbSynsetHash)) {
+            if (substTest(input,"s$","",VERB)) {
                 result = WordNetUtilities.subst(input,"s$","");
                 //System.out.println("INFO in verbRootForm(): word: " + result);
             }
             else {
-                if (WordNetUtilities.substTest(input,"es$","",verbSynsetHash))
+                if (substTest(input,"es$","",VERB))
                     result = WordNetUtilities.subst(input,"es$","");
                 else {
-                    if (WordNetUtilities.substTest(input,"ies$","y",verbSynsetHash))
+                    if (substTest(input,"ies$","y",VERB))
                         result = WordNetUtilities.subst(input,"ies$","y");
-                    //else if (WordNetUtilities.substTest(input,"ied$","y",verbSynsetHash)) // new 10/29/2014
+                    //else if (substTest(input,"ied$","y",VERB)) // new 10/29/2014
                     //    result = WordNetUtilities.subst(input,"ied$","y");
-                    else if (WordNetUtilities.substTest(input,"ed$","",verbSynsetHash))
+                    else if (substTest(input,"ed$","",VERB))
                         result = WordNetUtilities.subst(input,"ed$","");
-                    else if (WordNetUtilities.substTest(input,"ed$","e",verbSynsetHash))
+                    else if (substTest(input,"ed$","e",VERB))
                         result = WordNetUtilities.subst(input,"ed$","e");
-                    else if (WordNetUtilities.substTest(input,"ing$","e",verbSynsetHash))
+                    else if (substTest(input,"ing$","e",VERB))
                         result = WordNetUtilities.subst(input,"ing$","e");
-                    else if (WordNetUtilities.substTest(input,"ing$","",verbSynsetHash))
+                    else if (substTest(input,"ing$","",VERB))
                         result = WordNetUtilities.subst(input,"ing$","");
-                    else if (verbSynsetHash.containsKey(mixedCase))
+                    else if (hasRootForm(mixedCase,VERB))
                         result = mixedCase;
-                    else if (verbSynsetHash.containsKey(input))
+                    else if (hasRootForm(input,VERB))
                         result = input;                    
                 }
             }
@@ -1911,7 +2163,7 @@ public class WordNet {
         regular = verbRootForm(mixedCase,input);
         System.out.println("INFO in processVerb(): word: " + regular);
         if (regular != null) {
-            synsetBlock = verbSynsetHash.get(regular);
+            synsetBlock = getSynsetBlock(regular,VERB);
             return sumoDisplay(synsetBlock, mixedCase, "verb", sumokbname,synset,params);
         }
         else
@@ -1929,7 +2181,7 @@ public class WordNet {
         StringBuffer result = new StringBuffer();
         String synsetBlock;
 
-        synsetBlock = adverbSynsetHash.get(input);
+        synsetBlock = getSynsetBlock(input,ADVERB);
         result.append(sumoDisplay(synsetBlock, mixedCase, "adverb", sumokbname,synset,params));
 
         return (result.toString());
@@ -1946,7 +2198,7 @@ public class WordNet {
         StringBuffer result = new StringBuffer();
         String synsetBlock;
 
-        synsetBlock = adjectiveSynsetHash.get(input);
+        synsetBlock = getSynsetBlock(input,ADJECTIVE);
         result.append(sumoDisplay(synsetBlock, mixedCase, "adjective", sumokbname,synset,params));
 
         return (result.toString());
@@ -1971,7 +2223,7 @@ public class WordNet {
                     if (POS != null) {
                         String synset = WordNetUtilities.posLettersToNumber(POS) + ((String) senseIndex.get(sense));
                         if (synset != null) {
-                            ArrayList<String> words = synsetsToWords.get(synset);
+                            ArrayList<String> words = getWordsFromSynset(synset);
                             if (words != null) {
                                 Iterator<String> it2 = words.iterator();
                                 while (it2.hasNext()) {
@@ -1998,7 +2250,7 @@ public class WordNet {
                     if (POS != null) {
                         String synset = WordNetUtilities.posLettersToNumber(POS) + ((String) senseIndex.get(sense));
                         if (synset != null) {
-                            ArrayList<String> words = synsetsToWords.get(synset);
+                            ArrayList<String> words = getWordsFromSynset(synset);
                             if (words != null) {
                                 Iterator<String> it2 = words.iterator();
                                 while (it2.hasNext()) {
@@ -2027,7 +2279,7 @@ public class WordNet {
     public TreeMap<String,String> getWordsFromTerm(String SUMOterm) {
 
         TreeMap<String,String> result = new TreeMap<String,String>();
-        ArrayList<String> synsets = SUMOHash.get(SUMOterm);
+        ArrayList<String> synsets = getSynsetsFromTerm(SUMOterm);
         if (synsets == null) {
             System.out.println("INFO in WordNet.getWordsFromTerm(): No synsets for term : " + SUMOterm);
             return null;
@@ -2035,7 +2287,7 @@ public class WordNet {
         Iterator<String> it = synsets.iterator();
         while (it.hasNext()) {
             String synset = (String) it.next();
-            ArrayList<String> words = synsetsToWords.get(synset);
+            ArrayList<String> words = getWordsFromSynset(synset);
             if (words == null) {
                 System.out.println("INFO in WordNet.getWordsFromTerm(): No words for synset: " + synset);
                 return null;
@@ -2048,11 +2300,54 @@ public class WordNet {
         }
         return result;
     }
+
+    /** ***************************************************************
+     * @return all the POS-prefixed synsets that have words, in order
+     */
+    public TreeSet<String> getSynsets() {
+
+        TreeSet<String> result = new TreeSet<String>(synsetsToWords.keySet());
+        if (store != null) {
+            for (int id = 0; id < store.synsetCount(); id++)
+                result.add(store.synsetKey(id));
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the POS-prefixed synsets mapped to a bare SUMO term, or
+     * null if there are none
+     */
+    public ArrayList<String> getSynsetsFromTerm(String SUMOterm) {
+
+        ArrayList<String> result = SUMOHash.get(SUMOterm);
+        if (result == null && store != null)
+            result = store.getSynsetsForTerm(SUMOterm);
+        return result;
+    }
+
     /** ***************************************************************
+     * @param synset is a synset with POS-prefix
      */
     public ArrayList<String> getWordsFromSynset(String synset) {
 
-        return WordNet.wn.synsetsToWords.get(synset);
+        ArrayList<String> result = synsetsToWords.get(synset);
+        if (result == null && store != null)
+            result = store.getWords(synset);
+        return result;
+    }
+
+    /** ***************************************************************
+     * @param synset is a synset with POS-prefix
+     * @return the pointers from the synset as AVPairs of pointer name
+     * and POS-prefixed target synset, or null if there are none
+     */
+    public ArrayList<AVPair> getRelations(String synset) {
+
+        ArrayList<AVPair> result = relations.get(synset);
+        if (result == null && store != null)
+            result = store.getRelations(synset);
+        return result;
     }
 
     /** ***************************************************************
@@ -2065,14 +2360,7 @@ public class WordNet {
         String synsetBlock = null;  // A String of synsets, which are 8 digit numbers, separated by spaces.
 
         //System.out.println("INFO in WordNet.getSUMOterm: Checking word : " + word);
-        if (pos == NOUN)
-            synsetBlock = (String) nounSynsetHash.get(word);
-        if (pos == VERB)
-            synsetBlock = (String) verbSynsetHash.get(word);
-        if (pos == ADJECTIVE)
-            synsetBlock = (String) adjectiveSynsetHash.get(word);
-        if (pos == ADVERB)
-            synsetBlock = (String) adverbSynsetHash.get(word);
+        synsetBlock = getSynsetBlock(word,pos);
 
         //int listLength;
         String synset;
@@ -2084,14 +2372,8 @@ public class WordNet {
         if (synsetList != null) {
             synset = synsetList[0];   // Just get the first synset.  This needs to be changed to a word sense disambiguation algorithm.
             synset = synset.trim();
-            if (pos == NOUN)
-                term =  (String) nounSUMOHash.get(synset);
-            if (pos == VERB)
-                term =  (String) verbSUMOHash.get(synset);
-            if (pos == ADJECTIVE)
-                term =  (String) adjectiveSUMOHash.get(synset);
-            if (pos == ADVERB)
-                term =  (String) adverbSUMOHash.get(synset);
+            if (pos >= NOUN && pos <= ADVERB)
+                term = getSUMOMapping(Integer.toString(pos) + synset);
         }
         if (term != null)
             return term.trim().substring(2,term.trim().length() - 1);
@@ -2105,14 +2387,8 @@ public class WordNet {
     public boolean containsWord(String word, int pos) {
 
         System.out.println("INFO in WordNet.containsWord: Checking word : " + word);
-        if (pos == NOUN && nounSynsetHash.containsKey(word))
-            return true;
-        if (pos == VERB && verbSynsetHash.containsKey(word))
-            return true;
-        if (pos == ADJECTIVE && adjectiveSynsetHash.containsKey(word))
-            return true;
-        if (pos == ADVERB && adverbSynsetHash.containsKey(word))
-            return true;
+        if (pos >= NOUN && pos <= ADVERB)
+            return hasRootForm(word,pos);
         else
             return false;
     }
@@ -2165,13 +2441,21 @@ public class WordNet {
 
         char POS = synset.charAt(0);
         String bareSynset = synset.substring(1);
+        String result = null;
         switch (POS) {
-        case '1': return (String) nounDocumentationHash.get(bareSynset);
-        case '2': return (String) verbDocumentationHash.get(bareSynset);
-        case '3': return (String) adjectiveDocumentationHash.get(bareSynset);
-        case '4': return (String) adverbDocumentationHash.get(bareSynset);
+        case '1': result = (String) nounDocumentationHash.get(bareSynset);
+        break;
+        case '2': result = (String) verbDocumentationHash.get(bareSynset);
+        break;
+        case '3': result = (String) adjectiveDocumentationHash.get(bareSynset);
+        break;
+        case '4': result = (String) adverbDocumentationHash.get(bareSynset);
+        break;
+        default: return null;
         }
-        return null;
+        if (result == null && store != null)
+            result = store.getDocumentation(synset);
+        return result;
     }
 
     /** ***************************************************************
@@ -2186,20 +2470,20 @@ public class WordNet {
         String POSstring = "";
         String bareSynset = synset.substring(1);
         switch (POS) {
-            case '1': gloss = (String) nounDocumentationHash.get(bareSynset);
-                SUMOterm = (String) nounSUMOHash.get(bareSynset);
+            case '1': gloss = getDocumentation(synset);
+                SUMOterm = getSUMOMapping(synset);
                 POSstring = "Noun";
                 break;
-            case '2': gloss = (String) verbDocumentationHash.get(bareSynset);
-                SUMOterm = (String) verbSUMOHash.get(bareSynset);
+            case '2': gloss = getDocumentation(synset);
+                SUMOterm = getSUMOMapping(synset);
                 POSstring = "Verb";
                 break;
-            case '3': gloss = (String) adjectiveDocumentationHash.get(bareSynset);
-                SUMOterm = (String) adjectiveSUMOHash.get(bareSynset);
+            case '3': gloss = getDocumentation(synset);
+                SUMOterm = getSUMOMapping(synset);
                 POSstring = "Adjective";
                 break;
-            case '4': gloss = (String) adverbDocumentationHash.get(bareSynset);
-                SUMOterm = (String) adverbSUMOHash.get(bareSynset);
+            case '4': gloss = getDocumentation(synset);
+                SUMOterm = getSUMOMapping(synset);
                 POSstring = "Adverb";
                 break;
         }
@@ -2210,7 +2494,7 @@ public class WordNet {
         if (SUMOterm != null && SUMOterm != "")
             buf.append(HTMLformatter.termMappingsList(SUMOterm,"<a href=\"Browse.jsp?" + params + "&term="));
         TreeSet<String> words = new TreeSet<String>();
-        ArrayList<String> al = synsetsToWords.get(synset);
+        ArrayList<String> al = getWordsFromSynset(synset);
         if (al != null)
             words.addAll(al);
         buf.append(" <b>Words:</b> ");
@@ -2223,7 +2507,7 @@ public class WordNet {
         }
         buf.append("<P>\n <b>Gloss:</b> " + gloss);
         buf.append("<P>\n");
-        ArrayList<AVPair> al3 = relations.get(synset);
+        ArrayList<AVPair> al3 = getRelations(synset);
         if (al3 != null) {
             Iterator<AVPair> it3 = al3.iterator();
             while (it3.hasNext()) {
@@ -2231,7 +2515,7 @@ public class WordNet {
                 buf.append(avp.attribute + " ");
                 buf.append("<a href=\"WordNet.jsp?synset=" + avp.value + "&" + params + "\">" + avp.value + "</a> - ");
                 words = new TreeSet<String>();
-                ArrayList<String> al2 = synsetsToWords.get(avp.value);
+                ArrayList<String> al2 = getWordsFromSynset(avp.value);
                 if (al2 != null)
                     words.addAll(al2);
                 Iterator<String> it2 = words.iterator();
@@ -2255,6 +2539,8 @@ public class WordNet {
     public String displayByKey (String sumokbname, String key, String params) {
 
         String synset = (String) senseIndex.get(key);
+        if (synset == null)
+            return (key + " is not a valid sense key.<P>\n");
         String POS = WordNetUtilities.getPOSfromKey(key);
         POS = POS.substring(0,1);
         return displaySynset(sumokbname,POS+synset,params);
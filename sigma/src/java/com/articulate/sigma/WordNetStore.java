@@ -0,0 +1,823 @@
+/** This code is copyright Articulate Software (c) 2003-2007.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/** ***************************************************************
+ *  A compiled, read-only binary image of the WordNet data that
+ *  WordNet.readNouns() and its siblings otherwise rebuild from the
+ *  mapping files with regular expressions on every start.  Synsets
+ *  are numbered with dense integer IDs in order of their 9-digit
+ *  POS-prefixed key.  Words, glosses and SUMO mappings are held once
+ *  in a UTF-8 string pool, and pointers, synset words and lemma senses
+ *  are held in compressed sparse row (CSR) form, i.e. a row pointer
+ *  array into a flat array of targets.  The file is memory-mapped so
+ *  that it costs almost nothing on the heap and pages in on demand.
+ *
+ *  File layout (all integers big endian):
+ *  <pre>
+ *  header     magic, version, sourceStamp(long), then the eleven counts below
+ *  synsetKeys int[nSynsets]      sorted 9 digit keys as ints
+ *  gloss      int[nSynsets]      string ID or -1
+ *  sumo       int[nSynsets]      string ID or -1
+ *  wordPtr    int[nSynsets+1]    CSR into words
+ *  words      int[nWordRefs]     string IDs, in file order
+ *  relPtr     int[nSynsets+1]    CSR into relType/relTarget
+ *  relType    int[nPointers]     index into ptrTypes
+ *  relTarget  int[nPointers]     synset IDs
+ *  ptrTypes   int[nPtrTypes]     string IDs
+ *  lemmas     int[nLemmas]       string IDs sorted by UTF-8 bytes
+ *  lemmaPtr   int[nLemmas+1]     CSR into lemmaSyn
+ *  lemmaSyn   int[nLemmaRefs]    synset IDs, nouns first then verbs etc.
+ *  terms      int[nTerms]        bare SUMO terms sorted by UTF-8 bytes
+ *  termPtr    int[nTerms+1]      CSR into termSyn
+ *  termSyn    int[nTermRefs]     synset IDs
+ *  exceptions int[nExceptions*3] table, key string ID, value string ID
+ *  strOffsets int[nStrings+1]    byte offsets into the pool
+ *  pool       byte[]
+ *  </pre>
+ */
+public class WordNetStore {
+
+    private static final int MAGIC = 0x53574E31;  // "SWN1"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 2 + 2 + 12;
+
+    /** Indexes of the exception tables in the exceptions section. */
+    public static final int NOUN_EXCEPTIONS = 0;
+    public static final int NOUN_PLURAL_EXCEPTIONS = 1;
+    public static final int VERB_EXCEPTIONS = 2;
+    public static final int VERB_PAST_EXCEPTIONS = 3;
+
+    private MappedByteBuffer buf = null;
+    private long sourceStamp = 0;
+
+    private int nSynsets = 0;
+    private int nStrings = 0;
+    private int nLemmas = 0;
+    private int nTerms = 0;
+    private int nExceptions = 0;
+
+    // byte offsets of each section within the file
+    private int synsetKeysOff, glossOff, sumoOff, wordPtrOff, wordsOff,
+        relPtrOff, relTypeOff, relTargetOff, ptrTypesOff, lemmasOff,
+        lemmaPtrOff, lemmaSynOff, termsOff, termPtrOff, termSynOff,
+        exceptionsOff, strOffsetsOff, poolOff;
+
+    /** pointer type names, small enough to keep decoded */
+    private String[] ptrTypes = null;
+
+    /** ***************************************************************
+     * Convert a 9-digit POS-prefixed synset String to its int form,
+     * or -1 if it is not well formed.
+     */
+    public static int synsetToInt(String synset) {
+
+        if (synset == null || synset.length() != 9)
+            return -1;
+        int result = 0;
+        for (int i = 0; i < 9; i++) {
+            char c = synset.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * Convert an int synset key back to a 9-digit POS-prefixed String.
+     */
+    public static String intToSynset(int key) {
+
+        return StringUtil.fillString(Integer.toString(key),'0',9,true);
+    }
+
+    /** ***************************************************************
+     * @return the ID of the given 9-digit POS-prefixed synset, or -1 if
+     * it is not in the store.
+     */
+    public int synsetID(String synset) {
+
+        int key = synsetToInt(synset);
+        if (key < 0)
+            return -1;
+        int lo = 0;
+        int hi = nSynsets - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = getInt(synsetKeysOff,mid);
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /** ***************************************************************
+     * @return the 9-digit POS-prefixed synset for the given ID
+     */
+    public String synsetKey(int id) {
+
+        return intToSynset(getInt(synsetKeysOff,id));
+    }
+
+    /** ***************************************************************
+     */
+    public int synsetCount() {
+
+        return nSynsets;
+    }
+
+    /** ***************************************************************
+     * @return the stamp of the source files this store was built from
+     */
+    public long getSourceStamp() {
+
+        return sourceStamp;
+    }
+
+    /** ***************************************************************
+     */
+    private int getInt(int sectionOff, int index) {
+
+        return buf.getInt(sectionOff + (index << 2));
+    }
+
+    /** ***************************************************************
+     * Decode a string from the pool.  A duplicate of the buffer is used
+     * so that concurrent readers don't share a position.
+     */
+    private String getString(int id) {
+
+        if (id < 0 || id >= nStrings)
+            return null;
+        int start = getInt(strOffsetsOff,id);
+        int end = getInt(strOffsetsOff,id + 1);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(poolOff + start);
+        dup.get(bytes);
+        return new String(bytes,StandardCharsets.UTF_8);
+    }
+
+    /** ***************************************************************
+     * Compare the pooled string with the given UTF-8 bytes, in the same
+     * unsigned byte order used to sort the lemma and term sections.
+     */
+    private int compareString(int id, byte[] key) {
+
+        int start = poolOff + getInt(strOffsetsOff,id);
+        int len = getInt(strOffsetsOff,id + 1) - getInt(strOffsetsOff,id);
+        int n = Math.min(len,key.length);
+        for (int i = 0; i < n; i++) {
+            int a = buf.get(start + i) & 0xFF;
+            int b = key[i] & 0xFF;
+            if (a != b)
+                return a - b;
+        }
+        return len - key.length;
+    }
+
+    /** ***************************************************************
+     * Binary search a sorted section of string IDs.
+     * @return the index within the section or -1
+     */
+    private int findSorted(int sectionOff, int count, String s) {
+
+        if (s == null)
+            return -1;
+        byte[] key = s.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareString(getInt(sectionOff,mid),key);
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /** ***************************************************************
+     * @return the gloss of a 9-digit POS-prefixed synset, or null
+     */
+    public String getDocumentation(String synset) {
+
+        int id = synsetID(synset);
+        if (id < 0)
+            return null;
+        return getString(getInt(glossOff,id));
+    }
+
+    /** ***************************************************************
+     * @return the SUMO mapping, with its &% prefix and mapping suffix,
+     * of a 9-digit POS-prefixed synset, or null
+     */
+    public String getSUMOMapping(String synset) {
+
+        int id = synsetID(synset);
+        if (id < 0)
+            return null;
+        return getString(getInt(sumoOff,id));
+    }
+
+    /** ***************************************************************
+     * @return the words of a 9-digit POS-prefixed synset in file
+     * order, or null if the synset has none
+     */
+    public ArrayList<String> getWords(String synset) {
+
+        int id = synsetID(synset);
+        if (id < 0)
+            return null;
+        int start = getInt(wordPtrOff,id);
+        int end = getInt(wordPtrOff,id + 1);
+        if (start == end)
+            return null;
+        ArrayList<String> result = new ArrayList<String>(end - start);
+        for (int i = start; i < end; i++)
+            result.add(getString(getInt(wordsOff,i)));
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the pointers of a 9-digit POS-prefixed synset as AVPairs
+     * of pointer name and target synset, as in WordNet.relations, or
+     * null if there are none
+     */
+    public ArrayList<AVPair> getRelations(String synset) {
+
+        int id = synsetID(synset);
+        if (id < 0)
+            return null;
+        int start = getInt(relPtrOff,id);
+        int end = getInt(relPtrOff,id + 1);
+        if (start == end)
+            return null;
+        ArrayList<AVPair> result = new ArrayList<AVPair>(end - start);
+        for (int i = start; i < end; i++) {
+            AVPair avp = new AVPair();
+            avp.attribute = ptrTypes[getInt(relTypeOff,i)];
+            avp.value = synsetKey(getInt(relTargetOff,i));
+            result.add(avp);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the index of the named pointer type or -1
+     */
+    public int pointerTypeIndex(String ptr) {
+
+        for (int i = 0; i < ptrTypes.length; i++) {
+            if (ptrTypes[i].equals(ptr))
+                return i;
+        }
+        return -1;
+    }
+
+    /** ***************************************************************
+     * Fill the given list with the IDs of the synsets reached from
+     * synset ID id by pointers of type ptrType.
+     */
+    public void targets(int id, int ptrType, IntList result) {
+
+        result.clear();
+        int start = getInt(relPtrOff,id);
+        int end = getInt(relPtrOff,id + 1);
+        for (int i = start; i < end; i++) {
+            if (getInt(relTypeOff,i) == ptrType)
+                result.add(getInt(relTargetOff,i));
+        }
+    }
+
+    /** ***************************************************************
+     * @return true if the first POS-prefixed synset is a hyponym of the
+     * second, following hypernym pointers.  Unlike
+     * WordNet.isHyponymRecurse() this is iterative and keeps visited
+     * synsets in a BitSet.
+     */
+    public boolean isHyponym(String synset, String hypo) {
+
+        int from = synsetID(synset);
+        int to = synsetID(hypo);
+        int hypernym = pointerTypeIndex("hypernym");
+        if (from < 0 || to < 0 || hypernym < 0)
+            return false;
+        BitSet visited = new BitSet(nSynsets);
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = from;
+        visited.set(from);
+        while (top > 0) {
+            int id = stack[--top];
+            int start = getInt(relPtrOff,id);
+            int end = getInt(relPtrOff,id + 1);
+            for (int i = start; i < end; i++) {
+                if (getInt(relTypeOff,i) != hypernym)
+                    continue;
+                int target = getInt(relTargetOff,i);
+                if (target == to)
+                    return true;
+                if (!visited.get(target)) {
+                    visited.set(target);
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack,top * 2);
+                    stack[top++] = target;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** ***************************************************************
+     * @return true if the root form word has a synset with the given
+     * part of speech number (1-4)
+     */
+    public boolean containsWord(String word, int pos) {
+
+        int idx = findSorted(lemmasOff,nLemmas,word);
+        if (idx < 0)
+            return false;
+        int start = getInt(lemmaPtrOff,idx);
+        int end = getInt(lemmaPtrOff,idx + 1);
+        for (int i = start; i < end; i++) {
+            if (getInt(synsetKeysOff,getInt(lemmaSynOff,i)) / 100000000 == pos)
+                return true;
+        }
+        return false;
+    }
+
+    /** ***************************************************************
+     * @return the space-separated 8 digit synsets for a root form word
+     * and part of speech number, in the same form as the values of
+     * WordNet.nounSynsetHash and its siblings, or null
+     */
+    public String getSynsetBlock(String word, int pos) {
+
+        int idx = findSorted(lemmasOff,nLemmas,word);
+        if (idx < 0)
+            return null;
+        StringBuffer sb = new StringBuffer();
+        int start = getInt(lemmaPtrOff,idx);
+        int end = getInt(lemmaPtrOff,idx + 1);
+        for (int i = start; i < end; i++) {
+            int key = getInt(synsetKeysOff,getInt(lemmaSynOff,i));
+            if (key / 100000000 == pos) {
+                if (sb.length() > 0)
+                    sb.append(" ");
+                sb.append(intToSynset(key).substring(1));
+            }
+        }
+        if (sb.length() == 0)
+            return null;
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     * @return the POS-prefixed synsets mapped to a bare SUMO term, as in
+     * WordNet.SUMOHash, or null
+     */
+    public ArrayList<String> getSynsetsForTerm(String term) {
+
+        int idx = findSorted(termsOff,nTerms,term);
+        if (idx < 0)
+            return null;
+        int start = getInt(termPtrOff,idx);
+        int end = getInt(termPtrOff,idx + 1);
+        ArrayList<String> result = new ArrayList<String>(end - start);
+        for (int i = start; i < end; i++)
+            result.add(synsetKey(getInt(termSynOff,i)));
+        return result;
+    }
+
+    /** ***************************************************************
+     * Add every multi-word lemma (containing an underscore) to the
+     * given collection.
+     */
+    public void collectMultiWords(Collection<String> result) {
+
+        for (int i = 0; i < nLemmas; i++) {
+            String lemma = getString(getInt(lemmasOff,i));
+            if (lemma.indexOf('_') >= 0)
+                result.add(lemma);
+        }
+    }
+
+    /** ***************************************************************
+     * Copy one of the exception tables (NOUN_EXCEPTIONS etc) into the
+     * given Hashtable.  These are small, and are kept on heap since the
+     * root form methods probe them for nearly every word.
+     */
+    public void fillExceptions(int table, Hashtable<String,String> hash) {
+
+        for (int i = 0; i < nExceptions; i++) {
+            if (getInt(exceptionsOff,i * 3) == table)
+                hash.put(getString(getInt(exceptionsOff,i * 3 + 1)),
+                         getString(getInt(exceptionsOff,i * 3 + 2)));
+        }
+    }
+
+    /** ***************************************************************
+     * Map a store file built by compile().
+     * @return the store, or null if the file is missing, malformed, or
+     * was built from source files with a different stamp.
+     */
+    public static WordNetStore open(File file, long expectedStamp) {
+
+        if (file == null || !file.exists())
+            return null;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file,"r");
+            FileChannel fc = raf.getChannel();
+            WordNetStore store = new WordNetStore();
+            store.buf = fc.map(FileChannel.MapMode.READ_ONLY,0,fc.size());
+            if (!store.readHeader(expectedStamp))
+                return null;
+            return store;
+        }
+        catch (IOException ex) {
+            System.out.println("Error in WordNetStore.open(): " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        }
+        finally {
+            try {
+                if (raf != null)
+                    raf.close();  // the mapping stays valid after close
+            }
+            catch (Exception ex) {
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Read the counts and compute the section offsets.
+     */
+    private boolean readHeader(long expectedStamp) {
+
+        if (buf.capacity() < HEADER_INTS * 4 || buf.getInt(0) != MAGIC)
+            return false;
+        if (buf.getInt(4) != VERSION)
+            return false;
+        sourceStamp = buf.getLong(8);
+        if (sourceStamp != expectedStamp)
+            return false;
+        int p = 16;
+        nSynsets = buf.getInt(p); p += 4;
+        nStrings = buf.getInt(p); p += 4;
+        int nPtrTypes = buf.getInt(p); p += 4;
+        nLemmas = buf.getInt(p); p += 4;
+        nTerms = buf.getInt(p); p += 4;
+        nExceptions = buf.getInt(p); p += 4;
+        int nPointers = buf.getInt(p); p += 4;
+        int nWordRefs = buf.getInt(p); p += 4;
+        int nLemmaRefs = buf.getInt(p); p += 4;
+        int nTermRefs = buf.getInt(p); p += 4;
+        int poolBytes = buf.getInt(p); p += 4;
+        p += 4; // reserved
+        synsetKeysOff = p; p += 4 * nSynsets;
+        glossOff = p;      p += 4 * nSynsets;
+        sumoOff = p;       p += 4 * nSynsets;
+        wordPtrOff = p;    p += 4 * (nSynsets + 1);
+        wordsOff = p;      p += 4 * nWordRefs;
+        relPtrOff = p;     p += 4 * (nSynsets + 1);
+        relTypeOff = p;    p += 4 * nPointers;
+        relTargetOff = p;  p += 4 * nPointers;
+        ptrTypesOff = p;   p += 4 * nPtrTypes;
+        lemmasOff = p;     p += 4 * nLemmas;
+        lemmaPtrOff = p;   p += 4 * (nLemmas + 1);
+        lemmaSynOff = p;   p += 4 * nLemmaRefs;
+        termsOff = p;      p += 4 * nTerms;
+        termPtrOff = p;    p += 4 * (nTerms + 1);
+        termSynOff = p;    p += 4 * nTermRefs;
+        exceptionsOff = p; p += 4 * 3 * nExceptions;
+        strOffsetsOff = p; p += 4 * (nStrings + 1);
+        poolOff = p;       p += poolBytes;
+        if (p != buf.capacity()) {
+            System.out.println("Error in WordNetStore.readHeader(): size mismatch " +
+                    p + " != " + buf.capacity());
+            return false;
+        }
+        ptrTypes = new String[nPtrTypes];
+        for (int i = 0; i < nPtrTypes; i++)
+            ptrTypes[i] = getString(getInt(ptrTypesOff,i)).intern();
+        return true;
+    }
+
+    /** ***************************************************************
+     * A growable int array, to avoid boxing while compiling.
+     */
+    public static class IntList {
+
+        public int[] data = new int[16];
+        public int size = 0;
+
+        public void add(int v) {
+            if (size == data.length)
+                data = Arrays.copyOf(data,size * 2);
+            data[size++] = v;
+        }
+
+        public int get(int i) {
+            return data[i];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+
+    /** ***************************************************************
+     * Compare Strings by their unsigned UTF-8 bytes, which is the order
+     * findSorted() relies on.
+     */
+    private static class Utf8Order implements Comparator<String> {
+
+        public int compare(String s1, String s2) {
+
+            byte[] a = s1.getBytes(StandardCharsets.UTF_8);
+            byte[] b = s2.getBytes(StandardCharsets.UTF_8);
+            int n = Math.min(a.length,b.length);
+            for (int i = 0; i < n; i++) {
+                int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+                if (c != 0)
+                    return c;
+            }
+            return a.length - b.length;
+        }
+    }
+
+    /** ***************************************************************
+     * Builds the string pool while compiling.
+     */
+    private static class StringPool {
+
+        HashMap<String,Integer> ids = new HashMap<String,Integer>();
+        ArrayList<String> strings = new ArrayList<String>();
+
+        int id(String s) {
+
+            if (s == null)
+                return -1;
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = Integer.valueOf(strings.size());
+                ids.put(s,id);
+                strings.add(s);
+            }
+            return id.intValue();
+        }
+    }
+
+    /** ***************************************************************
+     * Add the int keys of all the POS-prefixed synsets in the keys of
+     * a map, optionally prefixing them first.
+     */
+    private static void addKeys(TreeSet<Integer> keys, Set<String> synsets, String prefix) {
+
+        for (String s : synsets) {
+            int key = synsetToInt(prefix + s);
+            if (key >= 0)
+                keys.add(Integer.valueOf(key));
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeInts(DataOutputStream out, int[] ar) throws IOException {
+
+        for (int i = 0; i < ar.length; i++)
+            out.writeInt(ar[i]);
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeInts(DataOutputStream out, IntList ar) throws IOException {
+
+        for (int i = 0; i < ar.size; i++)
+            out.writeInt(ar.data[i]);
+    }
+
+    /** ***************************************************************
+     * Write a sorted string index with its CSR rows of synset IDs.
+     */
+    private static void writeIndex(DataOutputStream out, StringPool pool,
+            TreeMap<String,IntList> index) throws IOException {
+
+        for (String s : index.keySet())
+            out.writeInt(pool.id(s));
+        int ptr = 0;
+        out.writeInt(ptr);
+        for (IntList row : index.values()) {
+            ptr = ptr + row.size;
+            out.writeInt(ptr);
+        }
+        for (IntList row : index.values())
+            writeInts(out,row);
+    }
+
+    /** ***************************************************************
+     */
+    private static int refCount(TreeMap<String,IntList> index) {
+
+        int result = 0;
+        for (IntList row : index.values())
+            result = result + row.size;
+        return result;
+    }
+
+    /** ***************************************************************
+     * Write a store file from a WordNet that has been fully loaded from
+     * its source files.
+     */
+    public static void compile(WordNet wn, File file, long stamp) throws IOException {
+
+        long t1 = System.currentTimeMillis();
+        TreeSet<Integer> keySet = new TreeSet<Integer>();
+        addKeys(keySet,wn.nounDocumentationHash.keySet(),"1");
+        addKeys(keySet,wn.verbDocumentationHash.keySet(),"2");
+        addKeys(keySet,wn.adjectiveDocumentationHash.keySet(),"3");
+        addKeys(keySet,wn.adverbDocumentationHash.keySet(),"4");
+        addKeys(keySet,wn.synsetsToWords.keySet(),"");
+        addKeys(keySet,wn.relations.keySet(),"");
+        for (ArrayList<AVPair> al : wn.relations.values())
+            for (AVPair avp : al)
+                addKeys(keySet,Collections.singleton(avp.value),"");
+        int nSynsets = keySet.size();
+        int[] keys = new int[nSynsets];
+        HashMap<Integer,Integer> idOf = new HashMap<Integer,Integer>();
+        int n = 0;
+        for (Integer k : keySet) {
+            idOf.put(k,Integer.valueOf(n));
+            keys[n++] = k.intValue();
+        }
+
+        StringPool pool = new StringPool();
+        int[] gloss = new int[nSynsets];
+        int[] sumo = new int[nSynsets];
+        int[] wordPtr = new int[nSynsets + 1];
+        int[] relPtr = new int[nSynsets + 1];
+        IntList words = new IntList();
+        IntList relType = new IntList();
+        IntList relTarget = new IntList();
+        StringPool ptrPool = new StringPool();
+        for (int i = 0; i < nSynsets; i++) {
+            String synset = intToSynset(keys[i]);
+            gloss[i] = pool.id(wn.getDocumentation(synset));
+            sumo[i] = pool.id(wn.getSUMOMapping(synset));
+            wordPtr[i] = words.size;
+            ArrayList<String> al = wn.synsetsToWords.get(synset);
+            if (al != null)
+                for (String w : al)
+                    words.add(pool.id(w));
+            relPtr[i] = relType.size;
+            ArrayList<AVPair> rels = wn.relations.get(synset);
+            if (rels != null) {
+                for (AVPair avp : rels) {
+                    Integer target = idOf.get(Integer.valueOf(synsetToInt(avp.value)));
+                    if (target == null)
+                        continue;
+                    relType.add(ptrPool.id(avp.attribute));
+                    relTarget.add(target.intValue());
+                }
+            }
+        }
+        wordPtr[nSynsets] = words.size;
+        relPtr[nSynsets] = relType.size;
+
+        Utf8Order order = new Utf8Order();
+        TreeMap<String,IntList> lemmas = new TreeMap<String,IntList>(order);
+        Hashtable<?,?>[] synsetHashes = { wn.nounSynsetHash, wn.verbSynsetHash,
+                wn.adjectiveSynsetHash, wn.adverbSynsetHash };
+        for (int pos = 1; pos <= 4; pos++) {
+            @SuppressWarnings("unchecked")
+            Hashtable<String,String> hash = (Hashtable<String,String>) synsetHashes[pos - 1];
+            for (String word : hash.keySet()) {
+                IntList row = lemmas.get(word);
+                if (row == null) {
+                    row = new IntList();
+                    lemmas.put(word,row);
+                }
+                String block = hash.get(word);
+                if (StringUtil.emptyString(block))
+                    continue;
+                for (String s : block.split("\\s+")) {
+                    Integer id = idOf.get(Integer.valueOf(synsetToInt(pos + s)));
+                    if (id != null)
+                        row.add(id.intValue());
+                }
+            }
+        }
+        TreeMap<String,IntList> terms = new TreeMap<String,IntList>(order);
+        for (String term : wn.SUMOHash.keySet()) {
+            IntList row = new IntList();
+            for (String s : wn.SUMOHash.get(term)) {
+                Integer id = idOf.get(Integer.valueOf(synsetToInt(s)));
+                if (id != null)
+                    row.add(id.intValue());
+            }
+            terms.put(term,row);
+        }
+        IntList exceptions = new IntList();
+        List<Hashtable<String,String>> exceptionTables = wn.exceptionTables();
+        for (int t = 0; t < exceptionTables.size(); t++) {
+            for (Map.Entry<String,String> e : exceptionTables.get(t).entrySet()) {
+                exceptions.add(t);
+                exceptions.add(pool.id(e.getKey()));
+                exceptions.add(pool.id(e.getValue()));
+            }
+        }
+        int[] ptrTypeIds = new int[ptrPool.strings.size()];
+        for (int i = 0; i < ptrTypeIds.length; i++)
+            ptrTypeIds[i] = pool.id(ptrPool.strings.get(i));
+        // make sure every lemma and term is pooled before the pool is sized
+        for (String s : lemmas.keySet())
+            pool.id(s);
+        for (String s : terms.keySet())
+            pool.id(s);
+
+        int[] strOffsets = new int[pool.strings.size() + 1];
+        ArrayList<byte[]> encoded = new ArrayList<byte[]>(pool.strings.size());
+        int poolBytes = 0;
+        for (int i = 0; i < pool.strings.size(); i++) {
+            byte[] b = pool.strings.get(i).getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            strOffsets[i] = poolBytes;
+            poolBytes = poolBytes + b.length;
+        }
+        strOffsets[pool.strings.size()] = poolBytes;
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            out.writeInt(nSynsets);
+            out.writeInt(pool.strings.size());
+            out.writeInt(ptrTypeIds.length);
+            out.writeInt(lemmas.size());
+            out.writeInt(terms.size());
+            out.writeInt(exceptions.size / 3);
+            out.writeInt(relType.size);
+            out.writeInt(words.size);
+            out.writeInt(refCount(lemmas));
+            out.writeInt(refCount(terms));
+            out.writeInt(poolBytes);
+            out.writeInt(0); // reserved
+            writeInts(out,keys);
+            writeInts(out,gloss);
+            writeInts(out,sumo);
+            writeInts(out,wordPtr);
+            writeInts(out,words);
+            writeInts(out,relPtr);
+            writeInts(out,relType);
+            writeInts(out,relTarget);
+            writeInts(out,ptrTypeIds);
+            writeIndex(out,pool,lemmas);
+            writeIndex(out,pool,terms);
+            writeInts(out,exceptions);
+            writeInts(out,strOffsets);
+            for (byte[] b : encoded)
+                out.write(b);
+        }
+        finally {
+            if (out != null)
+                out.close();
+        }
+        System.out.println("INFO in WordNetStore.compile(): wrote " + nSynsets + " synsets to " +
+                file.getCanonicalPath() + " in " + ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+    }
+}
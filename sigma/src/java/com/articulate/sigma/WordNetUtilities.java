@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -513,7 +514,7 @@ public class WordNetUtilities {
      */
     private static String findMappingFromHypernym(String synset) {
 
-        ArrayList<AVPair> rels = WordNet.wn.relations.get(synset);   // relations requires prefixes
+        ArrayList<AVPair> rels = WordNet.wn.getRelations(synset);   // relations requires prefixes
         if (rels != null) {
             Iterator<AVPair> it2 = rels.iterator();
             while (it2.hasNext()) {
@@ -659,14 +660,8 @@ public class WordNetUtilities {
                     String newsynset = posNum + m.group(1);
                     String oldsynset = (String) mappings.get(newsynset);
                     if (oldsynset != null && oldsynset != "") {
-                        String term = "";
                         oldsynset = oldsynset.substring(1);
-                        switch (posNum.charAt(0)) {
-                        case '1': term = (String) WordNet.wn.nounSUMOHash.get(oldsynset); break;
-                        case '2': term = (String) WordNet.wn.verbSUMOHash.get(oldsynset); break;
-                        case '3': term = (String) WordNet.wn.adjectiveSUMOHash.get(oldsynset); break;
-                        case '4': term = (String) WordNet.wn.adverbSUMOHash.get(oldsynset); break;
-                        }
+                        String term = WordNet.wn.getSUMOMapping(posNum.charAt(0) + oldsynset);
                         if (term == null) {
                             pw.println(line.trim());
                             System.out.println("Error in WordNetUtilities.updateWNversionProcess(): No term for synsets (old, new): " +
@@ -801,10 +796,11 @@ public class WordNetUtilities {
         int equivalenceMappings = 0;
         StringBuffer result = new StringBuffer();
         result.append("<table><tr><td></td><td>instance</td><td>equivalence</td><td>subsuming</td><td></td></tr>\n");
-        Iterator<String> it = WordNet.wn.nounSUMOHash.keySet().iterator();
+        Map<String,String> mappings = WordNet.wn.getSUMOMappings('1');
+        Iterator<String> it = mappings.keySet().iterator();
         while (it.hasNext()) {
             String key = it.next();
-            String value = (String) WordNet.wn.nounSUMOHash.get(key);
+            String value = mappings.get(key);
             if (value.endsWith("="))
                 equivalenceMappings++;
             if (value.endsWith("+"))
@@ -822,10 +818,11 @@ public class WordNetUtilities {
         instanceMappings = 0;
         subsumingMappings = 0;
         equivalenceMappings = 0;
-        it = WordNet.wn.verbSUMOHash.keySet().iterator();
+        mappings = WordNet.wn.getSUMOMappings('2');
+        it = mappings.keySet().iterator();
         while (it.hasNext()) {
             String key = (String) it.next();
-            String value = (String) WordNet.wn.verbSUMOHash.get(key);
+            String value = mappings.get(key);
             if (value.endsWith("="))
                 equivalenceMappings++;
             if (value.endsWith("+"))
@@ -843,10 +840,11 @@ public class WordNetUtilities {
         instanceMappings = 0;
         subsumingMappings = 0;
         equivalenceMappings = 0;
-        it = WordNet.wn.adjectiveSUMOHash.keySet().iterator();
+        mappings = WordNet.wn.getSUMOMappings('3');
+        it = mappings.keySet().iterator();
         while (it.hasNext()) {
             String key = (String) it.next();
-            String value = (String) WordNet.wn.adjectiveSUMOHash.get(key);
+            String value = mappings.get(key);
             if (value.endsWith("="))
                 equivalenceMappings++;
             if (value.endsWith("+"))
@@ -864,10 +862,11 @@ public class WordNetUtilities {
         instanceMappings = 0;
         subsumingMappings = 0;
         equivalenceMappings = 0;
-        it = WordNet.wn.adverbSUMOHash.keySet().iterator();
+        mappings = WordNet.wn.getSUMOMappings('4');
+        it = mappings.keySet().iterator();
         while (it.hasNext()) {
             String key = (String) it.next();
-            String value = (String) WordNet.wn.adverbSUMOHash.get(key);
+            String value = mappings.get(key);
             if (value.endsWith("="))
                 equivalenceMappings++;
             if (value.endsWith("+"))
@@ -909,7 +908,7 @@ public class WordNetUtilities {
                 //System.out.println(";; " + l);
                 String synset = l.substring(1,9);
                 String url = l.substring(10);
-                String term = (String) WordNet.wn.nounSUMOHash.get(synset);
+                String term = WordNet.wn.getSUMOMapping("1" + synset);
                 //System.out.println(synset);
                 //System.out.println(term);
                 //if (term.endsWith("=")) {
@@ -958,10 +957,12 @@ public class WordNetUtilities {
     public static void extractMeronyms() {
 
         System.out.println("; All meronym relations from WordNet other than genus membership is filtered out");
-        Iterator<String> it = WordNet.wn.relations.keySet().iterator();
+        Iterator<String> it = WordNet.wn.getSynsets().iterator();
         while (it.hasNext()) {
             String key = (String) it.next();
-            ArrayList<AVPair> al = WordNet.wn.relations.get(key);
+            ArrayList<AVPair> al = WordNet.wn.getRelations(key);
+            if (al == null)
+                continue;
             for (int i = 0; i < al.size(); i++) {
                 AVPair avp = (AVPair) al.get(i);
                 if (avp.attribute.equals("member meronym") ||
@@ -971,11 +972,11 @@ public class WordNetUtilities {
                     String value = avp.value;
                     String SUMO1 = WordNet.wn.getSUMOMapping(key);
                     String SUMO2 = WordNet.wn.getSUMOMapping(value);
-                    String keywordlist = WordNet.wn.synsetsToWords.get(key).toString();
-                    String valuewordlist = WordNet.wn.synsetsToWords.get(value).toString();
+                    String keywordlist = WordNet.wn.getWordsFromSynset(key).toString();
+                    String valuewordlist = WordNet.wn.getWordsFromSynset(value).toString();
                     if (!excludedStringsForMeronymy(keywordlist,valuewordlist)) {
-                        System.out.println("; " + WordNet.wn.synsetsToWords.get(key)); //ArrayList<String>
-                        System.out.println("; " + WordNet.wn.synsetsToWords.get(value));                    
+                        System.out.println("; " + keywordlist); //ArrayList<String>
+                        System.out.println("; " + valuewordlist);                    
                         if (SUMO1 != null && SUMO2 != null)
                             System.out.println("(" + avp.attribute + " " + SUMO2.substring(2,SUMO2.length()-1) +
                                     " " + SUMO1.substring(2,SUMO1.length()-1) + ")");
@@ -1232,7 +1233,7 @@ public class WordNetUtilities {
 
         //if (synset.startsWith("WN30-")) 
         //    synset = synset.substring(5);
-        ArrayList<String> al = WordNet.wn.synsetsToWords.get(synset);
+        ArrayList<String> al = WordNet.wn.getWordsFromSynset(synset);
         if (al != null) {
             String parent = "Noun";
             switch (synset.charAt(0)) {
@@ -1249,17 +1250,11 @@ public class WordNetUtilities {
                 pw.println("fof(kb_WordNet_" + TPTPidCounter++ + ",axiom,(s__word(s__WN30_" + 
                         synset + ",s__WN30Word_" + wordAsID + "))).\n");
             }
-            String doc = null;
-            switch (synset.charAt(0)) {
-              case '1': doc = (String) WordNet.wn.nounDocumentationHash.get(synset.substring(1)); break;
-              case '2': doc = (String) WordNet.wn.verbDocumentationHash.get(synset.substring(1)); break;
-              case '3': doc = (String) WordNet.wn.adjectiveDocumentationHash.get(synset.substring(1)); break;
-              case '4': doc = (String) WordNet.wn.adverbDocumentationHash.get(synset.substring(1)); break;
-            }
+            String doc = WordNet.wn.getDocumentation(synset);
 
             //pw.println("fof(kb_WordNet_" + TPTPidCounter++ + ",axiom,(s__documentation(s__WN30_" + 
             //        synset + ",s__EnglishLanguage,\"" + StringUtil.escapeQuoteChars(doc) + "\")))."); 
-            ArrayList<AVPair> al2 = WordNet.wn.relations.get(synset);
+            ArrayList<AVPair> al2 = WordNet.wn.getRelations(synset);
             if (al2 != null) {
                 for (int i = 0; i < al2.size(); i++) {
                     AVPair avp = al2.get(i);
@@ -1392,7 +1387,7 @@ public class WordNetUtilities {
         writeTPTPWordNetRelationDefinitions(pw);
         writeTPTPWordNetClassDefinitions(pw);
           // Get POS-prefixed synsets.
-        Iterator<String> it = WordNet.wn.synsetsToWords.keySet().iterator();
+        Iterator<String> it = WordNet.wn.getSynsets().iterator();
         while (it.hasNext()) {
             String synset = it.next();
             writeTPTPWordNetSynset(pw,synset);
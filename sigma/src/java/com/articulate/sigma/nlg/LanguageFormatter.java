@@ -46,6 +46,9 @@ public class LanguageFormatter {
 
     private final Map<String, HashSet<String>> variableToInstanceMap;
 
+    // Surface forms of SUMO terms already looked up, keyed by term.
+    private final Map<String, String> properForms;
+
     // Modifiable versions of variableTypes and variableToInstanceMap for informal NLG.
     private HashMap<String, Set<String>> variableTypesNLG;
     private  Map<String, Set<String>> variableToInstanceMapNLG;
@@ -81,7 +84,18 @@ public class LanguageFormatter {
      */
     public LanguageFormatter(String stmt, Map<String, String> phraseMap, Map<String, String> termMap,
                              KB kb, String language) {
+        this(stmt, phraseMap, termMap, kb, language, new HashMap<String, String>());
+    }
+
+    /*******************************************************************************
+     *
+     * @param properForms a cache of SumoProcessCollector.getProperFormOfEntity() for
+     *                    the kb, which may be shared by formatters for the same kb.
+     */
+    LanguageFormatter(String stmt, Map<String, String> phraseMap, Map<String, String> termMap,
+                      KB kb, String language, Map<String, String> properForms) {
         this.statement = stmt;
+        this.properForms = properForms;
         this.phraseMap = phraseMap;
         this.termMap = termMap;
         this.kb = kb;
@@ -111,7 +125,7 @@ public class LanguageFormatter {
             Set<String> origInstances = entry.getValue();
             Set<String> newInstances = Sets.newHashSet();
             for (String instance : origInstances)   {
-                String newStr = SumoProcessCollector.getProperFormOfEntity(instance, kb);
+                String newStr = getProperForm(instance);
                 newInstances.add(newStr);
             }
             variableToInstanceMapNLG.put(variable, newInstances);
@@ -125,7 +139,7 @@ public class LanguageFormatter {
                 Set<String> origInstances = entry.getValue();
                 Set<String> newInstances = Sets.newHashSet();
                 for (String instance : origInstances)   {
-                    String newStr = SumoProcessCollector.getProperFormOfEntity(instance, kb);
+                    String newStr = getProperForm(instance);
                     newInstances.add(newStr);
                 }
                 variableTypesNLG.put(variable, newInstances);
@@ -134,6 +148,22 @@ public class LanguageFormatter {
     }
 
 
+    /***********************************************************************************
+     * @return SumoProcessCollector.getProperFormOfEntity() for the term, computed
+     * only once for each term.
+     */
+    private String getProperForm(String term) {
+
+        synchronized (properForms) {
+            String result = properForms.get(term);
+            if (result == null) {
+                result = SumoProcessCollector.getProperFormOfEntity(term, kb);
+                properForms.put(term, result);
+            }
+            return result;
+        }
+    }
+
     /***********************************************************************************
      * Hyperlink terms in a natural language format string.  This assumes that
      * terms to be hyperlinked are in the form &%termName$termString , where
@@ -167,13 +197,10 @@ public class LanguageFormatter {
 
             // Replace any variables in the template.
             if (StringUtil.isNonEmptyString(template)) {
-                Formula f = new Formula();
-                f.read(statement);
-                FormulaPreprocessor fp = new FormulaPreprocessor();
-                //HashMap varMap = fp.computeVariableTypes(kb);
+                // The variable types were computed for this statement in the constructor.
                 HashMap<String, Set<String>> instanceMap = new HashMap<>();
                 HashMap<String, Set<String>> classMap = new HashMap<>();
-                HashMap<String, HashSet<String>> types = fp.computeVariableTypes(f, kb);
+                Map<String, HashSet<String>> types = variableTypes;
                 Iterator<String> it = types.keySet().iterator();
                 while (it.hasNext()) {
                     String var = it.next();
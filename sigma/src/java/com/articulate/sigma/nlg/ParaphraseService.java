@@ -0,0 +1,220 @@
+/** This code is copyright Articulate Software (c) 2003.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or
+other representations of any software which incorporates, builds on, or uses this
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment,
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico. See also http://sigmakee.sourceforge.net
+ */
+
+package com.articulate.sigma.nlg;
+
+import com.articulate.sigma.*;
+
+import java.util.*;
+
+/** ***************************************************************
+ *  Caches HTML paraphrases of formulas, so that a formula shown on
+ *  many browser pages is only paraphrased once per language.  Each
+ *  KB's cache is emptied when the KB's version changes.  Paraphrases
+ *  of a batch of formulas share the format maps and the surface forms
+ *  of SUMO terms, which LanguageFormatter otherwise looks up anew for
+ *  every formula.
+ */
+public class ParaphraseService {
+
+    /** the number of paraphrases kept for each KB if the
+     * "paraphraseCacheSize" preference isn't set */
+    public static final int DEFAULT_MAX_ENTRIES = 20000;
+
+    private static HashMap<String,ParaphraseService> services = new HashMap<String,ParaphraseService>();
+
+    private KB kb = null;
+    private int version = 0;
+
+    /** the maximum number of paraphrases kept, which precompute()
+     * raises so that every formula of the KB fits */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /** surface forms of SUMO terms, shared by every paraphrase for the KB */
+    private HashMap<String,String> properForms = new HashMap<String,String>();
+
+    /** paraphrases keyed by language, link prefix and formula */
+    private LinkedHashMap<String,String> cache = new LinkedHashMap<String,String>(16,0.75f,true) {
+        protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /** ***************************************************************
+     */
+    private ParaphraseService(KB kb) {
+
+        this.kb = kb;
+        this.version = kb.getVersion();
+        this.maxEntries = KBmanager.getMgr().getIntPref("paraphraseCacheSize",DEFAULT_MAX_ENTRIES);
+    }
+
+    /** ***************************************************************
+     * @return the service for the current contents of the given KB
+     */
+    public static synchronized ParaphraseService getService(KB kb) {
+
+        ParaphraseService result = services.get(kb.name);
+        if (result == null || result.kb != kb || result.version != kb.getVersion()) {
+            result = new ParaphraseService(kb);
+            services.put(kb.name,result);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the link prefix used by the term browser for the given
+     * KB and language with SUO-KIF as the formal language
+     */
+    public static String defaultHref(String kbName, String language) {
+
+        String hostname = KBmanager.getMgr().getPref("hostname");
+        if (hostname == null)
+            hostname = "localhost";
+        String port = KBmanager.getMgr().getPref("port");
+        if (port == null)
+            port = "8080";
+        return "http://" + hostname + ":" + port + "/sigma/Browse.jsp?lang=" + language +
+                "&flang=SUO-KIF&kb=" + kbName;
+    }
+
+    /** ***************************************************************
+     */
+    private static String key(String href, String stmt, String language) {
+
+        return language + "\t" + href + "\t" + stmt;
+    }
+
+    /** ***************************************************************
+     * @return the cached paraphrase or null
+     */
+    private synchronized String get(String key) {
+
+        return cache.get(key);
+    }
+
+    /** ***************************************************************
+     */
+    private synchronized void put(String key, String pph) {
+
+        cache.put(key,pph);
+    }
+
+    /** ***************************************************************
+     */
+    private String paraphrase(String href, String stmt, Map<String,String> phraseMap,
+                              Map<String,String> termMap, String language) {
+
+        LanguageFormatter lf = new LanguageFormatter(stmt,phraseMap,termMap,kb,language,properForms);
+        return lf.htmlParaphrase(href);
+    }
+
+    /** ***************************************************************
+     * The same as NLGUtils.htmlParaphrase() with the KB's own format
+     * maps for the language, but computed at most once for each
+     * formula, language and link prefix.
+     */
+    public String htmlParaphrase(String href, String stmt, String language) {
+
+        String key = key(href,stmt,language);
+        String result = get(key);
+        if (result != null)
+            return result;
+        result = paraphrase(href,stmt,kb.getFormatMap(language),kb.getTermFormatMap(language),language);
+        if (result == null)
+            result = "";
+        put(key,result);
+        return result;
+    }
+
+    /** ***************************************************************
+     * Paraphrase a list of formulas, such as a page of the term
+     * browser, looking up the format maps only once.
+     * @return the paraphrases in the same order as the formulas
+     */
+    public ArrayList<String> htmlParaphrase(String href, List<String> stmts, String language) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        Map<String,String> phraseMap = null;
+        Map<String,String> termMap = null;
+        for (String stmt : stmts) {
+            String key = key(href,stmt,language);
+            String pph = get(key);
+            if (pph == null) {
+                if (phraseMap == null) {
+                    phraseMap = kb.getFormatMap(language);
+                    termMap = kb.getTermFormatMap(language);
+                }
+                pph = paraphrase(href,stmt,phraseMap,termMap,language);
+                if (pph == null)
+                    pph = "";
+                put(key,pph);
+            }
+            result.add(pph);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * Paraphrase every formula in the KB that the term browser
+     * paraphrases, which excludes Formula.DOC_PREDICATES, in a low
+     * priority background thread, so that browsing finds them already
+     * in the cache.  The cache is enlarged to hold them all.  Stops
+     * early if the KB changes.
+     * @return the thread, which has been started
+     */
+    public Thread precompute(final String href, final String language) {
+
+        Thread t = new Thread("ParaphraseService-" + kb.name) {
+            public void run() {
+                long t1 = System.currentTimeMillis();
+                ArrayList<String> stmts = new ArrayList<String>();
+                synchronized (kb.getTerms()) {
+                    for (Formula f : kb.formulaMap.values()) {
+                        if (!Formula.DOC_PREDICATES.contains(f.getArgument(0)))
+                            stmts.add(f.theFormula);
+                    }
+                }
+                synchronized (ParaphraseService.this) {
+                    maxEntries = Math.max(maxEntries,cache.size() + stmts.size());
+                }
+                Map<String,String> phraseMap = kb.getFormatMap(language);
+                Map<String,String> termMap = kb.getTermFormatMap(language);
+                int count = 0;
+                for (String stmt : stmts) {
+                    if (version != kb.getVersion())
+                        break;
+                    String key = key(href,stmt,language);
+                    if (get(key) == null) {
+                        try {
+                            String pph = paraphrase(href,stmt,phraseMap,termMap,language);
+                            put(key,pph == null ? "" : pph);
+                        }
+                        catch (Exception ex) {
+                            System.out.println("Error in ParaphraseService.precompute(): " +
+                                    ex.getMessage() + " for " + stmt);
+                        }
+                    }
+                    count++;
+                }
+                System.out.println("INFO in ParaphraseService.precompute(): " + count +
+                        " paraphrases for " + kb.name + " in " +
+                        ((System.currentTimeMillis() - t1) / 1000.0) + " seconds");
+            }
+        };
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+        return t;
+    }
+}
@@ -182,6 +182,16 @@ public class CorefSubstitutor {
         return substitutor.substitute();
     }
 
+    /** *************************************************************
+     * Same as substitute(List) but annotates with an existing pipeline
+     * rather than constructing a new set of CoreNLP models per call.
+     */
+    public static List<String> substitute(List<String> input, Pipeline pipeline) {
+
+        CorefSubstitutor substitutor = new CorefSubstitutor(pipeline.annotate(StringUtils.join(input, " ")));
+        return substitutor.substitute();
+    }
+
     /** *************************************************************
      * Substitutes coreferences in document and returns each sentence as a List.
      * @return returns a list of Strings with coref substitutions
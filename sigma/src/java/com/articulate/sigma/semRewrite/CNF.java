@@ -29,6 +29,9 @@ import java.util.*;
 public class CNF {
 
     public ArrayList<Clause> clauses = new ArrayList<Clause>();
+
+    // the compiled form of this CNF when it is the left hand side of a rule
+    private volatile CompiledCNF compiled = null;
     
     /** ***************************************************************
      */
@@ -247,9 +250,30 @@ public class CNF {
     /** ***************************************************************
      * Unify this CNF with the argument.  Note that the argument should
      * be a superset of clauses of (or equal to) this instance.  The argument
-     * is the "sentence" and this is the "rule"
+     * is the "sentence" and this is the "rule".  A ground sentence, the
+     * usual case, is matched by a compiled form of the rule that is
+     * built on first use and rebuilt if this CNF changes.
      */
     public HashMap<String,String> unify(CNF cnf) {
+
+        if (CompiledCNF.isGround(cnf)) {
+            CompiledCNF c = compiled;
+            if (c == null || !c.compiledFrom(this)) {
+                c = new CompiledCNF(this);
+                compiled = c;
+            }
+            if (c.usable)
+                return c.unify(cnf);
+        }
+        return unifyGeneral(cnf);
+    }
+
+    /** ***************************************************************
+     * Unify this CNF with the argument by copying both and applying
+     * bindings clause by clause.  Needed when the sentence has
+     * variables, which may be bound by the rule.
+     */
+    protected HashMap<String,String> unifyGeneral(CNF cnf) {
         
         CNF cnfnew2 = cnf.deepCopy();  // sentence        
         CNF cnfnew1 = this.deepCopy(); // rule
@@ -0,0 +1,360 @@
+package com.articulate.sigma.semRewrite;
+
+/*
+Copyright 2014-2015 IPsoft
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+MA  02111-1307 USA
+*/
+
+import java.util.*;
+
+/** *************************************************************
+ * The left hand side of a rule compiled for matching against a
+ * ground sentence.  Each rule variable is numbered into a slot of a
+ * binding array, constants and predicates are interned, and the
+ * positions of the wildcard '*' and word-number '-' in each constant
+ * are found once.  unify() gives exactly the result of
+ * CNF.unify() - the same bindings and the same bound and preserve
+ * flags left on the sentence - but it works on the rule in place
+ * instead of copying the rule and the sentence and building a new
+ * HashMap and Literal at every binding step.  Nothing is allocated
+ * unless a literal of the rule matches the sentence, which is the
+ * common case of a failed attempt.
+ *
+ * A CompiledCNF is immutable once built, so it can be shared by
+ * threads.  It keeps the objects it was compiled from so that a
+ * change to the CNF can be detected by compiledFrom().
+ */
+class CompiledCNF {
+
+    private static final int NONE = 0;
+    private static final int CELT = 1;
+    private static final int SUBCLASS = 2;
+    private static final int INSTANCE = 3;
+
+    /** false if the CNF has a malformed literal and must be unified
+     *  with the general algorithm */
+    final boolean usable;
+
+    // for detecting changes to the source CNF
+    private final ArrayList<Clause> sourceClauses;
+    private final Literal[] sources;
+    private final String[] sourcePreds;
+    private final String[] sourceArg1;
+    private final String[] sourceArg2;
+    private final boolean[] sourceNegated;
+    private final boolean[] sourcePreserve;
+
+    // literals of clause i are at indexes clauseStart[i] to clauseStart[i+1]-1
+    private final int[] clauseStart;
+    // index of the first clause that is a single negated literal
+    private final int negatedFrom;
+
+    private final String[] preds;
+    private final int[] procedure;
+    private final boolean[] preserve;
+    // slot of each argument if it is a variable, otherwise -1
+    private final int[] slot1;
+    private final int[] slot2;
+    // interned constants, or variable names
+    private final String[] const1;
+    private final String[] const2;
+    // index of the last '*' and '-' in each constant or variable name
+    private final int[] star1;
+    private final int[] star2;
+    private final int[] dash1;
+    private final int[] dash2;
+
+    private final String[] varNames;
+
+    /** *************************************************************
+     */
+    CompiledCNF(CNF cnf) {
+
+        sourceClauses = cnf.clauses;
+        int n = 0;
+        for (Clause c : cnf.clauses)
+            n += c.disjuncts.size();
+        sources = new Literal[n];
+        sourcePreds = new String[n];
+        sourceArg1 = new String[n];
+        sourceArg2 = new String[n];
+        sourceNegated = new boolean[n];
+        sourcePreserve = new boolean[n];
+        clauseStart = new int[cnf.clauses.size() + 1];
+        preds = new String[n];
+        procedure = new int[n];
+        preserve = new boolean[n];
+        slot1 = new int[n];
+        slot2 = new int[n];
+        const1 = new String[n];
+        const2 = new String[n];
+        star1 = new int[n];
+        star2 = new int[n];
+        dash1 = new int[n];
+        dash2 = new int[n];
+
+        LinkedHashMap<String,Integer> slots = new LinkedHashMap<String,Integer>();
+        boolean ok = true;
+        int negated = cnf.clauses.size();
+        int l = 0;
+        for (int i = 0; i < cnf.clauses.size(); i++) {
+            Clause c = cnf.clauses.get(i);
+            clauseStart[i] = l;
+            if (negated == cnf.clauses.size() && c.disjuncts.size() == 1 && c.disjuncts.get(0).negated)
+                negated = i;
+            for (Literal lit : c.disjuncts) {
+                sources[l] = lit;
+                sourcePreds[l] = lit.pred;
+                sourceArg1[l] = lit.arg1;
+                sourceArg2[l] = lit.arg2;
+                sourceNegated[l] = lit.negated;
+                sourcePreserve[l] = lit.preserve;
+                if (lit.pred == null || isEmpty(lit.arg1) || isEmpty(lit.arg2)) {
+                    ok = false;
+                    l++;
+                    continue;
+                }
+                preds[l] = lit.pred.intern();
+                if (lit.pred.equals("isCELTclass"))
+                    procedure[l] = CELT;
+                else if (lit.pred.equals("isSubclass"))
+                    procedure[l] = SUBCLASS;
+                else if (lit.pred.equals("isInstanceOf"))
+                    procedure[l] = INSTANCE;
+                preserve[l] = lit.preserve;
+                const1[l] = lit.arg1.intern();
+                const2[l] = lit.arg2.intern();
+                slot1[l] = slot(slots, lit.arg1);
+                slot2[l] = slot(slots, lit.arg2);
+                star1[l] = lit.arg1.lastIndexOf('*');
+                star2[l] = lit.arg2.lastIndexOf('*');
+                dash1[l] = lit.arg1.lastIndexOf('-');
+                dash2[l] = lit.arg2.lastIndexOf('-');
+                l++;
+            }
+        }
+        clauseStart[cnf.clauses.size()] = l;
+        negatedFrom = negated;
+        varNames = slots.keySet().toArray(new String[slots.size()]);
+        usable = ok;
+    }
+
+    /** *************************************************************
+     */
+    private static boolean isEmpty(String s) {
+
+        return s == null || s.length() == 0;
+    }
+
+    /** *************************************************************
+     * @return the slot number of a variable, adding it if new, or -1
+     * if the argument is a constant
+     */
+    private static int slot(LinkedHashMap<String,Integer> slots, String arg) {
+
+        if (!arg.startsWith("?"))
+            return -1;
+        Integer result = slots.get(arg);
+        if (result == null) {
+            result = Integer.valueOf(slots.size());
+            slots.put(arg, result);
+        }
+        return result.intValue();
+    }
+
+    /** *************************************************************
+     * @return true if cnf still has the clauses and literals, with the
+     * same contents, that this was compiled from
+     */
+    boolean compiledFrom(CNF cnf) {
+
+        if (cnf.clauses != sourceClauses || cnf.clauses.size() != clauseStart.length - 1)
+            return false;
+        for (int i = 0; i < cnf.clauses.size(); i++) {
+            ArrayList<Literal> lits = cnf.clauses.get(i).disjuncts;
+            if (lits.size() != clauseStart[i+1] - clauseStart[i])
+                return false;
+            for (int j = 0; j < lits.size(); j++) {
+                int l = clauseStart[i] + j;
+                Literal lit = lits.get(j);
+                if (lit != sources[l] || lit.pred != sourcePreds[l] || lit.arg1 != sourceArg1[l] ||
+                        lit.arg2 != sourceArg2[l] || lit.negated != sourceNegated[l] ||
+                        lit.preserve != sourcePreserve[l])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** *************************************************************
+     * @return true if every literal of the sentence has a predicate and
+     * two non-empty arguments, none of which is a variable
+     */
+    static boolean isGround(CNF sentence) {
+
+        for (int i = 0; i < sentence.clauses.size(); i++) {
+            ArrayList<Literal> lits = sentence.clauses.get(i).disjuncts;
+            for (int j = 0; j < lits.size(); j++) {
+                Literal lit = lits.get(j);
+                if (lit.pred == null || isEmpty(lit.arg1) || isEmpty(lit.arg2) ||
+                        lit.arg1.charAt(0) == '?' || lit.arg2.charAt(0) == '?')
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** *************************************************************
+     * @return the value of a rule argument given the current bindings:
+     * the binding of its variable, the variable name if it is unbound,
+     * or the constant.
+     */
+    private String value(int slot, String constant, String[] bindings) {
+
+        if (slot < 0 || bindings == null || bindings[slot] == null)
+            return constant;
+        return bindings[slot];
+    }
+
+    /** *************************************************************
+     * Match one argument of a sentence literal, t1, against the value
+     * of an argument of a rule literal.  Mirrors Literal.mguTermList() for a
+     * ground t1.
+     */
+    private static boolean matchArg(String t1, boolean bound, int slot, String value, int star, int dash) {
+
+        if (slot >= 0 && !bound)
+            return Literal.wildcardMatch(t1, value);
+        if (slot >= 0)  // a bound variable has a constant from the sentence
+            return Literal.constantMatch(t1, value);
+        return Literal.constantMatch(t1, t1.lastIndexOf('*'), t1.lastIndexOf('-'), value, star, dash);
+    }
+
+    /** *************************************************************
+     * @return true if sentence literal s matches rule literal l under
+     * the current bindings.  Neither is changed.
+     */
+    private boolean match(Literal s, int l, String[] bindings) {
+
+        if (s.pred != preds[l] && !s.pred.equals(preds[l]))
+            return false;
+        int sl1 = slot1[l];
+        int sl2 = slot2[l];
+        boolean bound1 = sl1 >= 0 && bindings != null && bindings[sl1] != null;
+        boolean bound2 = sl2 >= 0 && bindings != null && bindings[sl2] != null;
+        String v1 = value(sl1, const1[l], bindings);
+        if (!matchArg(s.arg1, bound1, sl1, v1, star1[l], dash1[l]))
+            return false;
+        String v2 = value(sl2, const2[l], bindings);
+        if (sl2 >= 0 && sl2 == sl1 && !bound1) {  // the same variable, just bound to arg1
+            bound2 = true;
+            v2 = s.arg1;
+        }
+        return matchArg(s.arg2, bound2, sl2, v2, star2[l], dash2[l]);
+    }
+
+    /** *************************************************************
+     * @return true if rule literal l is a procedure call, with both
+     * arguments ground under the current bindings, that succeeds
+     */
+    private boolean callProcedure(int l, String[] bindings) {
+
+        if (procedure[l] == NONE)
+            return false;
+        String a1 = value(slot1[l], const1[l], bindings);
+        String a2 = value(slot2[l], const2[l], bindings);
+        if (a1.startsWith("?") || a2.startsWith("?"))
+            return false;
+        Literal lit = new Literal();
+        lit.pred = preds[l];
+        lit.negated = sources[l].negated;
+        lit.preserve = preserve[l];
+        lit.arg1 = a1;
+        lit.arg2 = a2;
+        if (procedure[l] == CELT)
+            return Procedures.isCELTclass(lit).equals("true");
+        if (procedure[l] == SUBCLASS)
+            return Procedures.isSubclass(lit).equals("true");
+        return Procedures.isInstanceOf(lit).equals("true");
+    }
+
+    /** *************************************************************
+     * Unify the rule with a ground sentence, as CNF.unify() does.
+     * @return the variable bindings, or null if there is no match or
+     * no variable was bound
+     */
+    HashMap<String,String> unify(CNF sentence) {
+
+        String[] bindings = null;
+        for (int i = 0; i < clauseStart.length - 1; i++) {
+            boolean negatedClause = i >= negatedFrom;
+            boolean found = false;
+            Literal match = null;
+            int matched = -1;
+            // as in CNF.unifyDisjunct() and Clause.unify(), sentence
+            // clauses are the outer loop and the first match is taken
+            search:
+            for (int j = 0; j < sentence.clauses.size(); j++) {
+                ArrayList<Literal> lits = sentence.clauses.get(j).disjuncts;
+                for (int l = clauseStart[i]; l < clauseStart[i+1]; l++) {
+                    if (callProcedure(l, bindings)) {
+                        found = true;
+                        break search;
+                    }
+                    for (int k = 0; k < lits.size(); k++) {
+                        Literal s = lits.get(k);
+                        if (match(s, l, bindings)) {
+                            found = true;
+                            match = s;
+                            matched = l;
+                            break search;
+                        }
+                    }
+                }
+            }
+            if (negatedClause) {
+                sentence.clearBound();
+                if (found)  // successful binding is a failure for a negated clause
+                    return null;
+            }
+            else if (!found) {  // every clause in the rule must match to succeed
+                sentence.clearBound();
+                return null;
+            }
+            else if (match != null) {
+                if (preserve[matched])
+                    match.preserve = true;
+                match.bound = true;
+                int sl1 = slot1[matched];
+                int sl2 = slot2[matched];
+                if ((sl1 >= 0 || sl2 >= 0) && bindings == null)
+                    bindings = new String[varNames.length];
+                if (sl1 >= 0 && bindings[sl1] == null)
+                    bindings[sl1] = match.arg1;
+                if (sl2 >= 0 && bindings[sl2] == null)
+                    bindings[sl2] = match.arg2;
+            }
+        }
+        if (bindings == null)
+            return null;
+        HashMap<String,String> result = new HashMap<String,String>();
+        for (int i = 0; i < bindings.length; i++)
+            if (bindings[i] != null)
+                result.put(varNames[i], bindings[i]);
+        return result;
+    }
+}
@@ -21,16 +21,22 @@ MA  02111-1307 USA
 package com.articulate.sigma.semRewrite;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 import java.util.regex.*;
 import java.io.*;
 
 import com.articulate.sigma.*;
 import com.articulate.sigma.nlp.*;
-import com.articulate.sigma.nlp.pipeline.Pipeline;
 import com.articulate.sigma.nlp.pipeline.SentenceUtil;
 import com.articulate.sigma.semRewrite.datesandnumber.*;
 import com.articulate.sigma.semRewrite.substitutor.*;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -47,6 +53,8 @@ import static com.articulate.sigma.semRewrite.EntityType.PERSON;
 
 public class Interpreter {
 
+    private static final Logger logger = SigmaLog.getLogger(Interpreter.class);
+
     private static final String ANSWER_YES = "Yes.";
     private static final String ANSWER_NO = "No.";
     private static final String ANSWER_UNDEFINED = "I don't know.";
@@ -64,8 +72,10 @@ public class Interpreter {
     //public CNF input = null;
     public String fname = "";
 
-    // execution options
+    // execution options, which are the defaults copied into each
+    // InterpreterContext
     public static boolean inference = true;
+    // only used by the toKIF() and fromKIF() methods without a context
     public static boolean question = false;
     public static boolean addUnprocessed = false;
     //if true, show POS tags during parse
@@ -83,14 +93,14 @@ public class Interpreter {
     public static boolean showrhs = false;
     public static boolean showr = true;
 
-    public static List<String> qwords = Lists.newArrayList("who","what","where","when","why","which","how");
-    public static List<String> months = Lists.newArrayList("January","February","March","April","May","June",
+    public static final List<String> qwords = ImmutableList.of("who","what","where","when","why","which","how");
+    public static final List<String> months = ImmutableList.of("January","February","March","April","May","June",
             "July","August","September","October","November","December");
-    public static List<String> days = Lists.newArrayList("Sunday","Monday","Tuesday","Wednesday","Thursday","Friday","Saturday");
+    public static final List<String> days = ImmutableList.of("Sunday","Monday","Tuesday","Wednesday","Thursday","Friday","Saturday");
     public static TFIDF tfidf = null;
 
-    //Collection of utterances by the user
-    private Document userInputs = new Document();
+    //Collection of utterances by the user, with their annotations and derived KIF
+    private InterpreterSession session = new InterpreterSession();
 
     /** *************************************************************
      */
@@ -116,7 +126,21 @@ public class Interpreter {
     /** *************************************************************
      */
     protected Document getUserInputs() {
-        return userInputs;
+        return session.getDocument();
+    }
+
+    /** *************************************************************
+     */
+    public InterpreterSession getSession() {
+        return session;
+    }
+
+    /** *************************************************************
+     * Start a new dialog, forgetting prior utterances and the KIF
+     * derived from them.
+     */
+    public void newSession() {
+        session = new InterpreterSession();
     }
 
     /** *************************************************************
@@ -174,18 +198,19 @@ public class Interpreter {
 
         //System.out.println("INFO in Interpreter.addWSD(): " + clauses);
         KB kb = KBmanager.getMgr().getKB("SUMO");
-        DependencyConverter.readFirstNames();
+        Lexicon lexicon = Lexicon.get();
 
         Set<String> results = Sets.newHashSet();
 
         HashMap<String,String> purewords = extractWords(clauses);
         ArrayList<String> pure = Lists.newArrayList(purewords.keySet());
+        CoFrequencyMatrix.Context context = WSD.context(pure);
         //System.out.println("INFO in Interpreter.addWSD(): words: " + pure);
         for (Map.Entry<String, String> pureWordEntry : purewords.entrySet()) {
             String clauseKey = pureWordEntry.getKey();
             String pureWord = pureWordEntry.getValue();
             //System.out.println("INFO in Interpreter.addWSD(): pureWord:  " + pureWord);
-            if (WordNet.wn.stopwords.contains(pureWord) || qwords.contains(pureWord.toLowerCase()) || excluded(pureWord))
+            if (lexicon.isStopword(pureWord) || qwords.contains(pureWord.toLowerCase()) || excluded(pureWord))
                 continue;
             if (etp.equalsToEntityType(clauseKey, PERSON)) {
                 String humanReadable = splitCamelCase(pureWord);
@@ -201,7 +226,7 @@ public class Interpreter {
 
                 if (wordNetResults.isEmpty()) {
                     results.add("sumo(Human," + clauseKey + ")");
-                    String sexAttribute = getSexAttribute(split[0]);
+                    String sexAttribute = lexicon.getSexAttribute(split[0]);
                     if (!sexAttribute.isEmpty()) {
                         results.add("attribute(" + clauseKey + "," + sexAttribute + ")");
                     }
@@ -210,7 +235,7 @@ public class Interpreter {
             else {
                 String id = null;
                 if (posMap.isEmpty()) {
-                    id = WSD.findWordSenseInContext(pureWord, pure);
+                    id = WSD.findWordSenseInContext(pureWord, context);
                 } else {
                     String pos = "";
                     Matcher m = SubstitutionUtil.CLAUSE_PARAM.matcher(clauseKey);
@@ -218,7 +243,7 @@ public class Interpreter {
                         Integer idx = Integer.valueOf(m.group(2));
                         pos = posMap.get(idx);
                     }
-                    id = WSD.findWordSendInContextWithPos(pureWord, pure, WordNetUtilities.sensePOS(pos));
+                    id = WSD.findWordSendInContextWithPos(pureWord, context, WordNetUtilities.sensePOS(pos));
 
                 }
                 //System.out.println("INFO in Interpreter.addWSD(): id: " + id);
@@ -294,21 +319,6 @@ public class Interpreter {
         return results;
     }
 
-    /** *************************************************************
-     */
-    private static String getSexAttribute(String object) {
-
-        if (DependencyConverter.maleNames.contains(object)) {
-            return "Male";
-        } 
-        else if (DependencyConverter.femaleNames.contains(object)) {
-            return "Female";
-        } 
-        else {
-            return "";
-        }
-    }
-
     /** *************************************************************
      * Find all the variables that should be quantified - which are
      * those that have an appended "-num" suffix indicating that it
@@ -441,6 +451,15 @@ public class Interpreter {
      */
     private static String addQuantification(String form) {
 
+        return addQuantification(form, question);
+    }
+
+    /** *************************************************************
+     * @param question whether to quantify the query objects so that
+     *                 the prover returns bindings for them
+     */
+    private static String addQuantification(String form, boolean question) {
+
         ArrayList<String> vars = findQuantification(form);
         if (!question)
             return prependQuantifier(vars, form);
@@ -509,10 +528,10 @@ public class Interpreter {
         if (!ENDING_IN_PUNC_PATTERN.matcher(input).find()) {
             input = input + ".";
         }
-        System.out.println("INFO in Interpreter.processInput(): " + input);
-        List<String> substitutedInputs = userInputs.addUtterance(input);
+        logger.fine("input: " + input);
+        List<String> substitutedInputs = session.addUtterance(input);
         if (!input.equals(StringUtils.join(substitutedInputs, " "))) {
-            System.out.println("INFO input substituted to: " + substitutedInputs);
+            logger.fine("input substituted to: " + substitutedInputs);
         }
 
         return substitutedInputs;
@@ -541,22 +560,140 @@ public class Interpreter {
      */
     public String interpretSingle(String input) {
 
-        if (input.trim().endsWith("?")) {
-            question = true;
-        } else {
-            question = false;
+        InterpreterContext ctx = new InterpreterContext(input);
+        return answer(input, sentenceToKIF(input, ctx), ctx);
+    }
+
+    /** *************************************************************
+     * Interpret sentences that are independent of one another, parsing
+     * them and applying the rules on a pool of threads, one per
+     * processor.  No coreference is resolved across the sentences.
+     * @return an answer or assertion for each input, in order
+     */
+    public List<String> interpret(List<String> inputs) {
+
+        return interpret(inputs, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** *************************************************************
+     * Interpret independent sentences with a pool of the given number
+     * of threads.  Parsing and rule application share only the
+     * read-only RuleSet and the session caches, so they run in
+     * parallel.  The resulting KIF is then asked or told in the order
+     * of the inputs on the calling thread, since the KB and the prover
+     * are not safe to use from more than one thread.
+     * @return an answer or assertion for each input, in order, with
+     * null for a sentence that could not be interpreted
+     */
+    public List<String> interpret(List<String> inputs, int threads) {
+
+        final ArrayList<String> sentences = new ArrayList<String>();
+        final ArrayList<InterpreterContext> contexts = new ArrayList<InterpreterContext>();
+        for (String input : inputs) {
+            if (!ENDING_IN_PUNC_PATTERN.matcher(input).find())
+                input = input + ".";
+            sentences.add(input);
+            contexts.add(new InterpreterContext(input));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        ArrayList<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < sentences.size(); i++) {
+            final String sentence = sentences.get(i);
+            final InterpreterContext ctx = contexts.get(i);
+            futures.add(pool.submit(new Callable<String>() {
+                public String call() {
+                    return sentenceToKIF(sentence, ctx);
+                }
+            }));
+        }
+        pool.shutdown();
+        ArrayList<String> results = new ArrayList<String>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    String kif = futures.get(i).get();
+                    results.add(answer(sentences.get(i), kif, contexts.get(i)));
+                }
+                catch (ExecutionException e) {
+                    System.out.println("Error in Interpreter.interpret(): " + e.getCause().getMessage() +
+                            " for " + sentences.get(i));
+                    results.add(null);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Error in Interpreter.interpret(): interrupted");
+            while (results.size() < sentences.size())
+                results.add(null);
+        }
+        return results;
+    }
+
+    /** *************************************************************
+     * @return the quantified KIF for a sentence, reusing the KIF from
+     * an earlier turn of the session when there is one
+     */
+    private String sentenceToKIF(String input, InterpreterContext ctx) {
+
+        String kif = session.getKIF(input);
+        if (kif == null) {
+            kif = toKIF(interpretSentence(input, ctx), ctx.question);
+            session.putKIF(input, kif);
         }
+        else
+            logger.fine("reusing KIF from an earlier turn");
+        return kif;
+    }
+
+    /** *************************************************************
+     * Tell or ask the KIF for a sentence, falling back on TF/IDF for a
+     * question that inference can't answer.
+     */
+    private String answer(String input, String kif, InterpreterContext ctx) {
 
-        if (!question) {
-            tfidf.addInput(input);
+        if (!ctx.question) {
+            long t = System.nanoTime();
+            synchronized (tfidf) {
+                tfidf.addInput(input);
+            }
+            session.time("tfidf", t);
         }
 
-        Pipeline pipeline = new Pipeline();
-        Annotation document = pipeline.annotate(input);
+        long t = System.nanoTime();
+        String result = fromKIF(kif, ctx);
+        session.time("inference", t);
+        logger.fine("theorem proving result: '" + result + "'");
+
+        if (ctx.question && ((ANSWER_UNDEFINED.equals(result) && ctx.autoir) || ctx.ir)) {
+            if (ctx.autoir) {
+                System.out.println("Interpreter had no response so trying TFIDF");
+            }
+            t = System.nanoTime();
+            synchronized (tfidf) {
+                result = tfidf.matchInput(input).toString();
+            }
+            session.time("tfidf", t);
+        }
+
+        //System.out.println("INFO in Interpreter.interpretSingle(): combined result: " + result);
+        return result;
+    }
+
+    /** *************************************************************
+     * Parse a single sentence and apply the rules to it, timing each
+     * stage in the session.
+     * @return the KIF clauses produced by the rules
+     */
+    private ArrayList<String> interpretSentence(String input, InterpreterContext ctx) {
+
+        Annotation document = session.annotate(input);
+        long t = System.nanoTime();
 
         List<CoreLabel> tokens = document.get(CoreAnnotations.TokensAnnotation.class);
 
-        if (verboseParse) {
+        if (ctx.verboseParse) {
             for (CoreLabel label : tokens) {
                 printLabel(label);
             }
@@ -571,20 +708,26 @@ public class Interpreter {
                 new NounSubstitutor(results)
         );
         SubstitutionUtil.groupClauses(substitutor, results);
+        session.time("dependencies", t);
 
+        t = System.nanoTime();
         EntityTypeParser etp = new EntityTypeParser(document);
         List<String> wsd = findWSD(results, getPartOfSpeechList(document.get(CoreAnnotations.TokensAnnotation.class)), etp);
         results.addAll(wsd);
+        session.time("wsd", t);
 
+        t = System.nanoTime();
         List<String> posInformation = SentenceUtil.findPOSInformation(document, dependenciesList);
         results.addAll(posInformation);
         results = lemmatizeResults(results, tokens);
 
         results = processPhrasalVerbs(results);
+        session.time("pos", t);
 
         String in = StringUtil.removeEnclosingCharPair(results.toString(),Integer.MAX_VALUE,'[',']');
-        System.out.println("INFO in Interpreter.interpretSingle(): " + in);
+        logger.fine(in);
 
+        t = System.nanoTime();
         ArrayList<CNF> inputs = new ArrayList<CNF>();
         Lexer lex = new Lexer(in);
         CNF cnf = CNF.parseSimple(lex);
@@ -595,20 +738,12 @@ public class Interpreter {
             cnf.merge(cnfnew);
         }
         inputs.add(cnf);
+        session.time("numerics", t);
 
-        ArrayList<String> kifClauses = interpretCNF(inputs);
-        String result = fromKIFClauses(kifClauses);
-        System.out.println("INFO in Interpreter.interpretSingle(): Theorem proving result: '" + result + "'");
-
-        if (question && ((ANSWER_UNDEFINED.equals(result) && autoir) || ir)) {
-            if (autoir) {
-                System.out.println("Interpreter had no response so trying TFIDF");
-            }
-            result = tfidf.matchInput(input).toString();
-        }
-
-        //System.out.println("INFO in Interpreter.interpretSingle(): combined result: " + result);
-        return result;
+        t = System.nanoTime();
+        ArrayList<String> kifClauses = interpretCNF(inputs, ctx);
+        session.time("rules", t);
+        return kifClauses;
     }
 
     /** *************************************************************
@@ -839,12 +974,23 @@ public class Interpreter {
      */
     public ArrayList<String> interpretCNF(ArrayList<CNF> inputs) {
 
+        return interpretCNF(inputs, new InterpreterContext());
+    }
+
+    /** *************************************************************
+     * Apply the rules to the input until no more rules match.  The
+     * rules are only read, and the bound and preserve flags that
+     * unification sets are on a copy of the input, so the same RuleSet
+     * can be used by several threads at once.
+     */
+    public ArrayList<String> interpretCNF(ArrayList<CNF> inputs, InterpreterContext ctx) {
+
         if (inputs.size() > 1) {
             System.out.println("Error in Interpreter.interpretCNF(): multiple clauses"); 
             return null;
         }
         ArrayList<String> kifoutput = new ArrayList<String>();
-        System.out.println("INFO in Interpreter.interpretCNF(): inputs: " + inputs); 
+        logger.fine("inputs: " + inputs);
         boolean bindingFound = true;
         int counter = 0;
         while (bindingFound && counter < 10 && inputs != null && inputs.size() > 0) {
@@ -856,7 +1002,7 @@ public class Interpreter {
                 newInput = inputs.get(j).deepCopy();
                 //System.out.println("INFO in Interpreter.interpret(): new input 0: " + newInput);
                 for (int i = 0; i < rs.rules.size(); i++) {
-                    Rule r = rs.rules.get(i).deepCopy();      
+                    Rule r = rs.rules.get(i);  // unify() doesn't change the rule, so only copy it on success
                     //System.out.println("INFO in Interpreter.interpret(): new input 0.5: " + newInput);
                     //System.out.println("INFO in Interpreter.interpret(): r: " + r);
                     HashMap<String,String> bindings = r.cnf.unify(newInput);
@@ -864,10 +1010,11 @@ public class Interpreter {
                         newInput.clearBound();
                     }
                     else {
+                        r = r.deepCopy();
                         bindingFound = true;
                         //System.out.println("INFO in Interpreter.interpret(): new input 1: " + newInput);
                         //System.out.println("INFO in Interpreter.interpret(): bindings: " + bindings);
-                        if (showr)
+                        if (ctx.showr)
                             System.out.println("INFO in Interpreter.interpret(): r: " + r);
                         RHS rhs = r.rhs.applyBindings(bindings);   
                         if (r.operator == Rule.RuleOp.IMP) {
@@ -875,7 +1022,7 @@ public class Interpreter {
                             //System.out.println("INFO in Interpreter.interpret(): input with bindings removed: " + bindingsRemoved);
                             if (!bindingsRemoved.empty()) {  // assert the input after removing bindings
                                 if (rhs.cnf != null) {
-                                    if (showrhs)
+                                    if (ctx.showrhs)
                                         System.out.println("INFO in Interpreter.interpret(): add rhs " + rhs.cnf);
                                     bindingsRemoved.merge(rhs.cnf);
                                 }
@@ -883,7 +1030,7 @@ public class Interpreter {
                             }
                             else
                                 if (rhs.cnf != null) {
-                                    if (showrhs)
+                                    if (ctx.showrhs)
                                         System.out.println("INFO in Interpreter.interpret(): add rhs " + rhs.cnf);
                                     newInput = rhs.cnf;
                                 }
@@ -913,11 +1060,12 @@ public class Interpreter {
             if (bindingFound)
                 newinputs.add(newInput);
             else
-                if (addUnprocessed)
+                if (ctx.addUnprocessed)
                     addUnprocessed(kifoutput,newInput); // a hack to add unprocessed SDP clauses as if they were KIF
             inputs = new ArrayList<CNF>();
             inputs.addAll(newinputs);
-            System.out.println("INFO in Interpreter.interpret(): KB: " + printKB(inputs));
+            final ArrayList<CNF> kb = inputs;
+            logger.fine(() -> "KB: " + printKB(kb));
             //System.out.println("INFO in Interpreter.interpret(): bindingFound: " + bindingFound);
             //System.out.println("INFO in Interpreter.interpret(): counter: " + counter);
             //System.out.println("INFO in Interpreter.interpret(): newinputs: " + newinputs);
@@ -933,22 +1081,61 @@ public class Interpreter {
      */
     public String fromKIFClauses(ArrayList<String> kifcs) {
 
+        return fromKIF(toKIF(kifcs));
+    }
+
+    /** ***************************************************************
+     * @param kifcs a list of String simple KIF clauses
+     * @return a single quantified KIF formula
+     */
+    public String toKIF(ArrayList<String> kifcs) {
+
+        return toKIF(kifcs, question);
+    }
+
+    /** ***************************************************************
+     * @param kifcs a list of String simple KIF clauses
+     * @param question whether the clauses are a query
+     * @return a single quantified KIF formula
+     */
+    public String toKIF(ArrayList<String> kifcs, boolean question) {
+
         String s1 = toFOL(kifcs);
         String s2 = postProcess(s1);
-        String s3 = addQuantification(s2);
-        System.out.println("INFO in Interpreter.interpret(): KIF: " + (new Formula(s3)));
-        if (inference) {
+        return addQuantification(s2, question);
+    }
+
+    /** ***************************************************************
+     * @param s3 a quantified KIF formula from toKIF()
+     * @return the response from the E prover, whether an acknowledgement
+     * of an assertion, or a formula with the answer bindings substituted in
+     */
+    public String fromKIF(String s3) {
+
+        InterpreterContext ctx = new InterpreterContext();
+        ctx.question = question;
+        return fromKIF(s3, ctx);
+    }
+
+    /** ***************************************************************
+     * @param s3 a quantified KIF formula from toKIF()
+     * @param ctx the options and whether s3 is a question
+     */
+    public String fromKIF(String s3, InterpreterContext ctx) {
+
+        logger.fine(() -> "KIF: " + new Formula(s3));
+        if (ctx.inference) {
             KB kb = KBmanager.getMgr().getKB("SUMO");
-            if (question) {
+            if (ctx.question) {
                 Formula query = new Formula(s3);
                 ArrayList<String> inferenceAnswers = Lists.newArrayList();
-                if (verboseProof) {
+                if (ctx.verboseProof) {
                     inferenceAnswers = kb.ask(s3, 30, 1);
                 }
                 else {
                     inferenceAnswers = kb.askNoProof(s3, 30, 1);
                 }
-                if (verboseAnswer) {
+                if (ctx.verboseAnswer) {
                     System.out.println("Inference Answers: " + inferenceAnswers);
                 }
 
@@ -957,7 +1144,11 @@ public class Interpreter {
                 return answer;
             } 
             else {
-                System.out.println(kb.tell(s3));
+                String response = session.tell(kb, s3);
+                if (response != null)
+                    System.out.println(response);
+                else
+                    logger.fine("already asserted in this session");
             }
         }
         return s3;
@@ -1047,10 +1238,12 @@ public class Interpreter {
                 }
                 else if (input.equals("addUnprocessed")) {
                     addUnprocessed = true;
+                    session.clearKIF();
                     System.out.println("adding unprocessed clauses");
                 }
                 else if (input.equals("noUnprocessed")) {
                     addUnprocessed = false;
+                    session.clearKIF();
                     System.out.println("not adding unprocessed clauses");
                 }
                 else if (input.equals("noshowr")) {
@@ -1099,6 +1292,13 @@ public class Interpreter {
                         verboseAnswer = true;
                     }
                 }
+                else if (input.equals("timing")) {
+                    System.out.print(session.timingReport());
+                }
+                else if (input.equals("newsession")) {
+                    newSession();
+                    System.out.println("started a new dialog");
+                }
                 else if (input.startsWith("load "))
                     loadRules(input.substring(input.indexOf(' ')+1));
                 else if (input.equals("showpos")) {
@@ -1135,6 +1335,7 @@ public class Interpreter {
             fname = f;
             RuleSet rsin = RuleSet.readFile(f);
             rs = canon(rsin);
+            session.clearKIF();
         }
         catch (Exception e) {
             e.printStackTrace();
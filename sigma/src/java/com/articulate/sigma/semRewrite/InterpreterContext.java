@@ -0,0 +1,69 @@
+/*
+Copyright 2014-2015 IPsoft
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+MA  02111-1307 USA
+*/
+package com.articulate.sigma.semRewrite;
+
+/** ***************************************************************
+ * The options and state of the interpretation of one sentence.  The
+ * static options of Interpreter are the defaults that the interactive
+ * commands change; a context copies them when it is created, so that
+ * a sentence is interpreted with one consistent set of options and so
+ * that whether it is a question is known only to the thread that
+ * interprets it.
+ */
+public class InterpreterContext {
+
+    /** whether the sentence is a question, to be asked rather than told */
+    public boolean question = false;
+
+    public boolean inference;
+    public boolean addUnprocessed;
+    public boolean verboseParse;
+    public boolean autoir;
+    public boolean ir;
+    public boolean verboseAnswer;
+    public boolean verboseProof;
+    public boolean showrhs;
+    public boolean showr;
+
+    /** *************************************************************
+     * A context with the current default options.
+     */
+    public InterpreterContext() {
+
+        inference = Interpreter.inference;
+        addUnprocessed = Interpreter.addUnprocessed;
+        verboseParse = Interpreter.verboseParse;
+        autoir = Interpreter.autoir;
+        ir = Interpreter.ir;
+        verboseAnswer = Interpreter.verboseAnswer;
+        verboseProof = Interpreter.verboseProof;
+        showrhs = Interpreter.showrhs;
+        showr = Interpreter.showr;
+    }
+
+    /** *************************************************************
+     * A context with the current default options for a sentence, which
+     * is a question if it ends with a question mark.
+     */
+    public InterpreterContext(String input) {
+
+        this();
+        question = input.trim().endsWith("?");
+    }
+}
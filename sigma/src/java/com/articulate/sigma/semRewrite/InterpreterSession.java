@@ -0,0 +1,228 @@
+/*
+Copyright 2014-2015 IPsoft
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+MA  02111-1307 USA
+*/
+package com.articulate.sigma.semRewrite;
+
+import com.articulate.sigma.Document;
+import com.articulate.sigma.KB;
+import com.articulate.sigma.Metrics;
+import com.articulate.sigma.nlp.pipeline.Pipeline;
+import edu.stanford.nlp.pipeline.Annotation;
+
+import java.util.*;
+
+/** ***************************************************************
+ * The state of one dialog with the Interpreter.  Each turn is added
+ * incrementally: coreference is resolved against a window of the
+ * already substituted prior sentences, sentences are annotated with a
+ * single CoreNLP pipeline that lives as long as the session, and the
+ * KIF derived from each sentence is kept so that a repeated sentence
+ * skips parsing and rule application, and a repeated assertion is not
+ * told to the KB twice.  The time spent in each stage is accumulated
+ * so that it can be reported with timingReport().  A session may be
+ * used by several threads of Interpreter.interpret(List) at once, so
+ * its tables are only touched while holding its lock; the CoreNLP
+ * annotation itself is done outside the lock.
+ */
+public class InterpreterSession {
+
+    /** the number of prior sentences used as coreference context */
+    public int corefWindow = 10;
+
+    /** the number of sentence annotations kept */
+    public int maxAnnotations = 100;
+
+    private Pipeline pipeline = null;
+
+    // the dialog so far, with coreference substituted
+    private final Document document = new Document();
+
+    private final LinkedHashMap<String,Annotation> annotations =
+            new LinkedHashMap<String,Annotation>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String,Annotation> eldest) {
+                    return size() > maxAnnotations;
+                }
+            };
+
+    // sentence -> quantified KIF produced by the rules
+    private final HashMap<String,String> kif = new HashMap<String,String>();
+
+    // KIF asserted to the KB during this session, in order
+    private final LinkedHashSet<String> told = new LinkedHashSet<String>();
+
+    // stage name -> {calls, total nanoseconds}
+    private final LinkedHashMap<String,long[]> stageTimes = new LinkedHashMap<String,long[]>();
+
+    /** *************************************************************
+     * @return the shared pipeline, creating it on first use since
+     * loading the CoreNLP models is by far the most expensive step
+     */
+    public synchronized Pipeline getPipeline() {
+
+        if (pipeline == null) {
+            long t = System.nanoTime();
+            pipeline = new Pipeline();
+            time("pipeline", t);
+        }
+        return pipeline;
+    }
+
+    /** *************************************************************
+     */
+    public Document getDocument() {
+
+        return document;
+    }
+
+    /** *************************************************************
+     * Resolve coreference in a new utterance against the previous
+     * corefWindow sentences and add it to the dialog.
+     * @return the substituted sentences of the utterance
+     */
+    public synchronized List<String> addUtterance(String utterance) {
+
+        Pipeline p = getPipeline();
+        long t = System.nanoTime();
+        List<String> result = document.addUtterance(utterance, p, corefWindow);
+        time("coref", t);
+        return result;
+    }
+
+    /** *************************************************************
+     * @return the annotation of a single sentence, reusing the one
+     * from an earlier turn when the same sentence has been seen
+     */
+    public Annotation annotate(String sentence) {
+
+        Annotation result;
+        synchronized (this) {
+            result = annotations.get(sentence);
+        }
+        if (result != null)
+            return result;
+        Pipeline p = getPipeline();
+        long t = System.nanoTime();
+        result = p.annotate(sentence);
+        time("annotate", t);
+        synchronized (this) {
+            annotations.put(sentence, result);
+        }
+        return result;
+    }
+
+    /** *************************************************************
+     * @return the KIF previously derived from the sentence, or null
+     */
+    public synchronized String getKIF(String sentence) {
+
+        return kif.get(sentence);
+    }
+
+    /** *************************************************************
+     */
+    public synchronized void putKIF(String sentence, String form) {
+
+        kif.put(sentence, form);
+    }
+
+    /** *************************************************************
+     * Forget derived KIF, which must be done whenever the rules or the
+     * options that affect rule application change.  Annotations are
+     * kept since they depend only on the text.
+     */
+    public synchronized void clearKIF() {
+
+        kif.clear();
+    }
+
+    /** *************************************************************
+     * Assert a formula unless it has already been asserted in this
+     * session.
+     * @return the response from the KB, or null if nothing was told
+     */
+    public synchronized String tell(KB kb, String form) {
+
+        if (told.contains(form))
+            return null;
+        long t = System.nanoTime();
+        String result = kb.tell(form);
+        time("tell", t);
+        told.add(form);
+        return result;
+    }
+
+    /** *************************************************************
+     * @return the formulas asserted during this session, in order
+     */
+    public synchronized List<String> getTold() {
+
+        return new ArrayList<String>(told);
+    }
+
+    /** *************************************************************
+     * Add the time since start, from System.nanoTime(), to a stage,
+     * and record it in Metrics as semRewrite.stage.
+     */
+    public synchronized void time(String stage, long start) {
+
+        long elapsed = System.nanoTime() - start;
+        Metrics.record("semRewrite." + stage, elapsed);
+        long[] t = stageTimes.get(stage);
+        if (t == null) {
+            t = new long[2];
+            stageTimes.put(stage, t);
+        }
+        t[0]++;
+        t[1] += elapsed;
+    }
+
+    /** *************************************************************
+     * @return the number of calls and total milliseconds for each
+     * stage, in the order the stages were first timed
+     */
+    public synchronized Map<String,long[]> getStageTimes() {
+
+        LinkedHashMap<String,long[]> result = new LinkedHashMap<String,long[]>();
+        for (Map.Entry<String,long[]> e : stageTimes.entrySet())
+            result.put(e.getKey(), new long[] {e.getValue()[0], e.getValue()[1] / 1000000});
+        return result;
+    }
+
+    /** *************************************************************
+     */
+    public synchronized void resetTimes() {
+
+        stageTimes.clear();
+    }
+
+    /** *************************************************************
+     */
+    public String timingReport() {
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String,long[]> e : getStageTimes().entrySet()) {
+            long calls = e.getValue()[0];
+            long ms = e.getValue()[1];
+            sb.append(e.getKey() + ": " + calls + " calls, " + ms + " ms");
+            if (calls > 1)
+                sb.append(" (" + (ms / calls) + " ms each)");
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
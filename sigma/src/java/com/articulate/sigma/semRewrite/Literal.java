@@ -173,123 +173,149 @@ public class Literal {
     }
     
     /** ***************************************************************
-     * @return a boolean indicating whether a variable occurs in a literal.
-     * This is a degenerate case of general case of occurs check during
-     * unification, since we have no functions and argument lists are 
-     * always of length 2.
+     * @return true if the text of s before index star, its last '*',
+     * is the same, ignoring case, as the text of t before index dash,
+     * its last '-'.  Compares in place rather than taking substrings.
      */
-    private static boolean occursCheck(String t, Literal c) {
-        
-        if (t.equals(c.arg1) || t.equals(c.arg2))
+    static boolean prefixMatch(String s, int star, String t, int dash) {
+
+        return star == dash && s.regionMatches(true, 0, t, 0, star);
+    }
+
+    /** ***************************************************************
+     * @return true if two constants match, either because they are
+     * equal or because one is a wildcard such as at* and the other
+     * a word with the same stem, such as at-1.  star and dash are the
+     * indexes of the last '*' and '-' in each constant, or -1.
+     */
+    static boolean constantMatch(String t1, int star1, int dash1,
+                                 String t2, int star2, int dash2) {
+
+        if (t1.equals(t2))
             return true;
-        else
-            return false;
+        if (star1 > -1 && dash2 > -1)
+            return prefixMatch(t1, star1, t2, dash2);
+        else if (star2 > -1 && dash1 > -1)
+            return prefixMatch(t2, star2, t1, dash1);
+        return false;
     }
-    
+
+    /** ***************************************************************
+     */
+    static boolean constantMatch(String t1, String t2) {
+
+        if (t1.equals(t2))
+            return true;
+        return constantMatch(t1, t1.lastIndexOf('*'), t1.lastIndexOf('-'),
+                t2, t2.lastIndexOf('*'), t2.lastIndexOf('-'));
+    }
+
     /** ***************************************************************
      * @return false if there are wildcards and they don't match (or 
      * there's an error) and true if there are no wildcards.  Match
      * is case-insensitive.  Wildcards only allow for ignoring the
      * word-number suffix as in wildcard-5 would match wildcard*.
      */
-    private static boolean wildcardMatch(String t1, String t2) {
+    static boolean wildcardMatch(String t1, String t2) {
         
         //System.out.println("INFO in Clause.wildcardMatch(): attempting to match: " + t1 + " " + t2);
-        String s1 = t1;
-        String s2 = t2;
-        if (!t1.contains("*") && !t2.contains("*")) // no wildcards case should fall through
+        int star1 = t1.lastIndexOf('*');
+        int star2 = t2.lastIndexOf('*');
+        if (star1 < 0 && star2 < 0) // no wildcards case should fall through
             return true;
-        if (t1.contains("*") && t2.contains("*")) {
+        if (star1 > -1 && star2 > -1) {
             System.out.println("Error in Clause.wildcardMatch(): both arguments have wildcards: " + t1 + " " + t2);
             return false;
         }
-        if (t2.contains("*")) {
-            s1 = t2;
-            s2 = t1;
-        }
-        if (s1.indexOf('*') > -1 && s2.indexOf('-') > -1) {  // when wildcard, both have to be matching variables
-                                                             // except for suffix
-            if (!s1.substring(0,s1.lastIndexOf('*')).equalsIgnoreCase(s2.substring(0,s2.lastIndexOf('-'))))
-                return false;
+        if (star1 > -1) {  // when wildcard, both have to be matching variables except for suffix
+            int dash = t2.lastIndexOf('-');
+            return dash < 0 || prefixMatch(t1, star1, t2, dash);
         }
-        return true;
+        int dash = t1.lastIndexOf('-');
+        return dash < 0 || prefixMatch(t2, star2, t1, dash);
     }
         
     /** ***************************************************************
      * Unify all terms in term1 with the corresponding terms in term2 with a
      * common substitution. Note that unlike general unification, we have
-     * a fixed argument list of 2.   
+     * a fixed argument list of 2.  Bindings are applied to this literal
+     * and to local copies of the arguments of l2, so nothing is
+     * allocated unless unification succeeds.
      * @return the set of substitutions with the variable as the key and
      * the binding as the value in the HashMap.
      */
     public HashMap<String,String> mguTermList(Literal l2) {
 
         //System.out.println("INFO in Clause.mguTermList(): attempting to unify " + this + " and " + l2);
-        HashMap<String,String> subst = new HashMap<String,String>();
-        
         if (!pred.equals(l2.pred)) 
-            return null;        
+            return null;
+        HashMap<String,String> subst = null;
+        String l2arg1 = l2.arg1;
+        String l2arg2 = l2.arg2;
+        boolean l2empty = StringUtil.emptyString(l2arg1) || StringUtil.emptyString(l2arg2);
         for (int arg = 1; arg < 3; arg++) {           
             String t1 = arg1; // Pop the first term pair to unify off the lists            
-            String t2 = l2.arg1; // (removes and returns the denoted elements).
+            String t2 = l2arg1; // (removes and returns the denoted elements).
             if (arg == 2) {
                 t1 = arg2;            
-                t2 = l2.arg2;
+                t2 = l2arg2;
             }
             //System.out.println("INFO in Clause.mguTermList(): attempting to unify arguments " + t1 + " and " + t2); 
+            String var = null;
+            String value = null;
             if (t1.startsWith("?")) {
-                //System.out.println("INFO in Clause.mguTermList(): here 1");
                 if (t1.equals(t2))
                     // We could always test this upfront, but that would
                     // require an expensive check every time. 
                     // We descend recursively anyway, so we only check this on
                     // the terminal case.  
                     continue;
-                if (occursCheck(t1,l2))
+                if (t1.equals(l2arg1) || t1.equals(l2arg2)) // occurs check
                     return null;
-                // We now create a new substitution that binds t2 to t1, and
-                // apply it to the remaining unification problem. We know
-                // that every variable will only ever be bound once, because
-                // we eliminate all occurrences of it in this step - remember
-                // that by the failed occurs-check, t2 cannot contain t1.
-                HashMap<String,String> newBinding = new HashMap<String,String>();
+                // We now bind t2 to t1 and apply it to the remaining
+                // unification problem. We know that every variable will
+                // only ever be bound once, because we eliminate all
+                // occurrences of it in this step - remember that by the
+                // failed occurs-check, t2 cannot contain t1.
                 if (!wildcardMatch(t1,t2)) 
                     return null;
-                newBinding.put(t1,t2);                
-                applyBindingSelf(newBinding);
-                l2 = l2.applyBindings(newBinding);
-                subst.put(t1, t2);
+                var = t1;
+                value = t2;
             }
             else if (t2.startsWith("?")) {
-                //System.out.println("INFO in Clause.mguTermList(): here 2");
                 // Symmetric case - We know that t1!=t2, so we can drop this check
-                if (occursCheck(t2, this))
+                if (t2.equals(arg1) || t2.equals(arg2)) // occurs check
                     return null;
-                HashMap<String,String> newBinding = new HashMap<String,String>();
                 if (!wildcardMatch(t1,t2)) 
                     return null;
-                newBinding.put(t2, t1);          
-                applyBindingSelf(newBinding);
-                l2 = l2.applyBindings(newBinding);
-                subst.put(t2, t1);
+                var = t2;
+                value = t1;
             }
             else {
                 //System.out.println("INFO in Clause.mguTermList(): t1 " + t1 + " t2 " + t2);
-                if (!t1.equals(t2)) {
-                    if (t1.indexOf('*') > -1 && t2.indexOf('-') > -1) {
-                        if (!t1.substring(0,t1.lastIndexOf('*')).equalsIgnoreCase(t2.substring(0,t2.lastIndexOf('-'))))
-                            return null;
-                    }
-                    else if (t2.indexOf('*') > -1 && t1.indexOf('-') > -1) {
-                        if (!t2.substring(0,t2.lastIndexOf('*')).equalsIgnoreCase(t1.substring(0,t1.lastIndexOf('-'))))
-                            return null;
-                    }
-                    else
-                        return null;
-                }
+                if (!constantMatch(t1,t2))
+                    return null;
+                continue;
+            }
+            if (arg1.startsWith("?") && arg1.equals(var))
+                arg1 = value;
+            if (arg2.startsWith("?") && arg2.equals(var))
+                arg2 = value;
+            if (l2empty)
+                System.out.println("Error in Clause.applyBindings(): Empty argument(s): " + l2);
+            else {
+                if (l2arg1.startsWith("?") && l2arg1.equals(var))
+                    l2arg1 = value;
+                if (l2arg2.startsWith("?") && l2arg2.equals(var))
+                    l2arg2 = value;
             }
+            if (subst == null)
+                subst = new HashMap<String,String>();
+            subst.put(var, value);
         }
         //System.out.println("INFO in Clause.mguTermList(): subst on exit: " + subst);
+        if (subst == null)
+            subst = new HashMap<String,String>();
         return subst;
     }
     
@@ -318,6 +344,8 @@ public class Literal {
             }
             //System.out.println("INFO in Clause.parse(): " + lex.look());
             cl.pred = lex.next();
+            if (cl.pred != null)
+                cl.pred = cl.pred.intern(); // predicates are few, so compare them by reference first
             //System.out.println("INFO in Clause.parse(): " + lex.look());
             if (!lex.testTok(Lexer.OpenPar)) {
                 errStr = (errStart + ": Invalid token '" + lex.look() + "' near line " + startLine + " on input " + lex.line);
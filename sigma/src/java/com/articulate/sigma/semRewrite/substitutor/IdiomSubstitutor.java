@@ -21,7 +21,7 @@
 
 package com.articulate.sigma.semRewrite.substitutor;
 
-import com.articulate.sigma.WordNet;
+import com.articulate.sigma.Lexicon;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -46,9 +46,9 @@ public class IdiomSubstitutor extends SimpleSubstitutorStorage {
     private void initialize(ArrayList<String> labels) {
         int from = 0;
         Map<String, String> collectedIdioms = Maps.newHashMap();
-        ArrayList<String> synset = Lists.newArrayList();
+        Lexicon lexicon = Lexicon.get();
         while (from < labels.size()) {
-            int to = WordNet.wn.collectMultiWord(labels, from, synset);
+            int to = lexicon.collectMultiWord(labels, from);
             if (to > from) {
                 String idiomValue = buildIdiom(labels, from, to);
                 for(int i = from; i < to; i++) {
@@ -0,0 +1,83 @@
+package com.articulate.sigma.benchmarks;
+
+import com.articulate.sigma.KB;
+import com.articulate.sigma.KBmanager;
+import com.articulate.sigma.Formula;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** ***************************************************************
+ * Loads the KBs bundled with Sigma for the benchmarks, without a
+ * config.xml and without starting the E prover, so that the
+ * benchmarks run offline and measure the same files on every machine.
+ * The KBs directory is the sigma.kbs system property, which defaults
+ * to the KBs project next to this one.
+ */
+public class BenchmarkKB {
+
+    public static final String KB_DIR = new File(System.getProperty("sigma.kbs",
+            ".." + File.separator + "KBs")).getAbsolutePath();
+
+    public static final String[] CONSTITUENTS = {"Merge.kif", "english_format.kif"};
+
+    private static KB kb = null;
+
+    /** ***************************************************************
+     * @return the full path of a file in the bundled KBs directory
+     */
+    public static String path(String filename) {
+
+        return KB_DIR + File.separator + filename;
+    }
+
+    /** ***************************************************************
+     * Set the preferences needed to load a KB from the bundled files.
+     */
+    public static void setPrefs() {
+
+        KBmanager mgr = KBmanager.getMgr();
+        mgr.setPref("kbDir", KB_DIR);
+        mgr.setPref("cache", "no");
+        mgr.setPref("TPTP", "no");
+        mgr.setPref("loadCELT", "no");
+        mgr.setPref("wordNetStore", "no");
+        mgr.setPref("holdsPrefix", "no");
+        mgr.setPref("typePrefix", "no");
+    }
+
+    /** ***************************************************************
+     * Load SUMO from the bundled files once per benchmark JVM.
+     */
+    public static synchronized KB load() {
+
+        if (kb != null)
+            return kb;
+        setPrefs();
+        ArrayList<String> files = new ArrayList<String>();
+        for (String f : CONSTITUENTS)
+            files.add(path(f));
+        if (!KBmanager.getMgr().loadKB("SUMO", files))
+            throw new IllegalStateException("Could not load SUMO from " + KB_DIR);
+        kb = KBmanager.getMgr().getKB("SUMO");
+        return kb;
+    }
+
+    /** ***************************************************************
+     * @return up to n rules from the KB, sorted so that every run
+     * measures the same formulas
+     */
+    public static List<Formula> rules(KB kb, int n) {
+
+        ArrayList<Formula> result = new ArrayList<Formula>();
+        for (Formula f : kb.formulaMap.values())
+            if (f.isRule())
+                result.add(f);
+        Collections.sort(result, (f1, f2) -> f1.theFormula.compareTo(f2.theFormula));
+        if (result.size() > n)
+            return new ArrayList<Formula>(result.subList(0, n));
+        return result;
+    }
+}
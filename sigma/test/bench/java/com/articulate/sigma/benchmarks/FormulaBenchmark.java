@@ -0,0 +1,86 @@
+package com.articulate.sigma.benchmarks;
+
+import com.articulate.sigma.Formula;
+import com.articulate.sigma.FormulaPreprocessor;
+import com.articulate.sigma.KB;
+import com.articulate.sigma.SUMOformulaToTPTPformula;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** ***************************************************************
+ * List operations on formulas and the translation of rules to TPTP.
+ * Each benchmark processes the same sample of rules from Merge.kif,
+ * so the reported time is for the whole sample.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormulaBenchmark {
+
+    @Param({"200"})
+    public int rules;
+
+    private KB kb;
+    private List<Formula> sample;
+
+    /** ***************************************************************
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+
+        kb = BenchmarkKB.load();
+        sample = BenchmarkKB.rules(kb, rules);
+    }
+
+    /** ***************************************************************
+     * Walk the top level of each rule with car() and cdr().
+     */
+    @Benchmark
+    public void carCdr(Blackhole bh) {
+
+        for (Formula f : sample) {
+            Formula rest = f;
+            while (rest != null && !rest.empty()) {
+                bh.consume(rest.car());
+                rest = rest.cdrAsFormula();
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Hash a new copy of each rule, which canonicalizes it.
+     */
+    @Benchmark
+    public void hashCodes(Blackhole bh) {
+
+        for (Formula f : sample)
+            bh.consume(new Formula(f.theFormula).hashCode());
+    }
+
+    /** ***************************************************************
+     */
+    @Benchmark
+    public void preProcess(Blackhole bh) {
+
+        FormulaPreprocessor fp = new FormulaPreprocessor();
+        for (Formula f : sample)
+            bh.consume(fp.preProcess(new Formula(f.theFormula), false, kb));
+    }
+
+    /** ***************************************************************
+     */
+    @Benchmark
+    public void tptpParse(Blackhole bh) throws Exception {
+
+        for (Formula f : sample) {
+            SUMOformulaToTPTPformula stptp = new SUMOformulaToTPTPformula();
+            bh.consume(stptp.tptpParse(new Formula(f.theFormula), false, kb));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.articulate.sigma.benchmarks;
+
+import com.articulate.sigma.Formula;
+import com.articulate.sigma.KB;
+import com.articulate.sigma.KBcache;
+import com.articulate.sigma.KIF;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/** ***************************************************************
+ * Loading Merge.kif, index lookups and cache construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KBBenchmark {
+
+    private KB kb;
+
+    /** ***************************************************************
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+
+        kb = BenchmarkKB.load();
+    }
+
+    /** ***************************************************************
+     * Lex and parse Merge.kif into a new KIF object.
+     */
+    @Benchmark
+    public KIF parseMerge() throws Exception {
+
+        KIF kif = new KIF();
+        kif.readFile(BenchmarkKB.path("Merge.kif"));
+        return kif;
+    }
+
+    /** ***************************************************************
+     * Look up the statements with a given term in a given argument.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ArrayList<Formula> ask() {
+
+        return kb.ask("arg", 2, "Animal");
+    }
+
+    /** ***************************************************************
+     * Look up the statements with given terms in two arguments.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ArrayList<Formula> askWithRestriction() {
+
+        return kb.askWithRestriction(0, "subclass", 2, "Animal");
+    }
+
+    /** ***************************************************************
+     * Compute the relation, parent, child and instance caches from
+     * scratch.
+     */
+    @Benchmark
+    public KBcache buildCaches() {
+
+        KBcache cache = new KBcache(kb);
+        cache.buildCaches();
+        return cache;
+    }
+}
@@ -0,0 +1,93 @@
+package com.articulate.sigma.benchmarks;
+
+import com.articulate.sigma.Formula;
+import com.articulate.sigma.KB;
+import com.articulate.sigma.StringUtil;
+import com.articulate.sigma.WordNet;
+import com.articulate.sigma.nlp.TFIDF;
+import com.articulate.sigma.semRewrite.CNF;
+import com.articulate.sigma.semRewrite.Interpreter;
+import com.articulate.sigma.semRewrite.InterpreterContext;
+import com.articulate.sigma.semRewrite.Lexer;
+import com.articulate.sigma.semRewrite.RuleSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/** ***************************************************************
+ * Semantic rewriting with SemRewrite.txt, TF/IDF matching over the
+ * SUMO documentation strings, and loading WordNet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NLPBenchmark {
+
+    // "John announced about his plan." after parsing and WSD
+    private static final String SENTENCE = "root(ROOT-0, announce-2), nsubj(announce-2, John-1), " +
+            "poss(plan-6, John-4), prep_about(announce-2, plan-6), names(John-1, \"John\"), " +
+            "sumo(Disseminating, announce-2), attribute(John-4, Male), attribute(John-1, Male), " +
+            "sumo(Human, John-1), sumo(Human, John-4), names(John-4, \"John\"), sumo(Plan, plan-6), " +
+            "number(SINGULAR, John-1), tense(PAST, announce-2), number(SINGULAR, John-4), " +
+            "number(SINGULAR, plan-6)";
+
+    private Interpreter interpreter;
+    private InterpreterContext ctx;
+    private CNF input;
+    private TFIDF tfidf;
+
+    /** ***************************************************************
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        KB kb = BenchmarkKB.load();
+        String mappings = BenchmarkKB.path("WordNetMappings");
+        interpreter = new Interpreter(RuleSet.readFile(mappings + File.separator + "SemRewrite.txt"));
+        ctx = new InterpreterContext();
+        ctx.showr = false;
+        ctx.showrhs = false;
+        input = CNF.parseSimple(new Lexer(SENTENCE));
+
+        ArrayList<String> docs = new ArrayList<String>();
+        for (Formula f : kb.ask("arg", 0, "documentation"))
+            docs.add(StringUtil.removeEnclosingQuotes(f.getArgument(3)));
+        tfidf = new TFIDF(docs, mappings + File.separator + "stopwords.txt");
+    }
+
+    /** ***************************************************************
+     * Apply the rules to one parsed sentence until none match.
+     */
+    @Benchmark
+    public ArrayList<String> interpretCNF() {
+
+        ArrayList<CNF> inputs = new ArrayList<CNF>();
+        inputs.add(input);
+        return interpreter.interpretCNF(inputs, ctx);
+    }
+
+    /** ***************************************************************
+     */
+    @Benchmark
+    public String matchInput() {
+
+        return tfidf.matchInput("Which animals have a backbone?");
+    }
+
+    /** ***************************************************************
+     * Read the WordNet files and the SUMO mappings from scratch.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public WordNet initOnce() {
+
+        WordNet.initNeeded = true;
+        WordNet.initOnce();
+        return WordNet.wn;
+    }
+}
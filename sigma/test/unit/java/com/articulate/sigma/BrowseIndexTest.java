@@ -0,0 +1,46 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BrowseIndexTest extends UnitTestBase {
+
+    @Test
+    public void testPagesMatchSortedAsk() {
+
+        KB kb = SigmaTestBase.kb;
+        ArrayList<Formula> expected = TaxoModel.removeCached(kb.ask("arg", 2, "Process"));
+        Collections.sort(expected);
+        BrowseIndex index = BrowseIndex.getIndex(kb);
+        assertEquals(expected.size(), index.size("arg", 2, "Process", false));
+        ArrayList<Formula> actual = new ArrayList<Formula>();
+        for (int start = 0; start < expected.size(); start = start + 3)
+            actual.addAll(index.page("arg", 2, "Process", false, start, start + 3));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i).theFormula, actual.get(i).theFormula);
+    }
+
+    @Test
+    public void testUnknownTerm() {
+
+        BrowseIndex index = BrowseIndex.getIndex(SigmaTestBase.kb);
+        assertEquals(0, index.size("arg", 1, "NoSuchTermAnywhere", true));
+        assertEquals(0, index.page("arg", 1, "NoSuchTermAnywhere", true, 0, 50).size());
+    }
+
+    @Test
+    public void testRowCache() {
+
+        BrowseIndex index = BrowseIndex.getIndex(SigmaTestBase.kb);
+        assertNull(index.getRow("(instance Foo Bar)", "", "EnglishLanguage", "SUO-KIF"));
+        index.putRow("(instance Foo Bar)", "", "EnglishLanguage", "SUO-KIF", "<tr></tr>");
+        assertEquals("<tr></tr>", index.getRow("(instance Foo Bar)", "", "EnglishLanguage", "SUO-KIF"));
+        assertNull(index.getRow("(instance Foo Bar)", "", "EnglishLanguage", "TPTP"));
+        assertSame(index, BrowseIndex.getIndex(SigmaTestBase.kb));
+    }
+}
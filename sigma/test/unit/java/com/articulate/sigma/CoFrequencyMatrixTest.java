@@ -0,0 +1,50 @@
+package com.articulate.sigma;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class CoFrequencyMatrixTest {
+
+    private static CoFrequencyMatrix buildMatrix() {
+
+        CoFrequencyMatrix.Builder builder = new CoFrequencyMatrix.Builder();
+        HashMap<String,Integer> bank1 = new HashMap<String,Integer>();
+        bank1.put("money", 7);
+        bank1.put("loan", 3);
+        builder.addRow("bank_NN_1", bank1);
+        HashMap<String,Integer> bank2 = new HashMap<String,Integer>();
+        bank2.put("river", 9);
+        bank2.put("water", 2);
+        bank2.put("money", 1);
+        builder.addRow("bank_NN_2", bank2);
+        builder.addRow("bank_NN_3", new HashMap<String,Integer>());
+        return builder.build();
+    }
+
+    @Test
+    public void testScore() {
+
+        CoFrequencyMatrix m = buildMatrix();
+        assertEquals(3, m.size());
+        CoFrequencyMatrix.Context ctx = m.context(Lists.newArrayList("The", "River", "bank", "had", "money", "money"));
+        assertEquals(2, ctx.size());
+        assertEquals(14, m.score("bank_NN_1", ctx));
+        assertEquals(11, m.score("bank_NN_2", ctx));
+        assertEquals(0, m.score("bank_NN_3", ctx));
+        assertEquals(-1, m.score("bank_NN_4", ctx));
+    }
+
+    @Test
+    public void testEmptyContext() {
+
+        CoFrequencyMatrix m = buildMatrix();
+        CoFrequencyMatrix.Context ctx = m.context(Lists.newArrayList("nothing", "here"));
+        assertEquals(0, ctx.size());
+        assertEquals(0, m.score("bank_NN_1", ctx));
+        assertTrue(m.containsSense("bank_NN_2"));
+    }
+}
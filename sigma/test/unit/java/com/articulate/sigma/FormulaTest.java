@@ -667,4 +667,26 @@ public class FormulaTest {
         actual = f.replaceQuantifierVars(Formula.EQUANT, vars);
         assertFalse(actual.toString() + "\n should not be logically equal to \n" + expected, actual.logicallyEquals(expected));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCanonicalFormAndFingerprint() {
+        Formula f1 = new Formula("(=> (instance ?X Human) (attribute ?X Mortal))");
+        Formula f2 = new Formula("(=> (instance ?Y Human) (attribute ?Y Mortal))");
+        Formula f3 = new Formula("(=> (instance ?Y Human) (attribute ?Y Happy))");
+
+        assertEquals(f1.getCanonicalForm(), f2.getCanonicalForm());
+        assertEquals(f1.getFingerprint(), f2.getFingerprint());
+        assertEquals(f1, f2);
+        assertEquals(f1.hashCode(), f2.hashCode());
+        assertNotEquals(f1.getFingerprint(), f3.getFingerprint());
+        assertNotEquals(f1, f3);
+
+        // the cached form follows changes to the text
+        f2.read(f3.theFormula);
+        assertEquals(f3.getCanonicalForm(), f2.getCanonicalForm());
+        assertEquals(f3, f2);
+        f2.theFormula = f1.theFormula;
+        assertEquals(f1, f2);
+        assertEquals(f1.getFingerprint(), f2.copy().getFingerprint());
+    }
+}
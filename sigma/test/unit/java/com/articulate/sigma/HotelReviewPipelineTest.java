@@ -0,0 +1,87 @@
+package com.articulate.sigma;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * HotelReviewPipeline must write the same lines, in the same order, as scoring each hotel in turn.
+ */
+public class HotelReviewPipelineTest extends UnitTestBase {
+
+    private static final String[] reviews = {
+            "The rooms were great and the staff was friendly.",
+            "A dirty bathroom and a rude clerk.",
+            "Breakfast was excellent but the pool was dirty.",
+            "Nothing special."
+    };
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void addSentiment() throws IOException {
+
+        FileWriter fw = new FileWriter(new File(folder.getRoot(), "sentiment.csv"));
+        fw.write("\"type\",\"word\",\"POS\",\"stemmed\",\"polarity\",,\n" +
+                "\"strong\",\"great\",\"anypos\",\"n\",\"positive\",,\n" +
+                "\"weak\",\"friendly\",\"anypos\",\"n\",\"positive\",,\n" +
+                "\"strong\",\"excellent\",\"anypos\",\"n\",\"positive\",,\n" +
+                "\"weak\",\"dirty\",\"anypos\",\"n\",\"negative\",,\n" +
+                "\"strong\",\"rude\",\"anypos\",\"n\",\"negative\",,\n");
+        fw.close();
+        DB.readSentimentArray(folder.getRoot().getPath());
+    }
+
+    /** a hotel for each file name, with reviews chosen by its number */
+    private static final HotelReviewPipeline.Parser parser = new HotelReviewPipeline.Parser() {
+        public Hotel parse(String filename) {
+            int n = Integer.parseInt(filename);
+            if (n % 7 == 3)
+                return null;
+            Hotel h = new Hotel();
+            h.name = "Hotel " + n;
+            for (int i = 0; i <= n % reviews.length; i++)
+                h.reviews.add(reviews[(n + i) % reviews.length]);
+            return h;
+        }
+    };
+
+    @Test
+    public void testWordSentimentCache() {
+
+        int first = DB.computeSentimentForWord("dirty");
+        assertEquals(-1, first);
+        assertEquals(Integer.valueOf(first), DB.getCachedSentiment("dirty"));
+        assertEquals(first, DB.computeSentimentForWord("dirty"));
+    }
+
+    @Test
+    public void testMatchesSerial() throws Exception {
+
+        ArrayList<String> files = new ArrayList<String>();
+        StringBuilder expected = new StringBuilder(HotelReviewPipeline.asCSVHeader() + "\n");
+        int hotels = 0;
+        for (int i = 0; i < 20; i++) {
+            files.add(Integer.toString(i));
+            Hotel h = parser.parse(Integer.toString(i));
+            if (h != null) {
+                HotelReviewPipeline.scoreHotel(h);
+                expected.append(HotelReviewPipeline.asCSV(h));
+                hotels++;
+            }
+        }
+        StringWriter out = new StringWriter();
+        assertEquals(hotels, HotelReviewPipeline.run(files, parser, 4, out));
+        assertEquals(expected.toString(), out.toString());
+    }
+}
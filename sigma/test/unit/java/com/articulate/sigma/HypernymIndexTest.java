@@ -0,0 +1,99 @@
+package com.articulate.sigma;
+
+import com.google.common.collect.Lists;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class HypernymIndexTest {
+
+    private static HypernymIndex index;
+
+    private static void addHypernym(WordNet wn, String synset, String hypernym) {
+
+        AVPair avp = new AVPair();
+        avp.attribute = "hypernym";
+        avp.value = hypernym;
+        wn.addRelation(synset, avp);
+    }
+
+    /** entity <- organism <- animal <- dog, animal <- cat, organism <- plant,
+     * and a separate root for a verb */
+    @BeforeClass
+    public static void buildIndex() {
+
+        WordNet wn = new WordNet();
+        addHypernym(wn, "100000002", "100000001");  // organism -> entity
+        addHypernym(wn, "100000003", "100000002");  // animal -> organism
+        addHypernym(wn, "100000004", "100000003");  // dog -> animal
+        addHypernym(wn, "100000005", "100000003");  // cat -> animal
+        addHypernym(wn, "100000006", "100000002");  // plant -> organism
+        addHypernym(wn, "200000002", "200000001");
+        index = HypernymIndex.build(wn);
+    }
+
+    @Test
+    public void testIsHyponym() {
+
+        assertTrue(index.isHyponym("100000004", "100000003"));
+        assertTrue(index.isHyponym("100000004", "100000001"));
+        assertFalse(index.isHyponym("100000001", "100000004"));
+        assertFalse(index.isHyponym("100000004", "100000004"));
+        assertFalse(index.isHyponym("100000004", "200000001"));
+        assertFalse(index.isHyponym("199999999", "100000001"));
+    }
+
+    @Test
+    public void testLowestCommonHypernym() {
+
+        assertEquals("100000003", index.lowestCommonHypernym("100000004", "100000005"));
+        assertEquals("100000002", index.lowestCommonHypernym("100000004", "100000006"));
+        assertEquals("100000003", index.lowestCommonHypernym("100000004", "100000003"));
+        assertNull(index.lowestCommonHypernym("100000004", "200000002"));
+        assertEquals(3, index.depth("100000004"));
+    }
+
+    @Test
+    public void testBatch() {
+
+        boolean[] hypo = index.isHyponymOfAny(Lists.newArrayList("100000004", "100000006", "200000002"),
+                Lists.newArrayList("100000003", "200000001"));
+        assertTrue(hypo[0]);
+        assertFalse(hypo[1]);
+        assertTrue(hypo[2]);
+    }
+
+    @Test
+    public void testChange() {
+
+        WordNet wn = new WordNet();
+        addHypernym(wn, "100000002", "100000001");
+        assertFalse(wn.isHyponym("100000003", "100000001"));
+        HypernymIndex before = wn.getHypernymIndex();
+        assertSame(before, wn.getHypernymIndex());
+        int version = wn.getVersion();
+        addHypernym(wn, "100000003", "100000002");
+        assertTrue(wn.getVersion() != version);
+        assertTrue(wn.isHyponym("100000003", "100000001"));
+        assertNotSame(before, wn.getHypernymIndex());
+    }
+
+    @Test
+    public void testClear() {
+
+        WordNet wn = new WordNet();
+        addHypernym(wn, "100000002", "100000001");
+        assertFalse(wn.isHyponym("100000003", "100000001"));
+        ArrayList<AVPair> rels = new ArrayList<AVPair>();
+        AVPair avp = new AVPair();
+        avp.attribute = "hypernym";
+        avp.value = "100000002";
+        rels.add(avp);
+        wn.relations.put("100000003", rels);    // bypasses addRelation()
+        wn.clearHypernymIndex();
+        assertTrue(wn.isHyponym("100000003", "100000001"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class KIFTest {
+
+    private static KIF parse(String text) {
+
+        KIF kif = new KIF();
+        kif.parse(new StringReader(text));
+        return kif;
+    }
+
+    @Test
+    public void testStatementsAndKeys() {
+
+        KIF kif = parse("; a comment\n(instance Foo Bar)\n\n(=> (instance ?X Foo)\n    (attribute ?X Red))\n");
+        assertEquals(2, kif.formulaMap.size());
+        assertTrue(kif.formulaMap.containsKey("(instance Foo Bar)"));
+        Formula rule = kif.formulaMap.get("(=> (instance ?X Foo) (attribute ?X Red))");
+        assertNotNull(rule);
+        assertEquals(4, rule.startLine);
+        assertEquals(5, rule.endLine);
+        assertTrue(kif.formulas.get("ant-Foo").contains(rule.theFormula));
+        assertTrue(kif.formulas.get("cons-Red").contains(rule.theFormula));
+        assertTrue(kif.formulas.get("arg-2-Bar").contains("(instance Foo Bar)"));
+        assertTrue(kif.terms.contains("attribute"));
+        assertFalse(kif.terms.contains("?X"));
+        assertTrue(kif.warningSet.isEmpty());
+    }
+
+    @Test
+    public void testStringsAndLineNumbers() {
+
+        KIF kif = parse("(documentation Foo EnglishLanguage \"a \\\"quoted\\\"   (  word\n  across lines\")\n(instance Foo Bar)");
+        Formula doc = kif.formulaMap.get("(documentation Foo EnglishLanguage \"a \\\"quoted\\\" (word across lines\")");
+        assertNotNull(doc);
+        assertEquals(1, doc.startLine);
+        assertEquals(2, doc.endLine);
+        assertEquals(3, kif.formulaMap.get("(instance Foo Bar)").startLine);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+
+        KIF kif = parse("(instance Foo Bar)\n(=> (and (p ?X)) (q ?X))\n(instance Baz Bar)");
+        assertEquals(1, kif.formulaMap.size());
+        assertEquals(1, kif.warningSet.size());
+        assertTrue(kif.warningSet.first().contains("Too few arguments for 'and' or 'or'"));
+        kif = parse("(exists ?X (p ?X))");
+        assertTrue(kif.warningSet.first().contains("No var list for quantifier"));
+        kif = parse("((and p) q)");
+        assertEquals(1, kif.formulaMap.size());
+    }
+
+    @Test
+    public void testReadFile() throws Exception {
+
+        File f = File.createTempFile("KIFTest", ".kif");
+        f.deleteOnExit();
+        FileWriter fw = new FileWriter(f);
+        fw.write("(instance Foo Bar)\r\n\r\n(subclass Bar\r\n  Entity)\r\n");
+        fw.close();
+        KIF kif = new KIF();
+        kif.readFile(f.getPath());
+        assertEquals(2, kif.formulaMap.size());
+        assertEquals(3, kif.formulaMap.get("(subclass Bar Entity)").startLine);
+        assertEquals(4, kif.formulaMap.get("(subclass Bar Entity)").endLine);
+    }
+}
@@ -0,0 +1,90 @@
+package com.articulate.sigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LexiconTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long oldInterval;
+
+    @Before
+    public void writeFiles() throws IOException {
+
+        oldInterval = Lexicon.checkInterval;
+        write("FirstNames.csv", "\"name\",\"gender\"\n\"Aaron\",\"M\"\n\"Abigail\",\"F\"\n");
+        write("stopwords.txt", "a\nabout\nthe\n");
+        write("sentiment.csv", ";; header\n\n\"type\",\"word\",\"POS\",\"stemmed\",\"polarity\",,\n" +
+                "\"weak\",\"abandoned\",\"adj\",\"n\",\"negative\",,\n" +
+                "\"strong\",\"excellent\",\"adj\",\"n\",\"positive\",,\n");
+        write("MWEmapping-noun.txt", ";; comment\n" +
+                "15300061 99 n 02 ac_120_power_source 0 ac_120_power_socket 0 000 | a power source &%AC120PowerSource=\n" +
+                "04371430 06 n 02 swimming_trunks 0 bathing_trunks 0 002 @ 04371563 n 0000 | swimsuit &%Clothing+\n");
+    }
+
+    @After
+    public void restoreInterval() {
+
+        Lexicon.checkInterval = oldInterval;
+    }
+
+    private void write(String name, String contents) throws IOException {
+
+        FileWriter fw = new FileWriter(new File(folder.getRoot(), name));
+        fw.write(contents);
+        fw.close();
+    }
+
+    @Test
+    public void testContents() {
+
+        Lexicon lex = Lexicon.get(folder.getRoot().getPath());
+        assertEquals("Male", lex.getSexAttribute("Aaron"));
+        assertEquals("Female", lex.getSexAttribute("Abigail"));
+        assertEquals("", lex.getSexAttribute("Zed"));
+        assertTrue(lex.isStopword("about"));
+        assertFalse(lex.isStopword("hotel"));
+        assertEquals(-1, lex.getSentiment("abandoned").score());
+        assertEquals(5, lex.getSentiment("excellent").score());
+        assertNull(lex.getSentiment("word"));
+        assertArrayEquals(new String[] {"ac_120_power_socket", "ac_120_power_source"}, lex.getMultiWords("ac"));
+        assertEquals(0, lex.getMultiWords("hotel").length);
+        assertTrue(lex.getLoadTimes().containsKey("total"));
+        List<String> text = Arrays.asList("new", "swimming", "trunks", "and", "ac", "120", "power", "socket");
+        assertEquals(0, lex.collectMultiWord(text, 0));
+        assertEquals(3, lex.collectMultiWord(text, 1));
+        assertEquals(8, lex.collectMultiWord(text, 4));
+        assertEquals(4, lex.collectMultiWord(text.subList(0, 7), 4));
+        assertSame(lex, Lexicon.get(folder.getRoot().getPath()));
+    }
+
+    @Test
+    public void testReloadOnChange() throws IOException {
+
+        Lexicon.checkInterval = 0;
+        String dir = folder.getRoot().getPath();
+        Lexicon before = Lexicon.get(dir);
+        assertSame(before, Lexicon.get(dir));
+
+        write("stopwords.txt", "a\nabout\nthe\nhotel\n");
+        File f = new File(folder.getRoot(), "stopwords.txt");
+        f.setLastModified(f.lastModified() + 10000);
+        Lexicon after = Lexicon.get(dir);
+        assertNotSame(before, after);
+        assertTrue(after.isStopword("hotel"));
+        assertFalse(before.isStopword("hotel"));
+    }
+}
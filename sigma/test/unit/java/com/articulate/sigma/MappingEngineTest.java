@@ -0,0 +1,116 @@
+package com.articulate.sigma;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class MappingEngineTest {
+
+    private static final List<String> terms1 = Lists.newArrayList("Arm", "SubclassOf", "Automobile",
+            "RiverBank", "X__", "Hiccup");
+    private static final List<String> labels1 = Lists.newArrayList(null, "subclass", "car",
+            null, null, null);
+    private static final List<String> terms2 = Lists.newArrayList("Alarm", "ArmoredCar", "Bank",
+            "Car", "Farm", "Subclass", "XRay", "isSubclassOf");
+    private static final List<String> labels2 = Lists.newArrayList(null, null, "river bank",
+            "automobile", null, null, null, null);
+
+    /** ***************************************************************
+     * Map with the engine and collect the results.
+     */
+    private static TreeMap<String,TreeMap<Integer,String>> map(int threshold, String method, int threads) {
+
+        MappingEngine engine = new MappingEngine(terms1, labels1, terms2, labels2, threshold, method);
+        final TreeMap<String,TreeMap<Integer,String>> result = new TreeMap<String,TreeMap<Integer,String>>();
+        engine.run(new MappingEngine.Listener() {
+            public void mapped(String term1, TreeMap<Integer,String> matches) {
+                assertNull(result.put(term1, matches));
+            }
+        }, threads);
+        return result;
+    }
+
+    /** ***************************************************************
+     * Compare every pair, as Mapping.mapOntologies() once did.
+     */
+    private static TreeMap<String,TreeMap<Integer,String>> bruteForce(int threshold, String method) {
+
+        TreeMap<String,TreeMap<Integer,String>> result = new TreeMap<String,TreeMap<Integer,String>>();
+        for (int i = 0; i < terms1.size(); i++) {
+            List<String> keys1 = keys(terms1.get(i), labels1.get(i));
+            TreeMap<Integer,String> tm = new TreeMap<Integer,String>();
+            for (int j = 0; j < terms2.size(); j++) {
+                List<String> keys2 = keys(terms2.get(j), labels2.get(j));
+                int score = Integer.MAX_VALUE;
+                for (String k1 : keys1)
+                    for (String k2 : keys2)
+                        score = Math.min(score, Mapping.stringMatch(k1, k2, method));
+                if (score > 0 && score < threshold)
+                    tm.put(score, terms2.get(j));
+            }
+            if (tm.size() > 0)
+                result.put(terms1.get(i), tm);
+        }
+        return result;
+    }
+
+    private static List<String> keys(String term, String label) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        result.add(Mapping.normalize(term));
+        String l = Mapping.normalize(label);
+        if (l != null && Mapping.isValidTerm(l))
+            result.add(l);
+        return result;
+    }
+
+    @Test
+    public void testSubstringMatchesBruteForce() {
+
+        TreeMap<String,TreeMap<Integer,String>> expected = bruteForce(10, "Substring");
+        assertEquals(expected, map(10, "Substring", 1));
+        assertEquals(expected, map(10, "Substring", 4));
+        assertEquals("car", Mapping.normalize("Car"));
+        assertTrue(expected.get("Automobile").containsValue("Car"));
+        assertTrue(expected.get("RiverBank").containsValue("Bank"));
+    }
+
+    @Test
+    public void testShortKeys() {
+
+        assertEquals("x ", Mapping.normalize("X__"));
+        TreeMap<String,TreeMap<Integer,String>> result = map(10, "Substring", 2);
+        assertEquals("XRay", result.get("X__").get(3));
+    }
+
+    @Test
+    public void testDistanceMethods() {
+
+        // blocking may drop pairs with nothing in common, but never adds any
+        for (String method : Lists.newArrayList("JaroWinkler", "Levenshtein")) {
+            TreeMap<String,TreeMap<Integer,String>> expected = bruteForce(30, method);
+            TreeMap<String,TreeMap<Integer,String>> actual = map(30, method, 3);
+            for (String term1 : actual.keySet())
+                for (Integer score : actual.get(term1).keySet())
+                    assertTrue(expected.get(term1).containsKey(score));
+        }
+        assertEquals("Farm", map(3, "Levenshtein", 3).get("Arm").get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailure() {
+
+        MappingEngine engine = new MappingEngine(terms1, labels1, terms2, labels2, 10, "Substring");
+        engine.run(new MappingEngine.Listener() {
+            public void mapped(String term1, TreeMap<Integer,String> matches) {
+                if (term1.equals("RiverBank"))
+                    throw new RuntimeException("listener failed");
+            }
+        }, 2);
+    }
+}
@@ -0,0 +1,68 @@
+package com.articulate.sigma;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void testDisabled() {
+
+        Metrics.setEnabled(false);
+        long t = Metrics.start();
+        assertEquals(0, t);
+        Metrics.time("query.prover", t);
+        Metrics.record("query.prover", 1000);
+        Metrics.count("query.asked");
+        assertTrue(Metrics.getTimers().isEmpty());
+        assertTrue(Metrics.getCounters().isEmpty());
+    }
+
+    @Test
+    public void testTimersAndCounters() {
+
+        Metrics.setEnabled(true);
+        Metrics.record("kb.load.parse", 2000000);   // 2 ms
+        Metrics.record("kb.load.parse", 4000000);
+        Metrics.record("kb.load.parse", 300000000);
+        Metrics.time("kb.load.caches", Metrics.start());
+        Metrics.count("query.asked");
+        Metrics.count("query.asked", 2);
+
+        Map<String,Object> parse = Metrics.getTimers().get("kb.load.parse");
+        assertEquals(3L, parse.get("count"));
+        assertEquals(306.0, (Double) parse.get("totalMs"), 0.001);
+        assertEquals(2.0, (Double) parse.get("minMs"), 0.001);
+        assertEquals(300.0, (Double) parse.get("maxMs"), 0.001);
+        // the median is in the bucket of 2048 to 4096 microseconds
+        assertEquals(4.096, (Double) parse.get("p50Ms"), 0.001);
+        assertEquals(1L, Metrics.getTimers().get("kb.load.caches").get("count"));
+        assertEquals(Long.valueOf(3), Metrics.getCounters().get("query.asked"));
+    }
+
+    @Test
+    public void testJSON() {
+
+        Metrics.setEnabled(true);
+        Metrics.record("semRewrite.rules", 1000000);
+        Metrics.count("kb.load.formulas", 10);
+        JSONObject json = (JSONObject) JSONValue.parse(Metrics.toJSON());
+        assertEquals(Boolean.TRUE, json.get("enabled"));
+        JSONObject rules = (JSONObject) ((JSONObject) json.get("timers")).get("semRewrite.rules");
+        assertEquals(1L, rules.get("count"));
+        assertEquals(10L, ((JSONObject) json.get("counters")).get("kb.load.formulas"));
+    }
+}
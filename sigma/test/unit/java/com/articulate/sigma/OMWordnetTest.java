@@ -0,0 +1,101 @@
+package com.articulate.sigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OMWordnetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String oldKbDir;
+    private long oldBudget;
+
+    @Before
+    public void writeFiles() throws IOException {
+
+        oldKbDir = KBmanager.getMgr().getPref("kbDir");
+        oldBudget = OMWordnet.memoryBudget;
+        write("fra", "# Wordnet Libre du Francais\n" +
+                "04379243-n\tfra:lemma\ttable\n" +
+                "04379243-n\tfra:lemma\tplateau\n" +
+                "04379243-n\tfra:def 0\tun meuble\n" +
+                "02084071-n\tfra:lemma\tchien\n" +
+                "02084071-n\tfra:exe 0\tle chien aboie\n");
+        write("spa", "04379243-n\tspa:lemma\tmesa\n");
+        KBmanager.getMgr().setPref("kbDir", folder.getRoot().getPath());
+        OMWordnet.clear();
+    }
+
+    @After
+    public void restore() {
+
+        KBmanager.getMgr().setPref("kbDir", oldKbDir);
+        OMWordnet.memoryBudget = oldBudget;
+        OMWordnet.clear();
+    }
+
+    private void write(String code, String contents) throws IOException {
+
+        File dir = new File(folder.getRoot(), "OMW" + File.separator + code);
+        dir.mkdirs();
+        FileWriter fw = new FileWriter(new File(dir, "wn-data-" + code + ".tab"));
+        fw.write(contents);
+        fw.close();
+    }
+
+    @Test
+    public void testLazyLoading() {
+
+        assertTrue(OMWordnet.loadedLanguages().isEmpty());
+        assertEquals(new ArrayList<String>(Arrays.asList("table", "plateau")),
+                OMWordnet.getWords("fra", "04379243-n"));
+        assertEquals(Arrays.asList("un meuble"), OMWordnet.getGlosses("fra", "04379243-n"));
+        assertNull(OMWordnet.getExamples("fra", "04379243-n"));
+        assertEquals(Arrays.asList("le chien aboie"), OMWordnet.getExamples("fra", "02084071-n"));
+        assertNull(OMWordnet.getWords("fra", "00000000-n"));
+        assertEquals(Arrays.asList("fra"), OMWordnet.loadedLanguages());
+        assertNull(OMWordnet.getWords("ita", "04379243-n"));
+        assertNull(OMWordnet.getWords("xyz", "04379243-n"));
+    }
+
+    @Test
+    public void testEviction() {
+
+        OMWordnet.memoryBudget = 1;
+        assertEquals(Arrays.asList("table", "plateau"), OMWordnet.getWords("fra", "04379243-n"));
+        assertEquals(Arrays.asList("mesa"), OMWordnet.getWords("spa", "04379243-n"));
+        assertEquals(Arrays.asList("spa"), OMWordnet.loadedLanguages());
+        assertEquals(Arrays.asList("table", "plateau"), OMWordnet.getWords("fra", "04379243-n"));
+        assertEquals(Arrays.asList("fra"), OMWordnet.loadedLanguages());
+    }
+
+    @Test
+    public void testDisplaySynsetReadsOnlyChosenLanguages() {
+
+        String html = OMWordnet.displaySynset("SUMO", "04379243-n", "");
+        assertFalse(html.contains("mesa"));
+        assertTrue(OMWordnet.loadedLanguages().isEmpty());
+
+        html = OMWordnet.displaySynset("SUMO", "04379243-n", "", Arrays.asList("spa"));
+        assertTrue(html.contains("mesa"));
+        assertFalse(html.contains("plateau"));
+        assertEquals(Arrays.asList("spa"), OMWordnet.loadedLanguages());
+
+        OMWordnet.getWords("fra", "04379243-n");
+        html = OMWordnet.displaySynset("SUMO", "04379243-n", "");
+        assertTrue(html.contains("mesa"));
+        assertTrue(html.contains("plateau"));
+    }
+}
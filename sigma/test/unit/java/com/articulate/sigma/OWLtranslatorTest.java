@@ -0,0 +1,50 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class OWLtranslatorTest {
+
+    private static final String owl =
+            "<?xml version=\"1.0\"?>\n" +
+            "<!DOCTYPE rdf:RDF [\n" +
+            "   <!ENTITY owl \"http://www.w3.org/2002/07/owl#\">\n" +
+            "]>\n" +
+            "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n" +
+            "         xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\"\n" +
+            "         xmlns:owl=\"http://www.w3.org/2002/07/owl#\">\n" +
+            "  <owl:Class rdf:ID=\"Dog\">\n" +
+            "    <rdfs:subClassOf rdf:resource=\"#Canine\"/>\n" +
+            "    <rdfs:comment>A domestic &amp; loyal animal</rdfs:comment>\n" +
+            "  </owl:Class>\n" +
+            "  <owl:ObjectProperty rdf:about=\"#owns\">\n" +
+            "    <rdfs:domain rdf:resource=\"&owl;Thing\"/>\n" +
+            "    <rdfs:range rdf:resource=\"#Dog\"/>\n" +
+            "  </owl:ObjectProperty>\n" +
+            "  <rdf:Description rdf:about=\"#Rex\">\n" +
+            "    <rdf:type rdf:resource=\"#Dog\"/>\n" +
+            "  </rdf:Description>\n" +
+            "</rdf:RDF>\n";
+
+    @Test
+    public void testStreamingRead() throws Exception {
+
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        int count = OWLtranslator.read(new ByteArrayInputStream(owl.getBytes("UTF-8")), pw);
+        pw.flush();
+        String kif = sw.toString();
+        assertEquals(3, count);
+        assertTrue(kif.contains("(subclass Dog Canine)"));
+        assertTrue(kif.contains("(documentation Dog EnglishLanguage \"A domestic & loyal animal\")"));
+        assertTrue(kif.contains("(instance owns BinaryRelation)"));
+        assertTrue(kif.contains("(domain owns 1 Thing)"));
+        assertTrue(kif.contains("(domain owns 2 Dog)"));
+        assertTrue(kif.contains("(instance Rex Dog)"));
+    }
+}
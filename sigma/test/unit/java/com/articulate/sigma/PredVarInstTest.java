@@ -7,6 +7,7 @@ import org.junit.Test;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * These tests follow PredVarInst.test( ), with the exception of that method's call to FormulaPreprocessor.
@@ -73,4 +74,40 @@ public class PredVarInstTest extends UnitTestBase  {
         Set<Formula> expected = Sets.newHashSet();
         assertEquals(expected, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCandidateRelations()     {
+        KB kb = SigmaTestBase.kb;
+        Set<String> expected = new TreeSet<String>();
+        for (String rel : kb.kbCache.relations) {
+            if (Integer.valueOf(2).equals(kb.kbCache.valences.get(rel)) && kb.isInstanceOf(rel, "TransitiveRelation"))
+                expected.add(rel);
+        }
+
+        Set<String> actual = PredVarInst.candidateRelations(kb, 2, Sets.newHashSet("TransitiveRelation"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testInstantiatePredVarsIndexed()     {
+        String stmt = "(=> (and (instance ?REL TransitiveRelation) (?REL ?A ?B) (?REL ?B ?C)) (?REL ?A ?C))";
+        Formula f = new Formula();
+        f.read(stmt);
+
+        KB kb = SigmaTestBase.kb;
+        Set<Formula> actual = PredVarInst.instantiatePredVars(f, kb);
+
+        // every binary relation that is a TransitiveRelation, found by scanning all relations
+        Set<String> expected = new HashSet<String>();
+        for (String rel : kb.kbCache.relations) {
+            if (Integer.valueOf(2).equals(kb.kbCache.valences.get(rel)) && kb.isInstanceOf(rel, "TransitiveRelation"))
+                expected.add(new Formula(stmt).replaceVar("?REL", rel).theFormula);
+        }
+        Set<String> actualStrings = new HashSet<String>();
+        for (Formula inst : actual)
+            actualStrings.add(inst.theFormula);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actualStrings);
+    }
+}
@@ -0,0 +1,81 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class PredicateSubsumptionIndexTest extends UnitTestBase {
+
+    /** the formulas found by following subrelation statements and filtering an ask */
+    private static ArrayList<String> expected(String relation, int argnum, String term) {
+
+        KB kb = SigmaTestBase.kb;
+        HashSet<String> relns = new HashSet<String>();
+        ArrayList<String> agenda = new ArrayList<String>();
+        relns.add(relation);
+        agenda.add(relation);
+        while (!agenda.isEmpty()) {
+            String rel = agenda.remove(0);
+            for (Formula f : kb.askWithRestriction(0, "subrelation", 2, rel)) {
+                if (relns.add(f.getArgument(1)))
+                    agenda.add(f.getArgument(1));
+            }
+        }
+        ArrayList<String> result = new ArrayList<String>();
+        for (Formula f : kb.ask("arg", argnum, term)) {
+            if (relns.contains(f.getArgument(0)))
+                result.add(f.theFormula);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static ArrayList<String> actual(String relation, int argnum, String term) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        for (Formula f : SigmaTestBase.kb.askWithPredicateSubsumption(relation, argnum, term))
+            result.add(f.theFormula);
+        return result;
+    }
+
+    @Test
+    public void testSubrelations() {
+
+        String[] relns = PredicateSubsumptionIndex.getIndex(SigmaTestBase.kb).subrelations("part");
+        assertTrue(Arrays.asList(relns).containsAll(Arrays.asList("part", "properPart", "component", "member")));
+        String[] sorted = relns.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, relns);
+    }
+
+    @Test
+    public void testMatchesAsk() {
+
+        assertEquals(expected("instance", 2, "BinaryPredicate"), actual("instance", 2, "BinaryPredicate"));
+        assertEquals(expected("subclass", 2, "Process"), actual("subclass", 2, "Process"));
+        assertEquals(expected("part", 1, "Organ"), actual("part", 1, "Organ"));
+    }
+
+    @Test
+    public void testIterator() {
+
+        PredicateSubsumptionIndex index = PredicateSubsumptionIndex.getIndex(SigmaTestBase.kb);
+        Iterator<Formula> it = SigmaTestBase.kb.iterateWithPredicateSubsumption("instance", 2, "BinaryPredicate");
+        int count = 0;
+        String last = "";
+        while (it.hasNext()) {
+            String s = it.next().theFormula;
+            assertTrue(last.compareTo(s) < 0);
+            last = s;
+            count++;
+        }
+        assertEquals(index.size("instance", 2, "BinaryPredicate"), count);
+        assertFalse(SigmaTestBase.kb.iterateWithPredicateSubsumption("instance", 2, "NoSuchTermAnywhere").hasNext());
+    }
+}
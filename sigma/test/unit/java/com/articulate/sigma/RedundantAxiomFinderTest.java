@@ -0,0 +1,94 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class RedundantAxiomFinderTest {
+
+    private static ArrayList<Formula> formulas(String... stmts) {
+
+        ArrayList<Formula> result = new ArrayList<Formula>();
+        for (String stmt : stmts)
+            result.add(new Formula(stmt));
+        return result;
+    }
+
+    private static HashSet<String> pairs(RedundantAxiomFinder finder) {
+
+        HashSet<String> result = new HashSet<String>();
+        for (Formula[] pair : finder.subsumed)
+            result.add(pair[0].theFormula + " > " + pair[1].theFormula);
+        return result;
+    }
+
+    @Test
+    public void testDuplicates() {
+
+        String f1 = "(=> (instance ?X Human) (instance ?X Animal))";
+        String f2 = "(=> (instance ?Y Human) (instance ?Y Animal))";
+        String f3 = "(or (not (instance ?Z Human)) (instance ?Z Animal))";
+        String f4 = "(=> (instance ?X Animal) (instance ?X Organism))";
+        RedundantAxiomFinder finder = RedundantAxiomFinder.find(formulas(f1, f2, f3, f4), 2);
+        assertEquals(4, finder.axiomCount);
+        assertEquals(1, finder.duplicates.size());
+        HashSet<String> same = new HashSet<String>();
+        for (Formula f : finder.duplicates.get(0))
+            same.add(f.theFormula);
+        assertEquals(3, same.size());
+        assertFalse(same.contains(f4));
+        assertTrue(finder.subsumed.isEmpty());
+    }
+
+    @Test
+    public void testExistentialDuplicates() {
+
+        String f1 = "(=> (instance ?X Human) (exists (?M) (mother ?X ?M)))";
+        String f2 = "(=> (instance ?H Human) (exists (?P) (mother ?H ?P)))";
+        RedundantAxiomFinder finder = RedundantAxiomFinder.find(formulas(f1, f2), 1);
+        assertEquals(1, finder.duplicates.size());
+    }
+
+    @Test
+    public void testSubsumption() {
+
+        String general = "(=> (instance ?X Human) (attribute ?X Mortal))";
+        String specific = "(=> (and (instance ?X Human) (age ?X ?A)) (attribute ?X Mortal))";
+        String ground = "(=> (instance Socrates Human) (attribute Socrates Mortal))";
+        String unrelated = "(=> (instance ?X Human) (attribute ?X Happy))";
+        RedundantAxiomFinder finder = RedundantAxiomFinder.find(formulas(general, specific, ground, unrelated), 2);
+        HashSet<String> expected = new HashSet<String>();
+        expected.add(general + " > " + specific);
+        expected.add(general + " > " + ground);
+        assertEquals(expected, pairs(finder));
+        assertTrue(finder.duplicates.isEmpty());
+    }
+
+    @Test
+    public void testPredicateVariableSubsumes() {
+
+        String general = "(=> (and (instance ?REL TransitiveRelation) (?REL ?A ?B) (?REL ?B ?C)) (?REL ?A ?C))";
+        String specific = "(=> (and (instance part TransitiveRelation) (part ?A ?B) (part ?B ?C)) (part ?A ?C))";
+        RedundantAxiomFinder finder = RedundantAxiomFinder.find(formulas(general, specific), 2);
+        HashSet<String> expected = new HashSet<String>();
+        expected.add(general + " > " + specific);
+        assertEquals(expected, pairs(finder));
+    }
+
+    @Test
+    public void testForKBCachesByVersion() {
+
+        KB kb = new KB("RedundantAxiomFinderTest", System.getProperty("java.io.tmpdir"));
+        for (Formula f : formulas("(=> (instance ?X Human) (instance ?X Animal))",
+                "(=> (instance ?Y Human) (instance ?Y Animal))"))
+            kb.formulaMap.put(f.theFormula, f);
+        RedundantAxiomFinder first = RedundantAxiomFinder.forKB(kb);
+        assertEquals(1, first.duplicates.size());
+        assertSame(first, RedundantAxiomFinder.forKB(kb));
+        kb.rename("Animal", "Organism");
+        assertNotSame(first, RedundantAxiomFinder.forKB(kb));
+    }
+}
@@ -0,0 +1,54 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class RowVarsTest {
+
+    private static ArrayList<String> expand(String stmt) {
+
+        ArrayList<String> result = new ArrayList<String>();
+        for (Formula f : RowVars.expandRowVars(null, new Formula(stmt)))
+            result.add(f.theFormula);
+        return result;
+    }
+
+    @Test
+    public void testNoRowVars() {
+
+        Formula f = new Formula("(instance ?X Human)");
+        ArrayList<Formula> result = RowVars.expandRowVars(null, f);
+        assertEquals(1, result.size());
+        assertSame(f, result.get(0));
+    }
+
+    @Test
+    public void testSingleRowVar() {
+
+        ArrayList<String> result = expand("(=> (and (subrelation ?REL1 ?REL2) (?REL1 @ROW)) (?REL2 @ROW))");
+        assertEquals(7, result.size());
+        assertEquals("(=> (and (subrelation ?REL1 ?REL2) (?REL1 ?ROW1)) (?REL2 ?ROW1))", result.get(0));
+        assertEquals("(=> (and (subrelation ?REL1 ?REL2) (?REL1 ?ROW1 ?ROW2)) (?REL2 ?ROW1 ?ROW2))", result.get(1));
+    }
+
+    @Test
+    public void testVariableNamePrefix() {
+
+        // @ROW must not be replaced inside @ROW1
+        ArrayList<String> result = expand("(=> (p @ROW) (q @ROW1))");
+        assertEquals(49, result.size());
+        assertEquals("(=> (p ?ROW1) (q ?ROW11))", result.get(0));
+        assertEquals("(=> (p ?ROW1 ?ROW2) (q ?ROW11))", result.get(1));
+    }
+
+    @Test
+    public void testStringsUnchanged() {
+
+        ArrayList<String> result = expand("(documentation foo EnglishLanguage \"an @ROW\")");
+        assertEquals(1, result.size());
+        assertEquals("(documentation foo EnglishLanguage \"an @ROW\")", result.get(0));
+    }
+}
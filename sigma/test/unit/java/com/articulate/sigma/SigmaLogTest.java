@@ -0,0 +1,81 @@
+package com.articulate.sigma;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class SigmaLogTest {
+
+    @After
+    public void tearDown() {
+
+        SigmaLog.configure(new HashMap<String,String>());
+    }
+
+    @Test
+    public void testParseLevel() {
+
+        assertEquals(Level.WARNING, SigmaLog.parseLevel("warning"));
+        assertEquals(Level.FINE, SigmaLog.parseLevel(" FINE "));
+        assertNull(SigmaLog.parseLevel("loud"));
+        assertNull(SigmaLog.parseLevel(""));
+    }
+
+    @Test
+    public void testLevels() {
+
+        HashMap<String,String> prefs = new HashMap<String,String>();
+        prefs.put("logLevel", "warning");
+        prefs.put("logLevel.semRewrite", "fine");
+        SigmaLog.configure(prefs);
+        Logger kb = Logger.getLogger("com.articulate.sigma.KB");
+        Logger interp = Logger.getLogger("com.articulate.sigma.semRewrite.Interpreter");
+        assertFalse(kb.isLoggable(Level.INFO));
+        assertTrue(kb.isLoggable(Level.WARNING));
+        assertTrue(interp.isLoggable(Level.FINE));
+        assertFalse(interp.isLoggable(Level.FINER));
+
+        // a level that is no longer configured goes back to the default
+        prefs.remove("logLevel.semRewrite");
+        SigmaLog.configure(prefs);
+        assertFalse(interp.isLoggable(Level.FINE));
+    }
+
+    @Test
+    public void testSetPref() {
+
+        String old = KBmanager.getMgr().getPref("logLevel");
+        Logger kb = Logger.getLogger("com.articulate.sigma.KB");
+        try {
+            KBmanager.getMgr().setPref("logLevel", "fine");
+            assertTrue(kb.isLoggable(Level.FINE));
+            KBmanager.getMgr().setPref("logLevel", "severe");
+            assertFalse(kb.isLoggable(Level.WARNING));
+        }
+        finally {
+            KBmanager.getMgr().setPref("logLevel", old);
+        }
+    }
+
+    @Test
+    public void testAsyncHandler() {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SigmaLog.AsyncHandler handler = new SigmaLog.AsyncHandler(10, new PrintStream(bytes));
+        Logger logger = Logger.getLogger("com.articulate.sigma.SigmaLogTest.async");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.warning("something happened");
+        handler.close();
+        logger.removeHandler(handler);
+        String out = bytes.toString();
+        assertTrue(out.contains("WARNING com.articulate.sigma.SigmaLogTest.async: something happened"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.articulate.sigma;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class THFTest extends UnitTestBase {
+
+    private static ArrayList<Formula> formulas(String... stmts) {
+
+        ArrayList<Formula> result = new ArrayList<Formula>();
+        for (String s : stmts)
+            result.add(new Formula(s));
+        return result;
+    }
+
+    private static int count(String s, String sub) {
+
+        int result = 0;
+        for (int i = s.indexOf(sub); i != -1; i = s.indexOf(sub, i + 1))
+            result++;
+        return result;
+    }
+
+    @Test
+    public void testParallelIsDeterministic() {
+
+        ArrayList<Formula> axioms = formulas("(instance Anna Human)",
+                "(=> (instance ?X Human) (instance ?X Animal))",
+                "(subclass Human Hominid)",
+                "(=> (and (instance ?X Animal) (instance ?Y Animal)) (exists (?Z) (instance ?Z Animal)))");
+        ArrayList<Formula> conjectures = formulas("(instance Anna Animal)");
+        String sequential = new THF().KIF2THF(axioms, conjectures, SigmaTestBase.kb);
+        String parallel1 = new THF().KIF2THF(axioms, conjectures, SigmaTestBase.kb, 4);
+        String parallel2 = new THF().KIF2THF(axioms, conjectures, SigmaTestBase.kb, 4);
+        assertEquals(parallel1, parallel2);
+        assertEquals(count(sequential, "thf(ax"), count(parallel1, "thf(ax"));
+        assertEquals(count(sequential, "thf(con"), count(parallel1, "thf(con"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.articulate.sigma;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class VariableTypeCacheTest extends UnitTestBase {
+
+    @Test
+    public void testComputeVariableTypesCached() {
+
+        Formula f = new Formula();
+        f.read("(=> (and (instance ?REL ObjectAttitude) (?REL ?AGENT ?THING)) (instance ?THING Physical))");
+        FormulaPreprocessor fp = new FormulaPreprocessor();
+        VariableTypeCache cache = VariableTypeCache.getCache(SigmaTestBase.kb);
+        HashMap<String,HashSet<String>> first = fp.computeVariableTypes(f, SigmaTestBase.kb);
+        long hits = cache.getHits();
+        HashMap<String,HashSet<String>> second = fp.computeVariableTypes(f, SigmaTestBase.kb);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(first, second);
+
+        // callers get their own copy
+        second.clear();
+        assertEquals(first, fp.computeVariableTypes(f, SigmaTestBase.kb));
+        assertTrue(cache.getHitRate() > 0.0);
+    }
+
+    @Test
+    public void testWinnowTypeList() {
+
+        HashSet<String> types = Sets.newHashSet("Entity", "Physical", "Process", "IntentionalProcess",
+                "ContentDevelopment", "Writing");
+        new FormulaPreprocessor().winnowTypeList(types, SigmaTestBase.kb);
+        assertEquals(Sets.newHashSet("Writing"), types);
+    }
+
+    @Test
+    public void testRemoveSuperClassesMatchesPairwise() {
+
+        KB kb = SigmaTestBase.kb;
+        HashSet<String> types = Sets.newHashSet("Entity", "Object", "Human", "Animal", "Process",
+                "Motion", "Attribute", "NoSuchClass");
+        HashSet<String> expected = new HashSet<String>(types);
+        for (String first : types)
+            for (String second : types)
+                if (kb.isSubclass(first, second))
+                    expected.remove(second);
+        assertEquals(expected, kb.removeSuperClasses(types));
+    }
+}
@@ -0,0 +1,91 @@
+package com.articulate.sigma;
+
+import com.google.common.collect.Lists;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Hashtable;
+
+import static org.junit.Assert.*;
+
+public class WordNetStoreTest {
+
+    private static WordNetStore store;
+
+    private static AVPair avp(String attribute, String value) {
+        AVPair result = new AVPair();
+        result.attribute = attribute;
+        result.value = value;
+        return result;
+    }
+
+    @BeforeClass
+    public static void buildStore() throws Exception {
+
+        WordNet wn = new WordNet();
+        wn.nounDocumentationHash.put("00000001", "that which exists");
+        wn.nounDocumentationHash.put("00000002", "a domesticated carnivore");
+        wn.nounDocumentationHash.put("00000003", "a living organism");
+        wn.verbDocumentationHash.put("00000009", "go after with the intent to catch");
+        wn.nounSUMOHash.put("00000002", "&%Canine=");
+        wn.SUMOHash.put("Canine", Lists.newArrayList("100000002"));
+        wn.nounSynsetHash.put("dog", "00000002");
+        wn.nounSynsetHash.put("hot_dog", "00000002 00000003");
+        wn.verbSynsetHash.put("dog", "00000009");
+        wn.synsetsToWords.put("100000002", Lists.newArrayList("dog", "domestic_dog"));
+        wn.relations.put("100000002", Lists.newArrayList(avp("hypernym", "100000003")));
+        wn.relations.put("100000003", Lists.newArrayList(avp("hypernym", "100000001"), avp("hyponym", "100000002")));
+        wn.relations.put("100000001", Lists.newArrayList(avp("hypernym", "100000003")));
+        wn.exceptionNounHash.put("dogs", "dog");
+
+        File f = File.createTempFile("WordNetStoreTest", ".bin");
+        f.deleteOnExit();
+        WordNetStore.compile(wn, f, 42);
+        assertNull(WordNetStore.open(f, 41));
+        store = WordNetStore.open(f, 42);
+        assertNotNull(store);
+    }
+
+    @Test
+    public void testSynsetData() {
+
+        assertEquals(4, store.synsetCount());
+        assertEquals("a domesticated carnivore", store.getDocumentation("100000002"));
+        assertEquals("go after with the intent to catch", store.getDocumentation("200000009"));
+        assertEquals("&%Canine=", store.getSUMOMapping("100000002"));
+        assertNull(store.getSUMOMapping("100000003"));
+        assertEquals(Lists.newArrayList("dog", "domestic_dog"), store.getWords("100000002"));
+        assertNull(store.getDocumentation("199999999"));
+    }
+
+    @Test
+    public void testRelations() {
+
+        ArrayList<AVPair> rels = store.getRelations("100000003");
+        assertEquals(2, rels.size());
+        assertEquals("hypernym", rels.get(0).attribute);
+        assertEquals("100000001", rels.get(0).value);
+        assertTrue(store.isHyponym("100000002", "100000001"));
+        assertFalse(store.isHyponym("100000001", "100000002"));
+    }
+
+    @Test
+    public void testLemmas() {
+
+        assertEquals("00000002 00000003", store.getSynsetBlock("hot_dog", WordNet.NOUN));
+        assertEquals("00000009", store.getSynsetBlock("dog", WordNet.VERB));
+        assertTrue(store.containsWord("dog", WordNet.NOUN));
+        assertFalse(store.containsWord("dog", WordNet.ADJECTIVE));
+        assertEquals(Lists.newArrayList("100000002"), store.getSynsetsForTerm("Canine"));
+
+        ArrayList<String> multi = new ArrayList<String>();
+        store.collectMultiWords(multi);
+        assertEquals(Lists.newArrayList("hot_dog"), multi);
+
+        Hashtable<String,String> exceptions = new Hashtable<String,String>();
+        store.fillExceptions(WordNetStore.NOUN_EXCEPTIONS, exceptions);
+        assertEquals("dog", exceptions.get("dogs"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.articulate.sigma.nlg;
+
+import com.articulate.sigma.SigmaTestBase;
+import com.articulate.sigma.UnitTestBase;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * ParaphraseService must give the same paraphrases as NLGUtils.htmlParaphrase( ).
+ */
+public class ParaphraseServiceTest extends UnitTestBase {
+
+    private static final String stmt1 = "(domain date 1 Physical)";
+    private static final String stmt2 = "(=> (and (instance ?REL ObjectAttitude) (?REL ?AGENT ?THING)) (instance ?THING Physical))";
+
+    private static String uncached(String stmt) {
+
+        return NLGUtils.htmlParaphrase("", stmt, SigmaTestBase.kb.getFormatMap("EnglishLanguage"),
+                SigmaTestBase.kb.getTermFormatMap("EnglishLanguage"),
+                SigmaTestBase.kb, "EnglishLanguage");
+    }
+
+    @Test
+    public void testSingle() {
+
+        ParaphraseService service = ParaphraseService.getService(SigmaTestBase.kb);
+        String first = service.htmlParaphrase("", stmt1, "EnglishLanguage");
+        assertEquals(uncached(stmt1), first);
+        assertSame(first, service.htmlParaphrase("", stmt1, "EnglishLanguage"));
+    }
+
+    @Test
+    public void testBatch() {
+
+        ParaphraseService service = ParaphraseService.getService(SigmaTestBase.kb);
+        ArrayList<String> actual = service.htmlParaphrase("", Lists.newArrayList(stmt2, stmt1), "EnglishLanguage");
+        assertEquals(Lists.newArrayList(uncached(stmt2), uncached(stmt1)), actual);
+    }
+}
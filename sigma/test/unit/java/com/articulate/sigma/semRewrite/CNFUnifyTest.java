@@ -0,0 +1,87 @@
+package com.articulate.sigma.semRewrite;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class CNFUnifyTest {
+
+    private static final String SENTENCE = "nsubj(drives-2,John-1), root(ROOT-0,drives-2), " +
+            "sumo(Transportation,drives-2), sumo(Human,John-1).";
+
+    private static CNF parse(String s) {
+
+        return CNF.parseSimple(new Lexer(s));
+    }
+
+    /** *************************************************************
+     * Unify with the compiled rule and with the general algorithm and
+     * check that both give the same bindings and sentence flags.
+     */
+    private static HashMap<String,String> unifyBoth(String rule, String sentence) {
+
+        CNF compiledSentence = parse(sentence);
+        HashMap<String,String> compiled = parse(rule).unify(compiledSentence);
+        CNF generalSentence = parse(sentence);
+        HashMap<String,String> general = parse(rule).unifyGeneral(generalSentence);
+        assertEquals(general, compiled);
+        assertEquals(generalSentence.toString(), compiledSentence.toString());
+        return compiled;
+    }
+
+    @Test
+    public void testBindings() {
+
+        HashMap<String,String> expected = new HashMap<String,String>();
+        expected.put("?X", "drives-2");
+        expected.put("?Y", "John-1");
+        expected.put("?O", "Transportation");
+        assertEquals(expected, unifyBoth("nsubj(?X,?Y), sumo(?O,?X).", SENTENCE));
+
+        CNF sentence = parse(SENTENCE);
+        parse("nsubj(?X,?Y), +sumo(?O,?X).").unify(sentence);
+        assertEquals("Xnsubj(drives-2,John-1), root(ROOT-0,drives-2), " +
+                "X+sumo(Transportation,drives-2), sumo(Human,John-1)", sentence.toString());
+    }
+
+    @Test
+    public void testFailures() {
+
+        assertNull(unifyBoth("sense(212345678,?E).", "sense(2123,Foo)."));
+        assertNull(unifyBoth("det(?X,What*), sumo(?O,?X).", SENTENCE));
+        assertNull(unifyBoth("nsubj(?X,?X).", SENTENCE));
+        assertNull(unifyBoth("nsubj(?X,?Y), sumo(Animal,?Y).", SENTENCE));
+        assertNull(unifyBoth("nsubj(?V,?Who*).", SENTENCE));
+    }
+
+    @Test
+    public void testWildcards() {
+
+        HashMap<String,String> expected = new HashMap<String,String>();
+        expected.put("?V", "moves-2");
+        assertEquals(expected, unifyBoth("nsubj(?V,who*).", "nsubj(moves-2,Who-1), sumo(Human,Who-1)."));
+        assertNull(unifyBoth("nsubj(?V,what*).", "nsubj(moves-2,Who-1)."));
+    }
+
+    @Test
+    public void testSentenceVariables() {
+
+        HashMap<String,String> expected = new HashMap<String,String>();
+        expected.put("?X", "drives-2");
+        expected.put("?who", "?Y");
+        assertEquals(expected, unifyBoth("nsubj(?X,?Y).", "nsubj(drives-2,?who)."));
+    }
+
+    @Test
+    public void testRecompileOnChange() {
+
+        CNF rule = parse("sumo(?O,John-1).");
+        CNF sentence = parse(SENTENCE);
+        assertEquals("Human", rule.unify(sentence).get("?O"));
+        rule.clauses.get(0).disjuncts.get(0).arg2 = "drives-2";
+        sentence.clearBound();
+        assertEquals("Transportation", rule.unify(sentence).get("?O"));
+    }
+}
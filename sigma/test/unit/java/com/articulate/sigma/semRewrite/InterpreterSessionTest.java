@@ -0,0 +1,85 @@
+package com.articulate.sigma.semRewrite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class InterpreterSessionTest {
+
+    @Test
+    public void testKIFCache() {
+
+        InterpreterSession session = new InterpreterSession();
+        assertNull(session.getKIF("Mary walks."));
+        session.putKIF("Mary walks.", "(exists (?X) (instance ?X Walking))");
+        assertEquals("(exists (?X) (instance ?X Walking))", session.getKIF("Mary walks."));
+        session.clearKIF();
+        assertNull(session.getKIF("Mary walks."));
+        assertTrue(session.getTold().isEmpty());
+        assertEquals(0, session.getDocument().size());
+    }
+
+    @Test
+    public void testStageTimes() {
+
+        InterpreterSession session = new InterpreterSession();
+        long start = System.nanoTime();
+        session.time("wsd", start);
+        session.time("rules", start);
+        session.time("wsd", start);
+        Map<String,long[]> times = session.getStageTimes();
+        assertEquals(Arrays.asList("wsd", "rules"), Arrays.asList(times.keySet().toArray()));
+        assertEquals(2, times.get("wsd")[0]);
+        assertEquals(1, times.get("rules")[0]);
+        assertTrue(session.timingReport().startsWith("wsd: 2 calls, "));
+        session.resetTimes();
+        assertTrue(session.getStageTimes().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentUse() throws InterruptedException {
+
+        final InterpreterSession session = new InterpreterSession();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final int n = i;
+            Thread t = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        session.time("rules", System.nanoTime());
+                        session.putKIF("sentence " + n + " " + j, "(f " + j + ")");
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(8000, session.getStageTimes().get("rules")[0]);
+        assertEquals("(f 999)", session.getKIF("sentence 7 999"));
+    }
+
+    @Test
+    public void testContext() {
+
+        boolean showr = Interpreter.showr;
+        try {
+            Interpreter.showr = false;
+            InterpreterContext ctx = new InterpreterContext("Who walks? ");
+            assertTrue(ctx.question);
+            assertFalse(ctx.showr);
+            Interpreter.showr = true;
+            assertFalse(ctx.showr);
+            assertFalse(new InterpreterContext("Mary walks.").question);
+        }
+        finally {
+            Interpreter.showr = showr;
+        }
+    }
+}
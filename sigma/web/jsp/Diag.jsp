@@ -100,6 +100,24 @@ out.println(HTMLformatter.createKBMenu(kbName));
 	  out.println(f.htmlFormat(kbHref));
   }
   //out.println(HTMLformatter.termList(noquant,kbHref));
+
+  // Axioms that are the same as, or follow directly from, another axiom
+  RedundantAxiomFinder redundant = RedundantAxiomFinder.forKB(kb);
+  out.println("<br>");
+  out.println(HTMLformatter.htmlDivider("Warning: Axioms that are the same as another axiom up to variable names"));
+  for (ArrayList<Formula> same : redundant.duplicates) {
+      for (Formula f : same)
+          out.println(f.htmlFormat(kbHref));
+      out.println("<hr>");
+  }
+  out.println("<br>");
+  out.println(HTMLformatter.htmlDivider("Warning: Axioms subsumed by a more general axiom"));
+  for (Formula[] pair : redundant.subsumed) {
+      out.println(pair[0].htmlFormat(kbHref));
+      out.println("subsumes<br>");
+      out.println(pair[1].htmlFormat(kbHref));
+      out.println("<hr>");
+  }
       
   out.println("<br>");
   out.println(HTMLformatter.htmlDivider("Warning: Files with mutual dependencies"));
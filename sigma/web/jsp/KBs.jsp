@@ -261,6 +261,7 @@ August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
                   + "\">More Output Utilities</a>");
       out.println(" | <a href=\"Mapping.jsp\">Ontology Mappings</a>");
       out.println(" | <a href=\"WordSense.jsp?lang=" + language + "\">Sense/Sentiment Analysis</a>");  
+      out.println(" | <a href=\"Metrics.jsp\">Metrics</a>");
       out.println("<p>");
 
       kbNames = KBmanager.getMgr().getKBnames().iterator();
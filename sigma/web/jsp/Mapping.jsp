@@ -148,7 +148,7 @@ August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
         kbname2 = "Select a KB";
     if (!kbname1.equals("Select a KB") && !kbname2.equals("Select a KB")) {
         if (find != null && find.startsWith("Find")) 
-            Mapping.mapOntologies(kbname1,kbname2,threshold,matchMethod);        
+            status = Mapping.mapOntologies(kbname1,kbname2,threshold,matchMethod);
         if (save != null && save.startsWith("Save")) 
             status = Mapping.writeEquivalences(cbset,kbname1,kbname2);
         if (merge != null && merge.startsWith("Merge")) {
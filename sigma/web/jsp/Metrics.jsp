@@ -0,0 +1,89 @@
+<%@ include	file="Prelude.jsp" %>
+
+<html>
+  <head>
+    <title>Sigma - Metrics</title>
+  </head>
+<body BGCOLOR=#FFFFFF>
+
+<%
+/** This code is copyright Articulate Software (c) 2003.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or 
+other representations of any software which incorporates, builds on, or uses this 
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment, 
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+*/
+  if (!KBmanager.getMgr().getPref("userRole").equalsIgnoreCase("administrator")) {
+       response.sendRedirect("KBs.jsp");
+       return;
+  }
+  String action = request.getParameter("action");
+  if ("enable".equals(action)) {
+      KBmanager.getMgr().setPref("metrics","yes");
+      Metrics.setEnabled(true);
+  }
+  else if ("disable".equals(action)) {
+      KBmanager.getMgr().setPref("metrics","no");
+      Metrics.setEnabled(false);
+  }
+  else if ("reset".equals(action))
+      Metrics.reset();
+%>
+
+<table width=95% cellspacing=0 cellpadding=0>
+  <tr>
+    <td valign="top">
+      <table cellspacing=0 cellpadding=0>
+        <tr>
+          <td align="left" valign="top"><img src="pixmaps/sigmaSymbol-gray.gif"></td>
+          <td>&nbsp;</td>
+          <td align="left" valign="top"><img src="pixmaps/logoText-gray.gif"><br>
+              <b>Metrics</b></td>
+        </tr>
+      </table>
+    </td>
+    <td valign="bottom"></td>
+    <td><font face="Arial,helvetica" SIZE=-1><b>[ <A href="KBs.jsp">Home</A>&nbsp;|&nbsp;
+        <A href="Properties.jsp">Prefs</A> ]</b></FONT></td>
+  </tr>
+</table>
+<br>
+
+<%
+  out.println("Metrics are <b>" + (Metrics.isEnabled() ? "on" : "off") + "</b>. ");
+  if (Metrics.isEnabled())
+      out.println("<a href=\"Metrics.jsp?action=disable\">Turn off</a>");
+  else
+      out.println("<a href=\"Metrics.jsp?action=enable\">Turn on</a>");
+  out.println(" | <a href=\"Metrics.jsp?action=reset\">Reset</a>");
+  out.println(" | <a href=\"MetricsJSON.jsp\">JSON</a><p>");
+
+  out.println(HTMLformatter.htmlDivider("Timers (milliseconds)"));
+  out.println("<table border=\"1\" cellpadding=\"3\">");
+  out.println("<tr><th>stage</th><th>count</th><th>total</th><th>mean</th><th>min</th><th>max</th>" +
+              "<th>p50</th><th>p90</th><th>p99</th></tr>");
+  for (Map.Entry<String,Map<String,Object>> e : Metrics.getTimers().entrySet()) {
+      Map<String,Object> s = e.getValue();
+      out.print("<tr><td>" + e.getKey() + "</td><td align=\"right\">" + s.get("count") + "</td>");
+      for (String k : new String[] {"totalMs","meanMs","minMs","maxMs","p50Ms","p90Ms","p99Ms"})
+          out.print("<td align=\"right\">" + String.format("%.3f", (Double) s.get(k)) + "</td>");
+      out.println("</tr>");
+  }
+  out.println("</table><p>");
+
+  out.println(HTMLformatter.htmlDivider("Counters"));
+  out.println("<table border=\"1\" cellpadding=\"3\">");
+  for (Map.Entry<String,Long> e : Metrics.getCounters().entrySet())
+      out.println("<tr><td>" + e.getKey() + "</td><td align=\"right\">" + e.getValue() + "</td></tr>");
+  out.println("</table><p>");
+%>
+
+<%@ include file="Postlude.jsp" %>
+</body>
+</html>
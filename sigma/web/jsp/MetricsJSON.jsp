@@ -0,0 +1,27 @@
+<%@ page
+   language="java"
+   import="com.articulate.sigma.*"
+   pageEncoding="UTF-8"
+   contentType="application/json;charset=UTF-8"
+%><%
+/** This code is copyright Articulate Software (c) 2003.  Some portions
+copyright Teknowledge (c) 2003 and reused under the terms of the GNU license.
+This software is released under the GNU Public License <http://www.gnu.org/copyleft/gpl.html>.
+Users of this code also consent, by use of this code, to credit Articulate Software
+and Teknowledge in any writings, briefings, publications, presentations, or 
+other representations of any software which incorporates, builds on, or uses this 
+code.  Please cite the following article in any publication with references:
+
+Pease, A., (2003). The Sigma Ontology Development Environment, 
+in Working Notes of the IJCAI-2003 Workshop on Ontology and Distributed Systems,
+August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
+*/
+  // The timers and counters of Metrics.jsp as JSON.  This page doesn't
+  // include Prelude.jsp, which writes HTML, so it checks the login itself,
+  // and like Metrics.jsp it is only for administrators.
+  if (!"administrator".equalsIgnoreCase(KBmanager.getMgr().getPref("userRole"))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+  }
+  out.print(Metrics.toJSON());
+%>
@@ -34,16 +34,17 @@ August 9, Acapulco, Mexico.  See also http://sigmakee.sourceforge.net
 <%
   String params = "flang=" + flang + "&lang=" + language + "&kb=" + kbName;
   if (synset != null && synset != "")
-      out.println(OMWordnet.displaySynset(kbName,synset,params));           
+      out.println(OMWordnet.displaySynset(kbName,synset,params,
+              Collections.singletonList(OMWordnet.languageToCode(language))));
 %>
 <BR>
 <%
 String SUMOterm = "";
 switch(synset.charAt(synset.length()-1)) {
-case 'n': SUMOterm = WordNet.wn.nounSUMOHash.get(OMWordnet.fromOMWsynset(synset)); break;
-case 'v': SUMOterm = WordNet.wn.verbSUMOHash.get(OMWordnet.fromOMWsynset(synset)); break;
-case 'a': SUMOterm = WordNet.wn.adjectiveSUMOHash.get(OMWordnet.fromOMWsynset(synset)); break;
-case 'r': SUMOterm = WordNet.wn.adverbSUMOHash.get(OMWordnet.fromOMWsynset(synset)); break;
+case 'n': SUMOterm = WordNet.wn.getSUMOMapping("1" + OMWordnet.fromOMWsynset(synset)); break;
+case 'v': SUMOterm = WordNet.wn.getSUMOMapping("2" + OMWordnet.fromOMWsynset(synset)); break;
+case 'a': SUMOterm = WordNet.wn.getSUMOMapping("3" + OMWordnet.fromOMWsynset(synset)); break;
+case 'r': SUMOterm = WordNet.wn.getSUMOMapping("4" + OMWordnet.fromOMWsynset(synset)); break;
 }
 String baseSUMOterm = WordNetUtilities.getBareSUMOTerm(SUMOterm);
 %>